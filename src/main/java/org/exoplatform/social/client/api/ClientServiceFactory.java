@@ -17,6 +17,8 @@
 package org.exoplatform.social.client.api;
 
 import org.exoplatform.social.client.api.service.ActivityService;
+import org.exoplatform.social.client.api.service.AsyncActivityService;
+import org.exoplatform.social.client.api.service.AsyncIdentityService;
 import org.exoplatform.social.client.api.service.IdentityService;
 import org.exoplatform.social.client.api.service.VersionService;
 
@@ -48,4 +50,20 @@ public interface ClientServiceFactory {
    */
   IdentityService createIdentityService();
 
+  /**
+   * Gets the non-blocking activity service.
+   *
+   * @return the async activity service
+   * @throws UnsupportedMethodException when the rest version has no async support
+   */
+  AsyncActivityService createAsyncActivityService();
+
+  /**
+   * Gets the non-blocking identity service.
+   *
+   * @return the async identity service
+   * @throws UnsupportedMethodException when the rest version has no async support
+   */
+  AsyncIdentityService createAsyncIdentityService();
+
 }
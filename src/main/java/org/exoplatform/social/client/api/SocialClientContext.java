@@ -18,9 +18,16 @@ package org.exoplatform.social.client.api;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
 
+import javax.net.ssl.SSLContext;
+
+import org.apache.http.HttpHost;
 import org.apache.http.HttpRequest;
 import org.apache.http.HttpResponse;
+import org.exoplatform.social.client.api.net.RequestTracer;
+import org.exoplatform.social.client.api.net.SocialTransport;
 
 /**
  * The client context to hold states of: host, port, portalContainerName,
@@ -57,6 +64,16 @@ public class SocialClientContext {
     }
   }
 
+  /**
+   * How the requests are balanced across the endpoints.
+   */
+  public static enum LoadBalancing {
+    /** To the endpoint with the fewest requests in flight. */
+    LEAST_OUTSTANDING,
+    /** To the endpoint with the lowest recent latency, weighted by its requests in flight. */
+    EWMA_LATENCY
+  }
+
   public static List<String> supportedVersionList;
 
   static {
@@ -219,17 +236,19 @@ public class SocialClientContext {
   }
 
   /**
-   * Gets current request and response context.
+   * Gets current request and response context: the context of the request sent by the current thread, until
+   * it completes, see {@link RequestTracer} for the completed requests.
    *
-   * @return current context
+   * @return current context, null if the thread has no request in progress
    */
-  public Context getCurrentContext() {
-    return currentContext;
+  public static Context getCurrentContext() {
+    return currentContext.get();
   }
 
 
   /**
-   * Checks to know if this lib is running on development mode to log more info.
+   * Checks to know if this lib is running on development mode to log more info: all the requests
+   * and responses are logged, see {@link #setWireLogging(boolean)}.
    *
    * @return a boolean value
    */
@@ -247,51 +266,1096 @@ public class SocialClientContext {
   }
 
   /**
-   * Sets current request and response context.
+   * Gets the maximum number of pooled connections shared by all services.
    *
-   * @param currentContext the current context
+   * @return the maximum number of connections
    */
-  public void setCurrentContext(Context currentContext) {
-    this.currentContext = currentContext;
+  public static int getMaxTotalConnections() {
+    return maxTotalConnections;
   }
 
-  private static String host;
-  private static int port;
-  private static String protocol = "http";
-  private static String portalContainerName;
-  private static String restContextName;
   /**
-   * Default is the latest version
+   * Sets the maximum number of pooled connections shared by all services.
+   * The new value is used by the next connection pool created.
+   *
+   * @param newMaxTotalConnections the maximum number of connections
    */
-  private static String restVersion = supportedVersionList.get(0);
-  private static String username;
-  private static String password;
-  private static boolean isDeveloping = false;
+  public static void setMaxTotalConnections(int newMaxTotalConnections) {
+    maxTotalConnections = newMaxTotalConnections;
+  }
+
+  /**
+   * Gets the maximum number of pooled connections per host.
+   *
+   * @return the maximum number of connections per host
+   */
+  public static int getMaxConnectionsPerRoute() {
+    return maxConnectionsPerRoute;
+  }
 
-  private Context currentContext;
+  /**
+   * Sets the maximum number of pooled connections per host.
+   * The new value is used by the next connection pool created.
+   *
+   * @param newMaxConnectionsPerRoute the maximum number of connections per host
+   */
+  public static void setMaxConnectionsPerRoute(int newMaxConnectionsPerRoute) {
+    maxConnectionsPerRoute = newMaxConnectionsPerRoute;
+  }
 
+  /**
+   * Gets how long (in milliseconds) a request waits for a pooled connection when all the connections
+   * to its host are in use.
+   *
+   * @return the lease timeout in milliseconds
+   */
+  public static long getConnectionLeaseTimeout() {
+    return connectionLeaseTimeout;
+  }
 
   /**
-   * Keeping the HttpRequest and HttpResponse for Social RestService
-   * @author thanh_vucong
+   * Sets how long (in milliseconds) a request waits for a pooled connection when all the connections
+   * to its host are in use, 0 to wait forever.
+   * The new value is used by the next connection pool created.
    *
+   * @param newConnectionLeaseTimeout the lease timeout in milliseconds
    */
-  public class Context {
-    private HttpRequest  request;
+  public static void setConnectionLeaseTimeout(long newConnectionLeaseTimeout) {
+    connectionLeaseTimeout = newConnectionLeaseTimeout;
+  }
 
-    private HttpResponse response;
+  /**
+   * Gets how long (in milliseconds) a connection is kept alive for reuse when the server
+   * does not send a Keep-Alive timeout.
+   *
+   * @return the keep alive duration in milliseconds
+   */
+  public static long getConnectionKeepAlive() {
+    return connectionKeepAlive;
+  }
 
-    public Context(HttpRequest request, HttpResponse response) {
-      this.request = request;
-      this.response = response;
-    }
+  /**
+   * Sets how long (in milliseconds) a connection is kept alive for reuse when the server
+   * does not send a Keep-Alive timeout.
+   *
+   * @param newConnectionKeepAlive the keep alive duration in milliseconds
+   */
+  public static void setConnectionKeepAlive(long newConnectionKeepAlive) {
+    connectionKeepAlive = newConnectionKeepAlive;
+  }
 
-    public HttpRequest getRequest() {
-      return request;
-    }
+  /**
+   * Gets how long (in milliseconds) a pooled connection may stay idle before it is evicted.
+   *
+   * @return the idle timeout in milliseconds
+   */
+  public static long getIdleConnectionTimeout() {
+    return idleConnectionTimeout;
+  }
 
-    public HttpResponse getResponse() {
-      return response;
+  /**
+   * Sets how long (in milliseconds) a pooled connection may stay idle before it is evicted.
+   * The new value is used by the next connection pool created.
+   *
+   * @param newIdleConnectionTimeout the idle timeout in milliseconds
+   */
+  public static void setIdleConnectionTimeout(long newIdleConnectionTimeout) {
+    idleConnectionTimeout = newIdleConnectionTimeout;
+  }
+
+  /**
+   * Gets the number of I/O threads driving the non-blocking transport of the async services.
+   *
+   * @return the number of I/O threads
+   */
+  public static int getIoThreadCount() {
+    return ioThreadCount;
+  }
+
+  /**
+   * Sets the number of I/O threads driving the non-blocking transport of the async services.
+   * The new value is used by the next async transport created.
+   *
+   * @param newIoThreadCount the number of I/O threads
+   */
+  public static void setIoThreadCount(int newIoThreadCount) {
+    ioThreadCount = newIoThreadCount;
+  }
+
+  /**
+   * Gets the number of threads decoding the responses of the async services and invoking their callbacks.
+   *
+   * @return the number of callback threads
+   */
+  public static int getCallbackThreadCount() {
+    return callbackThreadCount;
+  }
+
+  /**
+   * Sets the number of threads decoding the responses of the async services and invoking their callbacks.
+   * The new value is used by the next async transport created.
+   *
+   * @param newCallbackThreadCount the number of callback threads
+   */
+  public static void setCallbackThreadCount(int newCallbackThreadCount) {
+    callbackThreadCount = newCallbackThreadCount;
+  }
+
+  /**
+   * Checks if the responses are asked to be gzip or deflate compressed.
+   *
+   * @return a boolean value
+   */
+  public static boolean isResponseCompression() {
+    return responseCompression;
+  }
+
+  /**
+   * Sets if the responses are asked to be gzip or deflate compressed, true by default.
+   *
+   * @param newResponseCompression a boolean value
+   */
+  public static void setResponseCompression(boolean newResponseCompression) {
+    responseCompression = newResponseCompression;
+  }
+
+  /**
+   * Checks if the large request contents are gzip compressed.
+   *
+   * @return a boolean value
+   */
+  public static boolean isRequestCompression() {
+    return requestCompression;
+  }
+
+  /**
+   * Sets if the large request contents are gzip compressed, false by default:
+   * the server must be set up to decode gzip encoded requests.
+   *
+   * @param newRequestCompression a boolean value
+   */
+  public static void setRequestCompression(boolean newRequestCompression) {
+    requestCompression = newRequestCompression;
+  }
+
+  /**
+   * Gets the SSL context of the https connections.
+   *
+   * @return the SSL context, null to use a default TLS context trusting the JVM trust store
+   */
+  public static SSLContext getSSLContext() {
+    return sslContext;
+  }
+
+  /**
+   * Sets the SSL context of the https connections, for example to trust the certificate of a test server.
+   * The new value is used by the next connection pool created.
+   *
+   * @param newSSLContext the SSL context, null to use a default TLS context trusting the JVM trust store
+   */
+  public static void setSSLContext(SSLContext newSSLContext) {
+    sslContext = newSSLContext;
+  }
+
+  /**
+   * Gets the maximum number of TLS sessions cached to resume the handshake of new https connections.
+   *
+   * @return the maximum number of sessions, 0 for no limit
+   */
+  public static int getSSLSessionCacheSize() {
+    return sslSessionCacheSize;
+  }
+
+  /**
+   * Sets the maximum number of TLS sessions cached to resume the handshake of new https connections.
+   * The new value is used by the next connection pool created.
+   *
+   * @param newSSLSessionCacheSize the maximum number of sessions, 0 for no limit
+   */
+  public static void setSSLSessionCacheSize(int newSSLSessionCacheSize) {
+    sslSessionCacheSize = newSSLSessionCacheSize;
+  }
+
+  /**
+   * Gets how long (in seconds) a cached TLS session can be resumed.
+   *
+   * @return the session timeout in seconds, 0 for no limit
+   */
+  public static int getSSLSessionTimeout() {
+    return sslSessionTimeout;
+  }
+
+  /**
+   * Sets how long (in seconds) a cached TLS session can be resumed.
+   * The new value is used by the next connection pool created.
+   *
+   * @param newSSLSessionTimeout the session timeout in seconds, 0 for no limit
+   */
+  public static void setSSLSessionTimeout(int newSSLSessionTimeout) {
+    sslSessionTimeout = newSSLSessionTimeout;
+  }
+
+  /**
+   * Gets how many times a failed GET, or a request opted in, is retried.
+   *
+   * @return the maximum number of retries, 0 when the requests are not retried
+   */
+  public static int getMaxRetries() {
+    return maxRetries;
+  }
+
+  /**
+   * Sets how many times a failed GET, or a request opted in, is retried.
+   *
+   * @param newMaxRetries the maximum number of retries, 0 to not retry the requests
+   */
+  public static void setMaxRetries(int newMaxRetries) {
+    maxRetries = newMaxRetries;
+  }
+
+  /**
+   * Gets the wait (in milliseconds) before the first retry, doubled for each next retry.
+   *
+   * @return the wait in milliseconds
+   */
+  public static long getRetryBackoff() {
+    return retryBackoff;
+  }
+
+  /**
+   * Sets the wait (in milliseconds) before the first retry, doubled for each next retry.
+   *
+   * @param newRetryBackoff the wait in milliseconds
+   */
+  public static void setRetryBackoff(long newRetryBackoff) {
+    retryBackoff = newRetryBackoff;
+  }
+
+  /**
+   * Gets the longest wait (in milliseconds) before a retry.
+   *
+   * @return the wait in milliseconds
+   */
+  public static long getMaxRetryBackoff() {
+    return maxRetryBackoff;
+  }
+
+  /**
+   * Sets the longest wait (in milliseconds) before a retry.
+   *
+   * @param newMaxRetryBackoff the wait in milliseconds
+   */
+  public static void setMaxRetryBackoff(long newMaxRetryBackoff) {
+    maxRetryBackoff = newMaxRetryBackoff;
+  }
+
+  /**
+   * Gets the number of consecutive failures to a host which opens its circuit breaker.
+   *
+   * @return the number of failures, 0 when the circuit breakers are disabled
+   */
+  public static int getCircuitBreakerFailureThreshold() {
+    return circuitBreakerFailureThreshold;
+  }
+
+  /**
+   * Sets the number of consecutive failures to a host which opens its circuit breaker.
+   *
+   * @param newCircuitBreakerFailureThreshold the number of failures, 0 to disable the circuit breakers
+   */
+  public static void setCircuitBreakerFailureThreshold(int newCircuitBreakerFailureThreshold) {
+    circuitBreakerFailureThreshold = newCircuitBreakerFailureThreshold;
+  }
+
+  /**
+   * Gets how long (in milliseconds) the requests to a host fail fast once its circuit breaker is open.
+   *
+   * @return the open time in milliseconds
+   */
+  public static long getCircuitBreakerOpenTime() {
+    return circuitBreakerOpenTime;
+  }
+
+  /**
+   * Sets how long (in milliseconds) the requests to a host fail fast once its circuit breaker is open.
+   *
+   * @param newCircuitBreakerOpenTime the open time in milliseconds
+   */
+  public static void setCircuitBreakerOpenTime(long newCircuitBreakerOpenTime) {
+    circuitBreakerOpenTime = newCircuitBreakerOpenTime;
+  }
+
+  /**
+   * Gets how long (in milliseconds) the trial request of a half-open circuit breaker can take: past it,
+   * the circuit opens again, whatever became of the trial.
+   *
+   * @return the half-open timeout in milliseconds
+   */
+  public static long getCircuitBreakerHalfOpenTimeout() {
+    return circuitBreakerHalfOpenTimeout;
+  }
+
+  /**
+   * Sets how long (in milliseconds) the trial request of a half-open circuit breaker can take.
+   *
+   * @param newCircuitBreakerHalfOpenTimeout the half-open timeout in milliseconds
+   */
+  public static void setCircuitBreakerHalfOpenTimeout(long newCircuitBreakerHalfOpenTimeout) {
+    circuitBreakerHalfOpenTimeout = newCircuitBreakerHalfOpenTimeout;
+  }
+
+  /**
+   * Checks if the slow GET requests are hedged with a second identical request.
+   *
+   * @return a boolean value
+   */
+  public static boolean isHedging() {
+    return hedging;
+  }
+
+  /**
+   * Sets if the slow GET requests are hedged with a second identical request, false by default.
+   *
+   * @param newHedging a boolean value
+   */
+  public static void setHedging(boolean newHedging) {
+    hedging = newHedging;
+  }
+
+  /**
+   * Gets the percentile of the recent latencies after which a GET request is hedged.
+   *
+   * @return the percentile, from 1 to 100
+   */
+  public static int getHedgeLatencyPercentile() {
+    return hedgeLatencyPercentile;
+  }
+
+  /**
+   * Sets the percentile of the recent latencies after which a GET request is hedged.
+   *
+   * @param newHedgeLatencyPercentile the percentile, from 1 to 100
+   */
+  public static void setHedgeLatencyPercentile(int newHedgeLatencyPercentile) {
+    hedgeLatencyPercentile = newHedgeLatencyPercentile;
+  }
+
+  /**
+   * Gets the maximum share of the GET requests which are hedged.
+   *
+   * @return the share in percent
+   */
+  public static int getHedgeBudget() {
+    return hedgeBudget;
+  }
+
+  /**
+   * Sets the maximum share of the GET requests which are hedged.
+   *
+   * @param newHedgeBudget the share in percent
+   */
+  public static void setHedgeBudget(int newHedgeBudget) {
+    hedgeBudget = newHedgeBudget;
+  }
+
+  /**
+   * Gets the maximum number of threads running the hedged GET requests and their hedges.
+   *
+   * @return the number of threads
+   */
+  public static int getMaxHedgeThreads() {
+    return maxHedgeThreads;
+  }
+
+  /**
+   * Sets the maximum number of threads running the hedged GET requests and their hedges. When they are all
+   * busy, the requests are executed without hedging. The new value is used by the next hedge executor created.
+   *
+   * @param newMaxHedgeThreads the number of threads
+   */
+  public static void setMaxHedgeThreads(int newMaxHedgeThreads) {
+    maxHedgeThreads = newMaxHedgeThreads;
+  }
+
+  /**
+   * Checks if the in-flight requests to a host are capped by an adaptive concurrency limit.
+   *
+   * @return a boolean value
+   */
+  public static boolean isConcurrencyLimiting() {
+    return concurrencyLimiting;
+  }
+
+  /**
+   * Sets if the in-flight requests to a host are capped by an adaptive concurrency limit, false by default.
+   *
+   * @param newConcurrencyLimiting a boolean value
+   */
+  public static void setConcurrencyLimiting(boolean newConcurrencyLimiting) {
+    concurrencyLimiting = newConcurrencyLimiting;
+  }
+
+  /**
+   * Gets the concurrency limit of a host before it is adapted to the observed latencies.
+   *
+   * @return the number of in-flight requests
+   */
+  public static int getInitialConcurrencyLimit() {
+    return initialConcurrencyLimit;
+  }
+
+  /**
+   * Sets the concurrency limit of a host before it is adapted to the observed latencies.
+   *
+   * @param newInitialConcurrencyLimit the number of in-flight requests
+   */
+  public static void setInitialConcurrencyLimit(int newInitialConcurrencyLimit) {
+    initialConcurrencyLimit = newInitialConcurrencyLimit;
+  }
+
+  /**
+   * Gets the value the concurrency limit of a host never grows beyond.
+   *
+   * @return the number of in-flight requests
+   */
+  public static int getMaxConcurrencyLimit() {
+    return maxConcurrencyLimit;
+  }
+
+  /**
+   * Sets the value the concurrency limit of a host never grows beyond.
+   *
+   * @param newMaxConcurrencyLimit the number of in-flight requests
+   */
+  public static void setMaxConcurrencyLimit(int newMaxConcurrencyLimit) {
+    maxConcurrencyLimit = newMaxConcurrencyLimit;
+  }
+
+  /**
+   * Gets how long a request waits for the concurrency limit of its host before being rejected.
+   *
+   * @return the wait time in milliseconds
+   */
+  public static long getConcurrencyQueueTimeout() {
+    return concurrencyQueueTimeout;
+  }
+
+  /**
+   * Sets how long a request waits for the concurrency limit of its host before being rejected.
+   *
+   * @param newConcurrencyQueueTimeout the wait time in milliseconds, 0 to reject at once
+   */
+  public static void setConcurrencyQueueTimeout(long newConcurrencyQueueTimeout) {
+    concurrencyQueueTimeout = newConcurrencyQueueTimeout;
+  }
+
+  /**
+   * Checks if the authenticated requests reuse the server session of the user instead of
+   * sending Basic credentials every time.
+   *
+   * @return a boolean value
+   */
+  public static boolean isAuthSession() {
+    return authSession;
+  }
+
+  /**
+   * Sets if the authenticated requests reuse the server session of the user instead of
+   * sending Basic credentials every time, false by default.
+   *
+   * @param newAuthSession a boolean value
+   */
+  public static void setAuthSession(boolean newAuthSession) {
+    authSession = newAuthSession;
+  }
+
+  /**
+   * Gets the nodes the requests are balanced across.
+   *
+   * @return the endpoints, null when the requests go to {@link #getHost()} and {@link #getPort()}
+   */
+  public static List<HttpHost> getEndpoints() {
+    return endpoints;
+  }
+
+  /**
+   * Sets the nodes the requests are balanced across, instead of {@link #getHost()} and {@link #getPort()}.
+   *
+   * @param newEndpoints the endpoints, null to use the host and port
+   */
+  public static void setEndpoints(List<HttpHost> newEndpoints) {
+    endpoints = newEndpoints;
+  }
+
+  /**
+   * Gets how the requests are balanced across the endpoints.
+   *
+   * @return the load balancing
+   */
+  public static LoadBalancing getLoadBalancing() {
+    return loadBalancing;
+  }
+
+  /**
+   * Sets how the requests are balanced across the endpoints, LEAST_OUTSTANDING by default.
+   *
+   * @param newLoadBalancing the load balancing
+   */
+  public static void setLoadBalancing(LoadBalancing newLoadBalancing) {
+    loadBalancing = newLoadBalancing;
+  }
+
+  /**
+   * Checks if the authenticated requests of a user always go to the same healthy endpoint.
+   *
+   * @return a boolean value
+   */
+  public static boolean isStickySessions() {
+    return stickySessions;
+  }
+
+  /**
+   * Sets if the authenticated requests of a user always go to the same healthy endpoint, false by default.
+   *
+   * @param newStickySessions a boolean value
+   */
+  public static void setStickySessions(boolean newStickySessions) {
+    stickySessions = newStickySessions;
+  }
+
+  /**
+   * Gets the interval between the health probes of the endpoints.
+   *
+   * @return the interval in milliseconds
+   */
+  public static long getHealthCheckInterval() {
+    return healthCheckInterval;
+  }
+
+  /**
+   * Sets the interval between the health probes of the endpoints.
+   *
+   * @param newHealthCheckInterval the interval in milliseconds, 0 to not probe
+   */
+  public static void setHealthCheckInterval(long newHealthCheckInterval) {
+    healthCheckInterval = newHealthCheckInterval;
+  }
+
+  /**
+   * Gets the number of consecutive failures, of requests or health probes, after which an endpoint is ejected.
+   *
+   * @return the number of failures
+   */
+  public static int getHealthCheckFailureThreshold() {
+    return healthCheckFailureThreshold;
+  }
+
+  /**
+   * Sets the number of consecutive failures, of requests or health probes, after which an endpoint is ejected.
+   *
+   * @param newHealthCheckFailureThreshold the number of failures
+   */
+  public static void setHealthCheckFailureThreshold(int newHealthCheckFailureThreshold) {
+    healthCheckFailureThreshold = newHealthCheckFailureThreshold;
+  }
+
+  /**
+   * Gets the number of connections opened to each endpoint by the warm-up.
+   *
+   * @return the number of connections
+   */
+  public static int getWarmUpConnections() {
+    return warmUpConnections;
+  }
+
+  /**
+   * Sets the number of connections opened to each endpoint by the warm-up,
+   * bounded by {@link #getMaxConnectionsPerRoute()}.
+   *
+   * @param newWarmUpConnections the number of connections
+   */
+  public static void setWarmUpConnections(int newWarmUpConnections) {
+    warmUpConnections = newWarmUpConnections;
+  }
+
+  /**
+   * Gets the transport the services send their requests through.
+   *
+   * @return the transport, null for the default http transport
+   */
+  public static SocialTransport getTransport() {
+    return transport;
+  }
+
+  /**
+   * Sets the transport the services send their requests through.
+   *
+   * @param newTransport the transport, null for the default http transport
+   */
+  public static void setTransport(SocialTransport newTransport) {
+    transport = newTransport;
+  }
+
+  /**
+   * Checks if the requests and responses are logged, see {@link #isDeveloping()} which logs all of them.
+   *
+   * @return true if they are logged
+   */
+  public static boolean isWireLogging() {
+    return wireLogging;
+  }
+
+  /**
+   * Sets if the requests and responses are logged.
+   *
+   * @param newWireLogging true to log them
+   */
+  public static void setWireLogging(boolean newWireLogging) {
+    wireLogging = newWireLogging;
+  }
+
+  /**
+   * Gets the share of the requests which are logged.
+   *
+   * @return the share in percent
+   */
+  public static int getWireLogSampleRate() {
+    return wireLogSampleRate;
+  }
+
+  /**
+   * Sets the share of the requests which are logged.
+   *
+   * @param newWireLogSampleRate the share in percent
+   */
+  public static void setWireLogSampleRate(int newWireLogSampleRate) {
+    wireLogSampleRate = newWireLogSampleRate;
+  }
+
+  /**
+   * Gets the pattern of the request paths which are logged.
+   *
+   * @return the regular expression found in the logged paths, null for all paths
+   */
+  public static String getWireLogPathPattern() {
+    return wireLogPathPattern;
+  }
+
+  /**
+   * Sets the pattern of the request paths which are logged.
+   *
+   * @param newWireLogPathPattern the regular expression found in the logged paths, null for all paths
+   */
+  public static void setWireLogPathPattern(String newWireLogPathPattern) {
+    wireLogPathPattern = newWireLogPathPattern;
+  }
+
+  /**
+   * Gets the maximum number of bytes of a response content which are logged.
+   *
+   * @return the number of bytes, 0 to log no content
+   */
+  public static int getWireLogMaxBodySize() {
+    return wireLogMaxBodySize;
+  }
+
+  /**
+   * Sets the maximum number of bytes of a response content which are logged.
+   *
+   * @param newWireLogMaxBodySize the number of bytes, 0 to log no content
+   */
+  public static void setWireLogMaxBodySize(int newWireLogMaxBodySize) {
+    wireLogMaxBodySize = newWireLogMaxBodySize;
+  }
+
+  /**
+   * Gets the maximum number of exchanges waiting to be logged, the ones beyond are dropped.
+   *
+   * @return the number of exchanges
+   */
+  public static int getWireLogQueueSize() {
+    return wireLogQueueSize;
+  }
+
+  /**
+   * Sets the maximum number of exchanges waiting to be logged, the ones beyond are dropped.
+   *
+   * @param newWireLogQueueSize the number of exchanges
+   */
+  public static void setWireLogQueueSize(int newWireLogQueueSize) {
+    wireLogQueueSize = newWireLogQueueSize;
+  }
+
+  /**
+   * Checks if the latencies, status codes and content bytes of the requests are recorded by endpoint template.
+   *
+   * @return true if they are recorded
+   */
+  public static boolean isRequestMetrics() {
+    return requestMetrics;
+  }
+
+  /**
+   * Sets if the latencies, status codes and content bytes of the requests are recorded by endpoint template.
+   *
+   * @param newRequestMetrics true to record them
+   */
+  public static void setRequestMetrics(boolean newRequestMetrics) {
+    requestMetrics = newRequestMetrics;
+  }
+
+  /**
+   * Gets the tracer notified of the phase timings of each request.
+   *
+   * @return the tracer, null if none
+   */
+  public static RequestTracer getTracer() {
+    return tracer;
+  }
+
+  /**
+   * Sets the tracer notified of the phase timings of each request.
+   *
+   * @param newTracer the tracer, null for none
+   */
+  public static void setTracer(RequestTracer newTracer) {
+    tracer = newTracer;
+  }
+
+  /**
+   * Gets the name of the request header carrying the trace id of each request.
+   *
+   * @return the header name, null if the trace id is not sent
+   */
+  public static String getTraceHeader() {
+    return traceHeader;
+  }
+
+  /**
+   * Sets the name of the request header carrying the trace id of each request.
+   *
+   * @param newTraceHeader the header name, null to not send the trace id
+   */
+  public static void setTraceHeader(String newTraceHeader) {
+    traceHeader = newTraceHeader;
+  }
+
+  /**
+   * Gets the trace id of the requests sent by the current thread.
+   *
+   * @return the trace id, null if a new one is generated for each request
+   */
+  public static String getTraceId() {
+    return traceId.get();
+  }
+
+  /**
+   * Sets the trace id of the requests sent by the current thread, for example the id of the request it
+   * serves, so that the server logs correlate with it.
+   *
+   * @param newTraceId the trace id, null to generate a new one for each request
+   */
+  public static void setTraceId(String newTraceId) {
+    if (newTraceId == null) {
+      traceId.remove();
+    } else {
+      traceId.set(newTraceId);
+    }
+  }
+
+  /**
+   * Checks if the state of the connection pool, of the requests and of the services is exposed
+   * as MBeans on the platform MBean server.
+   *
+   * @return true if it is exposed
+   */
+  public static boolean isJmx() {
+    return jmx;
+  }
+
+  /**
+   * Sets if the state of the connection pool, of the requests and of the services is exposed
+   * as MBeans on the platform MBean server, they are registered when the shared client is created.
+   *
+   * @param newJmx true to expose it
+   */
+  public static void setJmx(boolean newJmx) {
+    jmx = newJmx;
+  }
+
+  /**
+   * Sets current request and response context.
+   *
+   * @param context the current context
+   */
+  public static void setCurrentContext(Context context) {
+    currentContext.set(context);
+  }
+
+  private static String host;
+  private static int port;
+  private static String protocol = "http";
+  private static String portalContainerName;
+  private static String restContextName;
+  /**
+   * Default is the latest version
+   */
+  private static String restVersion = supportedVersionList.get(0);
+  private static String username;
+  private static String password;
+  private static boolean isDeveloping = false;
+  private static int maxTotalConnections = 100;
+  private static int maxConnectionsPerRoute = 20;
+  private static long connectionLeaseTimeout = 10 * 1000;
+  /**
+   * Kept shorter than the default Tomcat keepAliveTimeout (20s) so the client closes first.
+   */
+  private static long connectionKeepAlive = 15 * 1000;
+  private static long idleConnectionTimeout = 30 * 1000;
+  private static int ioThreadCount = 2;
+  private static int callbackThreadCount = 4;
+  private static boolean responseCompression = true;
+  private static boolean requestCompression = false;
+  private static SSLContext sslContext;
+  private static int sslSessionCacheSize = 100;
+  private static int sslSessionTimeout = 24 * 60 * 60;
+  private static int maxRetries = 2;
+  private static long retryBackoff = 100;
+  private static long maxRetryBackoff = 2 * 1000;
+  private static int circuitBreakerFailureThreshold = 5;
+  private static long circuitBreakerOpenTime = 10 * 1000;
+  private static long circuitBreakerHalfOpenTimeout = 30 * 1000;
+  private static boolean hedging = false;
+  private static int hedgeLatencyPercentile = 95;
+  private static int hedgeBudget = 10;
+  private static int maxHedgeThreads = 40;
+  private static boolean concurrencyLimiting = false;
+  private static int initialConcurrencyLimit = 20;
+  private static int maxConcurrencyLimit = 200;
+  private static long concurrencyQueueTimeout = 100;
+  private static boolean authSession = false;
+  private static List<HttpHost> endpoints;
+  private static LoadBalancing loadBalancing = LoadBalancing.LEAST_OUTSTANDING;
+  private static boolean stickySessions = false;
+  private static long healthCheckInterval = 10 * 1000;
+  private static int healthCheckFailureThreshold = 2;
+  private static int warmUpConnections = 4;
+  private static SocialTransport transport;
+  private static boolean wireLogging = false;
+  private static int wireLogSampleRate = 100;
+  private static String wireLogPathPattern;
+  private static int wireLogMaxBodySize = 1024;
+  private static int wireLogQueueSize = 1000;
+  private static boolean requestMetrics = true;
+  private static RequestTracer tracer;
+  private static String traceHeader = "X-Request-Id";
+  private static boolean jmx = true;
+  private static final ThreadLocal<String> traceId = new ThreadLocal<String>();
+
+  private static final ThreadLocal<Context> currentContext = new ThreadLocal<Context>();
+
+
+  /**
+   * Keeping the HttpRequest and HttpResponse for Social RestService, with the trace id sent along the request
+   * and the time spent in each phase of its execution. A context is completed once its response content is
+   * read to its end or closed, or when the request fails; the {@link RequestTracer} is then notified.
+   * @author thanh_vucong
+   *
+   */
+  public static class Context {
+
+    /**
+     * The phases of a request.
+     */
+    public static enum Phase {
+      /** Waiting for a pooled connection. */
+      LEASE,
+      /** Opening a connection, TLS handshake included. */
+      CONNECT,
+      /** Writing the request. */
+      SEND,
+      /** Waiting for the response headers once the request is sent: the server time and the round trip. */
+      SERVER,
+      /** Reading the response content. */
+      TRANSFER,
+      /** Processing the response content between the reads: its JSON decoding by the services. */
+      DECODE
+    }
+
+    private static final Phase[] PHASES = Phase.values();
+
+    private final HttpRequest request;
+
+    private final String traceId;
+
+    private final long startNanos = System.nanoTime();
+
+    private final AtomicLongArray phaseNanos = new AtomicLongArray(PHASES.length);
+
+    private volatile HttpResponse response;
+
+    private volatile Exception failure;
+
+    private volatile long responseNanos;
+
+    private volatile long endNanos;
+
+    private volatile boolean executing;
+
+    public Context(HttpRequest request, HttpResponse response) {
+      this(request, (String) null);
+      this.response = response;
+    }
+
+    /**
+     * Creates the context of a request about to be sent.
+     *
+     * @param request the request
+     * @param traceId the trace id of the request
+     */
+    public Context(HttpRequest request, String traceId) {
+      this.request = request;
+      this.traceId = traceId;
+    }
+
+    /**
+     * Adds time to a phase of the request executing on the current thread, if any.
+     *
+     * @param phase the phase
+     * @param nanos the time in nanoseconds
+     */
+    public static void record(Phase phase, long nanos) {
+      Context context = currentContext.get();
+      if (context != null && context.executing) {
+        context.addPhaseTime(phase, nanos);
+      }
+    }
+
+    public HttpRequest getRequest() {
+      return request;
+    }
+
+    public HttpResponse getResponse() {
+      return response;
+    }
+
+    public String getTraceId() {
+      return traceId;
+    }
+
+    /**
+     * Gets the failure of the request.
+     *
+     * @return the failure, null if the request got a response
+     */
+    public Exception getFailure() {
+      return failure;
+    }
+
+    /**
+     * Checks if the response content is read to its end or closed, or the request failed.
+     *
+     * @return true if the request is completed
+     */
+    public boolean isCompleted() {
+      return endNanos != 0;
+    }
+
+    /**
+     * Gets the time spent in a phase, retries included.
+     *
+     * @param phase the phase
+     * @param unit  the unit of the time
+     * @return the time
+     */
+    public long getPhaseTime(Phase phase, TimeUnit unit) {
+      return unit.convert(phaseNanos.get(phase.ordinal()), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Gets the time from the start of the request until its response headers are received.
+     *
+     * @param unit the unit of the time
+     * @return the time, 0 if no response is received
+     */
+    public long getResponseTime(TimeUnit unit) {
+      return responseNanos == 0 ? 0 : unit.convert(responseNanos - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Gets the time from the start of the request until it is completed.
+     *
+     * @param unit the unit of the time
+     * @return the time, 0 if the request is not completed
+     */
+    public long getTotalTime(TimeUnit unit) {
+      return endNanos == 0 ? 0 : unit.convert(endNanos - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Adds time to a phase.
+     *
+     * @param phase the phase
+     * @param nanos the time in nanoseconds
+     */
+    public void addPhaseTime(Phase phase, long nanos) {
+      phaseNanos.addAndGet(phase.ordinal(), nanos);
+    }
+
+    /**
+     * Marks the request as executing on the current thread, so that its phases are recorded
+     * by {@link #record(Phase, long)}.
+     *
+     * @param newExecuting true while the request is executing
+     */
+    public void setExecuting(boolean newExecuting) {
+      executing = newExecuting;
+    }
+
+    /**
+     * Records the response of the request, once its headers are received.
+     *
+     * @param newResponse the response
+     */
+    public void setResponse(HttpResponse newResponse) {
+      responseNanos = System.nanoTime();
+      response = newResponse;
+    }
+
+    /**
+     * Completes the request: the time between the end of the response headers and the end of the content
+     * not spent reading it is counted as {@link Phase#DECODE}.
+     *
+     * @param newFailure the failure of the request, null if it got a response
+     * @return false if the request was already completed
+     */
+    public synchronized boolean complete(Exception newFailure) {
+      if (endNanos != 0) {
+        return false;
+      }
+      long now = System.nanoTime();
+      failure = newFailure;
+      if (responseNanos != 0) {
+        long decode = now - responseNanos - phaseNanos.get(Phase.TRANSFER.ordinal());
+        addPhaseTime(Phase.DECODE, Math.max(0, decode));
+      }
+      endNanos = now;
+      return true;
+    }
+
+    @Override
+    public String toString() {
+      StringBuilder out = new StringBuilder();
+      out.append(traceId).append(' ').append(request.getRequestLine().getMethod()).append(' ')
+         .append(request.getRequestLine().getUri())
+         .append(String.format(" total=%.1fms", getTotalTime(TimeUnit.MICROSECONDS) / 1e3));
+      for (Phase phase : PHASES) {
+        out.append(String.format(" %s=%.1fms", phase.name().toLowerCase(), getPhaseTime(phase, TimeUnit.MICROSECONDS) / 1e3));
+      }
+      if (failure != null) {
+        out.append(" failure=").append(failure);
+      }
+      return out.toString();
     }
   }
 }
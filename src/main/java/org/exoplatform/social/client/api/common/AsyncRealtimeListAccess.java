@@ -0,0 +1,60 @@
+/*
+ * Copyright (C) 2003-2011 eXo Platform SAS.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.exoplatform.social.client.api.common;
+
+import java.util.List;
+import java.util.concurrent.Future;
+
+import org.exoplatform.social.client.api.service.AsyncCallback;
+
+/**
+ * The non-blocking counterpart of the loads of {@link RealtimeListAccess}.
+ *
+ * @param <E> the type of the elements
+ */
+public interface AsyncRealtimeListAccess<E> {
+
+  /**
+   * Loads elements from the provided index.
+   *
+   * @param index    the index of the first element
+   * @param limit    number of elements to load
+   * @param callback the callback notified on completion, can be null
+   * @return the future of the list of elements
+   */
+  Future<List<E>> loadAsList(int index, int limit, AsyncCallback<List<E>> callback);
+
+  /**
+   * Loads newer elements based on the provided element.
+   *
+   * @param baseElement the based element
+   * @param limit       number of newer elements to load
+   * @param callback    the callback notified on completion, can be null
+   * @return the future of the list of newer elements
+   */
+  Future<List<E>> loadNewerAsList(E baseElement, int limit, AsyncCallback<List<E>> callback);
+
+  /**
+   * Loads older elements based on the provided element.
+   *
+   * @param baseElement the based element
+   * @param limit       number of older elements to load
+   * @param callback    the callback notified on completion, can be null
+   * @return the future of the list of older elements
+   */
+  Future<List<E>> loadOlderAsList(E baseElement, int limit, AsyncCallback<List<E>> callback);
+}
@@ -0,0 +1,32 @@
+/*
+ * Copyright (C) 2003-2011 eXo Platform SAS.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.exoplatform.social.client.api.common;
+
+/**
+ * Receives the elements of a list, one at a time, while the list is loaded.
+ *
+ * @param <E> the type of the elements
+ */
+public interface ElementHandler<E> {
+
+  /**
+   * Handles an element as soon as it is decoded. An exception thrown here stops the load.
+   *
+   * @param element the element
+   */
+  void handle(E element);
+}
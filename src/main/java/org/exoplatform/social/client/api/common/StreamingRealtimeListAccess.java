@@ -0,0 +1,59 @@
+/*
+ * Copyright (C) 2003-2011 eXo Platform SAS.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.exoplatform.social.client.api.common;
+
+import org.exoplatform.social.client.api.SocialClientLibException;
+
+/**
+ * The streaming counterpart of the loads of {@link RealtimeListAccess}: each element is handed to an
+ * {@link ElementHandler} as soon as it is read from the connection, so that it can be used while the rest
+ * of the list is still being received, and it is not kept once handled.
+ *
+ * @param <E> the type of the elements
+ */
+public interface StreamingRealtimeListAccess<E> {
+
+  /**
+   * Loads elements from the provided index.
+   *
+   * @param index   the index of the first element
+   * @param limit   number of elements to load
+   * @param handler the handler of the elements, called on the current thread
+   * @return the number of elements handled
+   */
+  int load(int index, int limit, ElementHandler<? super E> handler) throws SocialClientLibException;
+
+  /**
+   * Loads newer elements based on the provided element.
+   *
+   * @param baseElement the based element
+   * @param limit       number of newer elements to load
+   * @param handler     the handler of the elements, called on the current thread
+   * @return the number of elements handled
+   */
+  int loadNewer(E baseElement, int limit, ElementHandler<? super E> handler) throws SocialClientLibException;
+
+  /**
+   * Loads older elements based on the provided element.
+   *
+   * @param baseElement the based element
+   * @param limit       number of older elements to load
+   * @param handler     the handler of the elements, called on the current thread
+   * @return the number of elements handled
+   */
+  int loadOlder(E baseElement, int limit, ElementHandler<? super E> handler) throws SocialClientLibException;
+}
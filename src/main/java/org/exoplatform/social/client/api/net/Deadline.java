@@ -0,0 +1,208 @@
+/*
+ * Copyright (C) 2003-2011 eXo Platform SAS.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.exoplatform.social.client.api.net;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.client.methods.AbortableHttpRequest;
+
+/**
+ * A time budget for the service calls of the current thread, for example:
+ * <pre>
+ *   Deadline deadline = Deadline.start(800, TimeUnit.MILLISECONDS);
+ *   try {
+ *     RestActivity activity = activityService.get(activityId);
+ *     List&lt;RestActivity&gt; activities = activityService.getActivityStream(identity).loadAsList(0, 20);
+ *   } finally {
+ *     deadline.end();
+ *   }
+ * </pre>
+ * The remaining time bounds the wait for a pooled connection, the connect and the read timeouts, and the
+ * retries. When the budget is spent, the requests still in flight are aborted and the next requests fail
+ * with a {@link DeadlineExceededException}. A deadline started within another one never ends later.
+ */
+public final class Deadline {
+
+  private static final ThreadLocal<Deadline> CURRENT = new ThreadLocal<Deadline>();
+
+  private static ScheduledExecutorService timer;
+
+  private final long deadline;
+
+  private final Deadline outer;
+
+  private final List<AbortableHttpRequest> requests = new ArrayList<AbortableHttpRequest>();
+
+  private ScheduledFuture<?> expiry;
+
+  private boolean ended;
+
+  /**
+   * Starts a deadline for the current thread.
+   *
+   * @param timeout the time budget
+   * @param unit    the unit of the time budget
+   * @return the deadline, to end when the calls are done
+   */
+  public static Deadline start(long timeout, TimeUnit unit) {
+    Deadline outer = CURRENT.get();
+    long deadline = System.nanoTime() + unit.toNanos(timeout);
+    if (outer != null && outer.deadline - deadline < 0) {
+      deadline = outer.deadline;
+    }
+    Deadline current = new Deadline(deadline, outer);
+    CURRENT.set(current);
+    return current;
+  }
+
+  /**
+   * Gets the deadline of the current thread.
+   *
+   * @return the deadline, null when no deadline is started
+   */
+  public static Deadline current() {
+    return CURRENT.get();
+  }
+
+  private Deadline(long deadline, Deadline outer) {
+    this.deadline = deadline;
+    this.outer = outer;
+  }
+
+  /**
+   * Gets the time left.
+   *
+   * @param unit the unit of the result
+   * @return the time left, 0 when the deadline is passed
+   */
+  public long getRemaining(TimeUnit unit) {
+    return unit.convert(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+  }
+
+  public boolean isExpired() {
+    return deadline - System.nanoTime() <= 0;
+  }
+
+  /**
+   * Checks there is time left.
+   *
+   * @throws DeadlineExceededException when the deadline is passed
+   */
+  public void check() throws DeadlineExceededException {
+    if (isExpired()) {
+      throw new DeadlineExceededException("The deadline of the call is exceeded.");
+    }
+  }
+
+  /**
+   * Registers a request to abort if it is still in flight when the deadline passes.
+   *
+   * @param request the request
+   */
+  public void register(AbortableHttpRequest request) {
+    boolean abort;
+    synchronized (this) {
+      abort = ended || isExpired();
+      if (!abort) {
+        requests.add(request);
+        if (expiry == null) {
+          expiry = getTimer().schedule(new Runnable() {
+            @Override
+            public void run() {
+              abortRequests();
+            }
+          }, deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+      }
+    }
+    if (abort) {
+      request.abort();
+    }
+  }
+
+  /**
+   * Unregisters a request which completed: it is no longer aborted when the deadline passes.
+   *
+   * @param request the request
+   */
+  public synchronized void unregister(AbortableHttpRequest request) {
+    requests.remove(request);
+  }
+
+  /**
+   * Gets the number of registered requests still in flight.
+   *
+   * @return the number of requests
+   */
+  public synchronized int getInFlight() {
+    return requests.size();
+  }
+
+  /**
+   * Ends this deadline, the deadline it was started within, if any, becomes the current one again.
+   */
+  public void end() {
+    synchronized (this) {
+      ended = true;
+      requests.clear();
+      if (expiry != null) {
+        expiry.cancel(false);
+      }
+    }
+    if (CURRENT.get() == this) {
+      if (outer != null) {
+        CURRENT.set(outer);
+      } else {
+        CURRENT.remove();
+      }
+    }
+  }
+
+  private void abortRequests() {
+    List<AbortableHttpRequest> inFlight;
+    synchronized (this) {
+      if (ended) {
+        return;
+      }
+      inFlight = new ArrayList<AbortableHttpRequest>(requests);
+      requests.clear();
+    }
+    for (AbortableHttpRequest request : inFlight) {
+      request.abort();
+    }
+  }
+
+  private static synchronized ScheduledExecutorService getTimer() {
+    if (timer == null) {
+      timer = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+          Thread thread = new Thread(r, "social-client-deadline");
+          thread.setDaemon(true);
+          return thread;
+        }
+      });
+    }
+    return timer;
+  }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright (C) 2003-2011 eXo Platform SAS.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.exoplatform.social.client.api.net;
+
+/**
+ * Thrown when the time budget of the {@link Deadline} of the current thread is spent.
+ */
+@SuppressWarnings("serial")
+public class DeadlineExceededException extends SocialHttpClientException {
+
+  /**
+   * Constructor for DeadlineExceededException.
+   *
+   * @param message the message of exception
+   */
+  public DeadlineExceededException(String message) {
+    super(message);
+  }
+
+  /**
+   * Constructor for DeadlineExceededException.
+   *
+   * @param message the message of exception
+   * @param cause   the I/O error raised when the deadline passed
+   */
+  public DeadlineExceededException(String message, Throwable cause) {
+    super(message, cause);
+  }
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright (C) 2003-2011 eXo Platform SAS.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.exoplatform.social.client.api.net;
+
+import org.exoplatform.social.client.api.SocialClientContext;
+
+/**
+ * Notified of each completed request, with its trace id and the time spent in each of its phases,
+ * see {@link SocialClientContext#setTracer(RequestTracer)}.
+ */
+public interface RequestTracer {
+
+  /**
+   * Called once a request is completed: its response content is read to its end or closed, or it failed.
+   * Called on the thread completing it, which waits for the tracer to return.
+   *
+   * @param context the context of the request
+   */
+  void traced(SocialClientContext.Context context);
+}
@@ -33,6 +33,14 @@ public interface SocialHttpClient extends HttpClient {
   /**
    * Setting the basic authenticate which uses 
    * the username/password in <code>SocialClientContext</code>
+   *
+   * @deprecated the client is shared, the credentials are given to each BASIC_AUTH request instead
    */
+  @Deprecated
   public void setBasicAuthenticateToRequest() throws SocialClientLibException;
+
+  /**
+   * Shuts down this client and closes all its connections.
+   */
+  public void shutdown();
 }
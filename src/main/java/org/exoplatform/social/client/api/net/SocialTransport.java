@@ -0,0 +1,56 @@
+/*
+ * Copyright (C) 2003-2011 eXo Platform SAS.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.exoplatform.social.client.api.net;
+
+import java.util.concurrent.Future;
+
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.exoplatform.social.client.api.net.SocialHttpClient.POLICY;
+import org.exoplatform.social.client.api.service.AsyncCallback;
+
+/**
+ * The transport all services send their requests through, see
+ * {@link org.exoplatform.social.client.api.SocialClientContext#setTransport(SocialTransport)}.
+ * The default transport sends them over http to the Social rest server; another one can serve them
+ * from memory, to measure the client overhead apart from the network, or over another protocol.
+ */
+public interface SocialTransport {
+
+  /**
+   * Executes a request and waits for its response.
+   *
+   * @param request    the request, its path relative to the server
+   * @param authPolicy POLICY.NO_AUTH/POLICY.BASIC_AUTH
+   * @return the response, its content may still be streamed
+   * @throws SocialHttpClientException when no response is received
+   */
+  HttpResponse execute(HttpUriRequest request, POLICY authPolicy) throws SocialHttpClientException;
+
+  /**
+   * Executes a request without blocking the caller thread.
+   *
+   * @param request    the request, its path relative to the server
+   * @param authPolicy POLICY.NO_AUTH/POLICY.BASIC_AUTH
+   * @param callback   the callback notified of the buffered response, can be null
+   * @return the future of the response
+   * @throws SocialHttpClientException when the request cannot be sent
+   */
+  Future<HttpResponse> executeAsync(HttpRequest request, POLICY authPolicy,
+                                    AsyncCallback<HttpResponse> callback) throws SocialHttpClientException;
+}
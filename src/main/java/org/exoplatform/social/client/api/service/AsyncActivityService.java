@@ -0,0 +1,126 @@
+/*
+ * Copyright (C) 2003-2011 eXo Platform SAS.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.exoplatform.social.client.api.service;
+
+import java.util.concurrent.Future;
+
+import org.exoplatform.social.client.api.common.AsyncRealtimeListAccess;
+import org.exoplatform.social.client.api.model.RestComment;
+import org.exoplatform.social.client.api.model.RestIdentity;
+import org.exoplatform.social.client.api.model.RestLike;
+
+/**
+ * The non-blocking counterpart of {@link ActivityService}: the calls return at once and complete
+ * on the callback threads of the async transport.
+ *
+ * @param <Activity> the type of the activities
+ */
+public interface AsyncActivityService<Activity> {
+
+  /**
+   * Creates a new activity.
+   *
+   * @param newActivity the new activity
+   * @param callback    the callback notified on completion, can be null
+   * @return the future of the created activity
+   */
+  Future<Activity> create(Activity newActivity, AsyncCallback<Activity> callback);
+
+  /**
+   * Gets an activity by its id.
+   *
+   * @param activityId the activity id
+   * @param callback   the callback notified on completion, can be null
+   * @return the future of the activity
+   */
+  Future<Activity> get(String activityId, AsyncCallback<Activity> callback);
+
+  /**
+   * Gets an activity by its id with the provided query params.
+   *
+   * @param activityId  the activity id
+   * @param queryParams the query params
+   * @param callback    the callback notified on completion, can be null
+   * @return the future of the activity
+   */
+  Future<Activity> get(String activityId, QueryParams queryParams, AsyncCallback<Activity> callback);
+
+  /**
+   * Creates a comment on an existing activity.
+   *
+   * @param existingActivity the existing activity
+   * @param newComment       the new comment
+   * @param callback         the callback notified on completion, can be null
+   * @return the future of the created comment
+   */
+  Future<RestComment> createComment(Activity existingActivity, RestComment newComment,
+                                    AsyncCallback<RestComment> callback);
+
+  /**
+   * Likes an existing activity.
+   *
+   * @param existingActivity the existing activity
+   * @param callback         the callback notified on completion, can be null
+   * @return the future of the like
+   */
+  Future<RestLike> like(Activity existingActivity, AsyncCallback<RestLike> callback);
+
+  /**
+   * Unlikes an existing activity.
+   *
+   * @param existingActivity the existing activity
+   * @param callback         the callback notified on completion, can be null
+   * @return the future of the removed like
+   */
+  Future<RestLike> unlike(Activity existingActivity, AsyncCallback<RestLike> callback);
+
+  /**
+   * Gets the activity stream of an identity.
+   *
+   * @param identity    the identity
+   * @param queryParams the query params, can be null
+   * @return the async list access
+   */
+  AsyncRealtimeListAccess<Activity> getActivityStream(RestIdentity identity, QueryParams queryParams);
+
+  /**
+   * Gets the activity stream of the spaces of an user identity.
+   *
+   * @param userIdentity the user identity
+   * @param queryParams  the query params, can be null
+   * @return the async list access
+   */
+  AsyncRealtimeListAccess<Activity> getSpacesActivityStream(RestIdentity userIdentity, QueryParams queryParams);
+
+  /**
+   * Gets the activity stream of the connections of an user identity.
+   *
+   * @param userIdentity the user identity
+   * @param queryParams  the query params, can be null
+   * @return the async list access
+   */
+  AsyncRealtimeListAccess<Activity> getConnectionsActivityStream(RestIdentity userIdentity, QueryParams queryParams);
+
+  /**
+   * Gets the activity feed of an user identity.
+   *
+   * @param userIdentity the user identity
+   * @param queryParams  the query params, can be null
+   * @return the async list access
+   */
+  AsyncRealtimeListAccess<Activity> getFeedActivityStream(RestIdentity userIdentity, QueryParams queryParams);
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright (C) 2003-2011 eXo Platform SAS.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.exoplatform.social.client.api.service;
+
+/**
+ * Receives the outcome of an asynchronous call. The methods are invoked on the callback threads
+ * of the async transport, shared by all the calls, so implementations should return quickly.
+ *
+ * @param <T> the type of the result
+ */
+public interface AsyncCallback<T> {
+
+  /**
+   * Invoked when the call completes successfully.
+   *
+   * @param result the result of the call
+   */
+  void completed(T result);
+
+  /**
+   * Invoked when the call fails.
+   * The exception is a {@link org.exoplatform.social.client.api.SocialClientLibException}
+   * for error responses, or a {@link ServiceException} otherwise.
+   *
+   * @param ex the failure
+   */
+  void failed(Exception ex);
+
+  /**
+   * Invoked when the call is cancelled.
+   */
+  void cancelled();
+}
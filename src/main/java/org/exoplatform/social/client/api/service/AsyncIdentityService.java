@@ -0,0 +1,47 @@
+/*
+ * Copyright (C) 2003-2011 eXo Platform SAS.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.exoplatform.social.client.api.service;
+
+import java.util.concurrent.Future;
+
+/**
+ * The non-blocking counterpart of {@link IdentityService}: the calls return at once and complete
+ * on the callback threads of the async transport.
+ *
+ * @param <Identity> the type of the identities
+ */
+public interface AsyncIdentityService<Identity> {
+
+  /**
+   * Gets an identity by its id.
+   *
+   * @param uuid     the identity id
+   * @param callback the callback notified on completion, can be null
+   * @return the future of the identity
+   */
+  Future<Identity> get(String uuid, AsyncCallback<Identity> callback);
+
+  /**
+   * Gets an identity by its provider and remote id.
+   *
+   * @param identityProvider the identity provider
+   * @param remoteId         the remote id
+   * @param callback         the callback notified on completion, can be null
+   * @return the future of the identity
+   */
+  Future<Identity> getIdentity(String identityProvider, String remoteId, AsyncCallback<Identity> callback);
+}
@@ -16,8 +16,39 @@
  */
 package org.exoplatform.social.client.core;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.HttpHost;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.message.BasicHttpResponse;
+import org.apache.http.protocol.HTTP;
 import org.exoplatform.social.client.api.ClientServiceFactory;
 import org.exoplatform.social.client.api.SocialClientContext;
+import org.exoplatform.social.client.api.UnsupportedMethodException;
+import org.exoplatform.social.client.api.UnsupportedRestVersionException;
+import org.exoplatform.social.client.api.model.RestActivity;
+import org.exoplatform.social.client.api.service.ServiceException;
+import org.exoplatform.social.client.core.model.RestActivityImpl;
+import org.exoplatform.social.client.core.model.RestIdentityImpl;
+import org.exoplatform.social.client.core.net.EndpointPool;
+import org.exoplatform.social.client.core.net.ModelEntity;
+import org.exoplatform.social.client.core.net.SocialHttpClientImpl;
+import org.exoplatform.social.client.core.service.ActivitiesRealtimeListAccessV1Alpha1;
+import org.exoplatform.social.client.core.service.ActivitiesRealtimeListAccessV1Alpha2;
+import org.exoplatform.social.client.core.service.ActivitiesRealtimeListAccessV1Alpha3;
+import org.exoplatform.social.client.core.service.VersionServiceImpl;
+import org.exoplatform.social.client.core.util.SocialJSONDecodingSupport;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -39,6 +70,25 @@ public class ClientServiceFactoryHelper {
    */
   private static final Logger LOG = LoggerFactory.getLogger(ClientServiceFactoryHelper.class);
 
+  /**
+   * The synthetic models decoded and encoded by the warm-up.
+   */
+  private static final String ACTIVITY_JSON = "{\"appId\":null,\"identityId\":\"f845f6ed7f000101003ed4d98a09beb3\","
+      + "\"totalNumberOfComments\":0,\"liked\":false,\"templateParams\":{},\"postedTime\":1309839511830,"
+      + "\"type\":\"DEFAULT_ACTIVITY\",\"posterIdentity\":null,\"activityStream\":null,"
+      + "\"id\":\"f884d11a7f000101000230e5c0e8a602\",\"title\":\"hello\",\"priority\":null,"
+      + "\"createdAt\":\"Tue Jul 5 11:18:31 +0700 2011\",\"likedByIdentities\":null,\"titleId\":null,\"comments\":null}";
+
+  private static final String IDENTITY_JSON = "{\"id\":\"f845f6ed7f000101003ed4d98a09beb3\",\"providerId\":\"organization\","
+      + "\"remoteId\":\"demo\",\"profile\":{\"fullName\":\"Demo gtn\",\"avatarUrl\":null}}";
+
+  /**
+   * Enough for the JIT to compile the hot paths of the codecs.
+   */
+  private static final int CODEC_ITERATIONS = 2000;
+
+  private static final long WARM_UP_TIMEOUT = 10 * 1000;
+
   private static ClientServiceFactory clientServiceFactory;
 
   /**
@@ -66,6 +116,177 @@ public class ClientServiceFactoryHelper {
     return clientServiceFactory;
   }
 
+  /**
+   * Gets the rest version of the services of the current factory, the negotiated one after
+   * {@link #warmUp()}.
+   *
+   * @return the rest version, null if no factory was created yet
+   */
+  public static String getCurrentRestVersion() {
+    return currentRestVersion;
+  }
+
+  /**
+   * Drops the current factory and its services, the next call to {@link #getClientServiceFactory()}
+   * creates them again.
+   */
+  public static void resetClientServiceFactory() {
+    clientServiceFactory = null;
+  }
+
+  /**
+   * Prepares the client so that the first requests are served at steady-state latency: negotiates the
+   * rest version with the server, initializes the services of this version, opens
+   * {@link SocialClientContext#getWarmUpConnections()} kept-alive pooled connections to each endpoint and
+   * runs the JSON decoding and encoding paths on synthetic models. To call once the context is set,
+   * before the first requests.
+   *
+   * @return the negotiated rest version: the configured one when the server supports it,
+   *         otherwise the latest one supported by both the client and the server
+   * @throws ServiceException when the server cannot be reached
+   * @throws UnsupportedRestVersionException when the server supports none of the client versions
+   */
+  public static String warmUp() throws ServiceException {
+    String restVersion = negotiateRestVersion();
+    ClientServiceFactory factory = getClientServiceFactory();
+    //loads the services and their static urls
+    factory.createActivityService();
+    factory.createIdentityService();
+    try {
+      factory.createAsyncActivityService();
+      factory.createAsyncIdentityService();
+    } catch (UnsupportedMethodException e) {
+      LOG.debug("No async services in " + restVersion);
+    }
+    String listAccessClass = ActivitiesRealtimeListAccessV1Alpha3.class.getName();
+    if (V1_ALPHA2.toString().equals(restVersion)) {
+      listAccessClass = ActivitiesRealtimeListAccessV1Alpha2.class.getName();
+    } else if (V1_ALPHA1.toString().equals(restVersion)) {
+      listAccessClass = ActivitiesRealtimeListAccessV1Alpha1.class.getName();
+    }
+    try {
+      Class.forName(listAccessClass, true, ClientServiceFactoryHelper.class.getClassLoader());
+    } catch (ClassNotFoundException e) {
+      throw new IllegalStateException(e);
+    }
+    //a custom transport opens no pooled connections
+    if (SocialClientContext.getTransport() == null) {
+      for (EndpointPool.Endpoint endpoint : EndpointPool.getEndpoints()) {
+        openConnections(endpoint.getHost());
+      }
+    }
+    warmUpCodecs();
+    return restVersion;
+  }
+
+  private static String negotiateRestVersion() throws ServiceException {
+    List<String> serverVersions = Arrays.asList(new VersionServiceImpl().getSupported());
+    String restVersion = SocialClientContext.getRestVersion();
+    if (!serverVersions.contains(restVersion)) {
+      String negotiated = null;
+      //the latest first
+      for (String version : SocialClientContext.supportedVersionList) {
+        if (serverVersions.contains(version)) {
+          negotiated = version;
+          break;
+        }
+      }
+      if (negotiated == null) {
+        throw new UnsupportedRestVersionException("The server supports none of " + SocialClientContext.supportedVersionList
+            + " but " + serverVersions + ".");
+      }
+      LOG.info("The server does not support " + restVersion + ", using " + negotiated);
+      SocialClientContext.setRestVersion(negotiated);
+      restVersion = negotiated;
+    }
+    return restVersion;
+  }
+
+  /**
+   * Opens connections by sending concurrent requests and holding their responses until all are received,
+   * so that no request reuses the connection of another.
+   */
+  private static void openConnections(final HttpHost host) {
+    int connections = Math.min(SocialClientContext.getWarmUpConnections(), SocialClientContext.getMaxConnectionsPerRoute());
+    if (connections <= 0) {
+      return;
+    }
+    final String path = "/" + SocialClientContext.getRestContextName() + "/api/social/version/latest.json";
+    final CountDownLatch received = new CountDownLatch(connections);
+    final CountDownLatch release = new CountDownLatch(1);
+    ExecutorService executor = Executors.newFixedThreadPool(connections);
+    try {
+      for (int i = 0; i < connections; i++) {
+        executor.execute(new Runnable() {
+          @Override
+          public void run() {
+            HttpGet request = new HttpGet(path);
+            try {
+              HttpResponse response = SocialHttpClientImpl.getInstance().execute(host, request);
+              received.countDown();
+              release.await();
+              if (response.getEntity() != null) {
+                response.getEntity().consumeContent();
+              }
+            } catch (IOException e) {
+              LOG.warn("Failed to open a connection to " + host + ": " + e);
+              request.abort();
+              received.countDown();
+            } catch (InterruptedException e) {
+              request.abort();
+            }
+          }
+        });
+      }
+      received.await(WARM_UP_TIMEOUT, TimeUnit.MILLISECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      release.countDown();
+      executor.shutdown();
+      try {
+        executor.awaitTermination(WARM_UP_TIMEOUT, TimeUnit.MILLISECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+  }
+
+  /**
+   * Runs the decoding and encoding of the models until the JIT compiles them.
+   */
+  private static void warmUpCodecs() {
+    try {
+      byte[] activity = ACTIVITY_JSON.getBytes(HTTP.UTF_8);
+      byte[] identity = IDENTITY_JSON.getBytes(HTTP.UTF_8);
+      StringBuilder activities = new StringBuilder("{\"activities\":[");
+      for (int i = 0; i < 20; i++) {
+        activities.append(i == 0 ? "" : ",").append(ACTIVITY_JSON);
+      }
+      byte[] activityPage = activities.append("]}").toString().getBytes(HTTP.UTF_8);
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      for (int i = 0; i < CODEC_ITERATIONS; i++) {
+        RestActivity restActivity = SocialJSONDecodingSupport.parser(RestActivityImpl.class, syntheticResponse(activity));
+        SocialJSONDecodingSupport.parser(RestIdentityImpl.class, syntheticResponse(identity));
+        if (i % 20 == 0) {
+          SocialJSONDecodingSupport.JSONArrayObjectParser(RestActivityImpl.class, syntheticResponse(activityPage), "activities");
+        }
+        out.reset();
+        new ModelEntity(restActivity).writeTo(out);
+      }
+    } catch (Exception e) {
+      LOG.warn("Failed to warm up the JSON codecs.", e);
+    }
+  }
+
+  private static HttpResponse syntheticResponse(byte[] json) {
+    HttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, HttpStatus.SC_OK, "OK");
+    ByteArrayEntity entity = new ByteArrayEntity(json);
+    entity.setContentType("application/json; charset=" + HTTP.UTF_8);
+    response.setEntity(entity);
+    return response;
+  }
+
   private static boolean isVersionChanged() {
     if (!SocialClientContext.getRestVersion().equals(currentRestVersion)) {
       LOG.warn("restVersion changed, from: " + currentRestVersion + " to: " + SocialClientContext.getRestVersion());
@@ -17,7 +17,10 @@
 package org.exoplatform.social.client.core;
 
 import org.exoplatform.social.client.api.ClientServiceFactory;
+import org.exoplatform.social.client.api.UnsupportedMethodException;
 import org.exoplatform.social.client.api.service.ActivityService;
+import org.exoplatform.social.client.api.service.AsyncActivityService;
+import org.exoplatform.social.client.api.service.AsyncIdentityService;
 import org.exoplatform.social.client.api.service.IdentityService;
 import org.exoplatform.social.client.api.service.VersionService;
 import org.exoplatform.social.client.core.service.ActivityServiceImplV1Alpha1;
@@ -70,4 +73,20 @@ public class ClientServiceFactoryImplV1Alpha1 implements ClientServiceFactory {
     return identityService;
   }
 
+  /**
+   * Not supported by the v1-alpha1 rest api.
+   */
+  @Override
+  public AsyncActivityService createAsyncActivityService() {
+    throw new UnsupportedMethodException();
+  }
+
+  /**
+   * Not supported by the v1-alpha1 rest api.
+   */
+  @Override
+  public AsyncIdentityService createAsyncIdentityService() {
+    throw new UnsupportedMethodException();
+  }
+
 }
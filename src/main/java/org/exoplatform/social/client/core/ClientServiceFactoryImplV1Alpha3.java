@@ -18,9 +18,13 @@ package org.exoplatform.social.client.core;
 
 import org.exoplatform.social.client.api.ClientServiceFactory;
 import org.exoplatform.social.client.api.service.ActivityService;
+import org.exoplatform.social.client.api.service.AsyncActivityService;
+import org.exoplatform.social.client.api.service.AsyncIdentityService;
 import org.exoplatform.social.client.api.service.IdentityService;
 import org.exoplatform.social.client.api.service.VersionService;
 import org.exoplatform.social.client.core.service.ActivityServiceImplV1Alpha3;
+import org.exoplatform.social.client.core.service.AsyncActivityServiceImplV1Alpha3;
+import org.exoplatform.social.client.core.service.AsyncIdentityServiceImplV1Alpha3;
 import org.exoplatform.social.client.core.service.IdentityServiceImplV1Alpha3;
 import org.exoplatform.social.client.core.service.VersionServiceImpl;
 
@@ -36,6 +40,8 @@ public class ClientServiceFactoryImplV1Alpha3 implements ClientServiceFactory {
   private VersionService versionService;
   private ActivityService activityService;
   private IdentityService identityService;
+  private AsyncActivityService asyncActivityService;
+  private AsyncIdentityService asyncIdentityService;
 
   /**
    * {@inheritDoc}
@@ -70,4 +76,26 @@ public class ClientServiceFactoryImplV1Alpha3 implements ClientServiceFactory {
     return identityService;
   }
 
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public AsyncActivityService createAsyncActivityService() {
+    if (asyncActivityService == null) {
+      asyncActivityService = new AsyncActivityServiceImplV1Alpha3();
+    }
+    return asyncActivityService;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public AsyncIdentityService createAsyncIdentityService() {
+    if (asyncIdentityService == null) {
+      asyncIdentityService = new AsyncIdentityServiceImplV1Alpha3();
+    }
+    return asyncIdentityService;
+  }
+
 }
@@ -0,0 +1,145 @@
+/*
+ * Copyright (C) 2003-2011 eXo Platform SAS.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.exoplatform.social.client.core.jfr;
+
+import java.util.List;
+
+import org.exoplatform.social.client.api.SocialClientContext.Context;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Emits the Java Flight Recorder events of the client. An event is only created when a recording
+ * enables it, the fields are only computed when it is committed.
+ * <p>
+ * The event classes subclass <code>jdk.jfr.Event</code>: they are built from <code>src/main/jfr</code>
+ * by the <code>jfr</code> profile, active with a JDK 11 or later, and loaded by name. Without them, or on a
+ * runtime without <code>jdk.jfr</code> as on Android, no event is emitted.
+ */
+public final class FlightEvents {
+
+  private static final Logger LOG = LoggerFactory.getLogger(FlightEvents.class);
+
+  private static final String RECORDER_CLASS = "org.exoplatform.social.client.core.jfr.JdkFlightRecorder";
+
+  private static final FlightRecorder RECORDER = loadRecorder();
+
+  private FlightEvents() {
+  }
+
+  /**
+   * Begins the event of a request about to be sent.
+   *
+   * @return the event, null when it is not recorded
+   */
+  public static FlightEvent beginExchange() {
+    return RECORDER == null ? null : RECORDER.beginExchange();
+  }
+
+  /**
+   * Commits the event of a completed request.
+   *
+   * @param event   the event from {@link #beginExchange()}, may be null
+   * @param context  the context of the request
+   * @param bytesOut the number of bytes of request content written
+   * @param bytesIn  the number of bytes of response content read
+   */
+  public static void commitExchange(FlightEvent event, Context context, long bytesOut, long bytesIn) {
+    if (event != null) {
+      RECORDER.commitExchange(event, context, bytesOut, bytesIn);
+    }
+  }
+
+  /**
+   * Begins the event of a JSON decoding.
+   *
+   * @return the event, null when it is not recorded
+   */
+  public static FlightEvent beginDecode() {
+    return RECORDER == null ? null : RECORDER.beginDecode();
+  }
+
+  /**
+   * Commits the event of a JSON decoding.
+   *
+   * @param event      the event from {@link #beginDecode()}, may be null
+   * @param modelClass the class of the models, null for maps
+   * @param result     the decoded object or list, null if there was nothing to decode or it failed
+   */
+  public static void commitDecode(FlightEvent event, Class<?> modelClass, Object result) {
+    if (event == null) {
+      return;
+    }
+    if (result instanceof List) {
+      commitDecode(event, modelClass, ((List<?>) result).size());
+    } else {
+      commitDecode(event, modelClass, result == null ? 0 : 1);
+    }
+  }
+
+  /**
+   * Commits the event of a JSON decoding whose elements were handed out while decoded.
+   *
+   * @param event        the event from {@link #beginDecode()}, may be null
+   * @param modelClass   the class of the models
+   * @param elementCount the number of elements decoded
+   */
+  public static void commitDecode(FlightEvent event, Class<?> modelClass, int elementCount) {
+    if (event != null) {
+      RECORDER.commitDecode(event, modelClass, elementCount);
+    }
+  }
+
+  /**
+   * Begins the event of a call of a service method.
+   *
+   * @return the event, null when it is not recorded
+   */
+  public static FlightEvent beginOperation() {
+    return RECORDER == null ? null : RECORDER.beginOperation();
+  }
+
+  /**
+   * Commits the event of a call of a service method.
+   *
+   * @param event     the event from {@link #beginOperation()}, may be null
+   * @param service   the service
+   * @param operation the name of the method
+   * @param model     the model given to the method, may be null
+   * @param failure   the failure of the operation, null if it succeeded
+   */
+  public static void commitOperation(FlightEvent event, Object service, String operation,
+                                     Object model, Throwable failure) {
+    if (event != null) {
+      RECORDER.commitOperation(event, service, operation, model, failure);
+    }
+  }
+
+  private static FlightRecorder loadRecorder() {
+    try {
+      Class.forName("jdk.jfr.Event", false, FlightEvents.class.getClassLoader());
+      return (FlightRecorder) Class.forName(RECORDER_CLASS, true, FlightEvents.class.getClassLoader()).newInstance();
+    } catch (ClassNotFoundException e) {
+      return null;
+    } catch (LinkageError e) {
+      return null;
+    } catch (Exception e) {
+      LOG.debug("The flight recorder events are not available.", e);
+      return null;
+    }
+  }
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright (C) 2003-2011 eXo Platform SAS.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.exoplatform.social.client.core.jfr;
+
+import org.exoplatform.social.client.api.SocialClientContext.Context;
+
+/**
+ * Creates and commits the events, implemented over <code>jdk.jfr</code> by the classes built from
+ * <code>src/main/jfr</code> with a JDK 11 or later.
+ */
+interface FlightRecorder {
+
+  FlightEvent beginExchange();
+
+  void commitExchange(FlightEvent event, Context context, long bytesOut, long bytesIn);
+
+  FlightEvent beginDecode();
+
+  void commitDecode(FlightEvent event, Class<?> modelClass, int elementCount);
+
+  FlightEvent beginOperation();
+
+  void commitOperation(FlightEvent event, Object service, String operation, Object model, Throwable failure);
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2003-2011 eXo Platform SAS.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.exoplatform.social.client.core.jmx;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import org.exoplatform.social.client.core.net.SocialConnectionManager.PoolStats;
+import org.exoplatform.social.client.core.net.SocialHttpClientImpl;
+
+/**
+ * Exposes the pool of {@link SocialHttpClientImpl#getInstance()}, without creating it.
+ */
+public class ConnectionPool implements ConnectionPoolMXBean {
+
+  @Override
+  public int getLeased() {
+    PoolStats stats = SocialHttpClientImpl.getPoolStats();
+    return stats == null ? 0 : stats.getLeased();
+  }
+
+  @Override
+  public int getAvailable() {
+    PoolStats stats = SocialHttpClientImpl.getPoolStats();
+    return stats == null ? 0 : stats.getAvailable();
+  }
+
+  @Override
+  public int getPending() {
+    PoolStats stats = SocialHttpClientImpl.getPoolStats();
+    return stats == null ? 0 : stats.getPending();
+  }
+
+  @Override
+  public int getMax() {
+    PoolStats stats = SocialHttpClientImpl.getPoolStats();
+    return stats == null ? 0 : stats.getMax();
+  }
+
+  @Override
+  public Map<String, Integer> getLeasedByRoute() {
+    Map<String, Integer> routes = new TreeMap<String, Integer>();
+    for (Map.Entry<String, PoolStats> route : getRoutes().entrySet()) {
+      routes.put(route.getKey(), route.getValue().getLeased());
+    }
+    return routes;
+  }
+
+  @Override
+  public Map<String, Integer> getAvailableByRoute() {
+    Map<String, Integer> routes = new TreeMap<String, Integer>();
+    for (Map.Entry<String, PoolStats> route : getRoutes().entrySet()) {
+      routes.put(route.getKey(), route.getValue().getAvailable());
+    }
+    return routes;
+  }
+
+  @Override
+  public Map<String, Integer> getPendingByRoute() {
+    Map<String, Integer> routes = new TreeMap<String, Integer>();
+    for (Map.Entry<String, PoolStats> route : getRoutes().entrySet()) {
+      routes.put(route.getKey(), route.getValue().getPending());
+    }
+    return routes;
+  }
+
+  @Override
+  public void closeIdleConnections(long idleMillis) {
+    SocialHttpClientImpl.closeIdleInstanceConnections(idleMillis, TimeUnit.MILLISECONDS);
+  }
+
+  @Override
+  public void drain() {
+    SocialHttpClientImpl.shutdownInstance();
+  }
+
+  private Map<String, PoolStats> getRoutes() {
+    PoolStats stats = SocialHttpClientImpl.getPoolStats();
+    return stats == null ? Collections.<String, PoolStats>emptyMap() : stats.getRoutes();
+  }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright (C) 2003-2011 eXo Platform SAS.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.exoplatform.social.client.core.jmx;
+
+import java.util.Map;
+
+/**
+ * Management interface of the connection pool of the shared client.
+ */
+public interface ConnectionPoolMXBean {
+
+  /**
+   * Gets the number of connections used by requests.
+   *
+   * @return the number of connections, 0 if there is no shared client
+   */
+  int getLeased();
+
+  /**
+   * Gets the number of idle connections kept alive.
+   *
+   * @return the number of connections, 0 if there is no shared client
+   */
+  int getAvailable();
+
+  /**
+   * Gets the number of requests waiting for a connection.
+   *
+   * @return the number of requests, 0 if there is no shared client
+   */
+  int getPending();
+
+  /**
+   * Gets the maximum number of connections.
+   *
+   * @return the number of connections, 0 if there is no shared client
+   */
+  int getMax();
+
+  /**
+   * Gets the number of connections used by requests, by route.
+   *
+   * @return the numbers of connections by host
+   */
+  Map<String, Integer> getLeasedByRoute();
+
+  /**
+   * Gets the number of idle connections kept alive, by route.
+   *
+   * @return the numbers of connections by host
+   */
+  Map<String, Integer> getAvailableByRoute();
+
+  /**
+   * Gets the number of requests waiting for a connection, by route.
+   *
+   * @return the numbers of requests by host
+   */
+  Map<String, Integer> getPendingByRoute();
+
+  /**
+   * Closes the idle connections of the pool.
+   *
+   * @param idleMillis the idle time in milliseconds after which a connection is closed, 0 for all
+   */
+  void closeIdleConnections(long idleMillis);
+
+  /**
+   * Shuts down the shared client and closes all its connections, the next request creates a new pool
+   * with the current settings.
+   */
+  void drain();
+}
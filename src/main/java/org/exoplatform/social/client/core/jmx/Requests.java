@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2003-2011 eXo Platform SAS.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.exoplatform.social.client.core.jmx;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.exoplatform.social.client.core.net.RequestMetrics;
+import org.exoplatform.social.client.core.util.SocialHttpClientSupport;
+
+/**
+ * Exposes the in-flight requests of {@link RequestMetrics} and the error counts of
+ * {@link SocialHttpClientSupport#handleError(org.apache.http.HttpResponse)}.
+ */
+public class Requests implements RequestsMXBean {
+
+  @Override
+  public long getInFlight() {
+    long inFlight = 0;
+    for (RequestMetrics metrics : RequestMetrics.getMetrics()) {
+      inFlight += metrics.getInFlight();
+    }
+    return inFlight;
+  }
+
+  @Override
+  public Map<String, Long> getInFlightByService() {
+    Map<String, Long> services = new TreeMap<String, Long>();
+    for (RequestMetrics metrics : RequestMetrics.getMetrics()) {
+      String service = getServiceName(metrics.getTemplate());
+      Long inFlight = services.get(service);
+      services.put(service, (inFlight == null ? 0 : inFlight) + metrics.getInFlight());
+    }
+    return services;
+  }
+
+  @Override
+  public Map<String, Long> getInFlightByTemplate() {
+    Map<String, Long> templates = new TreeMap<String, Long>();
+    for (RequestMetrics metrics : RequestMetrics.getMetrics()) {
+      templates.put(metrics.getTemplate(), metrics.getInFlight());
+    }
+    return templates;
+  }
+
+  @Override
+  public long getHandledCount() {
+    return SocialHttpClientSupport.getHandledCount();
+  }
+
+  @Override
+  public long getNotFoundCount() {
+    return SocialHttpClientSupport.getNotFoundCount();
+  }
+
+  @Override
+  public long getAccessDeniedCount() {
+    return SocialHttpClientSupport.getAccessDeniedCount();
+  }
+
+  @Override
+  public long getUnauthenticatedCount() {
+    return SocialHttpClientSupport.getUnauthenticatedCount();
+  }
+
+  @Override
+  public long getOtherErrorCount() {
+    return SocialHttpClientSupport.getOtherErrorCount();
+  }
+
+  @Override
+  public double getErrorRate() {
+    long handled = getHandledCount();
+    if (handled == 0) {
+      return 0;
+    }
+    long errors = getNotFoundCount() + getAccessDeniedCount() + getUnauthenticatedCount() + getOtherErrorCount();
+    return (double) errors / handled;
+  }
+
+  @Override
+  public void resetMetrics() {
+    SocialHttpClientSupport.resetErrorCounts();
+    RequestMetrics.resetAll();
+  }
+
+  /**
+   * Gets the name of the service of an endpoint template, from its first segment.
+   *
+   * @param template the template
+   * @return the service name
+   */
+  static String getServiceName(String template) {
+    if (template.startsWith("activity")) {
+      return "ActivityService";
+    } else if (template.startsWith("identity")) {
+      return "IdentityService";
+    } else if (template.startsWith("version")) {
+      return "VersionService";
+    }
+    return RequestMetrics.OTHER;
+  }
+}
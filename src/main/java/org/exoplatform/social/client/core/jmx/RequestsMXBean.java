@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2003-2011 eXo Platform SAS.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.exoplatform.social.client.core.jmx;
+
+import java.util.Map;
+
+/**
+ * Management interface of the requests sent to the rest services.
+ */
+public interface RequestsMXBean {
+
+  /**
+   * Gets the number of requests sent and not completed.
+   *
+   * @return the number of requests
+   */
+  long getInFlight();
+
+  /**
+   * Gets the number of requests sent and not completed, by service.
+   *
+   * @return the numbers of requests by service name
+   */
+  Map<String, Long> getInFlightByService();
+
+  /**
+   * Gets the number of requests sent and not completed, by endpoint template.
+   *
+   * @return the numbers of requests by template
+   */
+  Map<String, Long> getInFlightByTemplate();
+
+  /**
+   * Gets the number of responses checked for errors by the services.
+   *
+   * @return the number of responses
+   */
+  long getHandledCount();
+
+  /**
+   * Gets the number of 404 Not Found responses.
+   *
+   * @return the number of responses
+   */
+  long getNotFoundCount();
+
+  /**
+   * Gets the number of 403 Forbidden responses.
+   *
+   * @return the number of responses
+   */
+  long getAccessDeniedCount();
+
+  /**
+   * Gets the number of 401 Unauthorized responses.
+   *
+   * @return the number of responses
+   */
+  long getUnauthenticatedCount();
+
+  /**
+   * Gets the number of the other error responses.
+   *
+   * @return the number of responses
+   */
+  long getOtherErrorCount();
+
+  /**
+   * Gets the ratio of error responses to the responses checked by the services.
+   *
+   * @return the ratio, between 0 and 1
+   */
+  double getErrorRate();
+
+  /**
+   * Resets the error counts and the request metrics.
+   */
+  void resetMetrics();
+}
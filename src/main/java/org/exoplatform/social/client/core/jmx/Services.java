@@ -0,0 +1,59 @@
+/*
+ * Copyright (C) 2003-2011 eXo Platform SAS.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.exoplatform.social.client.core.jmx;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.exoplatform.social.client.api.SocialClientContext;
+import org.exoplatform.social.client.core.ClientServiceFactoryHelper;
+import org.exoplatform.social.client.core.net.AuthSession;
+import org.exoplatform.social.client.core.net.SocialHttpClientImpl;
+import org.exoplatform.social.client.core.service.ServiceBase;
+
+/**
+ * Exposes the rest version of {@link ClientServiceFactoryHelper} and the state of the {@link ServiceBase}s.
+ */
+public class Services implements ServicesMXBean {
+
+  @Override
+  public String getRestVersion() {
+    return ClientServiceFactoryHelper.getCurrentRestVersion();
+  }
+
+  @Override
+  public String getConfiguredRestVersion() {
+    return SocialClientContext.getRestVersion();
+  }
+
+  @Override
+  public Map<String, Boolean> getServiceStates() {
+    Map<String, Boolean> states = new TreeMap<String, Boolean>();
+    for (ServiceBase<?, ?> service : ServiceBase.getServices()) {
+      states.put(service.getClass().getSimpleName() + '@' + Integer.toHexString(System.identityHashCode(service)),
+                 service.isStarted());
+    }
+    return states;
+  }
+
+  @Override
+  public void flushCaches() {
+    AuthSession.resetAll();
+    SocialHttpClientImpl.invalidateSSLSessions();
+    ClientServiceFactoryHelper.resetClientServiceFactory();
+  }
+}
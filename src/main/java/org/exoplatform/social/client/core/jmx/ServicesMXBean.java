@@ -0,0 +1,52 @@
+/*
+ * Copyright (C) 2003-2011 eXo Platform SAS.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.exoplatform.social.client.core.jmx;
+
+import java.util.Map;
+
+/**
+ * Management interface of the rest services of the client.
+ */
+public interface ServicesMXBean {
+
+  /**
+   * Gets the rest version of the current services, the negotiated one after a warm up.
+   *
+   * @return the rest version, null if no service was created yet
+   */
+  String getRestVersion();
+
+  /**
+   * Gets the rest version set in the client context.
+   *
+   * @return the rest version
+   */
+  String getConfiguredRestVersion();
+
+  /**
+   * Gets the lifecycle state of the services created and not yet garbage collected.
+   *
+   * @return true for the started services, by service class and instance
+   */
+  Map<String, Boolean> getServiceStates();
+
+  /**
+   * Forgets the authentication sessions, the cached TLS sessions and the current services:
+   * the next requests authenticate again, make a full TLS handshake and use new services.
+   */
+  void flushCaches();
+}
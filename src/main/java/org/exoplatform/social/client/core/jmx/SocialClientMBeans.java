@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2003-2011 eXo Platform SAS.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.exoplatform.social.client.core.jmx;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Registers the MBeans of the client on the platform MBean server, under the
+ * <code>org.exoplatform.social.client</code> domain.
+ */
+public final class SocialClientMBeans {
+
+  private static final Logger LOG = LoggerFactory.getLogger(SocialClientMBeans.class);
+
+  /**
+   * The domain of the object names of the MBeans.
+   */
+  public static final String DOMAIN = "org.exoplatform.social.client";
+
+  public static final String CONNECTION_POOL = DOMAIN + ":type=ConnectionPool";
+
+  public static final String REQUESTS = DOMAIN + ":type=Requests";
+
+  public static final String SERVICES = DOMAIN + ":type=Services";
+
+  private static boolean registered;
+
+  private SocialClientMBeans() {
+  }
+
+  /**
+   * Registers the MBeans, once. A failure is logged, the client works without them.
+   */
+  public static synchronized void register() {
+    if (registered) {
+      return;
+    }
+    registered = true;
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    register(server, CONNECTION_POOL, new ConnectionPool());
+    register(server, REQUESTS, new Requests());
+    register(server, SERVICES, new Services());
+  }
+
+  /**
+   * Unregisters the MBeans.
+   */
+  public static synchronized void unregister() {
+    if (!registered) {
+      return;
+    }
+    registered = false;
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    for (String name : new String[] {CONNECTION_POOL, REQUESTS, SERVICES}) {
+      try {
+        ObjectName objectName = new ObjectName(name);
+        if (server.isRegistered(objectName)) {
+          server.unregisterMBean(objectName);
+        }
+      } catch (JMException e) {
+        LOG.warn("Failed to unregister the MBean " + name, e);
+      }
+    }
+  }
+
+  private static void register(MBeanServer server, String name, Object mbean) {
+    try {
+      server.registerMBean(mbean, new ObjectName(name));
+    } catch (InstanceAlreadyExistsException e) {
+      //registered by another copy of the library, for example in another web application
+      LOG.debug("The MBean " + name + " is already registered.");
+    } catch (JMException e) {
+      LOG.warn("Failed to register the MBean " + name, e);
+    }
+  }
+}
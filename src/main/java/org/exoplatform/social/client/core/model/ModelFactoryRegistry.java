@@ -0,0 +1,202 @@
+/*
+ * Copyright (C) 2003-2011 eXo Platform SAS.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.exoplatform.social.client.core.model;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Modifier;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.exoplatform.social.client.api.model.Model;
+import org.exoplatform.social.client.api.model.ModelFactory;
+import org.exoplatform.social.client.api.model.RestActivity;
+import org.exoplatform.social.client.api.model.RestActivityStream;
+import org.exoplatform.social.client.api.model.RestComment;
+import org.exoplatform.social.client.api.model.RestIdentity;
+import org.exoplatform.social.client.api.model.RestLike;
+import org.exoplatform.social.client.api.model.RestProfile;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The factories of the models, by model interface or class, used by the JSON decoding to create the models
+ * with a direct constructor call. The models of the library are registered under their interface and their
+ * implementation class; a model subclass can be registered so that it is decoded without reflection:
+ * <pre>
+ *   ModelFactoryRegistry.register(MyActivity.class, new ModelFactory&lt;MyActivity&gt;() {
+ *     public MyActivity create() {
+ *       return new MyActivity();
+ *     }
+ *   });
+ * </pre>
+ * A class which is not registered gets a factory calling its no-argument constructor through reflection.
+ */
+public final class ModelFactoryRegistry {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ModelFactoryRegistry.class);
+
+  private static final ConcurrentMap<Class<?>, ModelFactory<?>> FACTORIES =
+      new ConcurrentHashMap<Class<?>, ModelFactory<?>>();
+
+  static {
+    registerDefaults();
+  }
+
+  private ModelFactoryRegistry() {
+  }
+
+  /**
+   * Registers the factory of a model interface or class, replacing the previous one.
+   *
+   * @param type    the model interface or class
+   * @param factory the factory of its models
+   */
+  public static <T> void register(Class<T> type, ModelFactory<? extends T> factory) {
+    if (type == null || factory == null) {
+      throw new IllegalArgumentException("The type and the factory are required.");
+    }
+    FACTORIES.put(type, factory);
+  }
+
+  /**
+   * Gets the factory of a model interface or class.
+   *
+   * @param type the model interface or class
+   * @return the factory
+   * @throws IllegalArgumentException when the type is not registered and is not a class with a no-argument
+   *                                  constructor
+   */
+  public static <T> ModelFactory<? extends T> getFactory(Class<T> type) {
+    ModelFactory<? extends T> factory = lookup(type);
+    if (factory == null) {
+      FACTORIES.putIfAbsent(type, createReflectiveFactory(type));
+      factory = lookup(type);
+    }
+    return factory;
+  }
+
+  /**
+   * Gets the registered factory of a type: {@link #register(Class, ModelFactory)} only maps a type to a
+   * factory of that type.
+   */
+  @SuppressWarnings("unchecked")
+  private static <T> ModelFactory<? extends T> lookup(Class<T> type) {
+    return (ModelFactory<? extends T>) FACTORIES.get(type);
+  }
+
+  /**
+   * Creates an empty model.
+   *
+   * @param type the model interface or class
+   * @return the new model
+   * @throws IllegalArgumentException when the type is not registered and is not a class with a no-argument
+   *                                  constructor
+   */
+  public static <T> T newInstance(Class<T> type) {
+    return getFactory(type).create();
+  }
+
+  /**
+   * Forgets the registered factories, keeping only the ones of the models of the library.
+   */
+  public static void reset() {
+    FACTORIES.clear();
+    registerDefaults();
+  }
+
+  private static void registerDefaults() {
+    ModelFactory<ModelImpl> model = new ModelFactory<ModelImpl>() {
+      public ModelImpl create() {
+        return new ModelImpl();
+      }
+    };
+    register(Model.class, model);
+    register(ModelImpl.class, model);
+    ModelFactory<RestActivityImpl> activity = new ModelFactory<RestActivityImpl>() {
+      public RestActivityImpl create() {
+        return new RestActivityImpl();
+      }
+    };
+    register(RestActivity.class, activity);
+    register(RestActivityImpl.class, activity);
+    ModelFactory<RestActivityStreamImpl> activityStream = new ModelFactory<RestActivityStreamImpl>() {
+      public RestActivityStreamImpl create() {
+        return new RestActivityStreamImpl();
+      }
+    };
+    register(RestActivityStream.class, activityStream);
+    register(RestActivityStreamImpl.class, activityStream);
+    ModelFactory<RestCommentImpl> comment = new ModelFactory<RestCommentImpl>() {
+      public RestCommentImpl create() {
+        return new RestCommentImpl();
+      }
+    };
+    register(RestComment.class, comment);
+    register(RestCommentImpl.class, comment);
+    ModelFactory<RestIdentityImpl> identity = new ModelFactory<RestIdentityImpl>() {
+      public RestIdentityImpl create() {
+        return new RestIdentityImpl();
+      }
+    };
+    register(RestIdentity.class, identity);
+    register(RestIdentityImpl.class, identity);
+    ModelFactory<RestLikeImpl> like = new ModelFactory<RestLikeImpl>() {
+      public RestLikeImpl create() {
+        return new RestLikeImpl();
+      }
+    };
+    register(RestLike.class, like);
+    register(RestLikeImpl.class, like);
+    ModelFactory<RestProfileImpl> profile = new ModelFactory<RestProfileImpl>() {
+      public RestProfileImpl create() {
+        return new RestProfileImpl();
+      }
+    };
+    register(RestProfile.class, profile);
+    register(RestProfileImpl.class, profile);
+  }
+
+  /**
+   * Creates the factory of a class which is not registered, from its no-argument constructor. The access
+   * checks of the constructor are made once, here.
+   */
+  private static <T> ModelFactory<T> createReflectiveFactory(final Class<T> type) {
+    if (type.isInterface() || Modifier.isAbstract(type.getModifiers()) || !Model.class.isAssignableFrom(type)) {
+      throw new IllegalArgumentException("No model factory is registered for " + type.getName());
+    }
+    final Constructor<T> constructor;
+    try {
+      constructor = type.getDeclaredConstructor();
+      constructor.setAccessible(true);
+    } catch (NoSuchMethodException e) {
+      throw new IllegalArgumentException("No model factory is registered for " + type.getName()
+          + " and it has no constructor without argument", e);
+    } catch (SecurityException e) {
+      throw new IllegalArgumentException("No model factory is registered for " + type.getName(), e);
+    }
+    LOG.debug("No model factory is registered for {}, its models are created through reflection.", type.getName());
+    return new ModelFactory<T>() {
+      public T create() {
+        try {
+          return constructor.newInstance();
+        } catch (Exception e) {
+          throw new IllegalStateException("Cannot create a model of " + type.getName(), e);
+        }
+      }
+    };
+  }
+}
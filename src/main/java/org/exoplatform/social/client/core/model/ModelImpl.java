@@ -16,7 +16,9 @@
  */
 package org.exoplatform.social.client.core.model;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -24,7 +26,9 @@ import java.util.Set;
 import org.exoplatform.social.client.api.event.PropertyChangeListener;
 import org.exoplatform.social.client.api.model.Model;
 import org.exoplatform.social.client.core.util.PropertyChangeSupport;
+import org.exoplatform.social.client.core.util.SocialJSONDecodingSupport;
 import org.json.simple.JSONObject;
+import org.json.simple.parser.ParseException;
 
 /**
  * ModelImpl implements {@link Model}.
@@ -38,6 +42,13 @@ public class ModelImpl extends JSONObject implements Model {
    * The property change event support for this model.
    */
   protected PropertyChangeSupport propertyChanges = new PropertyChangeSupport(this);
+
+  /**
+   * The models made from the fields by {@link #getFieldAsModel(String, Class)} and
+   * {@link #getFieldAsModelList(String, Class)}, kept apart so that reading a field never changes it.
+   */
+  private transient Map<String, FieldModel> fieldModels;
+
   /**
    * {@inheritDoc}
    */
@@ -99,6 +110,112 @@ public class ModelImpl extends JSONObject implements Model {
     }
   }
 
+  /**
+   * Gets a field holding a JSON object as a model of the given class. The model is made on the first call
+   * only, from the decoded object or from a JSON string, and kept apart from the field, which is left as it
+   * is: later calls return the same model while the field holds the same value.
+   *
+   * @param fieldName the field name
+   * @param clazz     the model class
+   * @return the model, null when the field is not set
+   * @throws ParseException when the field holds a malformed JSON string
+   */
+  protected <T extends ModelImpl> T getFieldAsModel(String fieldName, Class<T> clazz) throws ParseException {
+    Object field = get(fieldName);
+    if (field == null || clazz.isInstance(field)) {
+      return (T) field;
+    }
+    Object made = getFieldModel(fieldName, field);
+    if (clazz.isInstance(made)) {
+      return (T) made;
+    }
+    T model = toModel(field, clazz);
+    putFieldModel(fieldName, field, model);
+    return model;
+  }
+
+  /**
+   * Gets a field holding a JSON array of objects as a list of models of the given class. The list is made
+   * on the first call only and kept apart from the field, as in {@link #getFieldAsModel(String, Class)}.
+   *
+   * @param fieldName the field name
+   * @param clazz     the model class of the elements
+   * @return the list, null when the field is not set
+   * @throws ParseException when the field holds a malformed JSON string
+   */
+  protected <T extends ModelImpl> List<T> getFieldAsModelList(String fieldName, Class<T> clazz) throws ParseException {
+    Object field = get(fieldName);
+    if (field == null) {
+      return null;
+    }
+    List<T> models;
+    if (field instanceof List) {
+      List<?> elements = (List<?>) field;
+      if (isListOf(elements, clazz)) {
+        return (List<T>) elements;
+      }
+      Object made = getFieldModel(fieldName, field);
+      if (made instanceof List && isListOf((List<?>) made, clazz)) {
+        return (List<T>) made;
+      }
+      models = new ArrayList<T>(elements.size());
+      for (Object element : elements) {
+        models.add(element == null ? null : toModel(element, clazz));
+      }
+    } else {
+      Object made = getFieldModel(fieldName, field);
+      if (made instanceof List && isListOf((List<?>) made, clazz)) {
+        return (List<T>) made;
+      }
+      try {
+        models = SocialJSONDecodingSupport.JSONArrayObjectParser(clazz, String.valueOf(field));
+      } catch (IOException e) {
+        throw new ParseException(ParseException.ERROR_UNEXPECTED_EXCEPTION, e);
+      }
+    }
+    putFieldModel(fieldName, field, models);
+    return models;
+  }
+
+  /**
+   * Gets the model made from a field, if it still holds the value the model was made from.
+   */
+  private Object getFieldModel(String fieldName, Object field) {
+    FieldModel fieldModel = fieldModels == null ? null : fieldModels.get(fieldName);
+    return fieldModel != null && fieldModel.field == field ? fieldModel.model : null;
+  }
+
+  private void putFieldModel(String fieldName, Object field, Object model) {
+    if (fieldModels == null) {
+      fieldModels = new HashMap<String, FieldModel>();
+    }
+    fieldModels.put(fieldName, new FieldModel(field, model));
+  }
+
+  private static boolean isListOf(List<?> elements, Class<?> clazz) {
+    for (Object element : elements) {
+      if (element != null && !clazz.isInstance(element)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Makes a model of the given class from a decoded JSON object, by copying its fields, or from its JSON string.
+   */
+  private static <T extends ModelImpl> T toModel(Object value, Class<T> clazz) throws ParseException {
+    if (clazz.isInstance(value)) {
+      return clazz.cast(value);
+    }
+    if (value instanceof Map) {
+      T model = ModelFactoryRegistry.newInstance(clazz);
+      model.putAll((Map) value);
+      return model;
+    }
+    return SocialJSONDecodingSupport.parser(clazz, String.valueOf(value));
+  }
+
   /**
    * {@inheritDoc}
    */
@@ -177,4 +294,17 @@ public class ModelImpl extends JSONObject implements Model {
     return propertyChanges.findPropertyChangeListeners();
   }
 
+  /**
+   * A model made from the value of a field.
+   */
+  private static class FieldModel {
+    private final Object field;
+    private final Object model;
+
+    FieldModel(Object field, Object model) {
+      this.field = field;
+      this.model = model;
+    }
+  }
+
 }
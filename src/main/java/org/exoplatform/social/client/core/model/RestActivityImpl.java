@@ -233,20 +233,17 @@ public class RestActivityImpl extends ModelImpl implements RestActivity {
    */
   @Override
   public RestIdentity getPosterIdentity() throws SocialClientLibException {
-    String posterIdentityString = getFieldAsString(Field.POSTER_IDENTITY.toString());
-    RestIdentity restIdentity = null;
-
-    if (posterIdentityString != null && posterIdentityString.length() > 2) {
-      try{
-        restIdentity = SocialJSONDecodingSupport.parser(RestIdentityImpl.class, posterIdentityString);
-      } catch (Exception e) {
-        throw new ServiceException(ActivityService.class,e.getMessage(), e);
-      }
-    } else {
-      IdentityService service = ClientServiceFactoryHelper.getClientServiceFactory().createIdentityService();
-      restIdentity = (RestIdentity) service.get(this.getIdentityId());
+    RestIdentityImpl posterIdentity;
+    try {
+      posterIdentity = getFieldAsModel(Field.POSTER_IDENTITY.toString(), RestIdentityImpl.class);
+    } catch (Exception e) {
+      throw new ServiceException(ActivityService.class,e.getMessage(), e);
     }
-    return restIdentity;
+    if (posterIdentity != null && !posterIdentity.isEmpty()) {
+      return posterIdentity;
+    }
+    IdentityService service = ClientServiceFactoryHelper.getClientServiceFactory().createIdentityService();
+    return (RestIdentity) service.get(this.getIdentityId());
   }
 
 
@@ -256,8 +253,7 @@ public class RestActivityImpl extends ModelImpl implements RestActivity {
   @Override
   public List<RestComment> getAvailableComments() {
     try{
-      String commentsJSON = this.getFieldAsString(RestActivity.Field.COMMENTS.toString());
-      List<? extends RestComment> comments = SocialJSONDecodingSupport.JSONArrayObjectParser(RestCommentImpl.class, commentsJSON);
+      List<? extends RestComment> comments = getFieldAsModelList(RestActivity.Field.COMMENTS.toString(), RestCommentImpl.class);
       return (List<RestComment>) comments;
     } catch (Exception e) {
       throw new ServiceException(ActivityService.class,e.getMessage(), e);
@@ -312,15 +308,16 @@ public class RestActivityImpl extends ModelImpl implements RestActivity {
    */
   @Override
   public RestActivityStream getActivityStream() throws SocialClientLibException {
-    String activityStreamJSON = this.getFieldAsString(RestActivity.Field.ACTIVITY_STREAM.toString());
-    if (LOGGER.isDebugEnabled()) {
-      LOGGER.debug("activityStreamJSON: " + activityStreamJSON);
-    }
     RestActivityStream restActivityStream = null;
     try {
-      // if no activity stream json is fetched, the json string is "{}"
-      if (activityStreamJSON != null && activityStreamJSON.length() > 2) {
-        restActivityStream = SocialJSONDecodingSupport.parser(RestActivityStreamImpl.class, activityStreamJSON);
+      RestActivityStreamImpl activityStream = getFieldAsModel(RestActivity.Field.ACTIVITY_STREAM.toString(),
+                                                              RestActivityStreamImpl.class);
+      if (LOGGER.isDebugEnabled()) {
+        LOGGER.debug("activityStream: " + activityStream);
+      }
+      // if no activity stream is fetched, the json object is empty
+      if (activityStream != null && !activityStream.isEmpty()) {
+        restActivityStream = activityStream;
       } else {
         final QueryParams queryParamBuilder = new QueryParamsImpl().append(QueryParams.ACTIVITY_STREAM_PARAM.setValue("t"));
         final String GET_ACTIVITY_REQUEST_URL = SocialHttpClientSupport.buildCommonRestPathFromContext(true)
@@ -331,8 +328,8 @@ public class RestActivityImpl extends ModelImpl implements RestActivity {
         //get ActivityStream when JSON content is existing.
         restActivityStream = activity.getActivityStream();
 
-        //caching for ActivityStreamJSON content in this RestActivity which avoid Request again.
-        this.setField(RestActivity.Field.ACTIVITY_STREAM.toString(), activity.getFieldAsString(RestActivity.Field.ACTIVITY_STREAM.toString()));
+        //caching for ActivityStream in this RestActivity which avoid Request again.
+        this.setField(RestActivity.Field.ACTIVITY_STREAM.toString(), restActivityStream);
       }
     } catch (SocialHttpClientException e) {
       throw new ServiceException(ActivityService.class, e.getMessage(), e);
@@ -396,8 +393,8 @@ public class RestActivityImpl extends ModelImpl implements RestActivity {
   @Override
   public List<RestIdentity> getAvailableLikes() {
     try{
-      String likedByIdentitiesJSON = this.getFieldAsString(RestActivity.Field.LIKED_BY_IDENTITIES.toString());
-      List<? extends RestIdentity> likedByIdentities = SocialJSONDecodingSupport.JSONArrayObjectParser(RestIdentityImpl.class, likedByIdentitiesJSON);
+      List<? extends RestIdentity> likedByIdentities = getFieldAsModelList(RestActivity.Field.LIKED_BY_IDENTITIES.toString(),
+                                                                           RestIdentityImpl.class);
       return (List<RestIdentity>) likedByIdentities;
     } catch (Exception e) {
       throw new ServiceException(ActivityService.class,e.getMessage(), e);
@@ -201,9 +201,9 @@ public class RestCommentImpl extends ModelImpl implements RestComment {
    */
   @Override
   public RestIdentity getPosterIdentity() {
-    String posterIdentityJson = getFieldAsString(Field.POSTER_IDENTITY.toString());
     try {
-      return posterIdentityJson == null ? new RestIdentityImpl() : SocialJSONDecodingSupport.parser(RestIdentityImpl.class, posterIdentityJson);
+      RestIdentity posterIdentity = getFieldAsModel(Field.POSTER_IDENTITY.toString(), RestIdentityImpl.class);
+      return posterIdentity == null ? new RestIdentityImpl() : posterIdentity;
     } catch (ParseException pex) {
       return new RestIdentityImpl();
     }
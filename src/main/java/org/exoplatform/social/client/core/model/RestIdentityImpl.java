@@ -18,7 +18,6 @@ package org.exoplatform.social.client.core.model;
 
 import org.exoplatform.social.client.api.model.RestIdentity;
 import org.exoplatform.social.client.api.model.RestProfile;
-import org.exoplatform.social.client.core.util.SocialJSONDecodingSupport;
 import org.json.simple.parser.ParseException;
 
 /**
@@ -108,9 +107,9 @@ public class RestIdentityImpl extends ModelImpl implements RestIdentity {
    */
   @Override
   public RestProfile getProfile() {
-    String jsonProfile = getFieldAsString(Field.PROFILE.toString());
     try {
-      return jsonProfile == null ? new RestProfileImpl() : SocialJSONDecodingSupport.parser(RestProfileImpl.class, jsonProfile);
+      RestProfile profile = getFieldAsModel(Field.PROFILE.toString(), RestProfileImpl.class);
+      return profile == null ? new RestProfileImpl() : profile;
     } catch (ParseException pex) {
       return new RestProfileImpl();
     }
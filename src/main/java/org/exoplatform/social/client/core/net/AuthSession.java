@@ -0,0 +1,167 @@
+/*
+ * Copyright (C) 2003-2011 eXo Platform SAS.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.exoplatform.social.client.core.net;
+
+import java.util.Date;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.http.HttpHost;
+import org.apache.http.client.CookieStore;
+import org.apache.http.impl.client.BasicCookieStore;
+import org.exoplatform.social.client.api.SocialClientContext;
+
+/**
+ * The server session of a user on a host, when {@link SocialClientContext#isAuthSession()}: the cookies
+ * (JSESSIONID and the like) set by the server when it authenticated the user are kept in a cookie jar of
+ * these credentials. While the jar holds cookies the requests are sent with them instead of Basic
+ * credentials, so that the portal does not authenticate the user again on every request. When the server
+ * answers 401, the session is expired: the jar is cleared and the request is sent again with Basic
+ * credentials, which establish a new session.
+ */
+public class AuthSession {
+
+  private static final ConcurrentMap<String, AuthSession> SESSIONS = new ConcurrentHashMap<String, AuthSession>();
+
+  private final HttpHost host;
+
+  private final String username;
+
+  private final BasicCookieStore cookieStore = new BasicCookieStore();
+
+  private final AtomicLong authenticatedCount = new AtomicLong();
+
+  private final AtomicLong reusedCount = new AtomicLong();
+
+  private final AtomicLong expiredCount = new AtomicLong();
+
+  /**
+   * Gets the session of the credentials on a host, creating it on first use.
+   *
+   * @param host     the host
+   * @param username the user name
+   * @param password the password, a session is never shared by different credentials
+   * @return the session
+   */
+  public static AuthSession forCredentials(HttpHost host, String username, String password) {
+    String key = host.toURI() + '\n' + username + '\n' + password;
+    AuthSession session = SESSIONS.get(key);
+    if (session == null) {
+      AuthSession newSession = new AuthSession(host, username);
+      session = SESSIONS.putIfAbsent(key, newSession);
+      if (session == null) {
+        session = newSession;
+      }
+    }
+    return session;
+  }
+
+  /**
+   * Forgets the sessions of all credentials, the next requests authenticate again.
+   */
+  public static void resetAll() {
+    SESSIONS.clear();
+  }
+
+  private AuthSession(HttpHost host, String username) {
+    this.host = host;
+    this.username = username;
+  }
+
+  /**
+   * Gets the cookie jar of the session.
+   *
+   * @return the cookie store
+   */
+  public CookieStore getCookieStore() {
+    return cookieStore;
+  }
+
+  /**
+   * Checks if the server set session cookies which have not expired yet.
+   *
+   * @return true when the requests can be sent without credentials
+   */
+  public boolean isEstablished() {
+    cookieStore.clearExpired(new Date());
+    return !cookieStore.getCookies().isEmpty();
+  }
+
+  /**
+   * Records a request sent with Basic credentials.
+   */
+  public void recordAuthenticated() {
+    authenticatedCount.incrementAndGet();
+  }
+
+  /**
+   * Records a request sent with the session cookies only.
+   */
+  public void recordReused() {
+    reusedCount.incrementAndGet();
+  }
+
+  /**
+   * Clears the cookies of a session the server does not know anymore.
+   */
+  public void expire() {
+    expiredCount.incrementAndGet();
+    cookieStore.clear();
+  }
+
+  public HttpHost getHost() {
+    return host;
+  }
+
+  public String getUsername() {
+    return username;
+  }
+
+  /**
+   * Gets the number of requests sent with Basic credentials.
+   *
+   * @return the number of requests
+   */
+  public long getAuthenticatedCount() {
+    return authenticatedCount.get();
+  }
+
+  /**
+   * Gets the number of requests sent with the session cookies only.
+   *
+   * @return the number of requests
+   */
+  public long getReusedCount() {
+    return reusedCount.get();
+  }
+
+  /**
+   * Gets how many times the server answered 401 to the session cookies.
+   *
+   * @return the number of expired sessions
+   */
+  public long getExpiredCount() {
+    return expiredCount.get();
+  }
+
+  @Override
+  public String toString() {
+    return "AuthSession[" + username + "@" + host + " authenticated: " + authenticatedCount
+        + ", reused: " + reusedCount + ", expired: " + expiredCount + "]";
+  }
+}
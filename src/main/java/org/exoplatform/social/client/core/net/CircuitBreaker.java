@@ -0,0 +1,208 @@
+/*
+ * Copyright (C) 2003-2011 eXo Platform SAS.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.exoplatform.social.client.core.net;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.HttpHost;
+import org.exoplatform.social.client.api.SocialClientContext;
+
+/**
+ * Per host circuit breaker: after {@link SocialClientContext#getCircuitBreakerFailureThreshold()} consecutive
+ * failures (transient I/O errors, 502, 503 or 504 responses) the circuit opens and the requests to the host fail fast
+ * for {@link SocialClientContext#getCircuitBreakerOpenTime()} milliseconds. Then a single trial request is let
+ * through: the circuit closes if it succeeds and opens again if it fails, or if it takes longer than
+ * {@link SocialClientContext#getCircuitBreakerHalfOpenTimeout()} milliseconds. The requests aborted by their
+ * deadline or failed on the client side, as protocol or TLS errors, are not failures of the host.
+ */
+public class CircuitBreaker {
+
+  /**
+   * The states of a circuit breaker.
+   */
+  public static enum State {
+    /** The requests go through. */
+    CLOSED,
+    /** The requests fail fast. */
+    OPEN,
+    /** A trial request is in flight, the others fail fast. */
+    HALF_OPEN
+  }
+
+  private static final ConcurrentMap<HttpHost, CircuitBreaker> BREAKERS = new ConcurrentHashMap<HttpHost, CircuitBreaker>();
+
+  private final HttpHost host;
+
+  private State state = State.CLOSED;
+
+  private int consecutiveFailures;
+
+  private long openedAt;
+
+  private long halfOpenedAt;
+
+  private long openCount;
+
+  private long rejectedCount;
+
+  /**
+   * Gets the circuit breaker of a host, creating it on first use.
+   *
+   * @param host the host
+   * @return the circuit breaker
+   */
+  public static CircuitBreaker forHost(HttpHost host) {
+    CircuitBreaker breaker = BREAKERS.get(host);
+    if (breaker == null) {
+      CircuitBreaker newBreaker = new CircuitBreaker(host);
+      breaker = BREAKERS.putIfAbsent(host, newBreaker);
+      if (breaker == null) {
+        breaker = newBreaker;
+      }
+    }
+    return breaker;
+  }
+
+  /**
+   * Gets the circuit breakers of all the hosts requested so far.
+   *
+   * @return the circuit breakers by host
+   */
+  public static Map<HttpHost, CircuitBreaker> getBreakers() {
+    return Collections.unmodifiableMap(new HashMap<HttpHost, CircuitBreaker>(BREAKERS));
+  }
+
+  /**
+   * Forgets the circuit breakers of all hosts, closing their circuits.
+   */
+  public static void resetAll() {
+    BREAKERS.clear();
+  }
+
+  private CircuitBreaker(HttpHost host) {
+    this.host = host;
+  }
+
+  /**
+   * Checks if a request to the host can be sent now. When the open time is elapsed, the caller
+   * gets the trial request and must record its outcome.
+   *
+   * @return false when the request must fail fast
+   */
+  public synchronized boolean allowRequest() {
+    if (SocialClientContext.getCircuitBreakerFailureThreshold() <= 0) {
+      return true;
+    }
+    switch (state) {
+      case CLOSED:
+        return true;
+      case OPEN:
+        long openTime = TimeUnit.MILLISECONDS.toNanos(SocialClientContext.getCircuitBreakerOpenTime());
+        long now = System.nanoTime();
+        if (now - openedAt >= openTime) {
+          state = State.HALF_OPEN;
+          halfOpenedAt = now;
+          return true;
+        }
+        rejectedCount++;
+        return false;
+      default:
+        long halfOpenTimeout = TimeUnit.MILLISECONDS.toNanos(SocialClientContext.getCircuitBreakerHalfOpenTimeout());
+        if (System.nanoTime() - halfOpenedAt >= halfOpenTimeout) {
+          //the outcome of the trial is never recorded: the circuit opens again for a new trial
+          state = State.OPEN;
+          openedAt = System.nanoTime();
+        }
+        rejectedCount++;
+        return false;
+    }
+  }
+
+  /**
+   * Records a request which got an answer from the host.
+   */
+  public synchronized void recordSuccess() {
+    consecutiveFailures = 0;
+    state = State.CLOSED;
+  }
+
+  /**
+   * Records a request which failed because the host is unreachable or unavailable.
+   */
+  public synchronized void recordFailure() {
+    consecutiveFailures++;
+    int threshold = SocialClientContext.getCircuitBreakerFailureThreshold();
+    if (threshold > 0 && (state == State.HALF_OPEN || consecutiveFailures >= threshold)) {
+      if (state != State.OPEN) {
+        openCount++;
+      }
+      state = State.OPEN;
+      openedAt = System.nanoTime();
+    }
+  }
+
+  /**
+   * Records a request whose outcome tells nothing about the host: aborted by its caller or its deadline,
+   * or failed on the client side. A trial request lets the next request be a new trial.
+   */
+  public synchronized void recordCancelled() {
+    if (state == State.HALF_OPEN) {
+      state = State.OPEN;
+    }
+  }
+
+  public HttpHost getHost() {
+    return host;
+  }
+
+  public synchronized State getState() {
+    return state;
+  }
+
+  public synchronized int getConsecutiveFailures() {
+    return consecutiveFailures;
+  }
+
+  /**
+   * Gets how many times the circuit opened.
+   *
+   * @return the number of times
+   */
+  public synchronized long getOpenCount() {
+    return openCount;
+  }
+
+  /**
+   * Gets the number of requests which failed fast.
+   *
+   * @return the number of requests
+   */
+  public synchronized long getRejectedCount() {
+    return rejectedCount;
+  }
+
+  @Override
+  public synchronized String toString() {
+    return "CircuitBreaker[" + host + " " + state + ", consecutive failures: " + consecutiveFailures
+        + ", opened: " + openCount + ", rejected: " + rejectedCount + "]";
+  }
+}
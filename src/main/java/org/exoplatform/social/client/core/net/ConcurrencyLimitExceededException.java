@@ -0,0 +1,38 @@
+/*
+ * Copyright (C) 2003-2011 eXo Platform SAS.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.exoplatform.social.client.core.net;
+
+import java.io.IOException;
+
+/**
+ * Thrown instead of sending a request when the concurrency limit of its host is reached.
+ *
+ * @see ConcurrencyLimiter
+ */
+@SuppressWarnings("serial")
+public class ConcurrencyLimitExceededException extends IOException {
+
+  /**
+   * Constructor for ConcurrencyLimitExceededException.
+   *
+   * @param limiter the concurrency limiter of the host
+   */
+  public ConcurrencyLimitExceededException(ConcurrencyLimiter limiter) {
+    super("The concurrency limit of " + limiter.getHost() + " is reached (" + limiter.getLimit()
+        + " requests in flight), rejecting.");
+  }
+}
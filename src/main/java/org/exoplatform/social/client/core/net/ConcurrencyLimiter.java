@@ -0,0 +1,247 @@
+/*
+ * Copyright (C) 2003-2011 eXo Platform SAS.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.exoplatform.social.client.core.net;
+
+import java.io.InterruptedIOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.HttpHost;
+import org.exoplatform.social.client.api.SocialClientContext;
+
+/**
+ * Per host adaptive concurrency limit (AIMD): the number of requests in flight to a host is capped by a
+ * limit which grows by one per round trip while the latencies stay near the lowest recently observed
+ * latency, and shrinks by a tenth when they double or the host answers overloaded. The limit then settles
+ * near the concurrency the host serves without queueing. A request is in flight until its response
+ * headers are received, the requests beyond the limit wait for
+ * {@link SocialClientContext#getConcurrencyQueueTimeout()} milliseconds then are rejected.
+ */
+public class ConcurrencyLimiter {
+
+  private static final ConcurrentMap<HttpHost, ConcurrencyLimiter> LIMITERS = new ConcurrentHashMap<HttpHost, ConcurrencyLimiter>();
+
+  private static final int MIN_LIMIT = 1;
+
+  private static final double BACKOFF_RATIO = 0.9;
+
+  /**
+   * A latency is a congestion sign beyond this ratio of the lowest latency...
+   */
+  private static final double RTT_TOLERANCE = 2.0;
+
+  /**
+   * ...and at least this much above it, so that the jitter of sub-millisecond latencies is ignored.
+   */
+  private static final long MIN_RTT_SLACK = TimeUnit.MILLISECONDS.toNanos(5);
+
+  /**
+   * The lowest latency is measured again over each window of samples, to follow the changes of the host.
+   */
+  private static final int RTT_WINDOW = 100;
+
+  private final HttpHost host;
+
+  private double limit;
+
+  private int inFlight;
+
+  private long minRtt;
+
+  private long windowMinRtt = Long.MAX_VALUE;
+
+  private int windowSamples;
+
+  private long lastDecrease;
+
+  private long decreaseCount;
+
+  private long rejectedCount;
+
+  /**
+   * Gets the concurrency limiter of a host, creating it on first use.
+   *
+   * @param host the host
+   * @return the concurrency limiter
+   */
+  public static ConcurrencyLimiter forHost(HttpHost host) {
+    ConcurrencyLimiter limiter = LIMITERS.get(host);
+    if (limiter == null) {
+      ConcurrencyLimiter newLimiter = new ConcurrencyLimiter(host);
+      limiter = LIMITERS.putIfAbsent(host, newLimiter);
+      if (limiter == null) {
+        limiter = newLimiter;
+      }
+    }
+    return limiter;
+  }
+
+  /**
+   * Gets the concurrency limiters of all the hosts requested so far.
+   *
+   * @return the concurrency limiters by host
+   */
+  public static Map<HttpHost, ConcurrencyLimiter> getLimiters() {
+    return Collections.unmodifiableMap(new HashMap<HttpHost, ConcurrencyLimiter>(LIMITERS));
+  }
+
+  /**
+   * Forgets the concurrency limiters of all hosts, their limits start again from the initial limit.
+   */
+  public static void resetAll() {
+    LIMITERS.clear();
+  }
+
+  private ConcurrencyLimiter(HttpHost host) {
+    this.host = host;
+    this.limit = Math.max(MIN_LIMIT, SocialClientContext.getInitialConcurrencyLimit());
+  }
+
+  /**
+   * Waits until a request can be sent to the host. When it returns true, the caller must either
+   * {@link #release(long, boolean)} or {@link #cancel()}.
+   *
+   * @param timeout the maximum wait in milliseconds
+   * @return false when the request is rejected
+   * @throws InterruptedIOException when interrupted while waiting
+   */
+  public synchronized boolean acquire(long timeout) throws InterruptedIOException {
+    long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+    while (inFlight >= getLimit()) {
+      long remaining = end - System.nanoTime();
+      if (remaining <= 0) {
+        rejectedCount++;
+        return false;
+      }
+      try {
+        TimeUnit.NANOSECONDS.timedWait(this, remaining);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Interrupted while waiting for the concurrency limit of " + host);
+      }
+    }
+    inFlight++;
+    return true;
+  }
+
+  /**
+   * Records the end of a request and adapts the limit.
+   *
+   * @param rtt        the latency of the request in nanoseconds
+   * @param overloaded true when the request timed out, failed to connect or was answered overloaded
+   */
+  public synchronized void release(long rtt, boolean overloaded) {
+    inFlight--;
+    if (!overloaded) {
+      sample(rtt);
+    }
+    long now = System.nanoTime();
+    boolean congested = overloaded
+        || (rtt > minRtt * RTT_TOLERANCE && rtt - minRtt > MIN_RTT_SLACK);
+    if (congested) {
+      //the requests sent before the decrease are still answered slowly, they should not decrease it again
+      if (decreaseCount == 0 || now - lastDecrease > Math.max(rtt, minRtt)) {
+        limit = Math.max(MIN_LIMIT, limit * BACKOFF_RATIO);
+        lastDecrease = now;
+        decreaseCount++;
+      }
+    } else if (inFlight + 1 >= limit / 2) {
+      //grows only when the limit is used, otherwise a burst would find it far beyond the capacity of the host
+      limit = Math.min(Math.max(MIN_LIMIT, SocialClientContext.getMaxConcurrencyLimit()), limit + 1 / limit);
+    }
+    notifyAll();
+  }
+
+  /**
+   * Records the end of a request which was not sent, without adapting the limit.
+   */
+  public synchronized void cancel() {
+    inFlight--;
+    notifyAll();
+  }
+
+  private void sample(long rtt) {
+    if (minRtt == 0 || rtt < minRtt) {
+      minRtt = rtt;
+    }
+    windowMinRtt = Math.min(windowMinRtt, rtt);
+    if (++windowSamples >= RTT_WINDOW) {
+      minRtt = windowMinRtt;
+      windowMinRtt = Long.MAX_VALUE;
+      windowSamples = 0;
+    }
+  }
+
+  public HttpHost getHost() {
+    return host;
+  }
+
+  /**
+   * Gets the current concurrency limit.
+   *
+   * @return the number of requests allowed in flight
+   */
+  public synchronized int getLimit() {
+    return (int) limit;
+  }
+
+  /**
+   * Gets the number of requests in flight.
+   *
+   * @return the number of requests
+   */
+  public synchronized int getInFlight() {
+    return inFlight;
+  }
+
+  /**
+   * Gets the lowest recent latency, the latency of the host without queueing.
+   *
+   * @return the latency in milliseconds
+   */
+  public synchronized double getMinRtt() {
+    return minRtt / 1000000.0;
+  }
+
+  /**
+   * Gets how many times the limit was decreased.
+   *
+   * @return the number of decreases
+   */
+  public synchronized long getDecreaseCount() {
+    return decreaseCount;
+  }
+
+  /**
+   * Gets the number of requests rejected by the limit.
+   *
+   * @return the number of requests
+   */
+  public synchronized long getRejectedCount() {
+    return rejectedCount;
+  }
+
+  @Override
+  public synchronized String toString() {
+    return "ConcurrencyLimiter[" + host + " limit: " + getLimit() + ", in flight: " + inFlight
+        + ", min rtt: " + getMinRtt() + "ms, decreased: " + decreaseCount + ", rejected: " + rejectedCount + "]";
+  }
+}
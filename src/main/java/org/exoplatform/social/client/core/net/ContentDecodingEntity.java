@@ -0,0 +1,191 @@
+/*
+ * Copyright (C) 2003-2011 eXo Platform SAS.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.exoplatform.social.client.core.net;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.entity.HttpEntityWrapper;
+
+/**
+ * Decodes a gzip or deflate encoded response content as it is read, counting the bytes
+ * received on the wire and the decoded bytes.
+ */
+class ContentDecodingEntity extends HttpEntityWrapper {
+
+  static final String GZIP = "gzip";
+
+  static final String DEFLATE = "deflate";
+
+  private final String encoding;
+
+  private final TransferStats stats;
+
+  private InputStream content;
+
+  /**
+   * Constructor.
+   *
+   * @param entity   the received entity
+   * @param encoding {@link #GZIP}, {@link #DEFLATE} or null when the content is not encoded
+   * @param stats    the stats of the request
+   */
+  ContentDecodingEntity(HttpEntity entity, String encoding, TransferStats stats) {
+    super(entity);
+    this.encoding = encoding;
+    this.stats = stats;
+  }
+
+  @Override
+  public InputStream getContent() throws IOException {
+    if (content == null) {
+      InputStream wire = wrappedEntity.getContent();
+      if (encoding == null) {
+        content = new CountingInputStream(wire, stats, true, true);
+      } else {
+        InputStream counted = new CountingInputStream(wire, stats, true, false);
+        InputStream decoded = GZIP.equals(encoding) ? new GZIPInputStream(counted) : inflate(counted);
+        content = new CountingInputStream(decoded, stats, false, true);
+      }
+    }
+    return content;
+  }
+
+  /**
+   * Gets the entity as received on the wire, before decoding.
+   *
+   * @return the wire entity
+   */
+  HttpEntity getWireEntity() {
+    return wrappedEntity;
+  }
+
+  @Override
+  public long getContentLength() {
+    return encoding == null ? wrappedEntity.getContentLength() : -1;
+  }
+
+  @Override
+  public Header getContentEncoding() {
+    return encoding == null ? wrappedEntity.getContentEncoding() : null;
+  }
+
+  @Override
+  public boolean isRepeatable() {
+    return false;
+  }
+
+  @Override
+  public void writeTo(OutputStream outstream) throws IOException {
+    InputStream in = getContent();
+    try {
+      byte[] buffer = new byte[4096];
+      int read;
+      while ((read = in.read(buffer)) != -1) {
+        outstream.write(buffer, 0, read);
+      }
+    } finally {
+      in.close();
+    }
+  }
+
+  @Override
+  public void consumeContent() throws IOException {
+    if (content != null) {
+      content.close();
+    } else {
+      wrappedEntity.consumeContent();
+    }
+  }
+
+  /**
+   * Servers disagree on deflate: most send a zlib stream as the spec says, some send raw deflate data.
+   */
+  private static InputStream inflate(InputStream in) throws IOException {
+    PushbackInputStream pushback = new PushbackInputStream(in, 2);
+    int cmf = pushback.read();
+    int flg = pushback.read();
+    if (flg != -1) {
+      pushback.unread(flg);
+    }
+    if (cmf != -1) {
+      pushback.unread(cmf);
+    }
+    boolean zlib = cmf != -1 && flg != -1 && (cmf & 0x0f) == 8 && ((cmf << 8) + flg) % 31 == 0;
+    return new InflaterInputStream(pushback, new Inflater(!zlib));
+  }
+
+  /**
+   * Counts the bytes read into the stats of the request.
+   */
+  private static class CountingInputStream extends FilterInputStream {
+    private final TransferStats stats;
+    private final boolean wire;
+    private final boolean decoded;
+
+    CountingInputStream(InputStream in, TransferStats stats, boolean wire, boolean decoded) {
+      super(in);
+      this.stats = stats;
+      this.wire = wire;
+      this.decoded = decoded;
+    }
+
+    @Override
+    public int read() throws IOException {
+      int b = super.read();
+      if (b != -1) {
+        count(1);
+      }
+      return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      int read = super.read(b, off, len);
+      if (read > 0) {
+        count(read);
+      }
+      return read;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+      long skipped = super.skip(n);
+      if (skipped > 0) {
+        count(skipped);
+      }
+      return skipped;
+    }
+
+    private void count(long bytes) {
+      if (wire) {
+        stats.addResponseWireBytes(bytes);
+      }
+      if (decoded) {
+        stats.addResponseBytes(bytes);
+      }
+    }
+  }
+}
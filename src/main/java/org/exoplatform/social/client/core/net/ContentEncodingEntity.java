@@ -0,0 +1,171 @@
+/*
+ * Copyright (C) 2003-2011 eXo Platform SAS.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.exoplatform.social.client.core.net;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.entity.HttpEntityWrapper;
+import org.apache.http.message.BasicHeader;
+import org.apache.http.protocol.HTTP;
+
+/**
+ * Gzip-encodes a request content as it is written, counting the bytes before and after encoding.
+ */
+class ContentEncodingEntity extends HttpEntityWrapper {
+
+  private final boolean gzip;
+
+  private final TransferStats stats;
+
+  /**
+   * Constructor.
+   *
+   * @param entity the request entity
+   * @param gzip   true to gzip-encode the content, false to only count it
+   * @param stats  the stats of the request
+   */
+  ContentEncodingEntity(HttpEntity entity, boolean gzip, TransferStats stats) {
+    super(entity);
+    this.gzip = gzip;
+    this.stats = stats;
+  }
+
+  @Override
+  public long getContentLength() {
+    return gzip ? -1 : wrappedEntity.getContentLength();
+  }
+
+  @Override
+  public boolean isChunked() {
+    return gzip || wrappedEntity.isChunked();
+  }
+
+  @Override
+  public Header getContentEncoding() {
+    return gzip ? new BasicHeader(HTTP.CONTENT_ENCODING, ContentDecodingEntity.GZIP) : wrappedEntity.getContentEncoding();
+  }
+
+  @Override
+  public InputStream getContent() throws IOException {
+    if (!gzip) {
+      return wrappedEntity.getContent();
+    }
+    ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    GZIPOutputStream out = new GZIPOutputStream(buffer);
+    wrappedEntity.writeTo(out);
+    out.close();
+    return new ByteArrayInputStream(buffer.toByteArray());
+  }
+
+  @Override
+  public void writeTo(OutputStream outstream) throws IOException {
+    CountingOutputStream wire = new CountingOutputStream(outstream);
+    if (gzip) {
+      GZIPOutputStream encoder = new GZIPOutputStream(wire, 8192);
+      CountingOutputStream content = new CountingOutputStream(encoder);
+      wrappedEntity.writeTo(content);
+      //the connection closes the stream
+      encoder.finish();
+      stats.addRequestBytes(content.count, wire.count);
+    } else {
+      wrappedEntity.writeTo(wire);
+      stats.addRequestBytes(wire.count, wire.count);
+    }
+  }
+
+  /**
+   * Checks if the content is larger than the given number of bytes, writing at most a few kilobytes
+   * of it when its length is unknown.
+   *
+   * @param entity    the entity
+   * @param threshold the number of bytes
+   * @return true if the content is larger
+   * @throws IOException
+   */
+  static boolean isLargerThan(HttpEntity entity, long threshold) throws IOException {
+    long length = entity.getContentLength();
+    if (length >= 0 || !entity.isRepeatable()) {
+      return length > threshold;
+    }
+    try {
+      entity.writeTo(new ThresholdOutputStream(threshold));
+      return false;
+    } catch (ThresholdExceededException e) {
+      return true;
+    }
+  }
+
+  private static class CountingOutputStream extends FilterOutputStream {
+    private long count;
+
+    CountingOutputStream(OutputStream out) {
+      super(out);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      out.write(b);
+      count++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      out.write(b, off, len);
+      count += len;
+    }
+
+    @Override
+    public void close() throws IOException {
+      //the connection closes the stream
+      flush();
+    }
+  }
+
+  private static class ThresholdOutputStream extends OutputStream {
+    private final long threshold;
+    private long count;
+
+    ThresholdOutputStream(long threshold) {
+      this.threshold = threshold;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      write(null, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      count += len;
+      if (count > threshold) {
+        throw new ThresholdExceededException();
+      }
+    }
+  }
+
+  private static class ThresholdExceededException extends IOException {
+    private static final long serialVersionUID = 1L;
+  }
+}
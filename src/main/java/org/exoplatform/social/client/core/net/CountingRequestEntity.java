@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2003-2011 eXo Platform SAS.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.exoplatform.social.client.core.net;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpRequest;
+import org.apache.http.entity.HttpEntityWrapper;
+
+/**
+ * Counts the request content bytes as they are written.
+ */
+final class CountingRequestEntity extends HttpEntityWrapper {
+
+  private final AtomicLong count = new AtomicLong();
+
+  private CountingRequestEntity(HttpEntity entity) {
+    super(entity);
+  }
+
+  /**
+   * Wraps the content of a request, in place of the wrapper of a previous execution of the request.
+   *
+   * @param request the request
+   * @return the counting entity, null if the request has no content
+   */
+  static CountingRequestEntity wrap(HttpRequest request) {
+    if (!(request instanceof HttpEntityEnclosingRequest)) {
+      return null;
+    }
+    HttpEntityEnclosingRequest enclosingRequest = (HttpEntityEnclosingRequest) request;
+    HttpEntity entity = enclosingRequest.getEntity();
+    if (entity == null) {
+      return null;
+    }
+    if (entity instanceof CountingRequestEntity) {
+      entity = ((CountingRequestEntity) entity).wrappedEntity;
+    }
+    CountingRequestEntity countingEntity = new CountingRequestEntity(entity);
+    enclosingRequest.setEntity(countingEntity);
+    return countingEntity;
+  }
+
+  /**
+   * Gets the number of bytes written.
+   *
+   * @return the number of bytes
+   */
+  long getCount() {
+    return count.get();
+  }
+
+  @Override
+  public void writeTo(OutputStream outstream) throws IOException {
+    wrappedEntity.writeTo(new FilterOutputStream(outstream) {
+      @Override
+      public void write(int b) throws IOException {
+        out.write(b);
+        count.incrementAndGet();
+      }
+
+      @Override
+      public void write(byte[] buffer, int offset, int length) throws IOException {
+        out.write(buffer, offset, length);
+        count.addAndGet(length);
+      }
+    });
+  }
+}
@@ -0,0 +1,367 @@
+/*
+ * Copyright (C) 2003-2011 eXo Platform SAS.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.exoplatform.social.client.core.net;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.http.HttpHost;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.params.BasicHttpParams;
+import org.apache.http.params.HttpConnectionParams;
+import org.apache.http.params.HttpParams;
+import org.exoplatform.social.client.api.SocialClientContext;
+import org.exoplatform.social.client.api.SocialClientContext.LoadBalancing;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Balances the requests across the nodes of {@link SocialClientContext#getEndpoints()}, or sends them all
+ * to {@link SocialClientContext#getHost()} when no endpoints are set.
+ * <p>
+ * A request goes to the healthy endpoint with the fewest requests in flight, or with the lowest recent
+ * latency weighted by its requests in flight, see {@link SocialClientContext#getLoadBalancing()}. With
+ * {@link SocialClientContext#isStickySessions()}, the requests of a user go to the same healthy endpoint,
+ * chosen by rendezvous hashing so that only the users of an ejected endpoint move.
+ * <p>
+ * An endpoint is ejected after {@link SocialClientContext#getHealthCheckFailureThreshold()} consecutive
+ * failed requests or health probes, and admitted again after a successful health probe. The probes get
+ * the latest version of the rest services from each endpoint, every
+ * {@link SocialClientContext#getHealthCheckInterval()} milliseconds, in a daemon thread.
+ */
+public final class EndpointPool {
+
+  private static final Logger LOG = LoggerFactory.getLogger(EndpointPool.class);
+
+  private static final Random RANDOM = new Random();
+
+  /**
+   * The weight of the last latency in the moving average.
+   */
+  private static final double EWMA_WEIGHT = 0.2;
+
+  private static final Endpoints NO_ENDPOINTS = new Endpoints(null, Collections.<Endpoint>emptyList());
+
+  /**
+   * The endpoints of the configured hosts, replaced as a whole when the configuration changes so that
+   * the requests read them without locking.
+   */
+  private static volatile Endpoints endpoints = NO_ENDPOINTS;
+
+  private static ScheduledExecutorService prober;
+
+  private EndpointPool() {
+  }
+
+  /**
+   * The endpoints of a list of hosts.
+   */
+  private static final class Endpoints {
+
+    private final List<HttpHost> hosts;
+
+    private final List<Endpoint> endpoints;
+
+    private Endpoints(List<HttpHost> hosts, List<Endpoint> endpoints) {
+      this.hosts = hosts;
+      this.endpoints = endpoints;
+    }
+  }
+
+  /**
+   * A node of the pool.
+   */
+  public static class Endpoint {
+
+    private final HttpHost host;
+
+    private final AtomicInteger outstanding = new AtomicInteger();
+
+    private double latency;
+
+    private int consecutiveFailures;
+
+    private boolean healthy = true;
+
+    private long requestCount;
+
+    private long ejectedCount;
+
+    private Endpoint(HttpHost host) {
+      this.host = host;
+    }
+
+    /**
+     * Records the start of a request to this endpoint.
+     */
+    public void start() {
+      outstanding.incrementAndGet();
+    }
+
+    /**
+     * Records the end of a request to this endpoint.
+     *
+     * @param latency the latency in nanoseconds
+     * @param failed  true when the endpoint was unreachable or unavailable
+     */
+    public void finish(long latency, boolean failed) {
+      outstanding.decrementAndGet();
+      synchronized (this) {
+        requestCount++;
+        this.latency = this.latency == 0 ? latency : this.latency + EWMA_WEIGHT * (latency - this.latency);
+      }
+      record(!failed, false);
+    }
+
+    private synchronized void record(boolean success, boolean probe) {
+      if (success) {
+        consecutiveFailures = 0;
+        if (!healthy && probe) {
+          LOG.info("Admitting " + host + " again.");
+          healthy = true;
+        }
+        return;
+      }
+      consecutiveFailures++;
+      if (healthy && consecutiveFailures >= SocialClientContext.getHealthCheckFailureThreshold()) {
+        LOG.warn("Ejecting " + host + " after " + consecutiveFailures + " consecutive failures.");
+        healthy = false;
+        ejectedCount++;
+      }
+    }
+
+    private synchronized double getCost(LoadBalancing loadBalancing) {
+      if (loadBalancing == LoadBalancing.EWMA_LATENCY) {
+        //1 ns so that the requests in flight still count before the first latency is known
+        return (latency + 1) * (outstanding.get() + 1);
+      }
+      return outstanding.get();
+    }
+
+    public HttpHost getHost() {
+      return host;
+    }
+
+    /**
+     * Gets the number of requests in flight to this endpoint.
+     *
+     * @return the number of requests
+     */
+    public int getOutstanding() {
+      return outstanding.get();
+    }
+
+    /**
+     * Gets the moving average of the latencies of this endpoint.
+     *
+     * @return the latency in milliseconds
+     */
+    public synchronized double getLatency() {
+      return latency / 1000000.0;
+    }
+
+    public synchronized boolean isHealthy() {
+      return healthy;
+    }
+
+    public synchronized long getRequestCount() {
+      return requestCount;
+    }
+
+    /**
+     * Gets how many times this endpoint was ejected.
+     *
+     * @return the number of times
+     */
+    public synchronized long getEjectedCount() {
+      return ejectedCount;
+    }
+
+    @Override
+    public synchronized String toString() {
+      return "Endpoint[" + host + (healthy ? " healthy" : " ejected") + ", outstanding: " + outstanding
+          + ", latency: " + getLatency() + "ms, requests: " + requestCount + ", ejected: " + ejectedCount + "]";
+    }
+  }
+
+  /**
+   * Selects the endpoint of a request.
+   *
+   * @param stickyKey the key of the requests to keep on the same endpoint, the user name for example,
+   *                  null when the request can go to any endpoint
+   * @return the endpoint
+   */
+  public static Endpoint select(String stickyKey) {
+    List<Endpoint> all = getEndpoints();
+    if (all.size() == 1) {
+      return all.get(0);
+    }
+    List<Endpoint> candidates = new ArrayList<Endpoint>(all.size());
+    for (Endpoint endpoint : all) {
+      if (endpoint.isHealthy()) {
+        candidates.add(endpoint);
+      }
+    }
+    if (candidates.isEmpty()) {
+      //all ejected: better try them than fail all requests until a probe succeeds
+      candidates = all;
+    }
+    if (stickyKey != null && SocialClientContext.isStickySessions()) {
+      Endpoint selected = null;
+      int highest = 0;
+      for (Endpoint endpoint : candidates) {
+        int weight = mix((stickyKey + '@' + endpoint.getHost().toURI()).hashCode());
+        if (selected == null || weight > highest) {
+          selected = endpoint;
+          highest = weight;
+        }
+      }
+      return selected;
+    }
+    LoadBalancing loadBalancing = SocialClientContext.getLoadBalancing();
+    //starts the scan at a random endpoint so that the ties are spread
+    int offset = RANDOM.nextInt(candidates.size());
+    Endpoint selected = null;
+    double lowest = 0;
+    for (int i = 0; i < candidates.size(); i++) {
+      Endpoint endpoint = candidates.get((offset + i) % candidates.size());
+      double cost = endpoint.getCost(loadBalancing);
+      if (selected == null || cost < lowest) {
+        selected = endpoint;
+        lowest = cost;
+      }
+    }
+    return selected;
+  }
+
+  /**
+   * Gets the endpoints, the health probes are started when there are several.
+   *
+   * @return the endpoints
+   */
+  public static List<Endpoint> getEndpoints() {
+    List<HttpHost> configured = SocialClientContext.getEndpoints();
+    if (configured == null || configured.isEmpty()) {
+      configured = Collections.singletonList(new HttpHost(SocialClientContext.getHost(), SocialClientContext.getPort(),
+                                                          SocialClientContext.getProtocol()));
+    }
+    Endpoints current = endpoints;
+    if (configured.equals(current.hosts)) {
+      return current.endpoints;
+    }
+    return update(configured);
+  }
+
+  private static synchronized List<Endpoint> update(List<HttpHost> configured) {
+    if (!configured.equals(endpoints.hosts)) {
+      List<HttpHost> hosts = new ArrayList<HttpHost>(configured);
+      List<Endpoint> newEndpoints = new ArrayList<Endpoint>(hosts.size());
+      for (HttpHost host : hosts) {
+        newEndpoints.add(new Endpoint(host));
+      }
+      endpoints = new Endpoints(hosts, Collections.unmodifiableList(newEndpoints));
+      startProbes();
+    }
+    return endpoints.endpoints;
+  }
+
+  /**
+   * Probes the health of all endpoints now.
+   */
+  public static void probe() {
+    List<Endpoint> all = endpoints.endpoints;
+    String path = "/" + SocialClientContext.getRestContextName() + "/api/social/version/latest.json";
+    int timeout = (int) Math.max(1000, Math.min(SocialClientContext.getHealthCheckInterval(), 5 * 1000));
+    for (Endpoint endpoint : all) {
+      HttpGet request = new HttpGet(path);
+      HttpParams params = new BasicHttpParams();
+      HttpConnectionParams.setConnectionTimeout(params, timeout);
+      HttpConnectionParams.setSoTimeout(params, timeout);
+      request.setParams(params);
+      boolean success;
+      try {
+        HttpResponse response = SocialHttpClientImpl.getInstance().execute(endpoint.getHost(), request);
+        if (response.getEntity() != null) {
+          response.getEntity().consumeContent();
+        }
+        success = response.getStatusLine().getStatusCode() < 500;
+      } catch (IOException e) {
+        LOG.debug("Health probe of " + endpoint.getHost() + " failed: " + e);
+        request.abort();
+        success = false;
+      }
+      endpoint.record(success, true);
+    }
+  }
+
+  /**
+   * Stops the health probes and forgets the endpoints.
+   */
+  public static synchronized void reset() {
+    if (prober != null) {
+      prober.shutdownNow();
+      prober = null;
+    }
+    endpoints = NO_ENDPOINTS;
+  }
+
+  private static void startProbes() {
+    long interval = SocialClientContext.getHealthCheckInterval();
+    if (prober != null || endpoints.endpoints.size() < 2 || interval <= 0) {
+      return;
+    }
+    prober = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+      @Override
+      public Thread newThread(Runnable r) {
+        Thread thread = new Thread(r, "social-client-health-probe");
+        thread.setDaemon(true);
+        return thread;
+      }
+    });
+    prober.scheduleWithFixedDelay(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          probe();
+        } catch (RuntimeException e) {
+          LOG.warn("Health probes failed.", e);
+        }
+      }
+    }, interval, interval, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Spreads the bits of a string hash code, so that close keys do not favor the same endpoint.
+   */
+  private static int mix(int h) {
+    h ^= h >>> 16;
+    h *= 0x85ebca6b;
+    h ^= h >>> 13;
+    h *= 0xc2b2ae35;
+    h ^= h >>> 16;
+    return h;
+  }
+}
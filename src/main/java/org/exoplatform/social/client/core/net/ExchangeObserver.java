@@ -0,0 +1,266 @@
+/*
+ * Copyright (C) 2003-2011 eXo Platform SAS.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.exoplatform.social.client.core.net;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.entity.HttpEntityWrapper;
+import org.exoplatform.social.client.api.SocialClientContext;
+import org.exoplatform.social.client.api.SocialClientContext.Context;
+import org.exoplatform.social.client.api.net.RequestTracer;
+import org.exoplatform.social.client.core.jfr.FlightEvent;
+import org.exoplatform.social.client.core.jfr.FlightEvents;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Follows a request through its execution, over any transport: sends its trace id, records its
+ * {@link RequestMetrics}, logs it to the {@link WireLogger} and times its phases in the
+ * {@link SocialClientContext.Context} of the current thread, and emits its flight recorder event. Once its response content is read to its end
+ * or closed, or it failed, the request is completed and the {@link RequestTracer} is notified. The context is the current
+ * one of the thread until then: the previous one is restored, so that a pooled thread does not keep the response.
+ */
+public final class ExchangeObserver {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ExchangeObserver.class);
+
+  /**
+   * Keeps the trace ids of the clients apart, the requests of a client are numbered.
+   */
+  private static final long TRACE_ID_SEED = new Random().nextLong();
+
+  private static final AtomicLong traceCounter = new AtomicLong();
+
+  private final HttpRequest request;
+
+  private final Context context;
+
+  private final RequestMetrics metrics;
+
+  private final boolean logged;
+
+  private final long startNanos;
+
+  private final FlightEvent flightEvent;
+
+  private final CountingRequestEntity requestEntity;
+
+  private final Thread thread;
+
+  private final Context previous;
+
+  private ExchangeObserver(HttpRequest request, Context context, Context previous) {
+    this.request = request;
+    this.context = context;
+    this.thread = Thread.currentThread();
+    this.previous = previous;
+    this.metrics = RequestMetrics.forRequest(request);
+    this.logged = WireLogger.isSampled(request);
+    this.startNanos = System.nanoTime();
+    this.flightEvent = FlightEvents.beginExchange();
+    this.requestEntity = metrics != null || flightEvent != null ? CountingRequestEntity.wrap(request) : null;
+  }
+
+  /**
+   * Starts to follow a request about to be sent by the current thread.
+   *
+   * @param request the request
+   * @return the observer of the request
+   */
+  public static ExchangeObserver start(HttpRequest request) {
+    String traceId = SocialClientContext.getTraceId();
+    if (traceId == null) {
+      traceId = Long.toHexString(TRACE_ID_SEED + traceCounter.incrementAndGet() * 0x9E3779B97F4A7C15L);
+    }
+    String traceHeader = SocialClientContext.getTraceHeader();
+    if (traceHeader != null) {
+      request.setHeader(traceHeader, traceId);
+    }
+    Context context = new Context(request, traceId);
+    Context previous = SocialClientContext.getCurrentContext();
+    SocialClientContext.setCurrentContext(context);
+    context.setExecuting(true);
+    return new ExchangeObserver(request, context, previous);
+  }
+
+  /**
+   * Called once the request is handed over to the transport: the phases recorded later on the current
+   * thread belong to other requests.
+   */
+  public void sent() {
+    context.setExecuting(false);
+  }
+
+  /**
+   * Called once the current thread hands the request over to another one, which completes it: the
+   * previous context of the current thread is restored.
+   */
+  public void detach() {
+    restore();
+  }
+
+  /**
+   * Called once the response headers are received.
+   *
+   * @param response the response
+   */
+  public void responded(HttpResponse response) {
+    context.setResponse(response);
+    if (metrics != null) {
+      metrics.recordResponse(response, startNanos);
+    }
+    HttpEntity entity = response.getEntity();
+    if (entity == null) {
+      complete(null, 0);
+    } else {
+      response.setEntity(new ObservedEntity(entity));
+    }
+    if (logged) {
+      WireLogger.log(request, response, startNanos);
+    }
+  }
+
+  /**
+   * Called when the request got no response.
+   *
+   * @param failure the failure
+   */
+  public void failed(Exception failure) {
+    if (logged) {
+      WireLogger.log(request, failure, startNanos);
+    }
+    complete(failure, 0);
+  }
+
+  public Context getContext() {
+    return context;
+  }
+
+  private void complete(Exception failure, long bytesIn) {
+    restore();
+    if (!context.complete(failure)) {
+      return;
+    }
+    long bytesOut = requestEntity == null ? 0 : requestEntity.getCount();
+    if (metrics != null) {
+      if (failure != null) {
+        metrics.recordFailure(startNanos, bytesOut);
+      } else {
+        metrics.recordExchange(startNanos, bytesOut, bytesIn);
+      }
+    }
+    FlightEvents.commitExchange(flightEvent, context, bytesOut, bytesIn);
+    RequestTracer tracer = SocialClientContext.getTracer();
+    if (tracer != null) {
+      try {
+        tracer.traced(context);
+      } catch (RuntimeException e) {
+        LOG.warn("Request tracer failed.", e);
+      }
+    }
+  }
+
+  private void restore() {
+    if (Thread.currentThread() == thread && SocialClientContext.getCurrentContext() == context) {
+      SocialClientContext.setCurrentContext(previous);
+    }
+  }
+
+  /**
+   * Times and counts the reads of the response content, and completes the request once the content
+   * is read to its end or closed.
+   */
+  private final class ObservedEntity extends HttpEntityWrapper {
+
+    private final AtomicLong bytesIn = new AtomicLong();
+
+    private ObservedEntity(HttpEntity entity) {
+      super(entity);
+    }
+
+    @Override
+    public InputStream getContent() throws IOException {
+      return new FilterInputStream(wrappedEntity.getContent()) {
+        @Override
+        public int read() throws IOException {
+          long start = System.nanoTime();
+          int b = super.read();
+          context.addPhaseTime(Context.Phase.TRANSFER, System.nanoTime() - start);
+          if (b == -1) {
+            complete(null, bytesIn.get());
+          } else {
+            bytesIn.incrementAndGet();
+          }
+          return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+          long start = System.nanoTime();
+          int read = super.read(buffer, offset, length);
+          context.addPhaseTime(Context.Phase.TRANSFER, System.nanoTime() - start);
+          if (read == -1) {
+            complete(null, bytesIn.get());
+          } else {
+            bytesIn.addAndGet(read);
+          }
+          return read;
+        }
+
+        @Override
+        public void close() throws IOException {
+          try {
+            super.close();
+          } finally {
+            complete(null, bytesIn.get());
+          }
+        }
+      };
+    }
+
+    @Override
+    public void writeTo(OutputStream outstream) throws IOException {
+      InputStream in = getContent();
+      try {
+        byte[] buffer = new byte[4096];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+          outstream.write(buffer, 0, read);
+        }
+      } finally {
+        in.close();
+      }
+    }
+
+    @Override
+    public void consumeContent() throws IOException {
+      try {
+        super.consumeContent();
+      } finally {
+        complete(null, bytesIn.get());
+      }
+    }
+  }
+}
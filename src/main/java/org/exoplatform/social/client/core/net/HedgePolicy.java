@@ -0,0 +1,378 @@
+/*
+ * Copyright (C) 2003-2011 eXo Platform SAS.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.exoplatform.social.client.core.net;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.http.HttpHost;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.protocol.BasicHttpContext;
+import org.apache.http.protocol.HttpContext;
+import org.exoplatform.social.client.api.SocialClientContext;
+import org.exoplatform.social.client.api.net.Deadline;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Hedges the GET requests when {@link SocialClientContext#isHedging()} is on: when the response of a GET
+ * has not arrived after the {@link SocialClientContext#getHedgeLatencyPercentile()} percentile of the recent
+ * latencies of its host, an identical request is sent on another pooled connection, the first response wins
+ * and the other request is aborted.
+ * <p>
+ * The hedges are limited to {@link SocialClientContext#getHedgeBudget()} percent of the requests, so that
+ * a slow server does not get twice the load, and run on at most {@link SocialClientContext#getMaxHedgeThreads()}
+ * threads: when they are all busy, the requests are executed without hedging. The latency of each hedged
+ * request is recorded, whether it or its hedge answered first: up to its abort when it lost. The other requests
+ * are executed as they are, their latencies are not recorded.
+ */
+public final class HedgePolicy {
+
+  private static final Logger LOG = LoggerFactory.getLogger(HedgePolicy.class);
+
+  //The latencies kept per host and the number of them needed before hedging.
+  private static final int WINDOW_SIZE = 256;
+
+  private static final int MIN_SAMPLES = 20;
+
+  //The hedges saved up while the requests are fast, at most.
+  private static final double MAX_BUDGET_TOKENS = 10;
+
+  private static final ConcurrentMap<HttpHost, LatencyWindow> WINDOWS = new ConcurrentHashMap<HttpHost, LatencyWindow>();
+
+  private static final AtomicLong HEDGES = new AtomicLong();
+
+  private static final AtomicLong HEDGE_WINS = new AtomicLong();
+
+  private static final AtomicLong BUDGET_EXCEEDED = new AtomicLong();
+
+  private static final AtomicLong SATURATED = new AtomicLong();
+
+  private static double budgetTokens;
+
+  private static ThreadPoolExecutor executor;
+
+  private HedgePolicy() {
+  }
+
+  /**
+   * Executes a request, hedging it if it is a GET and hedging is on.
+   *
+   * @param client  the client
+   * @param target  the target host
+   * @param request the request
+   * @param context the execution context, the hedge runs in a child context
+   * @return the first response
+   * @throws IOException the I/O error of the request, or of the hedge when both failed
+   */
+  public static HttpResponse execute(HttpClient client, HttpHost target, HttpUriRequest request,
+                                     HttpContext context) throws IOException {
+    if (!SocialClientContext.isHedging() || !"GET".equalsIgnoreCase(request.getMethod())) {
+      return client.execute(target, request, context);
+    }
+    LatencyWindow window = getWindow(target);
+    earnBudget();
+    long delay = window.getPercentile(SocialClientContext.getHedgeLatencyPercentile());
+    if (delay < 0) {
+      return new Attempt(client, target, request, context, window).call();
+    }
+    CompletionService<HttpResponse> completion = new ExecutorCompletionService<HttpResponse>(getExecutor());
+    //the loser is aborted: copied so that the request of the caller can be executed again
+    Deadline deadline = Deadline.current();
+    HttpGet primary = copy(request, deadline);
+    try {
+      completion.submit(new Attempt(client, target, primary, context, window));
+    } catch (RejectedExecutionException e) {
+      SATURATED.incrementAndGet();
+      unregister(primary, deadline);
+      return new Attempt(client, target, request, context, window).call();
+    }
+    HttpGet hedge = null;
+    Future<HttpResponse> hedged = null;
+    try {
+      Future<HttpResponse> first = completion.poll(delay, TimeUnit.NANOSECONDS);
+      if (first == null) {
+        if (spendBudget()) {
+          hedge = copy(request, deadline);
+          try {
+            hedged = completion.submit(new Attempt(client, target, hedge, new BasicHttpContext(context), null));
+            HEDGES.incrementAndGet();
+            LOG.debug("Hedging " + request.getRequestLine() + " after " + TimeUnit.NANOSECONDS.toMillis(delay) + "ms");
+          } catch (RejectedExecutionException e) {
+            //the hedge threads are all busy: waits for the request alone
+            SATURATED.incrementAndGet();
+            refundBudget();
+            unregister(hedge, deadline);
+            hedge = null;
+          }
+        } else {
+          BUDGET_EXCEEDED.incrementAndGet();
+        }
+        first = completion.take();
+      }
+      if (hedged != null) {
+        try {
+          first.get();
+        } catch (ExecutionException e) {
+          //the other one may still succeed
+          first = completion.take();
+        }
+        if (first == hedged) {
+          HEDGE_WINS.incrementAndGet();
+          primary.abort();
+          unregister(primary, deadline);
+        } else {
+          hedge.abort();
+          unregister(hedge, deadline);
+        }
+      }
+      HttpResponse response = first.get();
+      if (deadline != null) {
+        RetryPolicy.unregisterOnCompletion(deadline, first == hedged ? hedge : primary, response);
+      }
+      return response;
+    } catch (InterruptedException e) {
+      primary.abort();
+      unregister(primary, deadline);
+      if (hedge != null) {
+        hedge.abort();
+        unregister(hedge, deadline);
+      }
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for the response.");
+    } catch (ExecutionException e) {
+      unregister(primary, deadline);
+      unregister(hedge, deadline);
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      } else if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      throw new IllegalStateException(cause);
+    }
+  }
+
+  /**
+   * Gets the number of hedges sent.
+   *
+   * @return the number of hedges
+   */
+  public static long getHedgeCount() {
+    return HEDGES.get();
+  }
+
+  /**
+   * Gets the number of hedges which answered before the request they hedged.
+   *
+   * @return the number of hedges
+   */
+  public static long getHedgeWinCount() {
+    return HEDGE_WINS.get();
+  }
+
+  /**
+   * Gets the number of slow requests not hedged because the budget was spent.
+   *
+   * @return the number of requests
+   */
+  public static long getBudgetExceededCount() {
+    return BUDGET_EXCEEDED.get();
+  }
+
+  /**
+   * Gets the number of slow requests not hedged, or executed without hedging, because all the hedge threads
+   * were busy.
+   *
+   * @return the number of requests
+   */
+  public static long getSaturatedCount() {
+    return SATURATED.get();
+  }
+
+  /**
+   * Gets the recent latency percentile of a host, the delay after which its GET requests are hedged.
+   *
+   * @param host       the host
+   * @param percentile the percentile, from 1 to 100
+   * @return the latency in milliseconds, -1 until enough requests are done
+   */
+  public static long getLatencyPercentile(HttpHost host, int percentile) {
+    long latency = getWindow(host).getPercentile(percentile);
+    return latency < 0 ? -1 : TimeUnit.NANOSECONDS.toMillis(latency);
+  }
+
+  /**
+   * Forgets the latencies of all hosts and the saved up budget, and shuts down the hedge threads once
+   * their requests are done.
+   */
+  public static void reset() {
+    WINDOWS.clear();
+    synchronized (HedgePolicy.class) {
+      budgetTokens = 0;
+      if (executor != null) {
+        executor.shutdown();
+        executor = null;
+      }
+    }
+  }
+
+  private static LatencyWindow getWindow(HttpHost host) {
+    LatencyWindow window = WINDOWS.get(host);
+    if (window == null) {
+      LatencyWindow newWindow = new LatencyWindow();
+      window = WINDOWS.putIfAbsent(host, newWindow);
+      if (window == null) {
+        window = newWindow;
+      }
+    }
+    return window;
+  }
+
+  private static synchronized void earnBudget() {
+    budgetTokens = Math.min(MAX_BUDGET_TOKENS, budgetTokens + SocialClientContext.getHedgeBudget() / 100d);
+  }
+
+  private static synchronized boolean spendBudget() {
+    if (budgetTokens >= 1) {
+      budgetTokens--;
+      return true;
+    }
+    return false;
+  }
+
+  private static synchronized void refundBudget() {
+    budgetTokens = Math.min(MAX_BUDGET_TOKENS, budgetTokens + 1);
+  }
+
+  private static synchronized ThreadPoolExecutor getExecutor() {
+    if (executor == null) {
+      final AtomicInteger threadCount = new AtomicInteger();
+      //no queue: a request which finds all the threads busy is rejected, then executed without hedging
+      int maxThreads = Math.max(2, SocialClientContext.getMaxHedgeThreads());
+      executor = new ThreadPoolExecutor(0, maxThreads, 60, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(),
+                                        new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+          Thread thread = new Thread(r, "social-client-hedge-" + threadCount.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        }
+      });
+    }
+    return executor;
+  }
+
+  private static HttpGet copy(HttpUriRequest request, Deadline deadline) {
+    HttpGet copy = new HttpGet(request.getURI());
+    copy.setHeaders(request.getAllHeaders());
+    copy.setParams(request.getParams());
+    //the deadline of the caller thread also aborts the copies run by the hedge threads
+    if (deadline != null) {
+      deadline.register(copy);
+    }
+    return copy;
+  }
+
+  private static void unregister(HttpGet copy, Deadline deadline) {
+    if (deadline != null && copy != null) {
+      deadline.unregister(copy);
+    }
+  }
+
+  /**
+   * Sends a request and records its latency, also when it is aborted: the time until the abort, when
+   * its hedge answered first.
+   */
+  private static class Attempt implements Callable<HttpResponse> {
+    private final HttpClient client;
+    private final HttpHost target;
+    private final HttpUriRequest request;
+    private final HttpContext context;
+    //null for a hedge, whose latency is not the one of the request
+    private final LatencyWindow window;
+
+    Attempt(HttpClient client, HttpHost target, HttpUriRequest request, HttpContext context, LatencyWindow window) {
+      this.client = client;
+      this.target = target;
+      this.request = request;
+      this.context = context;
+      this.window = window;
+    }
+
+    @Override
+    public HttpResponse call() throws IOException {
+      long start = System.nanoTime();
+      try {
+        HttpResponse response = client.execute(target, request, context);
+        if (window != null) {
+          window.add(System.nanoTime() - start);
+        }
+        return response;
+      } catch (IOException e) {
+        if (window != null && request.isAborted()) {
+          //slower than its hedge: leaving it out would only keep the fast latencies
+          window.add(System.nanoTime() - start);
+        }
+        throw e;
+      }
+    }
+  }
+
+  /**
+   * The latencies of the last requests to a host.
+   */
+  private static class LatencyWindow {
+    private final long[] latencies = new long[WINDOW_SIZE];
+    private int count;
+    private int next;
+
+    synchronized void add(long latency) {
+      latencies[next] = latency;
+      next = (next + 1) % latencies.length;
+      count = Math.min(count + 1, latencies.length);
+    }
+
+    synchronized long getPercentile(int percentile) {
+      if (count < MIN_SAMPLES) {
+        return -1;
+      }
+      long[] sorted = Arrays.copyOf(latencies, count);
+      Arrays.sort(sorted);
+      int index = (int) Math.ceil(Math.max(1, Math.min(100, percentile)) / 100d * count) - 1;
+      return sorted[Math.max(0, index)];
+    }
+  }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright (C) 2003-2011 eXo Platform SAS.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.exoplatform.social.client.core.net;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.conn.ClientConnectionManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Daemon thread which periodically closes the expired and idle connections of a pooled
+ * {@link ClientConnectionManager}, so that connections closed on the server side are not leased again
+ * and idle sockets are not kept open forever.
+ */
+public class IdleConnectionEvictor extends Thread {
+
+  private static final Logger LOG = LoggerFactory.getLogger(IdleConnectionEvictor.class);
+
+  private final ClientConnectionManager connectionManager;
+
+  private final long idleTimeout;
+
+  private final long checkInterval;
+
+  private volatile boolean shutdown;
+
+  /**
+   * Constructor.
+   *
+   * @param connectionManager the connection manager to watch
+   * @param idleTimeout       the idle time in milliseconds after which a connection is closed
+   */
+  public IdleConnectionEvictor(ClientConnectionManager connectionManager, long idleTimeout) {
+    super("social-client-idle-connection-evictor");
+    setDaemon(true);
+    this.connectionManager = connectionManager;
+    this.idleTimeout = idleTimeout;
+    this.checkInterval = Math.max(1000, Math.min(idleTimeout / 2, 5000));
+  }
+
+  @Override
+  public void run() {
+    try {
+      while (!shutdown) {
+        synchronized (this) {
+          wait(checkInterval);
+        }
+        if (shutdown) {
+          break;
+        }
+        connectionManager.closeExpiredConnections();
+        connectionManager.closeIdleConnections(idleTimeout, TimeUnit.MILLISECONDS);
+      }
+    } catch (InterruptedException e) {
+      LOG.debug("Idle connection evictor interrupted.");
+    }
+  }
+
+  /**
+   * Stops the eviction loop.
+   */
+  public void shutdown() {
+    shutdown = true;
+    synchronized (this) {
+      notifyAll();
+    }
+  }
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright (C) 2003-2011 eXo Platform SAS.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.exoplatform.social.client.core.net;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock-free histogram of latencies in microseconds, in the manner of HdrHistogram: the values below
+ * 128 are counted exactly, the larger ones in 64 buckets per power of two, within 1.6% of their value.
+ * Recording a value is a few atomic increments, without allocation.
+ */
+public class LatencyHistogram {
+
+  private static final int SUB_BUCKET_BITS = 6;
+
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+  private static final int EXACT_VALUES = SUB_BUCKETS * 2;
+
+  /**
+   * The largest value counted apart, about 19 hours; the larger values are counted with it.
+   */
+  private static final long MAX_VALUE = (1L << 36) - 1;
+
+  private static final int BUCKET_COUNT = index(MAX_VALUE) + 1;
+
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+
+  private final AtomicLong count = new AtomicLong();
+
+  private final AtomicLong sum = new AtomicLong();
+
+  private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+
+  private final AtomicLong max = new AtomicLong();
+
+  /**
+   * Records a latency.
+   *
+   * @param micros the latency in microseconds
+   */
+  public void record(long micros) {
+    long value = Math.max(0, Math.min(micros, MAX_VALUE));
+    counts.incrementAndGet(index(value));
+    count.incrementAndGet();
+    sum.addAndGet(value);
+    long current;
+    while (value < (current = min.get()) && !min.compareAndSet(current, value)) {
+      //retries
+    }
+    while (value > (current = max.get()) && !max.compareAndSet(current, value)) {
+      //retries
+    }
+  }
+
+  /**
+   * Takes a snapshot of the recorded latencies. The values recorded while it is taken may be missing,
+   * or counted in some of its statistics only.
+   *
+   * @return the snapshot
+   */
+  public Snapshot getSnapshot() {
+    long[] snapshot = new long[BUCKET_COUNT];
+    long total = 0;
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      snapshot[i] = counts.get(i);
+      total += snapshot[i];
+    }
+    long minValue = min.get();
+    return new Snapshot(snapshot, total, total == 0 ? 0 : sum.get() / (double) count.get(),
+                        minValue == Long.MAX_VALUE ? 0 : minValue, max.get());
+  }
+
+  /**
+   * Clears the recorded latencies.
+   */
+  public void reset() {
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      counts.set(i, 0);
+    }
+    count.set(0);
+    sum.set(0);
+    min.set(Long.MAX_VALUE);
+    max.set(0);
+  }
+
+  private static int index(long value) {
+    if (value < EXACT_VALUES) {
+      return (int) value;
+    }
+    int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+    return EXACT_VALUES + (shift - 1) * SUB_BUCKETS + (int) (value >> shift) - SUB_BUCKETS;
+  }
+
+  /**
+   * Gets the largest value counted in a bucket.
+   */
+  private static long highestValue(int index) {
+    if (index < EXACT_VALUES) {
+      return index;
+    }
+    int shift = (index - EXACT_VALUES) / SUB_BUCKETS + 1;
+    long subBucket = (index - EXACT_VALUES) % SUB_BUCKETS + SUB_BUCKETS;
+    return ((subBucket + 1) << shift) - 1;
+  }
+
+  /**
+   * The latencies recorded at a point in time.
+   */
+  public static class Snapshot {
+
+    private final long[] counts;
+
+    private final long count;
+
+    private final double mean;
+
+    private final long min;
+
+    private final long max;
+
+    private Snapshot(long[] counts, long count, double mean, long min, long max) {
+      this.counts = counts;
+      this.count = count;
+      this.mean = mean;
+      this.min = min;
+      this.max = max;
+    }
+
+    public long getCount() {
+      return count;
+    }
+
+    /**
+     * Gets the mean latency.
+     *
+     * @return the latency in microseconds
+     */
+    public double getMean() {
+      return mean;
+    }
+
+    public long getMin() {
+      return min;
+    }
+
+    public long getMax() {
+      return max;
+    }
+
+    /**
+     * Gets the latency below which a share of the recorded latencies are.
+     *
+     * @param percentile the share in percent, for example 99.9
+     * @return the latency in microseconds, at most 1.6% above the exact one, 0 when nothing is recorded
+     */
+    public long getPercentile(double percentile) {
+      if (count == 0) {
+        return 0;
+      }
+      long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+      long seen = 0;
+      for (int i = 0; i < counts.length; i++) {
+        seen += counts[i];
+        if (seen >= rank) {
+          return Math.min(highestValue(i), max);
+        }
+      }
+      return max;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("count=%d mean=%.0fus p50=%dus p90=%dus p99=%dus p99.9=%dus max=%dus",
+                           count, mean, getPercentile(50), getPercentile(90), getPercentile(99),
+                           getPercentile(99.9), max);
+    }
+  }
+}
@@ -0,0 +1,204 @@
+/*
+ * Copyright (C) 2003-2011 eXo Platform SAS.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.exoplatform.social.client.core.net;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.HttpVersion;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.impl.EnglishReasonPhraseCatalog;
+import org.apache.http.message.BasicHttpResponse;
+import org.exoplatform.social.client.api.net.SocialHttpClient.POLICY;
+import org.exoplatform.social.client.api.net.SocialHttpClientException;
+import org.exoplatform.social.client.api.net.SocialTransport;
+import org.exoplatform.social.client.api.service.AsyncCallback;
+import org.exoplatform.social.client.core.util.ServiceFuture;
+
+/**
+ * A transport answering the requests in memory, without sockets nor server, by the first registered
+ * {@link Handler} whose path pattern matches the request path. The requests matched by no handler are
+ * answered a 404. The request contents are encoded, then dropped. Set with {@link org.exoplatform.social.client.api.SocialClientContext#setTransport(SocialTransport)},
+ * it measures the decoding, model and service overhead of the client apart from the network.
+ */
+public class LoopbackTransport implements SocialTransport {
+
+  /**
+   * Answers the requests of a path.
+   */
+  public interface Handler {
+    /**
+     * Handles a request.
+     *
+     * @param request the request
+     * @return the response
+     * @throws IOException
+     */
+    HttpResponse handle(HttpRequest request) throws IOException;
+  }
+
+  private final List<Route> routes = new CopyOnWriteArrayList<Route>();
+
+  private final AtomicLong requestCount = new AtomicLong();
+
+  /**
+   * Registers the handler of the request paths containing a match of a pattern. The handlers are
+   * tried in their registration order.
+   *
+   * @param pathRegex the pattern of the paths, found anywhere in the path
+   * @param handler   the handler
+   * @return this transport
+   */
+  public LoopbackTransport register(String pathRegex, Handler handler) {
+    routes.add(new Route(Pattern.compile(pathRegex), handler));
+    return this;
+  }
+
+  /**
+   * Registers a handler always answering the same json content with a 200 status.
+   *
+   * @param pathRegex the pattern of the paths, found anywhere in the path
+   * @param json      the content
+   * @return this transport
+   */
+  public LoopbackTransport register(String pathRegex, String json) {
+    return register(pathRegex, json(HttpStatus.SC_OK, json));
+  }
+
+  @Override
+  public HttpResponse execute(HttpUriRequest request, POLICY authPolicy) throws SocialHttpClientException {
+    return handle(request);
+  }
+
+  @Override
+  public Future<HttpResponse> executeAsync(HttpRequest request, POLICY authPolicy,
+                                           AsyncCallback<HttpResponse> callback) throws SocialHttpClientException {
+    ServiceFuture<HttpResponse> future = new ServiceFuture<HttpResponse>(callback);
+    try {
+      future.completed(handle(request));
+    } catch (SocialHttpClientException e) {
+      future.failed(e);
+    }
+    return future;
+  }
+
+  /**
+   * Gets the number of requests handled.
+   *
+   * @return the number of requests
+   */
+  public long getRequestCount() {
+    return requestCount.get();
+  }
+
+  private HttpResponse handle(HttpRequest request) throws SocialHttpClientException {
+    requestCount.incrementAndGet();
+    String path = getPath(request);
+    try {
+      //the request content is encoded as it would be sent
+      if (request instanceof HttpEntityEnclosingRequest) {
+        HttpEntity entity = ((HttpEntityEnclosingRequest) request).getEntity();
+        if (entity != null) {
+          entity.writeTo(new ByteArrayOutputStream());
+        }
+      }
+      for (Route route : routes) {
+        if (route.pattern.matcher(path).find()) {
+          return route.handler.handle(request);
+        }
+      }
+      return createResponse(HttpStatus.SC_NOT_FOUND, "{}");
+    } catch (IOException ioex) {
+      throw new SocialHttpClientException(ioex.toString(), ioex);
+    }
+  }
+
+  private static String getPath(HttpRequest request) {
+    String uri = request instanceof HttpUriRequest
+        ? ((HttpUriRequest) request).getURI().getRawPath()
+        : request.getRequestLine().getUri();
+    int query = uri.indexOf('?');
+    return query < 0 ? uri : uri.substring(0, query);
+  }
+
+  /**
+   * Creates a handler always answering the same json content.
+   *
+   * @param status the status code
+   * @param json   the content
+   * @return the handler
+   */
+  public static Handler json(final int status, final String json) {
+    final byte[] content;
+    try {
+      content = json.getBytes("UTF-8");
+    } catch (UnsupportedEncodingException e) {
+      throw new IllegalStateException(e);
+    }
+    return new Handler() {
+      @Override
+      public HttpResponse handle(HttpRequest request) {
+        return createResponse(status, content);
+      }
+    };
+  }
+
+  /**
+   * Creates a json response.
+   *
+   * @param status the status code
+   * @param json   the content
+   * @return the response
+   * @throws UnsupportedEncodingException
+   */
+  public static HttpResponse createResponse(int status, String json) throws UnsupportedEncodingException {
+    return createResponse(status, json.getBytes("UTF-8"));
+  }
+
+  private static HttpResponse createResponse(int status, byte[] content) {
+    BasicHttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, status,
+                                                       EnglishReasonPhraseCatalog.INSTANCE.getReason(status, null));
+    ByteArrayEntity entity = new ByteArrayEntity(content);
+    entity.setContentType("application/json; charset=UTF-8");
+    response.setEntity(entity);
+    return response;
+  }
+
+  private static class Route {
+
+    private final Pattern pattern;
+
+    private final Handler handler;
+
+    private Route(Pattern pattern, Handler handler) {
+      this.pattern = pattern;
+      this.handler = handler;
+    }
+  }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2003-2011 eXo Platform SAS.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.exoplatform.social.client.core.net;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+import org.apache.http.entity.AbstractHttpEntity;
+import org.apache.http.protocol.HTTP;
+import org.exoplatform.social.client.api.model.Model;
+
+/**
+ * Request entity writing the JSON of a {@link Model} straight to the connection through a UTF-8 writer,
+ * with chunked transfer coding: the model is never copied into an intermediate string or byte array.
+ * It is repeatable since the model is serialized again on each write.
+ */
+public class ModelEntity extends AbstractHttpEntity {
+
+  private final Model model;
+
+  /**
+   * Constructor.
+   *
+   * @param model the model to write
+   */
+  public ModelEntity(Model model) {
+    if (model == null) {
+      throw new IllegalArgumentException("Model may not be null");
+    }
+    this.model = model;
+    setContentType("application/json; charset=" + HTTP.UTF_8);
+    setChunked(true);
+  }
+
+  /**
+   * Gets the model written by this entity.
+   *
+   * @return the model
+   */
+  public Model getModel() {
+    return model;
+  }
+
+  @Override
+  public boolean isRepeatable() {
+    return true;
+  }
+
+  @Override
+  public long getContentLength() {
+    return -1;
+  }
+
+  /**
+   * Serializes the model in memory, only {@link #writeTo(OutputStream)} is used to send it.
+   */
+  @Override
+  public InputStream getContent() throws IOException {
+    ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+    writeTo(buffer);
+    return new ByteArrayInputStream(buffer.toByteArray());
+  }
+
+  @Override
+  public void writeTo(OutputStream outstream) throws IOException {
+    if (outstream == null) {
+      throw new IllegalArgumentException("Output stream may not be null");
+    }
+    Writer writer = new OutputStreamWriter(outstream, HTTP.UTF_8);
+    model.writeJSONString(writer);
+    //the connection closes the stream
+    writer.flush();
+  }
+
+  @Override
+  public boolean isStreaming() {
+    return false;
+  }
+}
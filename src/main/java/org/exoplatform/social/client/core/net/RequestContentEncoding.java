@@ -0,0 +1,59 @@
+/*
+ * Copyright (C) 2003-2011 eXo Platform SAS.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.exoplatform.social.client.core.net;
+
+import java.io.IOException;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpException;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpRequestInterceptor;
+import org.apache.http.protocol.HTTP;
+import org.apache.http.protocol.HttpContext;
+import org.exoplatform.social.client.api.SocialClientContext;
+
+/**
+ * Asks for compressed responses and gzip-encodes, as they are written, the request contents larger than
+ * {@link SocialHttpClientImpl#DEFAULT_SYNC_MIN_GZIP_BYTES}.
+ * Must run before {@link org.apache.http.protocol.RequestContent}, which sets the headers of the encoded content.
+ */
+public class RequestContentEncoding implements HttpRequestInterceptor {
+
+  public static final String ACCEPT_ENCODING = "Accept-Encoding";
+
+  @Override
+  public void process(HttpRequest request, HttpContext context) throws HttpException, IOException {
+    if (SocialClientContext.isResponseCompression() && !request.containsHeader(ACCEPT_ENCODING)) {
+      request.addHeader(ACCEPT_ENCODING, ContentDecodingEntity.GZIP + "," + ContentDecodingEntity.DEFLATE);
+    }
+    if (!(request instanceof HttpEntityEnclosingRequest)) {
+      return;
+    }
+    HttpEntity entity = ((HttpEntityEnclosingRequest) request).getEntity();
+    //already wrapped on a previous attempt, or encoded by the caller
+    if (entity == null || entity instanceof ContentEncodingEntity
+        || entity.getContentEncoding() != null || request.containsHeader(HTTP.CONTENT_ENCODING)) {
+      return;
+    }
+    boolean gzip = SocialClientContext.isRequestCompression()
+        && ContentEncodingEntity.isLargerThan(entity, SocialHttpClientImpl.DEFAULT_SYNC_MIN_GZIP_BYTES);
+    //RequestContent sets the Content-Encoding header from the entity
+    ((HttpEntityEnclosingRequest) request).setEntity(new ContentEncodingEntity(entity, gzip,
+                                                                               TransferStats.getStats(context)));
+  }
+}
@@ -0,0 +1,368 @@
+/*
+ * Copyright (C) 2003-2011 eXo Platform SAS.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.exoplatform.social.client.core.net;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.exoplatform.social.client.api.SocialClientContext;
+
+/**
+ * Latencies, status codes and content bytes of the requests of an endpoint template, such as
+ * <code>activity/{id}.json</code> or <code>activity_stream/feed.json</code>: the path relative to the
+ * rest api, its variable segments replaced by <code>{id}</code>.
+ * <p>
+ * Two latencies are recorded: the response time, until the response headers are received, and the exchange
+ * time, until the response content is read to its end or closed, which includes its decoding by the service.
+ * All are recorded without locks and are read with {@link #getSnapshots()}.
+ */
+public class RequestMetrics {
+
+  /**
+   * The template of the requests which match no known path.
+   */
+  public static final String OTHER = "other";
+
+  private static final Pattern API_PATH = Pattern.compile("/api/social/(?:v\\d[^/]*/[^/]+/)?");
+
+  private static final Pattern LEGACY_PATH = Pattern.compile("/social/");
+
+  /**
+   * The constant segments of the rest api paths, the others are variables.
+   */
+  private static final Set<String> CONSTANT_SEGMENTS = new HashSet<String>(Arrays.asList(
+      "activity", "activity_stream", "comment", "comments", "destroy", "like", "identity", "feed",
+      "connections", "spaces", "user", "newer", "older", "default", "version", "latest", "supported",
+      "id", "show", "restActivity", "restIdentity"));
+
+  private static final ConcurrentMap<String, RequestMetrics> METRICS = new ConcurrentHashMap<String, RequestMetrics>();
+
+  private final String template;
+
+  private final LatencyHistogram responseTime = new LatencyHistogram();
+
+  private final LatencyHistogram exchangeTime = new LatencyHistogram();
+
+  private final ConcurrentMap<Integer, AtomicLong> statusCounts = new ConcurrentHashMap<Integer, AtomicLong>();
+
+  private final AtomicLong requestCount = new AtomicLong();
+
+  private final AtomicLong failureCount = new AtomicLong();
+
+  private final AtomicLong inFlight = new AtomicLong();
+
+  private final AtomicLong bytesOut = new AtomicLong();
+
+  private final AtomicLong bytesIn = new AtomicLong();
+
+  private RequestMetrics(String template) {
+    this.template = template;
+  }
+
+  /**
+   * Gets the metrics of the template of a request, creating them on first use, and counts the request.
+   * To call before executing the request.
+   *
+   * @param request the request
+   * @return the metrics, null if {@link SocialClientContext#isRequestMetrics()} is false
+   */
+  public static RequestMetrics forRequest(HttpRequest request) {
+    if (!SocialClientContext.isRequestMetrics()) {
+      return null;
+    }
+    String path = request instanceof HttpUriRequest ? ((HttpUriRequest) request).getURI().getRawPath()
+                                                    : request.getRequestLine().getUri();
+    RequestMetrics metrics = forTemplate(getTemplate(path));
+    metrics.requestCount.incrementAndGet();
+    metrics.inFlight.incrementAndGet();
+    return metrics;
+  }
+
+  /**
+   * Gets the metrics of a template, creating them on first use.
+   *
+   * @param template the template
+   * @return the metrics
+   */
+  public static RequestMetrics forTemplate(String template) {
+    RequestMetrics metrics = METRICS.get(template);
+    if (metrics == null) {
+      RequestMetrics newMetrics = new RequestMetrics(template);
+      metrics = METRICS.putIfAbsent(template, newMetrics);
+      if (metrics == null) {
+        metrics = newMetrics;
+      }
+    }
+    return metrics;
+  }
+
+  /**
+   * Gets the metrics of all the templates requested since the start or the last reset.
+   *
+   * @return the metrics
+   */
+  public static Collection<RequestMetrics> getMetrics() {
+    return Collections.unmodifiableCollection(METRICS.values());
+  }
+
+  /**
+   * Takes a snapshot of the metrics of all the templates.
+   *
+   * @return the snapshots by template
+   */
+  public static SortedMap<String, Snapshot> getSnapshots() {
+    SortedMap<String, Snapshot> snapshots = new TreeMap<String, Snapshot>();
+    for (RequestMetrics metrics : METRICS.values()) {
+      snapshots.put(metrics.template, metrics.getSnapshot());
+    }
+    return snapshots;
+  }
+
+  /**
+   * Forgets the metrics of all the templates.
+   */
+  public static void resetAll() {
+    METRICS.clear();
+  }
+
+  /**
+   * Gets the endpoint template of a request path: the path relative to the rest api, without query,
+   * its variable segments replaced by <code>{id}</code>.
+   *
+   * @param path the request path
+   * @return the template
+   */
+  public static String getTemplate(String path) {
+    int query = path.indexOf('?');
+    if (query >= 0) {
+      path = path.substring(0, query);
+    }
+    Matcher matcher = API_PATH.matcher(path);
+    if (!matcher.find()) {
+      matcher = LEGACY_PATH.matcher(path);
+      if (!matcher.find()) {
+        return OTHER;
+      }
+    }
+    StringBuilder template = new StringBuilder(path.length());
+    for (String segment : path.substring(matcher.end()).split("/")) {
+      if (template.length() > 0) {
+        template.append('/');
+      }
+      boolean json = segment.endsWith(".json");
+      String name = json ? segment.substring(0, segment.length() - ".json".length()) : segment;
+      template.append(CONSTANT_SEGMENTS.contains(name) ? name : "{id}");
+      if (json) {
+        template.append(".json");
+      }
+    }
+    return template.toString();
+  }
+
+  /**
+   * Records the response of a request: its status code and response time.
+   *
+   * @param response   the response
+   * @param startNanos the {@link System#nanoTime()} when the request was sent
+   */
+  public void recordResponse(HttpResponse response, long startNanos) {
+    responseTime.record((System.nanoTime() - startNanos) / 1000);
+    Integer status = response.getStatusLine().getStatusCode();
+    AtomicLong counter = statusCounts.get(status);
+    if (counter == null) {
+      AtomicLong newCounter = new AtomicLong();
+      counter = statusCounts.putIfAbsent(status, newCounter);
+      if (counter == null) {
+        counter = newCounter;
+      }
+    }
+    counter.incrementAndGet();
+  }
+
+  /**
+   * Records the end of the response content of a request, read to its end or closed.
+   *
+   * @param startNanos the {@link System#nanoTime()} when the request was sent
+   * @param requestBytes the number of request content bytes written
+   * @param contentBytes the number of response content bytes read
+   */
+  public void recordExchange(long startNanos, long requestBytes, long contentBytes) {
+    inFlight.decrementAndGet();
+    exchangeTime.record((System.nanoTime() - startNanos) / 1000);
+    bytesOut.addAndGet(requestBytes);
+    bytesIn.addAndGet(contentBytes);
+  }
+
+  /**
+   * Records a request which got no response.
+   *
+   * @param startNanos the {@link System#nanoTime()} when the request was sent
+   * @param requestBytes the number of request content bytes written
+   */
+  public void recordFailure(long startNanos, long requestBytes) {
+    inFlight.decrementAndGet();
+    failureCount.incrementAndGet();
+    bytesOut.addAndGet(requestBytes);
+    exchangeTime.record((System.nanoTime() - startNanos) / 1000);
+  }
+
+  /**
+   * Takes a snapshot of these metrics.
+   *
+   * @return the snapshot
+   */
+  public Snapshot getSnapshot() {
+    SortedMap<Integer, Long> statuses = new TreeMap<Integer, Long>();
+    for (Map.Entry<Integer, AtomicLong> entry : statusCounts.entrySet()) {
+      statuses.put(entry.getKey(), entry.getValue().get());
+    }
+    return new Snapshot(template, requestCount.get(), failureCount.get(), Collections.unmodifiableSortedMap(statuses),
+                        bytesOut.get(), bytesIn.get(), responseTime.getSnapshot(), exchangeTime.getSnapshot());
+  }
+
+  public String getTemplate() {
+    return template;
+  }
+
+  /**
+   * Gets the number of requests sent and not completed: their response content is not yet read to its
+   * end nor closed. A count which keeps growing shows responses never read nor closed.
+   *
+   * @return the number of requests
+   */
+  public long getInFlight() {
+    return inFlight.get();
+  }
+
+  /**
+   * The metrics of an endpoint template at a point in time.
+   */
+  public static class Snapshot {
+
+    private final String template;
+
+    private final long requestCount;
+
+    private final long failureCount;
+
+    private final SortedMap<Integer, Long> statusCounts;
+
+    private final long bytesOut;
+
+    private final long bytesIn;
+
+    private final LatencyHistogram.Snapshot responseTime;
+
+    private final LatencyHistogram.Snapshot exchangeTime;
+
+    private Snapshot(String template, long requestCount, long failureCount, SortedMap<Integer, Long> statusCounts,
+                     long bytesOut, long bytesIn, LatencyHistogram.Snapshot responseTime,
+                     LatencyHistogram.Snapshot exchangeTime) {
+      this.template = template;
+      this.requestCount = requestCount;
+      this.failureCount = failureCount;
+      this.statusCounts = statusCounts;
+      this.bytesOut = bytesOut;
+      this.bytesIn = bytesIn;
+      this.responseTime = responseTime;
+      this.exchangeTime = exchangeTime;
+    }
+
+    public String getTemplate() {
+      return template;
+    }
+
+    public long getRequestCount() {
+      return requestCount;
+    }
+
+    /**
+     * Gets the number of requests which got no response.
+     *
+     * @return the number of requests
+     */
+    public long getFailureCount() {
+      return failureCount;
+    }
+
+    /**
+     * Gets the number of responses by status code.
+     *
+     * @return the numbers of responses
+     */
+    public SortedMap<Integer, Long> getStatusCounts() {
+      return statusCounts;
+    }
+
+    /**
+     * Gets the number of request content bytes sent, before encoding, retries included.
+     *
+     * @return the number of bytes
+     */
+    public long getBytesOut() {
+      return bytesOut;
+    }
+
+    /**
+     * Gets the number of response content bytes read, after decoding.
+     *
+     * @return the number of bytes
+     */
+    public long getBytesIn() {
+      return bytesIn;
+    }
+
+    /**
+     * Gets the latencies until the response headers are received.
+     *
+     * @return the latencies in microseconds
+     */
+    public LatencyHistogram.Snapshot getResponseTime() {
+      return responseTime;
+    }
+
+    /**
+     * Gets the latencies until the response content is read to its end or closed, or the request failed.
+     *
+     * @return the latencies in microseconds
+     */
+    public LatencyHistogram.Snapshot getExchangeTime() {
+      return exchangeTime;
+    }
+
+    @Override
+    public String toString() {
+      return template + " requests=" + requestCount + " failures=" + failureCount + " statuses=" + statusCounts
+          + " bytesOut=" + bytesOut + " bytesIn=" + bytesIn + " response[" + responseTime + "] exchange["
+          + exchangeTime + "]";
+    }
+  }
+}
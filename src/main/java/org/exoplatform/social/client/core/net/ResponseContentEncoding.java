@@ -0,0 +1,61 @@
+/*
+ * Copyright (C) 2003-2011 eXo Platform SAS.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.exoplatform.social.client.core.net;
+
+import java.io.IOException;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpException;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpResponseInterceptor;
+import org.apache.http.protocol.HTTP;
+import org.apache.http.protocol.HttpContext;
+
+/**
+ * Decodes the gzip or deflate encoded response contents as they are read,
+ * and counts the received bytes into the {@link TransferStats} of the request.
+ */
+public class ResponseContentEncoding implements HttpResponseInterceptor {
+
+  @Override
+  public void process(HttpResponse response, HttpContext context) throws HttpException, IOException {
+    HttpEntity entity = response.getEntity();
+    if (entity == null) {
+      return;
+    }
+    String encoding = null;
+    Header contentEncoding = entity.getContentEncoding();
+    if (contentEncoding != null) {
+      String value = contentEncoding.getValue().trim().toLowerCase();
+      if (ContentDecodingEntity.GZIP.equals(value) || "x-gzip".equals(value)) {
+        encoding = ContentDecodingEntity.GZIP;
+      } else if (ContentDecodingEntity.DEFLATE.equals(value)) {
+        encoding = ContentDecodingEntity.DEFLATE;
+      } else if (!HTTP.IDENTITY_CODING.equals(value)) {
+        //unknown encoding: left to the caller
+        return;
+      }
+    }
+    response.setEntity(new ContentDecodingEntity(entity, encoding, TransferStats.getStats(context)));
+    if (encoding != null) {
+      response.removeHeaders(HTTP.CONTENT_ENCODING);
+      response.removeHeaders(HTTP.CONTENT_LEN);
+      response.removeHeaders("Content-MD5");
+    }
+  }
+}
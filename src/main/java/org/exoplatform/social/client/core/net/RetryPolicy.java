@@ -0,0 +1,440 @@
+/*
+ * Copyright (C) 2003-2011 eXo Platform SAS.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.exoplatform.social.client.core.net;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.UnknownHostException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.net.ssl.SSLException;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.ClientProtocolException;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.methods.AbortableHttpRequest;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.conn.params.ConnManagerParams;
+import org.apache.http.entity.HttpEntityWrapper;
+import org.apache.http.params.BasicHttpParams;
+import org.apache.http.params.DefaultedHttpParams;
+import org.apache.http.params.HttpConnectionParams;
+import org.apache.http.params.HttpParams;
+import org.apache.http.protocol.HttpContext;
+import org.exoplatform.social.client.api.SocialClientContext;
+import org.exoplatform.social.client.api.net.Deadline;
+import org.exoplatform.social.client.api.net.DeadlineExceededException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Decides which requests are retried and how long to wait before each retry.
+ * <p>
+ * GET and HEAD requests are retried, other requests only when {@link #setRetryable(HttpParams, boolean)}
+ * opts them in, for example a POST which the server handles idempotently. A request is retried on I/O errors
+ * (except protocol, TLS and unknown host errors) and on 502, 503 and 504 responses, at most {@link SocialClientContext#getMaxRetries()} times.
+ * The waits grow exponentially from {@link SocialClientContext#getRetryBackoff()} up to
+ * {@link SocialClientContext#getMaxRetryBackoff()}, with full jitter so that the clients
+ * do not retry all at once against a restarting server.
+ */
+public final class RetryPolicy {
+
+  /**
+   * The request parameter opting a request in or out of the retries.
+   */
+  public static final String RETRYABLE = "social.retry.retryable";
+
+  private static final Logger LOG = LoggerFactory.getLogger(RetryPolicy.class);
+
+  /**
+   * Too Many Requests, not in the HttpStatus of httpcore 4.0.
+   */
+  private static final int SC_TOO_MANY_REQUESTS = 429;
+
+  private static final Random RANDOM = new Random();
+
+  private static final AtomicLong RETRIES = new AtomicLong();
+
+  private static final AtomicLong RECOVERED = new AtomicLong();
+
+  private static final AtomicLong EXHAUSTED = new AtomicLong();
+
+  private RetryPolicy() {
+  }
+
+  /**
+   * Opts a request in or out of the retries.
+   *
+   * @param params the request parameters
+   * @param retryable true to retry the request
+   */
+  public static void setRetryable(HttpParams params, boolean retryable) {
+    params.setBooleanParameter(RETRYABLE, retryable);
+  }
+
+  /**
+   * Checks if a request can be retried: GET and HEAD unless opted out, the other methods if opted in.
+   *
+   * @param request the request
+   * @return a boolean value
+   */
+  public static boolean isRetryable(HttpRequest request) {
+    String method = request.getRequestLine().getMethod();
+    boolean idempotent = "GET".equalsIgnoreCase(method) || "HEAD".equalsIgnoreCase(method);
+    return request.getParams().getBooleanParameter(RETRYABLE, idempotent);
+  }
+
+  /**
+   * Checks if the response tells the server is temporarily unavailable.
+   *
+   * @param response the response
+   * @return true for 502, 503 and 504 responses
+   */
+  public static boolean isRetryable(HttpResponse response) {
+    int statusCode = response.getStatusLine().getStatusCode();
+    return statusCode == 502 || statusCode == 503 || statusCode == 504;
+  }
+
+  /**
+   * Checks if an I/O error may be transient: not for a protocol or TLS error, or an unknown host,
+   * which would fail again.
+   *
+   * @param ioex the I/O error
+   * @return a boolean value
+   */
+  public static boolean isRetryable(IOException ioex) {
+    return !(ioex instanceof ClientProtocolException || ioex instanceof SSLException
+             || ioex instanceof UnknownHostException);
+  }
+
+  /**
+   * Gets how long to wait before a retry: a random time up to the exponential backoff,
+   * or the Retry-After delay (in seconds) of the response if longer, both capped by the maximum backoff.
+   *
+   * @param retry    the retry number, from 1
+   * @param response the response which failed, null after an I/O error
+   * @return the wait in milliseconds
+   */
+  public static long getBackoff(int retry, HttpResponse response) {
+    long maxBackoff = SocialClientContext.getMaxRetryBackoff();
+    long backoff = SocialClientContext.getRetryBackoff() << Math.min(retry - 1, 30);
+    if (backoff <= 0 || backoff > maxBackoff) {
+      backoff = maxBackoff;
+    }
+    long wait;
+    synchronized (RANDOM) {
+      wait = (long) (RANDOM.nextDouble() * (backoff + 1));
+    }
+    Header retryAfter = response != null ? response.getFirstHeader("Retry-After") : null;
+    if (retryAfter != null) {
+      try {
+        wait = Math.max(wait, Math.min(Long.parseLong(retryAfter.getValue().trim()) * 1000, maxBackoff));
+      } catch (NumberFormatException ignore) {
+        //an http date, not worth parsing
+      }
+    }
+    return wait;
+  }
+
+  /**
+   * Executes a request with the retries of this policy, through the concurrency limiter, when
+   * {@link SocialClientContext#isConcurrencyLimiting()}, and the circuit breaker of the host.
+   * The response of the last attempt is returned, whatever its status code.
+   * <p>
+   * Within a {@link Deadline}, each attempt gets the remaining time as pool, connect and read timeout
+   * and is aborted when the deadline passes, no retry is made past the deadline.
+   *
+   * @param client  the client
+   * @param target  the target host
+   * @param request the request, its entity must be repeatable
+   * @param context the execution context, shared by the attempts
+   * @return the response
+   * @throws CircuitBreakerOpenException when the circuit breaker of the host is open
+   * @throws ConcurrencyLimitExceededException when the concurrency limit of the host is reached
+   * @throws DeadlineExceededException when the deadline of the current thread is passed
+   * @throws IOException the I/O error of the last attempt
+   */
+  public static HttpResponse execute(HttpClient client, HttpHost target, HttpUriRequest request,
+                                     HttpContext context) throws IOException {
+    CircuitBreaker breaker = CircuitBreaker.forHost(target);
+    Deadline deadline = Deadline.current();
+    HttpParams params = request.getParams();
+    ConcurrencyLimiter limiter = SocialClientContext.isConcurrencyLimiting() ? ConcurrencyLimiter.forHost(target) : null;
+    int maxRetries = isRetryable(request) ? Math.max(0, SocialClientContext.getMaxRetries()) : 0;
+    for (int retry = 0; ; retry++) {
+      if (deadline != null) {
+        deadline.check();
+        applyDeadline(deadline, request, params);
+      }
+      if (limiter != null && !limiter.acquire(getQueueTimeout(deadline))) {
+        throw new ConcurrencyLimitExceededException(limiter);
+      }
+      if (!breaker.allowRequest()) {
+        if (limiter != null) {
+          limiter.cancel();
+        }
+        throw new CircuitBreakerOpenException(breaker);
+      }
+      long start = System.nanoTime();
+      HttpResponse response = null;
+      IOException ioex = null;
+      try {
+        response = HedgePolicy.execute(client, target, request, context);
+      } catch (IOException e) {
+        ioex = e;
+      } finally {
+        //every attempt records its outcome, so that a trial request never leaves the circuit half open
+        boolean succeeded = response != null && !isRetryable(response);
+        if (succeeded) {
+          breaker.recordSuccess();
+        } else if (isHostFailure(response, ioex, request, deadline)) {
+          breaker.recordFailure();
+        } else {
+          breaker.recordCancelled();
+        }
+        if (limiter != null) {
+          if (response != null) {
+            int statusCode = response.getStatusLine().getStatusCode();
+            limiter.release(System.nanoTime() - start, statusCode == SC_TOO_MANY_REQUESTS || statusCode == 503);
+          } else if (isHostFailure(null, ioex, request, deadline)) {
+            limiter.release(System.nanoTime() - start, true);
+          } else {
+            //aborted or failed on the client side, its latency tells nothing about the load of the host
+            limiter.cancel();
+          }
+        }
+        if (deadline != null && request instanceof AbortableHttpRequest) {
+          unregisterOnCompletion(deadline, (AbortableHttpRequest) request, response);
+        }
+      }
+      if (ioex != null) {
+        if (deadline != null && deadline.isExpired()) {
+          throw deadlineExceeded(ioex);
+        }
+        if (!isRetryable(ioex)) {
+          throw ioex;
+        }
+        if (retry >= maxRetries || request.isAborted()) {
+          if (retry > 0) {
+            EXHAUSTED.incrementAndGet();
+          }
+          throw ioex;
+        }
+        LOG.debug("Retrying " + request.getRequestLine() + " after " + ioex);
+        sleep(getBackoff(retry + 1, null), deadline);
+        RETRIES.incrementAndGet();
+        continue;
+      }
+      if (!isRetryable(response)) {
+        if (retry > 0) {
+          RECOVERED.incrementAndGet();
+        }
+        return response;
+      }
+      if (retry >= maxRetries) {
+        if (retry > 0) {
+          EXHAUSTED.incrementAndGet();
+        }
+        return response;
+      }
+      LOG.debug("Retrying " + request.getRequestLine() + " after " + response.getStatusLine());
+      //gives the connection back to the pool
+      if (response.getEntity() != null) {
+        response.getEntity().consumeContent();
+      }
+      sleep(getBackoff(retry + 1, response), deadline);
+      RETRIES.incrementAndGet();
+    }
+  }
+
+  /**
+   * Checks if an attempt failed because of the host: a 502, 503 or 504 response, or a transient I/O error
+   * which is not the abort of the request by its caller or its deadline.
+   */
+  private static boolean isHostFailure(HttpResponse response, IOException ioex, HttpUriRequest request,
+                                       Deadline deadline) {
+    if (response != null) {
+      return isRetryable(response);
+    }
+    return ioex != null && isRetryable(ioex) && !request.isAborted() && (deadline == null || !deadline.isExpired());
+  }
+
+  /**
+   * Bounds the pool, connect and read timeouts of the request by the time left,
+   * and aborts the request if it is still in flight when the deadline passes.
+   */
+  private static void applyDeadline(Deadline deadline, HttpUriRequest request, HttpParams params) {
+    int remaining = (int) Math.min(Integer.MAX_VALUE, Math.max(1, deadline.getRemaining(TimeUnit.MILLISECONDS)));
+    HttpParams bounded = new DefaultedHttpParams(new BasicHttpParams(), params);
+    ConnManagerParams.setTimeout(bounded, remaining);
+    HttpConnectionParams.setConnectionTimeout(bounded, remaining);
+    HttpConnectionParams.setSoTimeout(bounded, remaining);
+    request.setParams(bounded);
+    if (request instanceof AbortableHttpRequest) {
+      deadline.register((AbortableHttpRequest) request);
+    }
+  }
+
+  /**
+   * Unregisters the request of an attempt from the deadline once the attempt completes: at once without
+   * a response content, otherwise once the content is read to its end or closed, the deadline aborting
+   * the request until then.
+   */
+  static void unregisterOnCompletion(Deadline deadline, AbortableHttpRequest request, HttpResponse response) {
+    HttpEntity entity = response != null ? response.getEntity() : null;
+    if (entity == null) {
+      deadline.unregister(request);
+    } else {
+      response.setEntity(new DeadlineEntity(entity, deadline, request));
+    }
+  }
+
+  private static long getQueueTimeout(Deadline deadline) {
+    long timeout = SocialClientContext.getConcurrencyQueueTimeout();
+    if (deadline != null) {
+      timeout = Math.min(timeout, deadline.getRemaining(TimeUnit.MILLISECONDS));
+    }
+    return timeout;
+  }
+
+  private static DeadlineExceededException deadlineExceeded(IOException cause) {
+    return new DeadlineExceededException("The deadline of the call is exceeded.", cause);
+  }
+
+  private static void sleep(long millis, Deadline deadline) throws IOException {
+    if (deadline != null && deadline.getRemaining(TimeUnit.MILLISECONDS) <= millis) {
+      throw new DeadlineExceededException("The deadline of the call is exceeded before the retry.");
+    }
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting to retry.");
+    }
+  }
+
+  /**
+   * Unregisters its request from the deadline once the response content is read to its end or closed.
+   */
+  private static final class DeadlineEntity extends HttpEntityWrapper {
+
+    private final Deadline deadline;
+
+    private final AbortableHttpRequest request;
+
+    private final AtomicBoolean completed = new AtomicBoolean();
+
+    private DeadlineEntity(HttpEntity entity, Deadline deadline, AbortableHttpRequest request) {
+      super(entity);
+      this.deadline = deadline;
+      this.request = request;
+    }
+
+    private void complete() {
+      if (completed.compareAndSet(false, true)) {
+        deadline.unregister(request);
+      }
+    }
+
+    @Override
+    public InputStream getContent() throws IOException {
+      return new FilterInputStream(wrappedEntity.getContent()) {
+        @Override
+        public int read() throws IOException {
+          int b = super.read();
+          if (b == -1) {
+            complete();
+          }
+          return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+          int read = super.read(buffer, offset, length);
+          if (read == -1) {
+            complete();
+          }
+          return read;
+        }
+
+        @Override
+        public void close() throws IOException {
+          try {
+            super.close();
+          } finally {
+            complete();
+          }
+        }
+      };
+    }
+
+    @Override
+    public void writeTo(OutputStream outstream) throws IOException {
+      try {
+        super.writeTo(outstream);
+      } finally {
+        complete();
+      }
+    }
+
+    @Override
+    public void consumeContent() throws IOException {
+      try {
+        super.consumeContent();
+      } finally {
+        complete();
+      }
+    }
+  }
+
+  /**
+   * Gets the number of retries sent.
+   *
+   * @return the number of retries
+   */
+  public static long getRetryCount() {
+    return RETRIES.get();
+  }
+
+  /**
+   * Gets the number of requests which succeeded after being retried.
+   *
+   * @return the number of requests
+   */
+  public static long getRecoveredCount() {
+    return RECOVERED.get();
+  }
+
+  /**
+   * Gets the number of requests which still failed after all their retries.
+   *
+   * @return the number of requests
+   */
+  public static long getExhaustedCount() {
+    return EXHAUSTED.get();
+  }
+}
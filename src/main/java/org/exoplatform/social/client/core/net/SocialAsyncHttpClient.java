@@ -0,0 +1,595 @@
+/*
+ * Copyright (C) 2003-2011 eXo Platform SAS.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.exoplatform.social.client.core.net;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.http.ConnectionClosedException;
+import org.apache.http.ConnectionReuseStrategy;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpException;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.impl.DefaultConnectionReuseStrategy;
+import org.apache.http.impl.nio.DefaultClientIOEventDispatch;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.nio.NHttpConnection;
+import org.apache.http.nio.protocol.BufferingHttpClientHandler;
+import org.apache.http.nio.protocol.EventListener;
+import org.apache.http.nio.protocol.HttpRequestExecutionHandler;
+import org.apache.http.nio.reactor.IOReactorException;
+import org.apache.http.nio.reactor.SessionRequest;
+import org.apache.http.nio.reactor.SessionRequestCallback;
+import org.apache.http.params.BasicHttpParams;
+import org.apache.http.params.CoreConnectionPNames;
+import org.apache.http.params.HttpParams;
+import org.apache.http.params.HttpProtocolParams;
+import org.apache.http.protocol.BasicHttpContext;
+import org.apache.http.protocol.BasicHttpProcessor;
+import org.apache.http.protocol.ExecutionContext;
+import org.apache.http.protocol.HTTP;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.protocol.RequestConnControl;
+import org.apache.http.protocol.RequestContent;
+import org.apache.http.protocol.RequestTargetHost;
+import org.apache.http.protocol.RequestUserAgent;
+import org.apache.http.util.EntityUtils;
+import org.exoplatform.social.client.api.SocialClientContext;
+import org.exoplatform.social.client.api.service.AsyncCallback;
+import org.exoplatform.social.client.core.util.ServiceFuture;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Non-blocking HTTP transport of the async services.
+ * A few I/O threads (see {@link SocialClientContext#getIoThreadCount()}) drive all the connections,
+ * which are kept alive and reused per host up to {@link SocialClientContext#getMaxConnectionsPerRoute()};
+ * the requests exceeding this limit wait in a queue instead of blocking a thread.
+ * <p>
+ * The I/O threads only buffer the response content: it is decoded and the callbacks are invoked on
+ * {@link SocialClientContext#getCallbackThreadCount()} callback threads.
+ * Only plain http is supported, https requests fail: use the blocking services over TLS.
+ */
+public final class SocialAsyncHttpClient {
+
+  private static final Logger LOG = LoggerFactory.getLogger(SocialAsyncHttpClient.class);
+
+  //Default connection and socket timeout of 60 seconds, same as SocialHttpClientImpl.
+  private static final int SOCKET_OPERATION_TIMEOUT = 60 * 1000;
+
+  //A request is dispatched at most twice: a connection closed by the server while idle is only
+  //detected when it is reused.
+  private static final int MAX_ATTEMPTS = 2;
+
+  private static final String CONNECTION_STATE = "social.async.connection-state";
+
+  /**
+   * The transport shared by all async services.
+   */
+  private static SocialAsyncHttpClient sharedInstance;
+
+  private final DefaultConnectingIOReactor ioReactor;
+
+  private final BufferingHttpClientHandler handler;
+
+  private final ConnectionReuseStrategy reuseStrategy = new DefaultConnectionReuseStrategy();
+
+  //Applied on the buffered response, the protocol interceptors run before the content is received.
+  private final ResponseContentEncoding contentEncoding = new ResponseContentEncoding();
+
+  private final Map<HttpHost, RoutePool> pools = new HashMap<HttpHost, RoutePool>();
+
+  private final Thread reactorThread;
+
+  private final ExecutorService callbackExecutor;
+
+  private final HttpParams params;
+
+  private final int maxConnectionsPerRoute;
+
+  private volatile boolean shutdown;
+
+  /**
+   * Gets the transport shared by all async services, starting it on first use
+   * with the settings of {@link SocialClientContext}.
+   *
+   * @return the shared transport
+   * @throws IOException when the I/O reactor can not be started
+   */
+  public static synchronized SocialAsyncHttpClient getInstance() throws IOException {
+    if (sharedInstance == null) {
+      sharedInstance = new SocialAsyncHttpClient();
+    }
+    return sharedInstance;
+  }
+
+  /**
+   * Shuts down the shared transport: its connections are closed and the pending requests fail.
+   */
+  public static synchronized void shutdownInstance() {
+    if (sharedInstance != null) {
+      sharedInstance.shutdown();
+      sharedInstance = null;
+    }
+  }
+
+  /**
+   * Creates and starts a transport with the settings of {@link SocialClientContext}.
+   * The caller owns the returned transport and must {@link #shutdown()} it when done.
+   *
+   * @throws IOReactorException when the I/O reactor can not be started
+   */
+  public SocialAsyncHttpClient() throws IOReactorException {
+    params = new BasicHttpParams();
+    params.setIntParameter(CoreConnectionPNames.SO_TIMEOUT, SOCKET_OPERATION_TIMEOUT)
+          .setIntParameter(CoreConnectionPNames.CONNECTION_TIMEOUT, SOCKET_OPERATION_TIMEOUT)
+          .setIntParameter(CoreConnectionPNames.SOCKET_BUFFER_SIZE, 8192)
+          .setBooleanParameter(CoreConnectionPNames.TCP_NODELAY, true);
+    HttpProtocolParams.setVersion(params, HttpVersion.HTTP_1_1);
+    HttpProtocolParams.setContentCharset(params, HTTP.UTF_8);
+    maxConnectionsPerRoute = SocialClientContext.getMaxConnectionsPerRoute();
+
+    final AtomicInteger threadCount = new AtomicInteger();
+    ioReactor = new DefaultConnectingIOReactor(SocialClientContext.getIoThreadCount(), new ThreadFactory() {
+      @Override
+      public Thread newThread(Runnable r) {
+        Thread thread = new Thread(r, "social-client-io-" + threadCount.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+      }
+    }, params);
+
+    final AtomicInteger callbackThreadCount = new AtomicInteger();
+    callbackExecutor = Executors.newFixedThreadPool(SocialClientContext.getCallbackThreadCount(), new ThreadFactory() {
+      @Override
+      public Thread newThread(Runnable r) {
+        Thread thread = new Thread(r, "social-client-callback-" + callbackThreadCount.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+      }
+    });
+
+    BasicHttpProcessor httpProcessor = new BasicHttpProcessor();
+    httpProcessor.addInterceptor(new RequestContentEncoding());
+    httpProcessor.addInterceptor(new RequestContent());
+    httpProcessor.addInterceptor(new RequestTargetHost());
+    httpProcessor.addInterceptor(new RequestConnControl());
+    httpProcessor.addInterceptor(new RequestUserAgent());
+
+    handler = new BufferingHttpClientHandler(httpProcessor, new ExecutionHandler(), reuseStrategy, params);
+    handler.setEventListener(new ConnectionListener());
+
+    reactorThread = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        try {
+          ioReactor.execute(new DefaultClientIOEventDispatch(handler, params));
+        } catch (InterruptedIOException e) {
+          LOG.debug("I/O reactor interrupted.");
+        } catch (IOException e) {
+          LOG.error("I/O reactor terminated.", e);
+        }
+      }
+    }, "social-client-io-reactor");
+    reactorThread.setDaemon(true);
+    reactorThread.start();
+  }
+
+  /**
+   * Executes a request without blocking the caller thread.
+   *
+   * @param target   the target host
+   * @param request  the request, its entity must be repeatable
+   * @param callback the callback notified on a callback thread, can be null
+   * @return the future of the buffered response, any status code included
+   */
+  public Future<HttpResponse> execute(HttpHost target, HttpRequest request, AsyncCallback<HttpResponse> callback) {
+    Exchange exchange = new Exchange(request, new ServiceFuture<HttpResponse>(callback));
+    if (shutdown) {
+      exchange.future.failed(new IllegalStateException("The async http client is shut down."));
+    } else if (!"http".equalsIgnoreCase(target.getSchemeName())) {
+      //never send the request in clear text to a TLS port
+      exchange.future.failed(new UnsupportedOperationException("The async http client does not support "
+                                                               + target.getSchemeName() + "."));
+    } else {
+      dispatch(getPool(target), exchange);
+    }
+    return exchange.future;
+  }
+
+  /**
+   * Shuts down this transport: its connections are closed and the pending requests fail.
+   */
+  public void shutdown() {
+    shutdown = true;
+    try {
+      ioReactor.shutdown(SOCKET_OPERATION_TIMEOUT / 20);
+    } catch (IOException e) {
+      LOG.warn("Failed to shut down the I/O reactor.", e);
+    }
+    LinkedList<Exchange> pending = new LinkedList<Exchange>();
+    synchronized (pools) {
+      for (RoutePool pool : pools.values()) {
+        synchronized (pool) {
+          pending.addAll(pool.pending);
+          pool.pending.clear();
+        }
+      }
+    }
+    for (Exchange exchange : pending) {
+      exchange.future.failed(new ConnectionClosedException("The async http client is shut down."));
+    }
+    try {
+      reactorThread.join(SOCKET_OPERATION_TIMEOUT / 20);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    //the exchanges already completed are still notified
+    callbackExecutor.shutdown();
+  }
+
+  private RoutePool getPool(HttpHost target) {
+    synchronized (pools) {
+      RoutePool pool = pools.get(target);
+      if (pool == null) {
+        pool = new RoutePool(target);
+        pools.put(target, pool);
+      }
+      return pool;
+    }
+  }
+
+  /**
+   * Hands the exchange to an idle connection, to a new connection or to the queue of the pool.
+   */
+  private void dispatch(RoutePool pool, Exchange exchange) {
+    ConnectionState idle = null;
+    boolean connect = false;
+    synchronized (pool) {
+      exchange.attempts++;
+      exchange.submitted = false;
+      while (!pool.idle.isEmpty()) {
+        ConnectionState state = pool.idle.removeFirst();
+        if (state.connection.isOpen()) {
+          idle = state;
+          break;
+        }
+      }
+      if (idle != null) {
+        idle.exchange = exchange;
+      } else if (pool.allocated < maxConnectionsPerRoute) {
+        pool.allocated++;
+        connect = true;
+      } else {
+        pool.pending.add(exchange);
+      }
+    }
+    if (idle != null) {
+      idle.connection.requestOutput();
+    } else if (connect) {
+      ConnectionState state = new ConnectionState(pool);
+      state.exchange = exchange;
+      SessionRequest request = ioReactor.connect(new InetSocketAddress(pool.target.getHostName(), pool.target.getPort()),
+                                                 null, state, new ConnectCallback());
+      request.setConnectTimeout(SOCKET_OPERATION_TIMEOUT);
+    }
+  }
+
+  /**
+   * Dispatches the next queued exchange if the pool has room for it.
+   */
+  private void dispatchPending(RoutePool pool) {
+    Exchange next;
+    synchronized (pool) {
+      if (pool.pending.isEmpty() || (pool.idle.isEmpty() && pool.allocated >= maxConnectionsPerRoute)) {
+        return;
+      }
+      next = pool.pending.removeFirst();
+      next.attempts--;
+    }
+    dispatch(pool, next);
+  }
+
+  /**
+   * Gives the connection the next queued exchange, or puts it back in the idle list.
+   */
+  private void release(ConnectionState state) {
+    RoutePool pool = state.pool;
+    Exchange next;
+    synchronized (pool) {
+      next = pool.pending.isEmpty() ? null : pool.pending.removeFirst();
+      state.exchange = next;
+      if (next == null) {
+        pool.idle.add(state);
+      } else {
+        next.submitted = false;
+      }
+    }
+    if (next != null) {
+      state.connection.requestOutput();
+    }
+  }
+
+  /**
+   * Frees the slot of a closed connection and re-dispatches its exchange if it is safe to do so.
+   */
+  private void connectionLost(ConnectionState state, boolean connected) {
+    RoutePool pool = state.pool;
+    Exchange exchange;
+    synchronized (pool) {
+      pool.allocated--;
+      pool.idle.remove(state);
+      exchange = state.exchange;
+      state.exchange = null;
+    }
+    if (exchange != null && !exchange.future.isDone()) {
+      boolean retry = connected && !shutdown && exchange.attempts < MAX_ATTEMPTS
+          && (!exchange.submitted || isIdempotent(exchange.request));
+      if (retry) {
+        dispatch(pool, exchange);
+      } else {
+        Exception failure = state.failure;
+        if (failure == null) {
+          failure = new ConnectionClosedException("Connection closed");
+        }
+        fail(exchange, failure);
+      }
+    }
+    if (!shutdown) {
+      dispatchPending(pool);
+    }
+  }
+
+  /**
+   * Decodes the content of the response and completes the exchange on a callback thread.
+   */
+  private void complete(final Exchange exchange, final HttpResponse response) {
+    notify(exchange, new Runnable() {
+      @Override
+      public void run() {
+        HttpContext context = new BasicHttpContext();
+        context.setAttribute(TransferStats.CONTEXT_ATTRIBUTE, exchange.stats);
+        try {
+          contentEncoding.process(response, context);
+          HttpEntity entity = response.getEntity();
+          if (entity != null) {
+            response.setEntity(buffer(entity));
+          }
+        } catch (HttpException e) {
+          exchange.future.failed(new IOException(e.getMessage()));
+          return;
+        } catch (IOException e) {
+          exchange.future.failed(e);
+          return;
+        }
+        exchange.future.completed(response);
+      }
+    });
+  }
+
+  /**
+   * Fails the exchange on a callback thread.
+   */
+  private void fail(final Exchange exchange, final Exception failure) {
+    notify(exchange, new Runnable() {
+      @Override
+      public void run() {
+        exchange.future.failed(failure);
+      }
+    });
+  }
+
+  private void notify(Exchange exchange, Runnable notification) {
+    try {
+      callbackExecutor.execute(notification);
+    } catch (RejectedExecutionException e) {
+      exchange.future.failed(new ConnectionClosedException("The async http client is shut down."));
+    }
+  }
+
+  private static ByteArrayEntity buffer(HttpEntity entity) throws IOException {
+    ByteArrayEntity buffered = new ByteArrayEntity(EntityUtils.toByteArray(entity));
+    buffered.setContentType(entity.getContentType());
+    buffered.setContentEncoding(entity.getContentEncoding());
+    return buffered;
+  }
+
+  private static boolean isIdempotent(HttpRequest request) {
+    String method = request.getRequestLine().getMethod();
+    return "GET".equalsIgnoreCase(method) || "HEAD".equalsIgnoreCase(method);
+  }
+
+  /**
+   * Connections and queued exchanges of a host.
+   */
+  private static final class RoutePool {
+    private final HttpHost target;
+    private final LinkedList<ConnectionState> idle = new LinkedList<ConnectionState>();
+    private final LinkedList<Exchange> pending = new LinkedList<Exchange>();
+    private int allocated;
+
+    private RoutePool(HttpHost target) {
+      this.target = target;
+    }
+  }
+
+  /**
+   * A request with its future.
+   */
+  private static final class Exchange {
+    private final HttpRequest request;
+    private final ServiceFuture<HttpResponse> future;
+    private final TransferStats stats = new TransferStats();
+    private volatile boolean submitted;
+    private int attempts;
+
+    private Exchange(HttpRequest request, ServiceFuture<HttpResponse> future) {
+      this.request = request;
+      this.future = future;
+    }
+  }
+
+  /**
+   * The state of a connection, attached to its context.
+   */
+  private static final class ConnectionState {
+    private final RoutePool pool;
+    private volatile NHttpConnection connection;
+    private volatile Exchange exchange;
+    private volatile Exception failure;
+
+    private ConnectionState(RoutePool pool) {
+      this.pool = pool;
+    }
+  }
+
+  private class ExecutionHandler implements HttpRequestExecutionHandler {
+
+    @Override
+    public void initalizeContext(HttpContext context, Object attachment) {
+      ConnectionState state = (ConnectionState) attachment;
+      context.setAttribute(CONNECTION_STATE, state);
+      context.setAttribute(ExecutionContext.HTTP_TARGET_HOST, state.pool.target);
+    }
+
+    @Override
+    public HttpRequest submitRequest(HttpContext context) {
+      ConnectionState state = (ConnectionState) context.getAttribute(CONNECTION_STATE);
+      Exchange exchange = state.exchange;
+      if (exchange == null || exchange.submitted) {
+        return null;
+      }
+      if (exchange.future.isDone()) {
+        //cancelled while queued
+        release(state);
+        return submitRequest(context);
+      }
+      exchange.submitted = true;
+      context.setAttribute(TransferStats.CONTEXT_ATTRIBUTE, exchange.stats);
+      //the headers added by the protocol interceptors on a previous attempt
+      exchange.request.removeHeaders(HTTP.CONTENT_LEN);
+      exchange.request.removeHeaders(HTTP.TRANSFER_ENCODING);
+      return exchange.request;
+    }
+
+    @Override
+    public void handleResponse(HttpResponse response, HttpContext context) throws IOException {
+      ConnectionState state = (ConnectionState) context.getAttribute(CONNECTION_STATE);
+      Exchange exchange = state.exchange;
+      //copied out of the buffer of the connection, reused once the connection is released
+      HttpEntity entity = response.getEntity();
+      if (entity != null) {
+        response.setEntity(buffer(entity));
+      }
+      if (reuseStrategy.keepAlive(response, context)) {
+        release(state);
+      } else {
+        //the connection is closed by the handler, its slot is freed by finalizeContext()
+        state.exchange = null;
+      }
+      if (exchange != null) {
+        complete(exchange, response);
+      }
+    }
+
+    @Override
+    public void finalizeContext(HttpContext context) {
+      ConnectionState state = (ConnectionState) context.getAttribute(CONNECTION_STATE);
+      if (state != null) {
+        connectionLost(state, true);
+      }
+    }
+  }
+
+  private class ConnectionListener implements EventListener {
+
+    @Override
+    public void connectionOpen(NHttpConnection conn) {
+      ConnectionState state = (ConnectionState) conn.getContext().getAttribute(CONNECTION_STATE);
+      state.connection = conn;
+    }
+
+    @Override
+    public void connectionClosed(NHttpConnection conn) {
+    }
+
+    @Override
+    public void connectionTimeout(NHttpConnection conn) {
+      setFailure(conn, new SocketTimeoutException("Read timed out"));
+    }
+
+    @Override
+    public void fatalIOException(IOException ex, NHttpConnection conn) {
+      setFailure(conn, ex);
+    }
+
+    @Override
+    public void fatalProtocolException(HttpException ex, NHttpConnection conn) {
+      setFailure(conn, ex);
+    }
+
+    private void setFailure(NHttpConnection conn, Exception ex) {
+      ConnectionState state = (ConnectionState) conn.getContext().getAttribute(CONNECTION_STATE);
+      if (state != null) {
+        state.failure = ex;
+      }
+    }
+  }
+
+  private class ConnectCallback implements SessionRequestCallback {
+
+    @Override
+    public void completed(SessionRequest request) {
+    }
+
+    @Override
+    public void failed(SessionRequest request) {
+      connectFailed(request, request.getException());
+    }
+
+    @Override
+    public void timeout(SessionRequest request) {
+      connectFailed(request, new SocketTimeoutException("Connect timed out"));
+    }
+
+    @Override
+    public void cancelled(SessionRequest request) {
+      connectFailed(request, new ConnectionClosedException("Connect cancelled"));
+    }
+
+    private void connectFailed(SessionRequest request, Exception failure) {
+      ConnectionState state = (ConnectionState) request.getAttachment();
+      state.failure = failure;
+      connectionLost(state, false);
+    }
+  }
+}
@@ -0,0 +1,238 @@
+/*
+ * Copyright (C) 2003-2011 eXo Platform SAS.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.exoplatform.social.client.core.net;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.HttpHost;
+import org.apache.http.conn.ClientConnectionOperator;
+import org.apache.http.conn.ClientConnectionRequest;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.conn.ManagedClientConnection;
+import org.apache.http.conn.OperatedClientConnection;
+import org.apache.http.conn.params.ConnManagerParams;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.conn.scheme.SchemeRegistry;
+import org.apache.http.impl.conn.DefaultClientConnectionOperator;
+import org.apache.http.impl.conn.tsccm.AbstractConnPool;
+import org.apache.http.impl.conn.tsccm.ConnPoolByRoute;
+import org.apache.http.impl.conn.tsccm.RouteSpecificPool;
+import org.apache.http.impl.conn.tsccm.ThreadSafeClientConnManager;
+import org.apache.http.params.HttpParams;
+import org.apache.http.protocol.HttpContext;
+import org.exoplatform.social.client.api.SocialClientContext.Context;
+import org.exoplatform.social.client.api.SocialClientContext.Context.Phase;
+
+/**
+ * The connection manager of the pooled client: times the connection leases and opens of the requests,
+ * see {@link Context}, and reads the state of its pool, see {@link #getPoolStats()}.
+ */
+public class SocialConnectionManager extends ThreadSafeClientConnManager {
+
+  private final int maxTotal;
+
+  /**
+   * Constructor.
+   *
+   * @param params the pool parameters
+   * @param schemeRegistry the schemes
+   */
+  public SocialConnectionManager(HttpParams params, SchemeRegistry schemeRegistry) {
+    super(params, schemeRegistry);
+    this.maxTotal = ConnManagerParams.getMaxTotalConnections(params);
+  }
+
+  @Override
+  public ClientConnectionRequest requestConnection(HttpRoute route, Object state) {
+    final ClientConnectionRequest request = super.requestConnection(route, state);
+    return new ClientConnectionRequest() {
+      @Override
+      public ManagedClientConnection getConnection(long timeout, TimeUnit unit)
+          throws InterruptedException, ConnectionPoolTimeoutException {
+        long start = System.nanoTime();
+        try {
+          return request.getConnection(timeout, unit);
+        } finally {
+          Context.record(Phase.LEASE, System.nanoTime() - start);
+        }
+      }
+
+      @Override
+      public void abortRequest() {
+        request.abortRequest();
+      }
+    };
+  }
+
+  @Override
+  protected ClientConnectionOperator createConnectionOperator(SchemeRegistry schreg) {
+    return new DefaultClientConnectionOperator(schreg) {
+      @Override
+      public void openConnection(OperatedClientConnection conn, HttpHost target, InetAddress local,
+                                 HttpContext context, HttpParams params) throws IOException {
+        long start = System.nanoTime();
+        try {
+          super.openConnection(conn, target, local, context, params);
+        } finally {
+          Context.record(Phase.CONNECT, System.nanoTime() - start);
+        }
+      }
+    };
+  }
+
+  @Override
+  protected AbstractConnPool createConnectionPool(HttpParams params) {
+    return new StatsConnPool(connOperator, params);
+  }
+
+  /**
+   * Reads the state of the pool.
+   *
+   * @return the state of the pool, by route
+   */
+  public PoolStats getPoolStats() {
+    return ((StatsConnPool) connectionPool).getStats(maxTotal);
+  }
+
+  /**
+   * The connections of a pool, or of a route of a pool, at a point in time.
+   */
+  public static class PoolStats {
+
+    private final int leased;
+
+    private final int available;
+
+    private final int pending;
+
+    private final int max;
+
+    private final Map<String, PoolStats> routes;
+
+    private PoolStats(int leased, int available, int pending, int max, Map<String, PoolStats> routes) {
+      this.leased = leased;
+      this.available = available;
+      this.pending = pending;
+      this.max = max;
+      this.routes = routes;
+    }
+
+    /**
+     * Gets the number of connections used by requests.
+     *
+     * @return the number of connections
+     */
+    public int getLeased() {
+      return leased;
+    }
+
+    /**
+     * Gets the number of idle connections kept alive.
+     *
+     * @return the number of connections
+     */
+    public int getAvailable() {
+      return available;
+    }
+
+    /**
+     * Gets the number of requests waiting for a connection.
+     *
+     * @return the number of requests
+     */
+    public int getPending() {
+      return pending;
+    }
+
+    /**
+     * Gets the maximum number of connections.
+     *
+     * @return the number of connections
+     */
+    public int getMax() {
+      return max;
+    }
+
+    /**
+     * Gets the state of each route of the pool.
+     *
+     * @return the states by route, empty for the state of a route
+     */
+    public Map<String, PoolStats> getRoutes() {
+      return routes;
+    }
+
+    @Override
+    public String toString() {
+      return "leased=" + leased + " available=" + available + " pending=" + pending + " max=" + max;
+    }
+  }
+
+  private static final class StatsConnPool extends ConnPoolByRoute {
+
+    private final HttpParams params;
+
+    private StatsConnPool(ClientConnectionOperator operator, HttpParams params) {
+      super(operator, params);
+      this.params = params;
+    }
+
+    @Override
+    protected RouteSpecificPool newRouteSpecificPool(HttpRoute route) {
+      return new StatsRoutePool(route, ConnManagerParams.getMaxConnectionsPerRoute(params).getMaxForRoute(route));
+    }
+
+    private PoolStats getStats(int maxTotal) {
+      poolLock.lock();
+      try {
+        Map<String, PoolStats> routes = new TreeMap<String, PoolStats>();
+        for (RouteSpecificPool pool : routeToPool.values()) {
+          StatsRoutePool routePool = (StatsRoutePool) pool;
+          int available = routePool.getAvailable();
+          routes.put(routePool.getRoute().getTargetHost().toURI(),
+                     new PoolStats(routePool.getEntryCount() - available, available, routePool.getPending(),
+                                   routePool.getMaxEntries(), Collections.<String, PoolStats>emptyMap()));
+        }
+        int available = freeConnections.size();
+        return new PoolStats(numConnections - available, available, waitingThreads.size(), maxTotal,
+                             Collections.unmodifiableMap(routes));
+      } finally {
+        poolLock.unlock();
+      }
+    }
+  }
+
+  private static final class StatsRoutePool extends RouteSpecificPool {
+
+    private StatsRoutePool(HttpRoute route, int maxEntries) {
+      super(route, maxEntries);
+    }
+
+    private int getAvailable() {
+      return freeEntries.size();
+    }
+
+    private int getPending() {
+      return waitingThreads.size();
+    }
+  }
+}
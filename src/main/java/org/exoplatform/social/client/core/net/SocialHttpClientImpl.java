@@ -17,16 +17,27 @@
 package org.exoplatform.social.client.core.net;
 
 import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.util.Enumeration;
+import java.util.concurrent.TimeUnit;
 
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSessionContext;
+
+import org.apache.http.HttpClientConnection;
 import org.apache.http.HttpException;
 import org.apache.http.HttpHost;
 import org.apache.http.HttpRequest;
 import org.apache.http.HttpRequestInterceptor;
+import org.apache.http.HeaderElement;
+import org.apache.http.HeaderElementIterator;
+import org.apache.http.ConnectionReuseStrategy;
+import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
 import org.apache.http.auth.AuthScope;
 import org.apache.http.auth.AuthState;
 import org.apache.http.auth.Credentials;
-import org.apache.http.auth.UsernamePasswordCredentials;
 import org.apache.http.client.ClientProtocolException;
 import org.apache.http.client.CredentialsProvider;
 import org.apache.http.client.ResponseHandler;
@@ -34,23 +45,36 @@ import org.apache.http.client.methods.HttpUriRequest;
 import org.apache.http.client.params.HttpClientParams;
 import org.apache.http.client.protocol.ClientContext;
 import org.apache.http.conn.ClientConnectionManager;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.params.ConnManagerParams;
+import org.apache.http.conn.params.ConnPerRouteBean;
 import org.apache.http.conn.scheme.PlainSocketFactory;
 import org.apache.http.conn.scheme.Scheme;
 import org.apache.http.conn.scheme.SchemeRegistry;
+import org.apache.http.conn.ssl.SSLSocketFactory;
 import org.apache.http.impl.auth.BasicScheme;
+import org.apache.http.impl.DefaultConnectionReuseStrategy;
+import org.apache.http.impl.client.BasicCookieStore;
 import org.apache.http.impl.client.DefaultHttpClient;
-import org.apache.http.impl.conn.tsccm.ThreadSafeClientConnManager;
+import org.apache.http.message.BasicHeaderElementIterator;
 import org.apache.http.params.BasicHttpParams;
 import org.apache.http.params.HttpConnectionParams;
 import org.apache.http.params.HttpParams;
 import org.apache.http.protocol.BasicHttpContext;
 import org.apache.http.protocol.BasicHttpProcessor;
 import org.apache.http.protocol.ExecutionContext;
+import org.apache.http.protocol.HTTP;
 import org.apache.http.protocol.HttpContext;
+import org.apache.http.protocol.HttpRequestExecutor;
 import org.exoplatform.social.client.api.SocialClientContext;
+import org.exoplatform.social.client.api.SocialClientContext.Context;
+import org.exoplatform.social.client.api.SocialClientContext.Context.Phase;
 import org.exoplatform.social.client.api.SocialClientLibException;
 import org.exoplatform.social.client.api.auth.UnAuthenticatedException;
 import org.exoplatform.social.client.api.net.SocialHttpClient;
+import org.exoplatform.social.client.core.jmx.SocialClientMBeans;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 /**
  * Created by The eXo Platform SAS
@@ -60,7 +84,9 @@ import org.exoplatform.social.client.api.net.SocialHttpClient;
  */
 public final class SocialHttpClientImpl implements SocialHttpClient {
 
-  // Gzip of data shorter than this probably won't be worthwhile
+  private static final Logger LOG = LoggerFactory.getLogger(SocialHttpClientImpl.class);
+
+  // Gzip of data shorter than this probably won't be worthwhile, see RequestContentEncoding
   public static long DEFAULT_SYNC_MIN_GZIP_BYTES = 256;
   
   //Default connection and socket timeout of 60 seconds.  Tweak to taste.
@@ -92,16 +118,74 @@ public final class SocialHttpClientImpl implements SocialHttpClient {
       }
     };
 
+  /*
+   * Keeps connections alive as long as the server asks for (Keep-Alive: timeout=x header)
+   * or SocialClientContext#getConnectionKeepAlive() when the server does not say anything.
+   */
+  private final ConnectionKeepAliveStrategy keepAliveStrategy = new ConnectionKeepAliveStrategy() {
+      @Override
+      public long getKeepAliveDuration(HttpResponse response, HttpContext context) {
+        HeaderElementIterator it = new BasicHeaderElementIterator(response.headerIterator(HTTP.CONN_KEEP_ALIVE));
+        while (it.hasNext()) {
+          HeaderElement he = it.nextElement();
+          if (he.getValue() != null && "timeout".equalsIgnoreCase(he.getName())) {
+            try {
+              return Math.min(Long.parseLong(he.getValue()) * 1000, SocialClientContext.getConnectionKeepAlive());
+            } catch (NumberFormatException ignore) {
+              break;
+            }
+          }
+        }
+        return SocialClientContext.getConnectionKeepAlive();
+      }
+    };
+
+  /*
+   * Decides on the content as received on the wire: a decoded gzip or deflate content has no length,
+   * which the default strategy takes for a content delimited by the connection close.
+   */
+  private final ConnectionReuseStrategy reuseStrategy = new DefaultConnectionReuseStrategy() {
+      @Override
+      public boolean keepAlive(HttpResponse response, HttpContext context) {
+        HttpEntity entity = response.getEntity();
+        if (!(entity instanceof ContentDecodingEntity)) {
+          return super.keepAlive(response, context);
+        }
+        response.setEntity(((ContentDecodingEntity) entity).getWireEntity());
+        try {
+          return super.keepAlive(response, context);
+        } finally {
+          response.setEntity(entity);
+        }
+      }
+    };
+
+  /**
+   * The long-lived client shared by all services.
+   */
+  private static SocialHttpClientImpl sharedInstance;
+
+  /**
+   * The TLS context used when SocialClientContext does not give one, it holds the TLS session cache.
+   */
+  private static SSLContext defaultSSLContext;
+
+  private IdleConnectionEvictor connectionEvictor;
+
   /**
    * Create a new HttpClient with reasonable defaults.
+   * The caller owns the returned client and must {@link #shutdown()} it when done,
+   * services use the shared instance from {@link #getInstance()} instead.
+   *
    * @return SocialHttpClient for you to use for all your requests.
    */
   public static SocialHttpClient newInstance() {
     HttpParams params = new BasicHttpParams();
 
-    // Turn off stale checking.  Our connections break all the time anyway,
-    // and it's not worth it to pay the penalty of checking every time.
-    HttpConnectionParams.setStaleCheckingEnabled(params, false);
+    // The pool is long-lived: a connection closed by the server while it was idle is evicted by the
+    // IdleConnectionEvictor, the stale check catches the ones closed since the last eviction, so that
+    // a request which is not retried never fails on a dead connection.
+    HttpConnectionParams.setStaleCheckingEnabled(params, true);
 
     HttpConnectionParams.setConnectionTimeout(params, SOCKET_OPERATION_TIMEOUT);
     HttpConnectionParams.setSoTimeout(params, SOCKET_OPERATION_TIMEOUT);
@@ -110,12 +194,150 @@ public final class SocialHttpClientImpl implements SocialHttpClient {
     // often wants to re-POST after a redirect, which we must do ourselves.
     HttpClientParams.setRedirecting(params, false);
 
+    // Pool limits, a request waits for a connection at most the lease timeout
+    ConnManagerParams.setTimeout(params, SocialClientContext.getConnectionLeaseTimeout());
+    ConnManagerParams.setMaxTotalConnections(params, SocialClientContext.getMaxTotalConnections());
+    ConnManagerParams.setMaxConnectionsPerRoute(params, new ConnPerRouteBean(SocialClientContext.getMaxConnectionsPerRoute()));
+
     SchemeRegistry schemeRegistry = new SchemeRegistry();
     schemeRegistry.register(new Scheme("http", PlainSocketFactory.getSocketFactory(), 80));
-    ClientConnectionManager manager = new ThreadSafeClientConnManager(params, schemeRegistry);
+    schemeRegistry.register(new Scheme("https", createSSLSocketFactory(), 443));
+    ClientConnectionManager manager = new SocialConnectionManager(params, schemeRegistry);
     return new SocialHttpClientImpl(manager, params);
   }
-  
+
+  /**
+   * Creates the socket factory of the https connections over the SSL context of {@link SocialClientContext},
+   * or over a default TLS context kept for the lifetime of the application. The TLS sessions are cached
+   * in the SSL context: a new connection to a known host resumes its session with an abbreviated
+   * handshake, also after the pool is shut down and created again.
+   *
+   * @return the socket factory
+   */
+  private static SSLSocketFactory createSSLSocketFactory() {
+    SSLContext sslContext = SocialClientContext.getSSLContext();
+    if (sslContext == null) {
+      sslContext = getDefaultSSLContext();
+    }
+    SSLSessionContext sessionContext = sslContext.getClientSessionContext();
+    if (sessionContext != null) {
+      sessionContext.setSessionCacheSize(SocialClientContext.getSSLSessionCacheSize());
+      sessionContext.setSessionTimeout(SocialClientContext.getSSLSessionTimeout());
+    }
+    SSLSocketFactory socketFactory = new SSLSocketFactory(sslContext);
+    socketFactory.setHostnameVerifier(SSLSocketFactory.BROWSER_COMPATIBLE_HOSTNAME_VERIFIER);
+    return socketFactory;
+  }
+
+  private static synchronized SSLContext getDefaultSSLContext() {
+    if (defaultSSLContext == null) {
+      try {
+        SSLContext sslContext = SSLContext.getInstance(SSLSocketFactory.TLS);
+        //the default key managers and the JVM trust store
+        sslContext.init(null, null, null);
+        defaultSSLContext = sslContext;
+      } catch (GeneralSecurityException e) {
+        throw new IllegalStateException("Failed to initialize the TLS context.", e);
+      }
+    }
+    return defaultSSLContext;
+  }
+
+  /**
+   * Gets the long-lived pooled client shared by all services, creating it on first use
+   * with the pool settings of {@link SocialClientContext}.
+   *
+   * @return the shared SocialHttpClient
+   */
+  public static synchronized SocialHttpClient getInstance() {
+    if (sharedInstance == null) {
+      SocialHttpClientImpl client = (SocialHttpClientImpl) newInstance();
+      client.connectionEvictor = new IdleConnectionEvictor(client.getConnectionManager(),
+                                                           SocialClientContext.getIdleConnectionTimeout());
+      client.connectionEvictor.start();
+      sharedInstance = client;
+      if (SocialClientContext.isJmx()) {
+        registerMBeans();
+      }
+    }
+    return sharedInstance;
+  }
+
+  private static void registerMBeans() {
+    try {
+      SocialClientMBeans.register();
+    } catch (LinkageError e) {
+      //no javax.management, as on Android
+      LOG.debug("JMX is not available, the MBeans are not registered.");
+    }
+  }
+
+  /**
+   * Reads the state of the pool of the shared client, without creating it.
+   *
+   * @return the state of the pool, null if there is no shared client
+   */
+  public static synchronized SocialConnectionManager.PoolStats getPoolStats() {
+    if (sharedInstance == null) {
+      return null;
+    }
+    return ((SocialConnectionManager) sharedInstance.getConnectionManager()).getPoolStats();
+  }
+
+  /**
+   * Closes the pooled connections of the shared client idle for longer than the given time, without
+   * creating it.
+   *
+   * @param idleTime the idle time, 0 to close all idle connections
+   * @param unit     the unit of the idle time
+   */
+  public static synchronized void closeIdleInstanceConnections(long idleTime, TimeUnit unit) {
+    if (sharedInstance != null) {
+      sharedInstance.closeIdleConnections(idleTime, unit);
+    }
+  }
+
+  /**
+   * Invalidates the cached TLS sessions of the SSL context used by the https connections,
+   * the next connections make a full handshake.
+   *
+   * @return the number of sessions invalidated
+   */
+  public static int invalidateSSLSessions() {
+    SSLContext sslContext = SocialClientContext.getSSLContext();
+    if (sslContext == null) {
+      synchronized (SocialHttpClientImpl.class) {
+        sslContext = defaultSSLContext;
+      }
+    }
+    if (sslContext == null || sslContext.getClientSessionContext() == null) {
+      return 0;
+    }
+    SSLSessionContext sessionContext = sslContext.getClientSessionContext();
+    int count = 0;
+    Enumeration<byte[]> ids = sessionContext.getIds();
+    while (ids.hasMoreElements()) {
+      SSLSession session = sessionContext.getSession(ids.nextElement());
+      if (session != null) {
+        session.invalidate();
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Shuts down the shared client and closes all its pooled connections.
+   * The next call to {@link #getInstance()} creates a new pool with the current settings
+   * of {@link SocialClientContext}.
+   */
+  public static synchronized void shutdownInstance() {
+    if (sharedInstance != null) {
+      sharedInstance.shutdown();
+      sharedInstance = null;
+    }
+  }
+
   private SocialHttpClientImpl(ClientConnectionManager ccm, HttpParams params) {
     //delegate = new DefaultHttpClient(ccm, params);
     
@@ -128,20 +350,56 @@ public final class SocialHttpClientImpl implements SocialHttpClient {
           return processor;
       }
       
+      @Override
+      protected HttpRequestExecutor createRequestExecutor() {
+          // Times the phases of the request executing on the current thread.
+          return new HttpRequestExecutor() {
+            @Override
+            protected HttpResponse doSendRequest(HttpRequest request, HttpClientConnection conn, HttpContext context)
+                throws IOException, HttpException {
+              long start = System.nanoTime();
+              try {
+                return super.doSendRequest(request, conn, context);
+              } finally {
+                Context.record(Phase.SEND, System.nanoTime() - start);
+              }
+            }
+
+            @Override
+            protected HttpResponse doReceiveResponse(HttpRequest request, HttpClientConnection conn, HttpContext context)
+                throws HttpException, IOException {
+              long start = System.nanoTime();
+              try {
+                return super.doReceiveResponse(request, conn, context);
+              } finally {
+                Context.record(Phase.SERVER, System.nanoTime() - start);
+              }
+            }
+          };
+      }
+
       @Override
       protected HttpContext createHttpContext() {
-          // Same as DefaultHttpClient.createHttpContext() minus the
-          // cookie store.
+          // Same as DefaultHttpClient.createHttpContext() minus the shared
+          // cookie store: the cookies of a request are dropped with it, unless
+          // the request context gives the store of an AuthSession. The empty
+          // store also keeps the cookie interceptors from logging at INFO level
+          // "Cookie store not available in HTTP context" on every request.
           HttpContext context = new BasicHttpContext();
           context.setAttribute(ClientContext.AUTHSCHEME_REGISTRY, getAuthSchemes());
           context.setAttribute(ClientContext.COOKIESPEC_REGISTRY, getCookieSpecs());
           context.setAttribute(ClientContext.CREDS_PROVIDER, getCredentialsProvider());
+          context.setAttribute(ClientContext.COOKIE_STORE, new BasicCookieStore());
           return context;
       }
     };
-    
-    
-    
+    delegate.setKeepAliveStrategy(keepAliveStrategy);
+    delegate.setReuseStrategy(reuseStrategy);
+    // Registered once: it only acts when the execution context provides credentials.
+    delegate.addRequestInterceptor(preemptiveAuthInterceptor, 0);
+    // Before RequestContent which sets the Content-Length of the encoded content.
+    delegate.addRequestInterceptor(new RequestContentEncoding(), 0);
+    delegate.addResponseInterceptor(new ResponseContentEncoding());
   }
   
   @Override
@@ -208,15 +466,39 @@ public final class SocialHttpClientImpl implements SocialHttpClient {
     return delegate.execute(target, request, responseHandler, context);
   }
   
+  /**
+   * Only checks that the credentials are set: the credentials of a BASIC_AUTH request are given in its own
+   * context by {@link org.exoplatform.social.client.core.util.SocialHttpClientSupport}, they are never kept
+   * by the client, which is shared by all the callers.
+   *
+   * @deprecated the credentials are sent by the BASIC_AUTH requests
+   */
+  @Deprecated
   @Override
   public void setBasicAuthenticateToRequest() throws SocialClientLibException {
-    if (delegate == null) return;
     if (SocialClientContext.getUsername() == null || SocialClientContext.getPassword() == null) {
       //fast check from client
       throw new SocialClientLibException("401 Unauthorized", new UnAuthenticatedException());
     }
-    delegate.getCredentialsProvider().setCredentials(new AuthScope(SocialClientContext.getHost(), SocialClientContext.getPort()), 
-                                                     new UsernamePasswordCredentials(SocialClientContext.getUsername(), SocialClientContext.getPassword()));
-    delegate.addRequestInterceptor(preemptiveAuthInterceptor ,0);
+  }
+
+  @Override
+  public void shutdown() {
+    if (connectionEvictor != null) {
+      connectionEvictor.shutdown();
+      connectionEvictor = null;
+    }
+    delegate.getConnectionManager().shutdown();
+  }
+
+  /**
+   * Closes the pooled connections which have been idle longer than the given time.
+   *
+   * @param idleTime the idle time
+   * @param unit     the unit of the idle time
+   */
+  public void closeIdleConnections(long idleTime, TimeUnit unit) {
+    delegate.getConnectionManager().closeExpiredConnections();
+    delegate.getConnectionManager().closeIdleConnections(idleTime, unit);
   }
 }
@@ -0,0 +1,155 @@
+/*
+ * Copyright (C) 2003-2011 eXo Platform SAS.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.exoplatform.social.client.core.net;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.http.protocol.HttpContext;
+
+/**
+ * Counters of the bytes sent and received by requests, before and after content encoding,
+ * to measure what compression saves.
+ * <p>
+ * The counters of a request are added to the {@link #getTotals() totals} of all requests as they grow.
+ */
+public class TransferStats {
+
+  /**
+   * The attribute of the http context holding the stats of the request.
+   */
+  public static final String CONTEXT_ATTRIBUTE = "social.transfer-stats";
+
+  private static final TransferStats TOTALS = new TransferStats(null);
+
+  private final TransferStats totals;
+
+  private final AtomicLong requestBytes = new AtomicLong();
+
+  private final AtomicLong requestWireBytes = new AtomicLong();
+
+  private final AtomicLong responseBytes = new AtomicLong();
+
+  private final AtomicLong responseWireBytes = new AtomicLong();
+
+  /**
+   * Creates the stats of a request.
+   */
+  public TransferStats() {
+    this(TOTALS);
+  }
+
+  private TransferStats(TransferStats totals) {
+    this.totals = totals;
+  }
+
+  /**
+   * Gets the stats of all the requests sent since the start.
+   *
+   * @return the total stats
+   */
+  public static TransferStats getTotals() {
+    return TOTALS;
+  }
+
+  /**
+   * Gets the stats of the request executed with the given context, binding new stats to it if needed.
+   *
+   * @param context the http context of the request
+   * @return the stats of the request
+   */
+  public static TransferStats getStats(HttpContext context) {
+    TransferStats stats = (TransferStats) context.getAttribute(CONTEXT_ATTRIBUTE);
+    if (stats == null) {
+      stats = new TransferStats();
+      context.setAttribute(CONTEXT_ATTRIBUTE, stats);
+    }
+    return stats;
+  }
+
+  /**
+   * Gets the number of request content bytes, before encoding.
+   *
+   * @return the number of bytes
+   */
+  public long getRequestBytes() {
+    return requestBytes.get();
+  }
+
+  /**
+   * Gets the number of request content bytes sent on the wire, after encoding.
+   *
+   * @return the number of bytes
+   */
+  public long getRequestWireBytes() {
+    return requestWireBytes.get();
+  }
+
+  /**
+   * Gets the number of response content bytes, after decoding.
+   *
+   * @return the number of bytes
+   */
+  public long getResponseBytes() {
+    return responseBytes.get();
+  }
+
+  /**
+   * Gets the number of response content bytes received on the wire, before decoding.
+   *
+   * @return the number of bytes
+   */
+  public long getResponseWireBytes() {
+    return responseWireBytes.get();
+  }
+
+  /**
+   * Gets the number of content bytes which compression kept off the wire.
+   *
+   * @return the number of bytes
+   */
+  public long getSavedBytes() {
+    return getRequestBytes() - getRequestWireBytes() + getResponseBytes() - getResponseWireBytes();
+  }
+
+  void addRequestBytes(long bytes, long wireBytes) {
+    requestBytes.addAndGet(bytes);
+    requestWireBytes.addAndGet(wireBytes);
+    if (totals != null) {
+      totals.addRequestBytes(bytes, wireBytes);
+    }
+  }
+
+  void addResponseBytes(long bytes) {
+    responseBytes.addAndGet(bytes);
+    if (totals != null) {
+      totals.addResponseBytes(bytes);
+    }
+  }
+
+  void addResponseWireBytes(long wireBytes) {
+    responseWireBytes.addAndGet(wireBytes);
+    if (totals != null) {
+      totals.addResponseWireBytes(wireBytes);
+    }
+  }
+
+  @Override
+  public String toString() {
+    return "request: " + getRequestBytes() + " bytes (" + getRequestWireBytes() + " on the wire), response: "
+        + getResponseBytes() + " bytes (" + getResponseWireBytes() + " on the wire)";
+  }
+}
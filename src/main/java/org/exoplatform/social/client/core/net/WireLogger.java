@@ -0,0 +1,443 @@
+/*
+ * Copyright (C) 2003-2011 eXo Platform SAS.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.exoplatform.social.client.core.net;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.entity.HttpEntityWrapper;
+import org.exoplatform.social.client.api.SocialClientContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Logs the requests and responses to the <code>org.exoplatform.social.client.wire</code> logger at INFO level,
+ * when {@link SocialClientContext#isWireLogging()} or {@link SocialClientContext#isDeveloping()} is set.
+ * <p>
+ * The exchanges are sampled by rate and by path pattern, except in development mode where all are logged.
+ * The response content is not buffered: at most {@link SocialClientContext#getWireLogMaxBodySize()} bytes
+ * are copied while the caller reads it, and the exchange is queued once the content is read to its end or
+ * closed. The exchanges are formatted and written by a daemon thread; when the bounded queue is full they
+ * are dropped and counted, so that logging never blocks nor slows down the requests.
+ */
+public final class WireLogger {
+
+  private static final Logger LOG = LoggerFactory.getLogger(WireLogger.class);
+
+  private static final Logger WIRE = LoggerFactory.getLogger("org.exoplatform.social.client.wire");
+
+  private static final String MASK = "***";
+
+  private static final AtomicLong sampleCounter = new AtomicLong();
+
+  private static final AtomicLong loggedCount = new AtomicLong();
+
+  private static final AtomicLong droppedCount = new AtomicLong();
+
+  private static volatile Pattern pathPattern;
+
+  private static Writer writer;
+
+  private WireLogger() {
+  }
+
+  /**
+   * Checks if the exchange of a request is to be logged, and counts it for the sampling.
+   *
+   * @param request the request
+   * @return true to log it
+   */
+  public static boolean isSampled(HttpRequest request) {
+    boolean developing = SocialClientContext.isDeveloping();
+    if (!developing && !SocialClientContext.isWireLogging() || !WIRE.isInfoEnabled()) {
+      return false;
+    }
+    if (developing) {
+      return true;
+    }
+    Pattern pattern = getPathPattern();
+    if (pattern != null && !pattern.matcher(getUri(request)).find()) {
+      return false;
+    }
+    //logs exactly rate requests of each hundred, spread over them
+    long rate = SocialClientContext.getWireLogSampleRate();
+    long count = sampleCounter.incrementAndGet();
+    return count * rate / 100 != (count - 1) * rate / 100;
+  }
+
+  /**
+   * Logs the exchange of a sampled request, see {@link #isSampled(HttpRequest)}. The response content is
+   * captured as it is read, the exchange is logged once it is read to its end or closed.
+   *
+   * @param request    the request
+   * @param response   the response
+   * @param startNanos the {@link System#nanoTime()} when the request was sent
+   */
+  public static void log(HttpRequest request, HttpResponse response, long startNanos) {
+    Exchange exchange = new Exchange(request, response, System.nanoTime() - startNanos);
+    HttpEntity entity = response.getEntity();
+    int maxBodySize = SocialClientContext.getWireLogMaxBodySize();
+    if (entity == null || maxBodySize <= 0) {
+      exchange.submit();
+    } else {
+      response.setEntity(new CapturingEntity(entity, exchange, maxBodySize));
+    }
+  }
+
+  /**
+   * Logs a request which got no response.
+   *
+   * @param request    the request
+   * @param failure    the failure
+   * @param startNanos the {@link System#nanoTime()} when the request was sent
+   */
+  public static void log(HttpRequest request, Exception failure, long startNanos) {
+    Exchange exchange = new Exchange(request, null, System.nanoTime() - startNanos);
+    exchange.failure = failure;
+    exchange.submit();
+  }
+
+  /**
+   * Waits until the queued exchanges are written.
+   *
+   * @param timeout the maximum time to wait, in milliseconds
+   * @return false if some are still queued after the timeout
+   * @throws InterruptedException
+   */
+  public static boolean flush(long timeout) throws InterruptedException {
+    Writer current;
+    synchronized (WireLogger.class) {
+      current = writer;
+    }
+    return current == null || current.awaitIdle(timeout);
+  }
+
+  /**
+   * Gets the number of exchanges written.
+   *
+   * @return the number of exchanges
+   */
+  public static long getLoggedCount() {
+    return loggedCount.get();
+  }
+
+  /**
+   * Gets the number of exchanges dropped because the queue was full.
+   *
+   * @return the number of exchanges
+   */
+  public static long getDroppedCount() {
+    return droppedCount.get();
+  }
+
+  /**
+   * Stops the writer, dropping the queued exchanges, and resets the counters. The queue is created again,
+   * with the size of the context, on the next logged exchange.
+   */
+  public static synchronized void reset() {
+    if (writer != null) {
+      writer.shutdown();
+      writer = null;
+    }
+    sampleCounter.set(0);
+    loggedCount.set(0);
+    droppedCount.set(0);
+  }
+
+  private static synchronized Writer getWriter() {
+    if (writer == null) {
+      writer = new Writer(Math.max(1, SocialClientContext.getWireLogQueueSize()));
+      writer.start();
+    }
+    return writer;
+  }
+
+  private static Pattern getPathPattern() {
+    String regex = SocialClientContext.getWireLogPathPattern();
+    Pattern pattern = pathPattern;
+    if (regex == null) {
+      return null;
+    }
+    if (pattern == null || !pattern.pattern().equals(regex)) {
+      pattern = Pattern.compile(regex);
+      pathPattern = pattern;
+    }
+    return pattern;
+  }
+
+  private static String getUri(HttpRequest request) {
+    return request instanceof HttpUriRequest ? ((HttpUriRequest) request).getURI().toString()
+                                             : request.getRequestLine().getUri();
+  }
+
+  /**
+   * A request and its response, formatted on the writer thread.
+   */
+  private static final class Exchange {
+
+    private final String method;
+
+    private final String uri;
+
+    private final Header[] requestHeaders;
+
+    private final String statusLine;
+
+    private final Header[] responseHeaders;
+
+    private final long elapsedNanos;
+
+    private final AtomicBoolean submitted = new AtomicBoolean();
+
+    private Exception failure;
+
+    private ByteArrayOutputStream body;
+
+    private long bodySize;
+
+    private Exchange(HttpRequest request, HttpResponse response, long elapsedNanos) {
+      this.method = request.getRequestLine().getMethod();
+      this.uri = getUri(request);
+      this.requestHeaders = request.getAllHeaders();
+      this.statusLine = response != null ? response.getStatusLine().toString() : null;
+      this.responseHeaders = response != null ? response.getAllHeaders() : null;
+      this.elapsedNanos = elapsedNanos;
+    }
+
+    private void submit() {
+      if (!submitted.compareAndSet(false, true)) {
+        return;
+      }
+      if (!getWriter().offer(this)) {
+        droppedCount.incrementAndGet();
+      }
+    }
+
+    private String format() {
+      StringBuilder out = new StringBuilder(256);
+      out.append(method).append(' ').append(uri)
+         .append(String.format(" (%.1f ms)", elapsedNanos / 1e6));
+      appendHeaders(out, "> ", requestHeaders);
+      if (failure != null) {
+        out.append("\n< ").append(failure);
+        return out.toString();
+      }
+      out.append("\n< ").append(statusLine);
+      appendHeaders(out, "< ", responseHeaders);
+      if (body != null) {
+        out.append("\n\n");
+        try {
+          out.append(body.toString("UTF-8"));
+        } catch (UnsupportedEncodingException e) {
+          throw new IllegalStateException(e);
+        }
+        if (bodySize > body.size()) {
+          out.append("... (").append(bodySize).append(" bytes)");
+        }
+      }
+      return out.toString();
+    }
+
+    private static void appendHeaders(StringBuilder out, String prefix, Header[] headers) {
+      for (Header header : headers) {
+        String name = header.getName();
+        boolean secret = "Authorization".equalsIgnoreCase(name) || "Cookie".equalsIgnoreCase(name)
+            || "Set-Cookie".equalsIgnoreCase(name);
+        out.append('\n').append(prefix).append(name).append(": ").append(secret ? MASK : header.getValue());
+      }
+    }
+  }
+
+  /**
+   * Copies the beginning of the response content while the caller reads it.
+   */
+  private static final class CapturingEntity extends HttpEntityWrapper {
+
+    private final Exchange exchange;
+
+    private final int maxBodySize;
+
+    private CapturingEntity(HttpEntity entity, Exchange exchange, int maxBodySize) {
+      super(entity);
+      this.exchange = exchange;
+      this.maxBodySize = maxBodySize;
+    }
+
+    @Override
+    public InputStream getContent() throws IOException {
+      return new CapturingInputStream(wrappedEntity.getContent(), exchange, maxBodySize);
+    }
+
+    @Override
+    public void writeTo(OutputStream outstream) throws IOException {
+      InputStream in = getContent();
+      try {
+        byte[] buffer = new byte[4096];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+          outstream.write(buffer, 0, read);
+        }
+      } finally {
+        in.close();
+      }
+    }
+
+    @Override
+    public void consumeContent() throws IOException {
+      try {
+        super.consumeContent();
+      } finally {
+        //the content was not read, or not to its end
+        exchange.submit();
+      }
+    }
+  }
+
+  private static final class CapturingInputStream extends FilterInputStream {
+
+    private final Exchange exchange;
+
+    private final int maxBodySize;
+
+    private final ByteArrayOutputStream body;
+
+    private CapturingInputStream(InputStream in, Exchange exchange, int maxBodySize) {
+      super(in);
+      this.exchange = exchange;
+      this.maxBodySize = maxBodySize;
+      this.body = new ByteArrayOutputStream(Math.min(maxBodySize, 1024));
+      exchange.body = body;
+    }
+
+    @Override
+    public int read() throws IOException {
+      int b = super.read();
+      if (b == -1) {
+        exchange.submit();
+      } else {
+        capture(new byte[] {(byte) b}, 0, 1);
+      }
+      return b;
+    }
+
+    @Override
+    public int read(byte[] buffer, int offset, int length) throws IOException {
+      int read = super.read(buffer, offset, length);
+      if (read == -1) {
+        exchange.submit();
+      } else {
+        capture(buffer, offset, read);
+      }
+      return read;
+    }
+
+    @Override
+    public void close() throws IOException {
+      try {
+        super.close();
+      } finally {
+        exchange.submit();
+      }
+    }
+
+    private void capture(byte[] buffer, int offset, int length) {
+      exchange.bodySize += length;
+      int remaining = maxBodySize - body.size();
+      if (remaining > 0) {
+        body.write(buffer, offset, Math.min(remaining, length));
+      }
+    }
+  }
+
+  /**
+   * Formats and writes the queued exchanges.
+   */
+  private static final class Writer extends Thread {
+
+    private final BlockingQueue<Exchange> queue;
+
+    private final AtomicLong pending = new AtomicLong();
+
+    private volatile boolean shutdown;
+
+    private Writer(int queueSize) {
+      super("social-client-wire-logger");
+      setDaemon(true);
+      queue = new ArrayBlockingQueue<Exchange>(queueSize);
+    }
+
+    private boolean offer(Exchange exchange) {
+      pending.incrementAndGet();
+      if (queue.offer(exchange)) {
+        return true;
+      }
+      pending.decrementAndGet();
+      return false;
+    }
+
+    @Override
+    public void run() {
+      try {
+        while (!shutdown) {
+          Exchange exchange = queue.take();
+          try {
+            WIRE.info(exchange.format());
+            loggedCount.incrementAndGet();
+          } catch (RuntimeException e) {
+            LOG.warn("Failed to log an exchange.", e);
+          } finally {
+            pending.decrementAndGet();
+            synchronized (this) {
+              notifyAll();
+            }
+          }
+        }
+      } catch (InterruptedException e) {
+        LOG.debug("Wire logger interrupted.");
+      }
+    }
+
+    private synchronized boolean awaitIdle(long timeout) throws InterruptedException {
+      long end = System.currentTimeMillis() + timeout;
+      long remaining = timeout;
+      while (pending.get() > 0 && remaining > 0) {
+        wait(remaining);
+        remaining = end - System.currentTimeMillis();
+      }
+      return pending.get() == 0;
+    }
+
+    private void shutdown() {
+      shutdown = true;
+      interrupt();
+    }
+  }
+}
@@ -17,7 +17,6 @@
 package org.exoplatform.social.client.core.service;
 
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
 
 import org.apache.http.HttpResponse;
@@ -31,13 +30,9 @@ import org.exoplatform.social.client.api.service.ActivityService;
 import org.exoplatform.social.client.api.service.ServiceException;
 import org.exoplatform.social.client.core.model.RestActivityImpl;
 import org.exoplatform.social.client.core.util.SocialJSONDecodingSupport;
-import org.json.simple.JSONArray;
-import org.json.simple.JSONObject;
-import org.json.simple.JSONValue;
 
 import static org.exoplatform.social.client.core.util.SocialHttpClientSupport.buildCommonRestPathFromContext;
 import static org.exoplatform.social.client.core.util.SocialHttpClientSupport.executeGet;
-import static org.exoplatform.social.client.core.util.SocialHttpClientSupport.getContent;
 import static org.exoplatform.social.client.core.util.SocialHttpClientSupport.handleError;
 
 /**
@@ -307,12 +302,10 @@ public class ActivitiesRealtimeListAccessV1Alpha1 implements RealtimeListAccess<
    */
   private List<RestActivity> getListActivitiesFromResponse(HttpResponse response) {
     try {
-      JSONObject jsonObject = (JSONObject) JSONValue.parse(getContent(response));
-      JSONArray jsonArray =  (JSONArray)jsonObject.get("activities");
-      List<RestActivityImpl> activities = SocialJSONDecodingSupport.JSONArrayObjectParser(RestActivityImpl.class, jsonArray.toJSONString());
-      List<RestActivity> copyRestActivities = new ArrayList(activities);
-      Collections.copy(copyRestActivities, activities);
-      return copyRestActivities;
+      //the activities are decoded while the content is read from the connection
+      List<RestActivityImpl> activities = SocialJSONDecodingSupport.JSONArrayObjectParser(RestActivityImpl.class,
+                                                                                         response, "activities");
+      return new ArrayList<RestActivity>(activities);
     } catch (Exception e) {
       throw new ServiceException(ActivityService.class,"invalid response",null);
     }
@@ -16,28 +16,33 @@
  */
 package org.exoplatform.social.client.core.service;
 
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.Future;
 
 import org.apache.http.HttpResponse;
 import org.exoplatform.social.client.api.SocialClientLibException;
 import org.exoplatform.social.client.api.auth.AccessDeniedException;
 import org.exoplatform.social.client.api.auth.NotFoundException;
+import org.exoplatform.social.client.api.common.AsyncRealtimeListAccess;
+import org.exoplatform.social.client.api.common.ElementHandler;
 import org.exoplatform.social.client.api.common.RealtimeListAccess;
+import org.exoplatform.social.client.api.common.StreamingRealtimeListAccess;
 import org.exoplatform.social.client.api.model.RestActivity;
 import org.exoplatform.social.client.api.model.RestIdentity;
 import org.exoplatform.social.client.api.net.SocialHttpClient.POLICY;
 import org.exoplatform.social.client.api.net.SocialHttpClientException;
 import org.exoplatform.social.client.api.service.ActivityService;
+import org.exoplatform.social.client.api.service.AsyncCallback;
 import org.exoplatform.social.client.api.service.QueryParams;
+import org.exoplatform.social.client.api.service.QueryParams.QueryParamOption;
 import org.exoplatform.social.client.api.service.ServiceException;
 import org.exoplatform.social.client.core.model.RestActivityImpl;
 import org.exoplatform.social.client.core.util.SocialHttpClientSupport;
 import org.exoplatform.social.client.core.util.SocialJSONDecodingSupport;
-import org.json.simple.JSONArray;
-import org.json.simple.JSONObject;
-import org.json.simple.JSONValue;
+
+import org.json.simple.parser.ParseException;
 
 import static org.exoplatform.social.client.core.util.SocialHttpClientSupport.*;
 
@@ -47,7 +52,9 @@ import static org.exoplatform.social.client.core.util.SocialHttpClientSupport.*;
  *          phuonglm@exoplatform.com
  * Jul 5, 2011  
  */
-public class ActivitiesRealtimeListAccessV1Alpha3 implements RealtimeListAccess<RestActivity> {
+public class ActivitiesRealtimeListAccessV1Alpha3 implements RealtimeListAccess<RestActivity>,
+                                                             AsyncRealtimeListAccess<RestActivity>,
+                                                             StreamingRealtimeListAccess<RestActivity> {
 
   /** The activity type.*/
   public static enum ActivityType {
@@ -82,8 +89,12 @@ public class ActivitiesRealtimeListAccessV1Alpha3 implements RealtimeListAccess<
     this.ownerIdentity = ownerIdentity;
     this.activityType = activityType;
     if(queryParams != null ){
-      this.queryParams.append(queryParams.get(QueryParams.NUMBER_OF_COMMENTS_PARAM));
-      this.queryParams.append(queryParams.get(QueryParams.NUMBER_OF_LIKES_PARAM));
+      if (queryParams.get(QueryParams.NUMBER_OF_COMMENTS_PARAM) != null) {
+        this.queryParams.append(queryParams.get(QueryParams.NUMBER_OF_COMMENTS_PARAM));
+      }
+      if (queryParams.get(QueryParams.NUMBER_OF_LIKES_PARAM) != null) {
+        this.queryParams.append(queryParams.get(QueryParams.NUMBER_OF_LIKES_PARAM));
+      }
     }
   }
   
@@ -138,27 +149,7 @@ public class ActivitiesRealtimeListAccessV1Alpha3 implements RealtimeListAccess<
     HttpResponse response = null;
     queryParams.append(QueryParams.LIMIT_PARAM.setValue(limit));
     queryParams.append(QueryParams.SINCE_ID_PARAM.setValue(baseElement.getId()));
-    switch (activityType) {
-      case ACTIVITY_STREAM: {
-        requestURL = BASE_URL + "activity_stream/" + this.ownerIdentity.getId() + ".json?"+queryParams.buildQuery();
-        break;
-      }
-      
-      case ACTIVITY_FEED: {
-        requestURL = BASE_URL + "activity_stream/feed.json?" + queryParams.buildQuery();
-        break;
-      }
-      
-      case CONNECTIONS_ACTIVITIES: {
-        requestURL = BASE_URL + "activity_stream/connections.json?" + queryParams.buildQuery();
-        break;
-      }
-      
-      case USER_SPACE_ACTIVITIES: {
-        requestURL = BASE_URL + "activity_stream/spaces.json?" + queryParams.buildQuery();
-        break;
-      }
-    }
+    requestURL = buildRequestURL(queryParams.buildQuery());
     queryParams.remove(QueryParams.LIMIT_PARAM);
     queryParams.remove(QueryParams.SINCE_ID_PARAM);
 
@@ -188,27 +179,7 @@ public class ActivitiesRealtimeListAccessV1Alpha3 implements RealtimeListAccess<
     HttpResponse response = null;
     queryParams.append(QueryParams.LIMIT_PARAM.setValue(limit));
     queryParams.append(QueryParams.MAX_ID_PARAM.setValue(baseElement.getId()));
-    switch (activityType) {
-      case ACTIVITY_STREAM: {
-        requestURL = BASE_URL + "activity_stream/" + this.ownerIdentity.getId() + ".json?"+queryParams.buildQuery();
-        break;
-      }
-      
-      case ACTIVITY_FEED: {
-        requestURL = BASE_URL + "activity_stream/feed.json?" + queryParams.buildQuery();
-        break;
-      }
-      
-      case CONNECTIONS_ACTIVITIES: {
-        requestURL = BASE_URL + "activity_stream/connections.json?" + queryParams.buildQuery();
-        break;
-      }
-      
-      case USER_SPACE_ACTIVITIES: {
-        requestURL = BASE_URL + "activity_stream/spaces.json?" + queryParams.buildQuery();
-        break;
-      }
-    }
+    requestURL = buildRequestURL(queryParams.buildQuery());
     queryParams.remove(QueryParams.LIMIT_PARAM);
     queryParams.remove(QueryParams.MAX_ID_PARAM);
     try {
@@ -244,27 +215,7 @@ public class ActivitiesRealtimeListAccessV1Alpha3 implements RealtimeListAccess<
   public List<RestActivity> loadAsList(int index, int limit) throws SocialClientLibException {
     String requestURL = null;
     HttpResponse response = null;
-    switch (activityType) {
-      case ACTIVITY_STREAM: {
-        requestURL = BASE_URL + "activity_stream/" + this.ownerIdentity.getId() + ".json?limit=" + limit;
-        break;
-      }
-      
-      case ACTIVITY_FEED: {
-        requestURL = BASE_URL + "activity_stream/feed.json?limit=" + limit;
-        break;
-      }
-      
-      case CONNECTIONS_ACTIVITIES: {
-        requestURL = BASE_URL + "activity_stream/connections.json?limit=" + limit;
-        break;
-      }
-      
-      case USER_SPACE_ACTIVITIES: {
-        requestURL = BASE_URL + "activity_stream/spaces.json?limit=" + limit;
-        break;
-      }
-    }
+    requestURL = buildRequestURL("limit=" + limit);
     try {
       response = executeGet(requestURL, POLICY.BASIC_AUTH);
       handleError(response);
@@ -310,6 +261,142 @@ public class ActivitiesRealtimeListAccessV1Alpha3 implements RealtimeListAccess<
     this.ownerIdentity = ownerIdentity;
   }
   
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Future<List<RestActivity>> loadAsList(int index, int limit, AsyncCallback<List<RestActivity>> callback) {
+    return loadAsync(buildRequestURL("limit=" + limit), callback);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Future<List<RestActivity>> loadNewerAsList(RestActivity baseElement, int limit,
+                                                    AsyncCallback<List<RestActivity>> callback) {
+    return loadAsync(buildRequestURL(buildQuery(limit, QueryParams.SINCE_ID_PARAM, baseElement.getId())), callback);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Future<List<RestActivity>> loadOlderAsList(RestActivity baseElement, int limit,
+                                                    AsyncCallback<List<RestActivity>> callback) {
+    return loadAsync(buildRequestURL(buildQuery(limit, QueryParams.MAX_ID_PARAM, baseElement.getId())), callback);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int load(int index, int limit, ElementHandler<? super RestActivity> handler) throws SocialClientLibException {
+    return loadStream(buildRequestURL("limit=" + limit), handler);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int loadNewer(RestActivity baseElement, int limit,
+                       ElementHandler<? super RestActivity> handler) throws SocialClientLibException {
+    return loadStream(buildRequestURL(buildQuery(limit, QueryParams.SINCE_ID_PARAM, baseElement.getId())), handler);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public int loadOlder(RestActivity baseElement, int limit,
+                       ElementHandler<? super RestActivity> handler) throws SocialClientLibException {
+    return loadStream(buildRequestURL(buildQuery(limit, QueryParams.MAX_ID_PARAM, baseElement.getId())), handler);
+  }
+
+  /**
+   * Builds the request url of the activity type with the provided query.
+   *
+   * @param query the query string
+   * @return the request url
+   */
+  private String buildRequestURL(String query) {
+    switch (activityType) {
+      case ACTIVITY_STREAM:
+        return BASE_URL + "activity_stream/" + this.ownerIdentity.getId() + ".json?" + query;
+      case ACTIVITY_FEED:
+        return BASE_URL + "activity_stream/feed.json?" + query;
+      case CONNECTIONS_ACTIVITIES:
+        return BASE_URL + "activity_stream/connections.json?" + query;
+      case USER_SPACE_ACTIVITIES:
+        return BASE_URL + "activity_stream/spaces.json?" + query;
+      default:
+        return null;
+    }
+  }
+
+  /**
+   * Builds the query of an async load on a copy of the query params, so that concurrent loads
+   * never share the mutable {@link QueryParams} options.
+   *
+   * @param limit   the limit
+   * @param idParam the since_id or max_id param
+   * @param id      the id of the base element
+   * @return the query string
+   */
+  private String buildQuery(int limit, QueryParamOption idParam, String id) {
+    QueryParams query = new QueryParamsImpl();
+    QueryParamOption[] options = {QueryParams.NUMBER_OF_COMMENTS_PARAM, QueryParams.NUMBER_OF_LIKES_PARAM};
+    for (QueryParamOption option : options) {
+      QueryParamOption value = queryParams.get(option);
+      if (value != null) {
+        query.append(new QueryParamOption(value.getQueryName(), value.getValue()));
+      }
+    }
+    query.append(new QueryParamOption(QueryParams.LIMIT_PARAM.getQueryName(), limit));
+    query.append(new QueryParamOption(idParam.getQueryName(), id));
+    return query.buildQuery();
+  }
+
+  private Future<List<RestActivity>> loadAsync(String requestURL, AsyncCallback<List<RestActivity>> callback) {
+    AsyncResponseHandler<List<RestActivity>> handler =
+        new AsyncResponseHandler<List<RestActivity>>(ActivitiesRealtimeListAccessV1Alpha3.class, callback) {
+          @Override
+          protected List<RestActivity> decode(String content) {
+            return getListActivitiesFromContent(content);
+          }
+        };
+    try {
+      return handler.bind(executeGetAsync(requestURL, POLICY.BASIC_AUTH, handler));
+    } catch (SocialHttpClientException e) {
+      return handler.fail(e);
+    }
+  }
+
+  /**
+   * Loads the activities of the request url, handing each one to the handler while the response is read.
+   *
+   * @param requestURL the request url
+   * @param handler    the handler of the activities
+   * @return the number of activities handled
+   */
+  private int loadStream(String requestURL, ElementHandler<? super RestActivity> handler)
+      throws SocialClientLibException {
+    HttpResponse response = null;
+    try {
+      response = executeGet(requestURL, POLICY.BASIC_AUTH);
+      handleError(response);
+    } catch (SocialHttpClientException e) {
+      throw new ServiceException(e.getMessage(),e);
+    }
+    try {
+      return SocialJSONDecodingSupport.JSONArrayObjectParser(RestActivityImpl.class, response, "activities", handler);
+    } catch (IOException e) {
+      throw new ServiceException(ActivityService.class, "invalid response", e);
+    } catch (ParseException e) {
+      throw new ServiceException(ActivityService.class, "invalid response", e);
+    }
+  }
+
   /**
    * Gets the list activities from response.
    * 
@@ -318,14 +405,28 @@ public class ActivitiesRealtimeListAccessV1Alpha3 implements RealtimeListAccess<
    */
   private List<RestActivity> getListActivitiesFromResponse(HttpResponse response) {
     try {
-      JSONObject jsonObject = (JSONObject) JSONValue.parse(getContent(response));
-      JSONArray jsonArray =  (JSONArray)jsonObject.get("activities");
-      List<RestActivityImpl> activities = SocialJSONDecodingSupport.JSONArrayObjectParser(RestActivityImpl.class, jsonArray.toJSONString());
-      List<RestActivity> copyRestActivities = new ArrayList(activities);
-      Collections.copy(copyRestActivities, activities);
-      return copyRestActivities;
+      //the activities are decoded while the content is read from the connection
+      List<RestActivityImpl> activities = SocialJSONDecodingSupport.JSONArrayObjectParser(RestActivityImpl.class,
+                                                                                         response, "activities");
+      return new ArrayList<RestActivity>(activities);
+    } catch (Exception e) {
+      throw new ServiceException(ActivityService.class, "invalid response", e);
+    }
+  }
+
+  /**
+   * Gets the list activities from the response content.
+   *
+   * @param content
+   * @return
+   */
+  private List<RestActivity> getListActivitiesFromContent(String content) {
+    try {
+      List<RestActivityImpl> activities = SocialJSONDecodingSupport.JSONArrayObjectParser(RestActivityImpl.class,
+                                                                                         content, "activities");
+      return new ArrayList<RestActivity>(activities);
     } catch (Exception e) {
-      throw new ServiceException(ActivityService.class,"invalid response",null);
+      throw new ServiceException(ActivityService.class, "invalid response", e);
     }
   }
   
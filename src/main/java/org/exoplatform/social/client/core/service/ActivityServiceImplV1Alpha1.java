@@ -61,24 +61,33 @@ public class ActivityServiceImplV1Alpha1 extends ServiceBase<RestActivity, Activ
    */
   @Override
   public RestActivity create(RestActivity newInstance) throws SocialClientLibException {
-    final String POST_ACTIVITY_REQUEST_URL = BASE_URL+"activity.json";
-      try{
-        HttpResponse response = executePost(POST_ACTIVITY_REQUEST_URL, POLICY.BASIC_AUTH, newInstance);
-        handleError(response);
-        String responseContent = getContent(response);
-        RestActivity restActivity = SocialJSONDecodingSupport.parser(RestActivityImpl.class, responseContent);
-        return restActivity;
-      } catch (SocialHttpClientException e) {
-        throw new ServiceException(ActivityServiceImplV1Alpha1.class,e.getMessage(),null);
-      } catch (ParseException e) {
-        throw new ServiceException(ActivityServiceImplV1Alpha1.class,e.getMessage(),null);
-      } catch (SocialClientLibException e) {
-        if(e.getCause() instanceof NotFoundException){
+    ServiceOperation operation = ServiceOperation.begin(this, "create", newInstance);
+    try {
+      final String POST_ACTIVITY_REQUEST_URL = BASE_URL+"activity.json";
+        try{
+          HttpResponse response = executePost(POST_ACTIVITY_REQUEST_URL, POLICY.BASIC_AUTH, newInstance);
+          handleError(response);
+          String responseContent = getContent(response);
+          RestActivity restActivity = SocialJSONDecodingSupport.parser(RestActivityImpl.class, responseContent);
+          return restActivity;
+        } catch (SocialHttpClientException e) {
           throw new ServiceException(ActivityServiceImplV1Alpha1.class,e.getMessage(),null);
-        } else {
-          throw e;
+        } catch (ParseException e) {
+          throw new ServiceException(ActivityServiceImplV1Alpha1.class,e.getMessage(),null);
+        } catch (SocialClientLibException e) {
+          if(e.getCause() instanceof NotFoundException){
+            throw new ServiceException(ActivityServiceImplV1Alpha1.class,e.getMessage(),null);
+          } else {
+            throw e;
+          }
         }
-      }
+    } catch (SocialClientLibException e) {
+      throw operation.failed(e);
+    } catch (RuntimeException e) {
+      throw operation.failed(e);
+    } finally {
+      operation.end();
+    }
   }
 
   /**
@@ -86,18 +95,27 @@ public class ActivityServiceImplV1Alpha1 extends ServiceBase<RestActivity, Activ
    */
   @Override
   public RestActivity get(String uuid) throws SocialClientLibException {
-    final String GET_ACTIVITY_REQUEST_URL = BASE_URL+"activity/"+uuid+".json";
-      try{
-        HttpResponse response = executeGet(GET_ACTIVITY_REQUEST_URL, POLICY.BASIC_AUTH);
-        handleError(response);
-        String responseContent = getContent(response);
-        RestActivity restActivity = SocialJSONDecodingSupport.parser(RestActivityImpl.class, responseContent);
-        return restActivity;
-      } catch (SocialHttpClientException e) {
-        throw new ServiceException(ActivityServiceImplV1Alpha1.class,e.getMessage(),null);
-      } catch (ParseException e) {
-        throw new ServiceException(ActivityServiceImplV1Alpha1.class,e.getMessage(),null);
-      }
+    ServiceOperation operation = ServiceOperation.begin(this, "get");
+    try {
+      final String GET_ACTIVITY_REQUEST_URL = BASE_URL+"activity/"+uuid+".json";
+        try{
+          HttpResponse response = executeGet(GET_ACTIVITY_REQUEST_URL, POLICY.BASIC_AUTH);
+          handleError(response);
+          String responseContent = getContent(response);
+          RestActivity restActivity = SocialJSONDecodingSupport.parser(RestActivityImpl.class, responseContent);
+          return restActivity;
+        } catch (SocialHttpClientException e) {
+          throw new ServiceException(ActivityServiceImplV1Alpha1.class,e.getMessage(),null);
+        } catch (ParseException e) {
+          throw new ServiceException(ActivityServiceImplV1Alpha1.class,e.getMessage(),null);
+        }
+    } catch (SocialClientLibException e) {
+      throw operation.failed(e);
+    } catch (RuntimeException e) {
+      throw operation.failed(e);
+    } finally {
+      operation.end();
+    }
   }
 
   /**
@@ -114,17 +132,26 @@ public class ActivityServiceImplV1Alpha1 extends ServiceBase<RestActivity, Activ
    */
   @Override
   public RestActivity delete(RestActivity existingInstance) throws SocialClientLibException {
-    final String DELETE_ACTIVITY_REQUEST_URL = BASE_URL+"activity/destroy/"+existingInstance.getId()+".json";
-    try{
-      HttpResponse response = executePost(DELETE_ACTIVITY_REQUEST_URL, POLICY.BASIC_AUTH);
-      handleError(response);
-      String responseContent = getContent(response);
-      RestActivity restActivity = SocialJSONDecodingSupport.parser(RestActivityImpl.class, responseContent);
-      return restActivity;
-    } catch (SocialHttpClientException e) {
-      throw new ServiceException(ActivityServiceImplV1Alpha1.class,e.getMessage(),null);
-    } catch (ParseException e) {
-      throw new ServiceException(ActivityServiceImplV1Alpha1.class,e.getMessage(),null);
+    ServiceOperation operation = ServiceOperation.begin(this, "delete", existingInstance);
+    try {
+      final String DELETE_ACTIVITY_REQUEST_URL = BASE_URL+"activity/destroy/"+existingInstance.getId()+".json";
+      try{
+        HttpResponse response = executePost(DELETE_ACTIVITY_REQUEST_URL, POLICY.BASIC_AUTH);
+        handleError(response);
+        String responseContent = getContent(response);
+        RestActivity restActivity = SocialJSONDecodingSupport.parser(RestActivityImpl.class, responseContent);
+        return restActivity;
+      } catch (SocialHttpClientException e) {
+        throw new ServiceException(ActivityServiceImplV1Alpha1.class,e.getMessage(),null);
+      } catch (ParseException e) {
+        throw new ServiceException(ActivityServiceImplV1Alpha1.class,e.getMessage(),null);
+      }
+    } catch (SocialClientLibException e) {
+      throw operation.failed(e);
+    } catch (RuntimeException e) {
+      throw operation.failed(e);
+    } finally {
+      operation.end();
     }
   }
 
@@ -159,18 +186,27 @@ public class ActivityServiceImplV1Alpha1 extends ServiceBase<RestActivity, Activ
    */
   @Override
   public RestComment createComment(RestActivity existingRestActivity, RestComment newRestComment) throws SocialClientLibException {
-    final String CREATE_COMMENT_REQUEST_URL = BASE_URL+"activity/"+ existingRestActivity.getId()+"/comment.json";
-      try{
-        HttpResponse response = executePost(CREATE_COMMENT_REQUEST_URL, POLICY.BASIC_AUTH, newRestComment);
-        handleError(response);
-        String responseContent = getContent(response);
-        RestComment restComment = SocialJSONDecodingSupport.parser(RestCommentImpl.class, responseContent);
-        return restComment;
-      } catch (SocialHttpClientException e) {
-        throw new ServiceException(ActivityServiceImplV1Alpha1.class,e.getMessage(),null);
-      } catch (ParseException e) {
-        throw new ServiceException(ActivityServiceImplV1Alpha1.class,e.getMessage(),null);
-      }
+    ServiceOperation operation = ServiceOperation.begin(this, "createComment", existingRestActivity);
+    try {
+      final String CREATE_COMMENT_REQUEST_URL = BASE_URL+"activity/"+ existingRestActivity.getId()+"/comment.json";
+        try{
+          HttpResponse response = executePost(CREATE_COMMENT_REQUEST_URL, POLICY.BASIC_AUTH, newRestComment);
+          handleError(response);
+          String responseContent = getContent(response);
+          RestComment restComment = SocialJSONDecodingSupport.parser(RestCommentImpl.class, responseContent);
+          return restComment;
+        } catch (SocialHttpClientException e) {
+          throw new ServiceException(ActivityServiceImplV1Alpha1.class,e.getMessage(),null);
+        } catch (ParseException e) {
+          throw new ServiceException(ActivityServiceImplV1Alpha1.class,e.getMessage(),null);
+        }
+    } catch (SocialClientLibException e) {
+      throw operation.failed(e);
+    } catch (RuntimeException e) {
+      throw operation.failed(e);
+    } finally {
+      operation.end();
+    }
   }
 
   /**
@@ -204,18 +240,27 @@ public class ActivityServiceImplV1Alpha1 extends ServiceBase<RestActivity, Activ
    */
   @Override
   public RestComment deleteComment(RestComment existingRestComment) throws SocialClientLibException {
-    final String DELETE_COMMENT_REQUEST_URL = BASE_URL+"activity/"+ existingRestComment.getActivityId() + "/comment/destroy/" +
-                                            existingRestComment.getId() + ".json";
-    try{
-      HttpResponse response = executePost(DELETE_COMMENT_REQUEST_URL, POLICY.BASIC_AUTH);
-      handleError(response);
-      String responseContent = getContent(response);
-      RestComment restComment = SocialJSONDecodingSupport.parser(RestCommentImpl.class, responseContent);
-      return restComment;
-    } catch (SocialHttpClientException e) {
-      throw new ServiceException(ActivityServiceImplV1Alpha1.class,"invalid response",null);
-    } catch (ParseException e) {
-      throw new ServiceException(ActivityServiceImplV1Alpha1.class,"invalid response",null);
+    ServiceOperation operation = ServiceOperation.begin(this, "deleteComment", existingRestComment);
+    try {
+      final String DELETE_COMMENT_REQUEST_URL = BASE_URL+"activity/"+ existingRestComment.getActivityId() + "/comment/destroy/" +
+                                              existingRestComment.getId() + ".json";
+      try{
+        HttpResponse response = executePost(DELETE_COMMENT_REQUEST_URL, POLICY.BASIC_AUTH);
+        handleError(response);
+        String responseContent = getContent(response);
+        RestComment restComment = SocialJSONDecodingSupport.parser(RestCommentImpl.class, responseContent);
+        return restComment;
+      } catch (SocialHttpClientException e) {
+        throw new ServiceException(ActivityServiceImplV1Alpha1.class,"invalid response",null);
+      } catch (ParseException e) {
+        throw new ServiceException(ActivityServiceImplV1Alpha1.class,"invalid response",null);
+      }
+    } catch (SocialClientLibException e) {
+      throw operation.failed(e);
+    } catch (RuntimeException e) {
+      throw operation.failed(e);
+    } finally {
+      operation.end();
     }
   }
 
@@ -224,20 +269,29 @@ public class ActivityServiceImplV1Alpha1 extends ServiceBase<RestActivity, Activ
    */
   @Override
   public RestLike like(RestActivity existingRestActivity) throws SocialClientLibException {
-    final String LIKE_ACTIVITY_REQUEST_URL = BASE_URL+"activity/"+ existingRestActivity.getId()+"/like.json";
-    try{
-      HttpResponse response = executePost(LIKE_ACTIVITY_REQUEST_URL, POLICY.BASIC_AUTH);
-      handleError(response);
-      String responseContent = getContent(response);
+    ServiceOperation operation = ServiceOperation.begin(this, "like", existingRestActivity);
+    try {
+      final String LIKE_ACTIVITY_REQUEST_URL = BASE_URL+"activity/"+ existingRestActivity.getId()+"/like.json";
+      try{
+        HttpResponse response = executePost(LIKE_ACTIVITY_REQUEST_URL, POLICY.BASIC_AUTH);
+        handleError(response);
+        String responseContent = getContent(response);
 
-      JSONObject responseJson = (JSONObject)JSONValue.parse(responseContent);
-      if((Boolean) responseJson.get("like")){
-        return new RestLikeImpl(existingRestActivity.getId(), null);
-      } else {
+        JSONObject responseJson = (JSONObject)JSONValue.parse(responseContent);
+        if((Boolean) responseJson.get("like")){
+          return new RestLikeImpl(existingRestActivity.getId(), null);
+        } else {
+          throw new ServiceException(ActivityServiceImplV1Alpha1.class,"invalid response",null);
+        }
+      } catch (IOException e) {
         throw new ServiceException(ActivityServiceImplV1Alpha1.class,"invalid response",null);
       }
-    } catch (IOException e) {
-      throw new ServiceException(ActivityServiceImplV1Alpha1.class,"invalid response",null);
+    } catch (SocialClientLibException e) {
+      throw operation.failed(e);
+    } catch (RuntimeException e) {
+      throw operation.failed(e);
+    } finally {
+      operation.end();
     }
   }
 
@@ -247,20 +301,29 @@ public class ActivityServiceImplV1Alpha1 extends ServiceBase<RestActivity, Activ
    */
   @Override
   public RestLike unlike(RestActivity existingRestActivity) throws SocialClientLibException {
-    final String LIKE_ACTIVITY_REQUEST_URL = BASE_URL+"activity/"+ existingRestActivity.getId()+"/like/destroy.json";
-    try{
-      HttpResponse response = executePost(LIKE_ACTIVITY_REQUEST_URL, POLICY.BASIC_AUTH);
-      String responseContent = getContent(response);
-      handleError(response);
-      JSONObject responseJson = (JSONObject)JSONValue.parse(responseContent);
+    ServiceOperation operation = ServiceOperation.begin(this, "unlike", existingRestActivity);
+    try {
+      final String LIKE_ACTIVITY_REQUEST_URL = BASE_URL+"activity/"+ existingRestActivity.getId()+"/like/destroy.json";
+      try{
+        HttpResponse response = executePost(LIKE_ACTIVITY_REQUEST_URL, POLICY.BASIC_AUTH);
+        String responseContent = getContent(response);
+        handleError(response);
+        JSONObject responseJson = (JSONObject)JSONValue.parse(responseContent);
 
-      if(!(Boolean) responseJson.get("like")){
-        return new RestLikeImpl(existingRestActivity.getId(), null);
-      } else {
-        throw new ServiceException(ActivityServiceImplV1Alpha1.class,"invalid response",null);
+        if(!(Boolean) responseJson.get("like")){
+          return new RestLikeImpl(existingRestActivity.getId(), null);
+        } else {
+          throw new ServiceException(ActivityServiceImplV1Alpha1.class,"invalid response",null);
+        }
+      } catch (IOException e){
+        throw new ServiceException(e.getMessage(),e);
       }
-    } catch (IOException e){
-      throw new ServiceException(e.getMessage(),e);
+    } catch (SocialClientLibException e) {
+      throw operation.failed(e);
+    } catch (RuntimeException e) {
+      throw operation.failed(e);
+    } finally {
+      operation.end();
     }
   }
 
@@ -16,6 +16,8 @@
  */
 package org.exoplatform.social.client.core.service;
 
+import java.io.IOException;
+
 import org.apache.http.HttpResponse;
 import org.exoplatform.social.client.api.SocialClientLibException;
 import org.exoplatform.social.client.api.UnsupportedMethodException;
@@ -58,18 +60,28 @@ public class ActivityServiceImplV1Alpha3 extends ServiceBase<RestActivity, Activ
    */
   @Override
   public RestActivity create(RestActivity newInstance) throws SocialClientLibException {
-    final String POST_ACTIVITY_REQUEST_URL = BASE_URL+"activity.json";
-      try{
-        HttpResponse response = executePost(POST_ACTIVITY_REQUEST_URL, POLICY.BASIC_AUTH, newInstance);
-        String responseContent = getContent(response);
-        handleError(response);
-        RestActivity restActivity = SocialJSONDecodingSupport.parser(RestActivityImpl.class, responseContent);
-        return restActivity;
-      } catch (SocialHttpClientException e) {
-        throw new ServiceException(ActivityServiceImplV1Alpha3.class,e.getMessage(), e);
-      } catch (ParseException e) {
-        throw new ServiceException(ActivityServiceImplV1Alpha3.class,e.getMessage(), e);
-      }
+    ServiceOperation operation = ServiceOperation.begin(this, "create", newInstance);
+    try {
+      final String POST_ACTIVITY_REQUEST_URL = BASE_URL+"activity.json";
+        try{
+          HttpResponse response = executePost(POST_ACTIVITY_REQUEST_URL, POLICY.BASIC_AUTH, newInstance);
+          handleError(response);
+          RestActivity restActivity = SocialJSONDecodingSupport.parser(RestActivityImpl.class, response);
+          return restActivity;
+        } catch (SocialHttpClientException e) {
+          throw new ServiceException(ActivityServiceImplV1Alpha3.class,e.getMessage(), e);
+        } catch (ParseException e) {
+          throw new ServiceException(ActivityServiceImplV1Alpha3.class,e.getMessage(), e);
+        } catch (IOException e) {
+          throw new ServiceException(ActivityServiceImplV1Alpha3.class, e.getMessage(), e);
+        }
+    } catch (SocialClientLibException e) {
+      throw operation.failed(e);
+    } catch (RuntimeException e) {
+      throw operation.failed(e);
+    } finally {
+      operation.end();
+    }
   }
 
   /**
@@ -78,38 +90,58 @@ public class ActivityServiceImplV1Alpha3 extends ServiceBase<RestActivity, Activ
   @Override
   public RestActivity create(RestActivity newActivity, QueryParams queryParams)
                                                           throws SocialClientLibException {
-    final String POST_ACTIVITY_REQUEST_URL = BASE_URL+"activity.json?" + queryParams.buildQuery();
+    ServiceOperation operation = ServiceOperation.begin(this, "create", newActivity);
+    try {
+      final String POST_ACTIVITY_REQUEST_URL = BASE_URL+"activity.json?" + queryParams.buildQuery();
 
-    try{
-      HttpResponse response = executePost(POST_ACTIVITY_REQUEST_URL, POLICY.BASIC_AUTH, newActivity);
-      String responseContent = getContent(response);
-      handleError(response);
-      RestActivity restActivity = SocialJSONDecodingSupport.parser(RestActivityImpl.class, responseContent);
-      return restActivity;
-    } catch (SocialHttpClientException e) {
-      throw new ServiceException(ActivityServiceImplV1Alpha3.class,e.getMessage(), e);
-    } catch (ParseException e) {
-      throw new ServiceException(ActivityServiceImplV1Alpha3.class,e.getMessage(), e);
-    }
-  }
-
-  /**
-   * {@inheritDoc}
-   */
-  @Override
-  public RestActivity get(String uuid) throws SocialClientLibException {
-    final String GET_ACTIVITY_REQUEST_URL = BASE_URL+"activity/"+uuid+".json";
       try{
-        HttpResponse response = executeGet(GET_ACTIVITY_REQUEST_URL, POLICY.BASIC_AUTH);
-        String responseContent = getContent(response);
+        HttpResponse response = executePost(POST_ACTIVITY_REQUEST_URL, POLICY.BASIC_AUTH, newActivity);
         handleError(response);
-        RestActivity restActivity = SocialJSONDecodingSupport.parser(RestActivityImpl.class, responseContent);
+        RestActivity restActivity = SocialJSONDecodingSupport.parser(RestActivityImpl.class, response);
         return restActivity;
       } catch (SocialHttpClientException e) {
         throw new ServiceException(ActivityServiceImplV1Alpha3.class,e.getMessage(), e);
       } catch (ParseException e) {
         throw new ServiceException(ActivityServiceImplV1Alpha3.class,e.getMessage(), e);
+      } catch (IOException e) {
+        throw new ServiceException(ActivityServiceImplV1Alpha3.class, e.getMessage(), e);
       }
+    } catch (SocialClientLibException e) {
+      throw operation.failed(e);
+    } catch (RuntimeException e) {
+      throw operation.failed(e);
+    } finally {
+      operation.end();
+    }
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public RestActivity get(String uuid) throws SocialClientLibException {
+    ServiceOperation operation = ServiceOperation.begin(this, "get");
+    try {
+      final String GET_ACTIVITY_REQUEST_URL = BASE_URL+"activity/"+uuid+".json";
+        try{
+          HttpResponse response = executeGet(GET_ACTIVITY_REQUEST_URL, POLICY.BASIC_AUTH);
+          handleError(response);
+          RestActivity restActivity = SocialJSONDecodingSupport.parser(RestActivityImpl.class, response);
+          return restActivity;
+        } catch (SocialHttpClientException e) {
+          throw new ServiceException(ActivityServiceImplV1Alpha3.class,e.getMessage(), e);
+        } catch (ParseException e) {
+          throw new ServiceException(ActivityServiceImplV1Alpha3.class,e.getMessage(), e);
+        } catch (IOException e) {
+          throw new ServiceException(ActivityServiceImplV1Alpha3.class, e.getMessage(), e);
+        }
+    } catch (SocialClientLibException e) {
+      throw operation.failed(e);
+    } catch (RuntimeException e) {
+      throw operation.failed(e);
+    } finally {
+      operation.end();
+    }
   }
 
   /**
@@ -125,17 +157,27 @@ public class ActivityServiceImplV1Alpha3 extends ServiceBase<RestActivity, Activ
    */
   @Override
   public RestActivity delete(RestActivity existingInstance) throws SocialClientLibException {
-    final String DELETE_ACTIVITY_REQUEST_URL = BASE_URL+"activity/destroy/"+existingInstance.getId()+".json";
-    try{
-      HttpResponse response = executePost(DELETE_ACTIVITY_REQUEST_URL, POLICY.BASIC_AUTH);
-      String responseContent = getContent(response);
-      handleError(response);
-      RestActivity restActivity = SocialJSONDecodingSupport.parser(RestActivityImpl.class, responseContent);
-      return restActivity;
-    } catch (SocialHttpClientException e) {
-      throw new ServiceException(ActivityServiceImplV1Alpha3.class, e.getMessage(), e);
-    } catch (ParseException e) {
-      throw new ServiceException(ActivityServiceImplV1Alpha3.class, e.getMessage(), e);
+    ServiceOperation operation = ServiceOperation.begin(this, "delete", existingInstance);
+    try {
+      final String DELETE_ACTIVITY_REQUEST_URL = BASE_URL+"activity/destroy/"+existingInstance.getId()+".json";
+      try{
+        HttpResponse response = executePost(DELETE_ACTIVITY_REQUEST_URL, POLICY.BASIC_AUTH);
+        handleError(response);
+        RestActivity restActivity = SocialJSONDecodingSupport.parser(RestActivityImpl.class, response);
+        return restActivity;
+      } catch (SocialHttpClientException e) {
+        throw new ServiceException(ActivityServiceImplV1Alpha3.class, e.getMessage(), e);
+      } catch (ParseException e) {
+        throw new ServiceException(ActivityServiceImplV1Alpha3.class, e.getMessage(), e);
+      } catch (IOException e) {
+        throw new ServiceException(ActivityServiceImplV1Alpha3.class, e.getMessage(), e);
+      }
+    } catch (SocialClientLibException e) {
+      throw operation.failed(e);
+    } catch (RuntimeException e) {
+      throw operation.failed(e);
+    } finally {
+      operation.end();
     }
   }
 
@@ -214,18 +256,28 @@ public class ActivityServiceImplV1Alpha3 extends ServiceBase<RestActivity, Activ
   @Override
   public RestComment createComment(RestActivity existingRestActivity, RestComment newRestComment)
                                                                              throws  SocialClientLibException {
-    final String CREATE_COMMENT_REQUEST_URL = BASE_URL+"activity/"+ existingRestActivity.getId()+"/comment.json";
-      try{
-        HttpResponse response = executePost(CREATE_COMMENT_REQUEST_URL, POLICY.BASIC_AUTH, newRestComment);
-        String responseContent = getContent(response);
-        handleError(response);
-        RestComment restComment = SocialJSONDecodingSupport.parser(RestCommentImpl.class, responseContent);
-        return restComment;
-      } catch (SocialHttpClientException e) {
-        throw new ServiceException(ActivityServiceImplV1Alpha3.class, e.getMessage(), e);
-      } catch (ParseException e) {
-        throw new ServiceException(ActivityServiceImplV1Alpha3.class, e.getMessage(), e);
-      }
+    ServiceOperation operation = ServiceOperation.begin(this, "createComment", existingRestActivity);
+    try {
+      final String CREATE_COMMENT_REQUEST_URL = BASE_URL+"activity/"+ existingRestActivity.getId()+"/comment.json";
+        try{
+          HttpResponse response = executePost(CREATE_COMMENT_REQUEST_URL, POLICY.BASIC_AUTH, newRestComment);
+          handleError(response);
+          RestComment restComment = SocialJSONDecodingSupport.parser(RestCommentImpl.class, response);
+          return restComment;
+        } catch (SocialHttpClientException e) {
+          throw new ServiceException(ActivityServiceImplV1Alpha3.class, e.getMessage(), e);
+        } catch (ParseException e) {
+          throw new ServiceException(ActivityServiceImplV1Alpha3.class, e.getMessage(), e);
+        } catch (IOException e) {
+          throw new ServiceException(ActivityServiceImplV1Alpha3.class, e.getMessage(), e);
+        }
+    } catch (SocialClientLibException e) {
+      throw operation.failed(e);
+    } catch (RuntimeException e) {
+      throw operation.failed(e);
+    } finally {
+      operation.end();
+    }
   }
 
   /**
@@ -259,18 +311,28 @@ public class ActivityServiceImplV1Alpha3 extends ServiceBase<RestActivity, Activ
    */
   @Override
   public RestComment deleteComment(RestComment existingRestComment) throws SocialClientLibException {
-    final String DELETE_COMMENT_REQUEST_URL = BASE_URL+"activity/"+ existingRestComment.getActivityId() + "/comment/destroy/" +
-                                            existingRestComment.getId() + ".json";
-    try{
-      HttpResponse response = executePost(DELETE_COMMENT_REQUEST_URL, POLICY.BASIC_AUTH);
-      String responseContent = getContent(response);
-      handleError(response);
-      RestComment restComment = SocialJSONDecodingSupport.parser(RestCommentImpl.class, responseContent);
-      return restComment;
-    } catch (SocialHttpClientException e) {
-      throw new ServiceException(ActivityServiceImplV1Alpha3.class, e.getMessage(), e);
-    } catch (ParseException e) {
-      throw new ServiceException(ActivityServiceImplV1Alpha3.class, e.getMessage(), e);
+    ServiceOperation operation = ServiceOperation.begin(this, "deleteComment", existingRestComment);
+    try {
+      final String DELETE_COMMENT_REQUEST_URL = BASE_URL+"activity/"+ existingRestComment.getActivityId() + "/comment/destroy/" +
+                                              existingRestComment.getId() + ".json";
+      try{
+        HttpResponse response = executePost(DELETE_COMMENT_REQUEST_URL, POLICY.BASIC_AUTH);
+        handleError(response);
+        RestComment restComment = SocialJSONDecodingSupport.parser(RestCommentImpl.class, response);
+        return restComment;
+      } catch (SocialHttpClientException e) {
+        throw new ServiceException(ActivityServiceImplV1Alpha3.class, e.getMessage(), e);
+      } catch (ParseException e) {
+        throw new ServiceException(ActivityServiceImplV1Alpha3.class, e.getMessage(), e);
+      } catch (IOException e) {
+        throw new ServiceException(ActivityServiceImplV1Alpha3.class, e.getMessage(), e);
+      }
+    } catch (SocialClientLibException e) {
+      throw operation.failed(e);
+    } catch (RuntimeException e) {
+      throw operation.failed(e);
+    } finally {
+      operation.end();
     }
   }
 
@@ -279,19 +341,28 @@ public class ActivityServiceImplV1Alpha3 extends ServiceBase<RestActivity, Activ
    */
   @Override
   public RestLike like(RestActivity existingRestActivity) throws SocialClientLibException{
-    final String LIKE_ACTIVITY_REQUEST_URL = BASE_URL+"activity/"+ existingRestActivity.getId()+"/like.json";
-    try{
-      HttpResponse response = executePost(LIKE_ACTIVITY_REQUEST_URL, POLICY.BASIC_AUTH);
-      handleError(response);
-      String responseContent = getContent(response);
-      JSONObject responseJson = (JSONObject)JSONValue.parse(responseContent);
-      if((Boolean) responseJson.get("liked")){
-        return new RestLikeImpl(existingRestActivity.getId(), null);
-      } else {
+    ServiceOperation operation = ServiceOperation.begin(this, "like", existingRestActivity);
+    try {
+      final String LIKE_ACTIVITY_REQUEST_URL = BASE_URL+"activity/"+ existingRestActivity.getId()+"/like.json";
+      try{
+        HttpResponse response = executePost(LIKE_ACTIVITY_REQUEST_URL, POLICY.BASIC_AUTH);
+        handleError(response);
+        String responseContent = getContent(response);
+        JSONObject responseJson = (JSONObject)JSONValue.parse(responseContent);
+        if((Boolean) responseJson.get("liked")){
+          return new RestLikeImpl(existingRestActivity.getId(), null);
+        } else {
+          throw new ServiceException(ActivityServiceImplV1Alpha3.class, "invalid response", null);
+        }
+      } catch (SocialHttpClientException e) {
         throw new ServiceException(ActivityServiceImplV1Alpha3.class, "invalid response", null);
       }
-    } catch (SocialHttpClientException e) {
-      throw new ServiceException(ActivityServiceImplV1Alpha3.class, "invalid response", null);
+    } catch (SocialClientLibException e) {
+      throw operation.failed(e);
+    } catch (RuntimeException e) {
+      throw operation.failed(e);
+    } finally {
+      operation.end();
     }
   }
 
@@ -301,19 +372,28 @@ public class ActivityServiceImplV1Alpha3 extends ServiceBase<RestActivity, Activ
    */
   @Override
   public RestLike unlike(RestActivity existingRestActivity) throws SocialClientLibException {
-    final String LIKE_ACTIVITY_REQUEST_URL = BASE_URL+"activity/"+ existingRestActivity.getId()+"/like/destroy.json";
-    try{
-      HttpResponse response = executePost(LIKE_ACTIVITY_REQUEST_URL, POLICY.BASIC_AUTH);
-      handleError(response);
-      String responseContent = getContent(response);
-      JSONObject responseJson = (JSONObject)JSONValue.parse(responseContent);
-      if(!(Boolean) responseJson.get("liked")){
-        return new RestLikeImpl(existingRestActivity.getId(), null);
-      } else {
-        throw new ServiceException(ActivityServiceImplV1Alpha3.class, "invalid response", null);
+    ServiceOperation operation = ServiceOperation.begin(this, "unlike", existingRestActivity);
+    try {
+      final String LIKE_ACTIVITY_REQUEST_URL = BASE_URL+"activity/"+ existingRestActivity.getId()+"/like/destroy.json";
+      try{
+        HttpResponse response = executePost(LIKE_ACTIVITY_REQUEST_URL, POLICY.BASIC_AUTH);
+        handleError(response);
+        String responseContent = getContent(response);
+        JSONObject responseJson = (JSONObject)JSONValue.parse(responseContent);
+        if(!(Boolean) responseJson.get("liked")){
+          return new RestLikeImpl(existingRestActivity.getId(), null);
+        } else {
+          throw new ServiceException(ActivityServiceImplV1Alpha3.class, "invalid response", null);
+        }
+      } catch (SocialHttpClientException e){
+        throw new ServiceException(ActivityServiceImplV1Alpha3.class, e.getMessage(), e);
       }
-    } catch (SocialHttpClientException e){
-      throw new ServiceException(ActivityServiceImplV1Alpha3.class, e.getMessage(), e);
+    } catch (SocialClientLibException e) {
+      throw operation.failed(e);
+    } catch (RuntimeException e) {
+      throw operation.failed(e);
+    } finally {
+      operation.end();
     }
   }
 
@@ -322,18 +402,28 @@ public class ActivityServiceImplV1Alpha3 extends ServiceBase<RestActivity, Activ
    */
   @Override
   public RestActivity get(String activityId, QueryParams queryParams) throws SocialClientLibException {
+    ServiceOperation operation = ServiceOperation.begin(this, "get");
+    try {
 
-    final String GET_ACTIVITY_REQUEST_URL = BASE_URL+"activity/"+activityId+".json?" + queryParams.buildQuery();
-    try{
-      HttpResponse response = executeGet(GET_ACTIVITY_REQUEST_URL, POLICY.BASIC_AUTH);
-      handleError(response);
-      String responseContent = getContent(response);
-      RestActivity restActivity = SocialJSONDecodingSupport.parser(RestActivityImpl.class, responseContent);
-      return restActivity;
-    } catch (SocialHttpClientException e) {
-      throw new ServiceException(ActivityServiceImplV1Alpha3.class, e.getMessage(), e);
-    } catch (ParseException e) {
-      throw new ServiceException(ActivityServiceImplV1Alpha3.class, e.getMessage(), e);
+      final String GET_ACTIVITY_REQUEST_URL = BASE_URL+"activity/"+activityId+".json?" + queryParams.buildQuery();
+      try{
+        HttpResponse response = executeGet(GET_ACTIVITY_REQUEST_URL, POLICY.BASIC_AUTH);
+        handleError(response);
+        RestActivity restActivity = SocialJSONDecodingSupport.parser(RestActivityImpl.class, response);
+        return restActivity;
+      } catch (SocialHttpClientException e) {
+        throw new ServiceException(ActivityServiceImplV1Alpha3.class, e.getMessage(), e);
+      } catch (ParseException e) {
+        throw new ServiceException(ActivityServiceImplV1Alpha3.class, e.getMessage(), e);
+      } catch (IOException e) {
+        throw new ServiceException(ActivityServiceImplV1Alpha3.class, e.getMessage(), e);
+      }
+    } catch (SocialClientLibException e) {
+      throw operation.failed(e);
+    } catch (RuntimeException e) {
+      throw operation.failed(e);
+    } finally {
+      operation.end();
     }
   }
 }
@@ -0,0 +1,198 @@
+/*
+ * Copyright (C) 2003-2011 eXo Platform SAS.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.exoplatform.social.client.core.service;
+
+import java.util.concurrent.Future;
+
+import org.exoplatform.social.client.api.common.AsyncRealtimeListAccess;
+import org.exoplatform.social.client.api.model.Model;
+import org.exoplatform.social.client.api.model.RestActivity;
+import org.exoplatform.social.client.api.model.RestComment;
+import org.exoplatform.social.client.api.model.RestIdentity;
+import org.exoplatform.social.client.api.model.RestLike;
+import org.exoplatform.social.client.api.net.SocialHttpClient.POLICY;
+import org.exoplatform.social.client.api.net.SocialHttpClientException;
+import org.exoplatform.social.client.api.service.AsyncActivityService;
+import org.exoplatform.social.client.api.service.AsyncCallback;
+import org.exoplatform.social.client.api.service.QueryParams;
+import org.exoplatform.social.client.api.service.ServiceException;
+import org.exoplatform.social.client.core.model.RestActivityImpl;
+import org.exoplatform.social.client.core.model.RestCommentImpl;
+import org.exoplatform.social.client.core.model.RestLikeImpl;
+import org.exoplatform.social.client.core.service.ActivitiesRealtimeListAccessV1Alpha3.ActivityType;
+import org.exoplatform.social.client.core.util.SocialJSONDecodingSupport;
+import org.json.simple.JSONObject;
+import org.json.simple.JSONValue;
+import org.json.simple.parser.ParseException;
+
+import static org.exoplatform.social.client.core.util.SocialHttpClientSupport.buildCommonRestPathFromContext;
+import static org.exoplatform.social.client.core.util.SocialHttpClientSupport.executeGetAsync;
+import static org.exoplatform.social.client.core.util.SocialHttpClientSupport.executePostAsync;
+
+/**
+ * Implementation of {@link AsyncActivityService}, the non-blocking counterpart of {@link ActivityServiceImplV1Alpha3}.
+ */
+public class AsyncActivityServiceImplV1Alpha3 implements AsyncActivityService<RestActivity> {
+  private static final String BASE_URL = buildCommonRestPathFromContext(true);
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Future<RestActivity> create(RestActivity newActivity, AsyncCallback<RestActivity> callback) {
+    final String POST_ACTIVITY_REQUEST_URL = BASE_URL + "activity.json";
+    return post(POST_ACTIVITY_REQUEST_URL, newActivity, new ActivityHandler(callback));
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Future<RestActivity> get(String activityId, AsyncCallback<RestActivity> callback) {
+    final String GET_ACTIVITY_REQUEST_URL = BASE_URL + "activity/" + activityId + ".json";
+    return get(GET_ACTIVITY_REQUEST_URL, new ActivityHandler(callback));
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Future<RestActivity> get(String activityId, QueryParams queryParams, AsyncCallback<RestActivity> callback) {
+    final String GET_ACTIVITY_REQUEST_URL = BASE_URL + "activity/" + activityId + ".json?" + queryParams.buildQuery();
+    return get(GET_ACTIVITY_REQUEST_URL, new ActivityHandler(callback));
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Future<RestComment> createComment(RestActivity existingActivity, RestComment newComment,
+                                           AsyncCallback<RestComment> callback) {
+    final String CREATE_COMMENT_REQUEST_URL = BASE_URL + "activity/" + existingActivity.getId() + "/comment.json";
+    return post(CREATE_COMMENT_REQUEST_URL, newComment,
+                new AsyncResponseHandler<RestComment>(AsyncActivityServiceImplV1Alpha3.class, callback) {
+                  @Override
+                  protected RestComment decode(String content) throws ParseException {
+                    return SocialJSONDecodingSupport.parser(RestCommentImpl.class, content);
+                  }
+                });
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Future<RestLike> like(RestActivity existingActivity, AsyncCallback<RestLike> callback) {
+    final String LIKE_ACTIVITY_REQUEST_URL = BASE_URL + "activity/" + existingActivity.getId() + "/like.json";
+    return post(LIKE_ACTIVITY_REQUEST_URL, null, new LikeHandler(existingActivity.getId(), true, callback));
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Future<RestLike> unlike(RestActivity existingActivity, AsyncCallback<RestLike> callback) {
+    final String LIKE_ACTIVITY_REQUEST_URL = BASE_URL + "activity/" + existingActivity.getId() + "/like/destroy.json";
+    return post(LIKE_ACTIVITY_REQUEST_URL, null, new LikeHandler(existingActivity.getId(), false, callback));
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public AsyncRealtimeListAccess<RestActivity> getActivityStream(RestIdentity identity, QueryParams queryParams) {
+    return new ActivitiesRealtimeListAccessV1Alpha3(identity, ActivityType.ACTIVITY_STREAM, queryParams);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public AsyncRealtimeListAccess<RestActivity> getSpacesActivityStream(RestIdentity userIdentity, QueryParams queryParams) {
+    return new ActivitiesRealtimeListAccessV1Alpha3(userIdentity, ActivityType.USER_SPACE_ACTIVITIES, queryParams);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public AsyncRealtimeListAccess<RestActivity> getConnectionsActivityStream(RestIdentity userIdentity,
+                                                                           QueryParams queryParams) {
+    return new ActivitiesRealtimeListAccessV1Alpha3(userIdentity, ActivityType.CONNECTIONS_ACTIVITIES, queryParams);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public AsyncRealtimeListAccess<RestActivity> getFeedActivityStream(RestIdentity userIdentity, QueryParams queryParams) {
+    return new ActivitiesRealtimeListAccessV1Alpha3(userIdentity, ActivityType.ACTIVITY_FEED, queryParams);
+  }
+
+  private <T> Future<T> get(String url, AsyncResponseHandler<T> handler) {
+    try {
+      return handler.bind(executeGetAsync(url, POLICY.BASIC_AUTH, handler));
+    } catch (SocialHttpClientException e) {
+      return handler.fail(e);
+    }
+  }
+
+  private <T> Future<T> post(String url, Model model, AsyncResponseHandler<T> handler) {
+    try {
+      return handler.bind(executePostAsync(url, POLICY.BASIC_AUTH, model, handler));
+    } catch (SocialHttpClientException e) {
+      return handler.fail(e);
+    }
+  }
+
+  /**
+   * Decodes an activity.
+   */
+  private static class ActivityHandler extends AsyncResponseHandler<RestActivity> {
+    ActivityHandler(AsyncCallback<RestActivity> callback) {
+      super(AsyncActivityServiceImplV1Alpha3.class, callback);
+    }
+
+    @Override
+    protected RestActivity decode(String content) throws ParseException {
+      return SocialJSONDecodingSupport.parser(RestActivityImpl.class, content);
+    }
+  }
+
+  /**
+   * Checks the liked status of a like or unlike response.
+   */
+  private static class LikeHandler extends AsyncResponseHandler<RestLike> {
+    private final String activityId;
+    private final boolean liked;
+
+    LikeHandler(String activityId, boolean liked, AsyncCallback<RestLike> callback) {
+      super(AsyncActivityServiceImplV1Alpha3.class, callback);
+      this.activityId = activityId;
+      this.liked = liked;
+    }
+
+    @Override
+    protected RestLike decode(String content) {
+      JSONObject responseJson = (JSONObject) JSONValue.parse(content);
+      if (responseJson == null || !Boolean.valueOf(liked).equals(responseJson.get("liked"))) {
+        throw new ServiceException(AsyncActivityServiceImplV1Alpha3.class, "invalid response", null);
+      }
+      return new RestLikeImpl(activityId, null);
+    }
+  }
+}
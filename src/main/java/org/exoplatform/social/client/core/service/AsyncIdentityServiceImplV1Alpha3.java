@@ -0,0 +1,64 @@
+/*
+ * Copyright (C) 2003-2011 eXo Platform SAS.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.exoplatform.social.client.core.service;
+
+import java.util.concurrent.Future;
+
+import org.exoplatform.social.client.api.model.RestIdentity;
+import org.exoplatform.social.client.api.net.SocialHttpClient.POLICY;
+import org.exoplatform.social.client.api.net.SocialHttpClientException;
+import org.exoplatform.social.client.api.service.AsyncCallback;
+import org.exoplatform.social.client.api.service.AsyncIdentityService;
+import org.exoplatform.social.client.core.model.RestIdentityImpl;
+import org.exoplatform.social.client.core.util.SocialHttpClientSupport;
+import org.exoplatform.social.client.core.util.SocialJSONDecodingSupport;
+import org.json.simple.parser.ParseException;
+
+/**
+ * Implementation of {@link AsyncIdentityService}, the non-blocking counterpart of {@link IdentityServiceImplV1Alpha3}.
+ */
+public class AsyncIdentityServiceImplV1Alpha3 implements AsyncIdentityService<RestIdentity> {
+
+  private static final String BASE_URL = SocialHttpClientSupport.buildCommonRestPathFromContext(true);
+
+  @Override
+  public Future<RestIdentity> get(String uuid, AsyncCallback<RestIdentity> callback) {
+    if (uuid == null) throw new NullPointerException("Input param can not be null");
+    return execute(BASE_URL + "identity/" + uuid + ".json", callback);
+  }
+
+  @Override
+  public Future<RestIdentity> getIdentity(String identityProvider, String remoteId, AsyncCallback<RestIdentity> callback) {
+    if ((identityProvider == null) || (remoteId == null)) throw new NullPointerException("Input param can not be null.");
+    return execute(BASE_URL + "identity/" + identityProvider + "/" + remoteId + ".json", callback);
+  }
+
+  private Future<RestIdentity> execute(String targetURL, AsyncCallback<RestIdentity> callback) {
+    AsyncResponseHandler<RestIdentity> handler =
+        new AsyncResponseHandler<RestIdentity>(AsyncIdentityServiceImplV1Alpha3.class, callback) {
+          @Override
+          protected RestIdentity decode(String content) throws ParseException {
+            return SocialJSONDecodingSupport.parser(RestIdentityImpl.class, content);
+          }
+        };
+    try {
+      return handler.bind(SocialHttpClientSupport.executeGetAsync(targetURL, POLICY.BASIC_AUTH, handler));
+    } catch (SocialHttpClientException e) {
+      return handler.fail(e);
+    }
+  }
+}
@@ -0,0 +1,111 @@
+/*
+ * Copyright (C) 2003-2011 eXo Platform SAS.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.exoplatform.social.client.core.service;
+
+import java.util.concurrent.Future;
+
+import org.apache.http.HttpResponse;
+import org.exoplatform.social.client.api.SocialClientLibException;
+import org.exoplatform.social.client.api.net.SocialHttpClientException;
+import org.exoplatform.social.client.api.service.AsyncCallback;
+import org.exoplatform.social.client.api.service.ServiceException;
+import org.exoplatform.social.client.core.util.ServiceFuture;
+import org.json.simple.parser.ParseException;
+
+import static org.exoplatform.social.client.core.util.SocialHttpClientSupport.getContent;
+import static org.exoplatform.social.client.core.util.SocialHttpClientSupport.handleError;
+
+/**
+ * Decodes the response of an async call into the future of the service result,
+ * failing it the same way the blocking services throw.
+ *
+ * @param <T> the type of the service result
+ */
+public abstract class AsyncResponseHandler<T> implements AsyncCallback<HttpResponse> {
+
+  private final Class<?> serviceClass;
+
+  private final ServiceFuture<T> future;
+
+  /**
+   * Constructor.
+   *
+   * @param serviceClass the class of the calling service
+   * @param callback     the callback of the service caller, can be null
+   */
+  public AsyncResponseHandler(Class<?> serviceClass, AsyncCallback<T> callback) {
+    this.serviceClass = serviceClass;
+    this.future = new ServiceFuture<T>(callback);
+  }
+
+  /**
+   * Decodes the content of a successful response.
+   *
+   * @param content the response content
+   * @return the service result
+   * @throws ParseException
+   */
+  protected abstract T decode(String content) throws ParseException;
+
+  /**
+   * Binds the future of the http exchange to the future of the service result.
+   *
+   * @param exchange the future of the http exchange
+   * @return the future of the service result
+   */
+  public Future<T> bind(Future<HttpResponse> exchange) {
+    future.setUnderlying(exchange);
+    return future;
+  }
+
+  /**
+   * Fails the future of the service result when the request can not be sent.
+   *
+   * @param e the exception
+   * @return the future of the service result
+   */
+  public Future<T> fail(SocialHttpClientException e) {
+    failed(e);
+    return future;
+  }
+
+  @Override
+  public void completed(HttpResponse response) {
+    try {
+      handleError(response);
+      future.completed(decode(getContent(response)));
+    } catch (SocialClientLibException e) {
+      future.failed(e);
+    } catch (SocialHttpClientException e) {
+      future.failed(new ServiceException(serviceClass, e.getMessage(), e));
+    } catch (ParseException e) {
+      future.failed(new ServiceException(serviceClass, e.getMessage(), e));
+    } catch (RuntimeException e) {
+      future.failed(e);
+    }
+  }
+
+  @Override
+  public void failed(Exception ex) {
+    future.failed(new ServiceException(serviceClass, ex.getMessage(), ex));
+  }
+
+  @Override
+  public void cancelled() {
+    future.cancel(false);
+  }
+}
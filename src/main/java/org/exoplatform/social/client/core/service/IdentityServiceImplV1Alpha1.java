@@ -52,17 +52,26 @@ public class IdentityServiceImplV1Alpha1 extends ServiceBase<RestIdentity, Ident
 
   @Override
   public RestIdentity get(String uuid) throws SocialClientLibException {
-    if (uuid == null) throw new NullPointerException("Input param can not be null");
-    final String targetURL = BASE_URL + "identity/" + uuid + ".json";
-
+    ServiceOperation operation = ServiceOperation.begin(this, "get");
     try {
-      HttpResponse response = executeGet(targetURL, POLICY.BASIC_AUTH);
-      handleError(response);
-      return SocialJSONDecodingSupport.parser(RestIdentityImpl.class, response);
-    } catch (IOException ioex) {
-      throw new ServiceException(IdentityServiceImplV1Alpha1.class, "IOException when reads Json Content.", ioex);
-    } catch (ParseException pex) {
-      throw new ServiceException(IdentityServiceImplV1Alpha1.class, "ParseException when reads Json Content.", pex);
+      if (uuid == null) throw new NullPointerException("Input param can not be null");
+      final String targetURL = BASE_URL + "identity/" + uuid + ".json";
+
+      try {
+        HttpResponse response = executeGet(targetURL, POLICY.BASIC_AUTH);
+        handleError(response);
+        return SocialJSONDecodingSupport.parser(RestIdentityImpl.class, response);
+      } catch (IOException ioex) {
+        throw new ServiceException(IdentityServiceImplV1Alpha1.class, "IOException when reads Json Content.", ioex);
+      } catch (ParseException pex) {
+        throw new ServiceException(IdentityServiceImplV1Alpha1.class, "ParseException when reads Json Content.", pex);
+      }
+    } catch (SocialClientLibException e) {
+      throw operation.failed(e);
+    } catch (RuntimeException e) {
+      throw operation.failed(e);
+    } finally {
+      operation.end();
     }
   }
 
@@ -81,19 +90,28 @@ public class IdentityServiceImplV1Alpha1 extends ServiceBase<RestIdentity, Ident
    */
   @Override
   public String getIdentityId(String provider, String remoteId) throws SocialClientLibException {
-    if ((provider == null) || (remoteId == null)) throw new NullPointerException("Input param can not be null.");
-    final String targetURL =  "/" + SocialClientContext.getRestContextName() + "/" + SocialClientContext.getPortalContainerName() + "/social/identity/" + remoteId + "/id/show.json";
-
+    ServiceOperation operation = ServiceOperation.begin(this, "getIdentityId");
     try {
-      HttpResponse response = executeGet(targetURL, POLICY.NO_AUTH);
-      String content = getContent(response);
-      handleError(response);
-      Map map = SocialJSONDecodingSupport.parser(content);
-      return (String) map.get("id");
-    } catch (IOException ioex) {
-      throw new ServiceException(IdentityServiceImplV1Alpha1.class, "IOException when reads Json Content.", ioex);
-    } catch (ParseException pex) {
-      throw new ServiceException(IdentityServiceImplV1Alpha1.class, "ParseException when reads Json Content.", pex);
+      if ((provider == null) || (remoteId == null)) throw new NullPointerException("Input param can not be null.");
+      final String targetURL =  "/" + SocialClientContext.getRestContextName() + "/" + SocialClientContext.getPortalContainerName() + "/social/identity/" + remoteId + "/id/show.json";
+
+      try {
+        HttpResponse response = executeGet(targetURL, POLICY.NO_AUTH);
+        String content = getContent(response);
+        handleError(response);
+        Map map = SocialJSONDecodingSupport.parser(content);
+        return (String) map.get("id");
+      } catch (IOException ioex) {
+        throw new ServiceException(IdentityServiceImplV1Alpha1.class, "IOException when reads Json Content.", ioex);
+      } catch (ParseException pex) {
+        throw new ServiceException(IdentityServiceImplV1Alpha1.class, "ParseException when reads Json Content.", pex);
+      }
+    } catch (SocialClientLibException e) {
+      throw operation.failed(e);
+    } catch (RuntimeException e) {
+      throw operation.failed(e);
+    } finally {
+      operation.end();
     }
   }
 
@@ -102,7 +120,16 @@ public class IdentityServiceImplV1Alpha1 extends ServiceBase<RestIdentity, Ident
    */
   @Override
   public RestIdentity getIdentity(String identityProvider, String remoteId) throws SocialClientLibException {
-    String identityId = getIdentityId(identityProvider, remoteId);
-    return get(identityId);
+    ServiceOperation operation = ServiceOperation.begin(this, "getIdentity");
+    try {
+      String identityId = getIdentityId(identityProvider, remoteId);
+      return get(identityId);
+    } catch (SocialClientLibException e) {
+      throw operation.failed(e);
+    } catch (RuntimeException e) {
+      throw operation.failed(e);
+    } finally {
+      operation.end();
+    }
   }
 }
@@ -42,22 +42,40 @@ public class IdentityServiceImplV1Alpha2 implements IdentityService<RestIdentity
 
   @Override
   public RestIdentity getIdentity(String identityProvider, String remoteId) throws SocialClientLibException {
-    if ((identityProvider == null) || (remoteId == null)) throw new NullPointerException("Input param can not be null.");
-    String targetURL = BASE_URL + "identity/" + identityProvider + "/" + remoteId + ".json";
+    ServiceOperation operation = ServiceOperation.begin(this, "getIdentity");
     try {
-      HttpResponse response = SocialHttpClientSupport.executeGet(targetURL, POLICY.BASIC_AUTH);
-      handleError(response);
-      return SocialJSONDecodingSupport.parser(RestIdentityImpl.class, response);
-    } catch (IOException ioex) {
-      throw new ServiceException(IdentityServiceImplV1Alpha2.class, "IOException when reads Json Content.", ioex);
-    } catch (ParseException pex) {
-      throw new ServiceException(IdentityServiceImplV1Alpha2.class, "ParseException when reads Json Content.", pex);
+      if ((identityProvider == null) || (remoteId == null)) throw new NullPointerException("Input param can not be null.");
+      String targetURL = BASE_URL + "identity/" + identityProvider + "/" + remoteId + ".json";
+      try {
+        HttpResponse response = SocialHttpClientSupport.executeGet(targetURL, POLICY.BASIC_AUTH);
+        handleError(response);
+        return SocialJSONDecodingSupport.parser(RestIdentityImpl.class, response);
+      } catch (IOException ioex) {
+        throw new ServiceException(IdentityServiceImplV1Alpha2.class, "IOException when reads Json Content.", ioex);
+      } catch (ParseException pex) {
+        throw new ServiceException(IdentityServiceImplV1Alpha2.class, "ParseException when reads Json Content.", pex);
+      }
+    } catch (SocialClientLibException e) {
+      throw operation.failed(e);
+    } catch (RuntimeException e) {
+      throw operation.failed(e);
+    } finally {
+      operation.end();
     }
   }
 
   @Override
   public String getIdentityId(String provider, String remoteId) throws SocialClientLibException {
-    return getIdentity(provider, remoteId).getId();
+    ServiceOperation operation = ServiceOperation.begin(this, "getIdentityId");
+    try {
+      return getIdentity(provider, remoteId).getId();
+    } catch (SocialClientLibException e) {
+      throw operation.failed(e);
+    } catch (RuntimeException e) {
+      throw operation.failed(e);
+    } finally {
+      operation.end();
+    }
   }
 
   @Override
@@ -67,16 +85,25 @@ public class IdentityServiceImplV1Alpha2 implements IdentityService<RestIdentity
 
   @Override
   public RestIdentity get(String uuid) throws SocialClientLibException {
-    if (uuid == null) throw new NullPointerException("Input param can not be null");
-    final String targetURL = BASE_URL + "identity/" + uuid + ".json";
+    ServiceOperation operation = ServiceOperation.begin(this, "get");
     try {
-      HttpResponse response = SocialHttpClientSupport.executeGet(targetURL, POLICY.BASIC_AUTH);
-      handleError(response);
-      return SocialJSONDecodingSupport.parser(RestIdentityImpl.class, response);
-    } catch (IOException ioex) {
-      throw new ServiceException(IdentityServiceImplV1Alpha2.class, "IOException when reads Json Content.", ioex);
-    } catch (ParseException pex) {
-      throw new ServiceException(IdentityServiceImplV1Alpha2.class, "ParseException when reads Json Content.", pex);
+      if (uuid == null) throw new NullPointerException("Input param can not be null");
+      final String targetURL = BASE_URL + "identity/" + uuid + ".json";
+      try {
+        HttpResponse response = SocialHttpClientSupport.executeGet(targetURL, POLICY.BASIC_AUTH);
+        handleError(response);
+        return SocialJSONDecodingSupport.parser(RestIdentityImpl.class, response);
+      } catch (IOException ioex) {
+        throw new ServiceException(IdentityServiceImplV1Alpha2.class, "IOException when reads Json Content.", ioex);
+      } catch (ParseException pex) {
+        throw new ServiceException(IdentityServiceImplV1Alpha2.class, "ParseException when reads Json Content.", pex);
+      }
+    } catch (SocialClientLibException e) {
+      throw operation.failed(e);
+    } catch (RuntimeException e) {
+      throw operation.failed(e);
+    } finally {
+      operation.end();
     }
   }
 
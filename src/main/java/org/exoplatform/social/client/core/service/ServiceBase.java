@@ -16,6 +16,16 @@
  */
 package org.exoplatform.social.client.core.service;
 
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.exoplatform.social.client.api.SocialClientContext;
 import org.exoplatform.social.client.api.SocialClientLibException;
 import org.exoplatform.social.client.api.auth.AccessDeniedException;
 import org.exoplatform.social.client.api.auth.NotFoundException;
@@ -41,6 +51,17 @@ import org.exoplatform.social.client.core.util.LifecycleSupport;
  */
 public abstract class ServiceBase<M, S> implements Service<M>, CRUDLifecycle<M>, Lifecycle<M,S> {
 
+  /**
+   * The services started while JMX is enabled, until they are garbage collected.
+   */
+  private static final Queue<WeakReference<ServiceBase<?, ?>>> INSTANCES =
+      new ConcurrentLinkedQueue<WeakReference<ServiceBase<?, ?>>>();
+
+  /**
+   * The references of the garbage collected services, to remove from {@link #INSTANCES}.
+   */
+  private static final ReferenceQueue<ServiceBase<?, ?>> COLLECTED = new ReferenceQueue<ServiceBase<?, ?>>();
+
   /**
    * Has this component been started?
    */
@@ -55,6 +76,51 @@ public abstract class ServiceBase<M, S> implements Service<M>, CRUDLifecycle<M>,
    * The crud lifecycle event support for this component.
    */
   protected CRUDLifecycleSupport<M> crudLifecycle = new CRUDLifecycleSupport<M>(this);
+
+  /**
+   * Is this component in {@link #getServices()}?
+   */
+  private final AtomicBoolean registered = new AtomicBoolean();
+
+  /**
+   * Gets the services started while JMX is enabled, see {@link SocialClientContext#isJmx()}, and not yet
+   * garbage collected.
+   *
+   * @return a copy of the services
+   */
+  public static List<ServiceBase<?, ?>> getServices() {
+    List<ServiceBase<?, ?>> services = new ArrayList<ServiceBase<?, ?>>();
+    for (WeakReference<ServiceBase<?, ?>> reference : INSTANCES) {
+      ServiceBase<?, ?> service = reference.get();
+      if (service != null) {
+        services.add(service);
+      }
+    }
+    return services;
+  }
+
+  /**
+   * Registers this component in {@link #getServices()}, once.
+   */
+  private void register() {
+    if (!registered.compareAndSet(false, true)) {
+      return;
+    }
+    Reference<? extends ServiceBase<?, ?>> collected;
+    while ((collected = COLLECTED.poll()) != null) {
+      INSTANCES.remove(collected);
+    }
+    INSTANCES.add(new WeakReference<ServiceBase<?, ?>>(this, COLLECTED));
+  }
+
+  /**
+   * Checks if this component is started.
+   *
+   * @return true if it is started
+   */
+  public boolean isStarted() {
+    return started;
+  }
   
   
   /**
@@ -67,6 +133,9 @@ public abstract class ServiceBase<M, S> implements Service<M>, CRUDLifecycle<M>,
     if (started) {
       return;
     }
+    if (SocialClientContext.isJmx()) {
+      register();
+    }
     // Notify our interested LifecycleListeners
     lifecycle.broadcastEvent(BEFORE_START_EVENT, null);
 
@@ -0,0 +1,199 @@
+/*
+ * Copyright (C) 2003-2011 eXo Platform SAS.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.exoplatform.social.client.core.service;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.exoplatform.social.client.api.SocialClientContext;
+import org.exoplatform.social.client.core.net.LatencyHistogram;
+import org.exoplatform.social.client.core.net.RequestMetrics;
+
+/**
+ * Latencies and failures of the calls of a service method, such as <code>ActivityServiceImplV1Alpha3.get</code>:
+ * from the start of the method to its return, with all the requests it sends, the decoding of their
+ * responses and the building of the models, where the {@link RequestMetrics} only cover the requests.
+ * All are recorded without locks and are read with {@link #getSnapshots()}.
+ */
+public class ServiceMetrics {
+
+  private static final ConcurrentMap<String, ServiceMetrics> METRICS = new ConcurrentHashMap<String, ServiceMetrics>();
+
+  private final String service;
+
+  private final String method;
+
+  private final LatencyHistogram callTime = new LatencyHistogram();
+
+  private final AtomicLong failureCount = new AtomicLong();
+
+  private ServiceMetrics(String service, String method) {
+    this.service = service;
+    this.method = method;
+  }
+
+  /**
+   * Gets the metrics of a method of a service, creating them on first use.
+   *
+   * @param service the simple class name of the service
+   * @param method  the name of the method
+   * @return the metrics
+   */
+  public static ServiceMetrics forMethod(String service, String method) {
+    String key = getKey(service, method);
+    ServiceMetrics metrics = METRICS.get(key);
+    if (metrics == null) {
+      ServiceMetrics newMetrics = new ServiceMetrics(service, method);
+      metrics = METRICS.putIfAbsent(key, newMetrics);
+      if (metrics == null) {
+        metrics = newMetrics;
+      }
+    }
+    return metrics;
+  }
+
+  /**
+   * Gets the metrics of all the service methods called since the start or the last reset.
+   *
+   * @return the metrics
+   */
+  public static Collection<ServiceMetrics> getMetrics() {
+    return Collections.unmodifiableCollection(METRICS.values());
+  }
+
+  /**
+   * Takes a snapshot of the metrics of all the service methods.
+   *
+   * @return the snapshots by <code>service.method</code>
+   */
+  public static SortedMap<String, Snapshot> getSnapshots() {
+    SortedMap<String, Snapshot> snapshots = new TreeMap<String, Snapshot>();
+    for (ServiceMetrics metrics : METRICS.values()) {
+      snapshots.put(getKey(metrics.service, metrics.method), metrics.getSnapshot());
+    }
+    return snapshots;
+  }
+
+  /**
+   * Forgets the metrics of all the service methods.
+   */
+  public static void resetAll() {
+    METRICS.clear();
+  }
+
+  private static String getKey(String service, String method) {
+    return service + '.' + method;
+  }
+
+  /**
+   * Records a call of the method, if {@link SocialClientContext#isRequestMetrics()} is true.
+   *
+   * @param service    the service called
+   * @param method     the name of the method
+   * @param startNanos the {@link System#nanoTime()} when the method was called
+   * @param failed     whether the method threw a failure
+   */
+  static void record(Object service, String method, long startNanos, boolean failed) {
+    if (!SocialClientContext.isRequestMetrics()) {
+      return;
+    }
+    ServiceMetrics metrics = forMethod(service.getClass().getSimpleName(), method);
+    metrics.callTime.record((System.nanoTime() - startNanos) / 1000);
+    if (failed) {
+      metrics.failureCount.incrementAndGet();
+    }
+  }
+
+  /**
+   * Takes a snapshot of these metrics.
+   *
+   * @return the snapshot
+   */
+  public Snapshot getSnapshot() {
+    return new Snapshot(service, method, failureCount.get(), callTime.getSnapshot());
+  }
+
+  public String getService() {
+    return service;
+  }
+
+  public String getMethod() {
+    return method;
+  }
+
+  /**
+   * The metrics of a service method at a point in time.
+   */
+  public static class Snapshot {
+
+    private final String service;
+
+    private final String method;
+
+    private final long failureCount;
+
+    private final LatencyHistogram.Snapshot callTime;
+
+    private Snapshot(String service, String method, long failureCount, LatencyHistogram.Snapshot callTime) {
+      this.service = service;
+      this.method = method;
+      this.failureCount = failureCount;
+      this.callTime = callTime;
+    }
+
+    public String getService() {
+      return service;
+    }
+
+    public String getMethod() {
+      return method;
+    }
+
+    public long getCallCount() {
+      return callTime.getCount();
+    }
+
+    /**
+     * Gets the number of calls which threw a failure.
+     *
+     * @return the number of calls
+     */
+    public long getFailureCount() {
+      return failureCount;
+    }
+
+    /**
+     * Gets the latencies of the calls, from the start of the method to its return or failure.
+     *
+     * @return the latencies in microseconds
+     */
+    public LatencyHistogram.Snapshot getCallTime() {
+      return callTime;
+    }
+
+    @Override
+    public String toString() {
+      return getKey(service, method) + " calls=" + getCallCount() + " failures=" + failureCount + " call["
+          + callTime + "]";
+    }
+  }
+}
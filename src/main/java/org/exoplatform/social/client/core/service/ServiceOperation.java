@@ -0,0 +1,89 @@
+/*
+ * Copyright (C) 2003-2011 eXo Platform SAS.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.exoplatform.social.client.core.service;
+
+import org.exoplatform.social.client.core.jfr.FlightEvent;
+import org.exoplatform.social.client.core.jfr.FlightEvents;
+
+/**
+ * A call of a service method, from its start to its return, with all the requests it sends and the
+ * decoding of their responses: records its {@link ServiceMetrics} and emits its flight recorder event.
+ */
+final class ServiceOperation {
+
+  private final Object service;
+
+  private final String method;
+
+  private final Object model;
+
+  private final long startNanos;
+
+  private final FlightEvent event;
+
+  private Throwable failure;
+
+  private ServiceOperation(Object service, String method, Object model) {
+    this.service = service;
+    this.method = method;
+    this.model = model;
+    this.startNanos = System.nanoTime();
+    this.event = FlightEvents.beginOperation();
+  }
+
+  /**
+   * Begins a call of a service method.
+   *
+   * @param service the service
+   * @param method  the name of the method
+   * @return the operation, to end once the method returns
+   */
+  static ServiceOperation begin(Object service, String method) {
+    return new ServiceOperation(service, method, null);
+  }
+
+  /**
+   * Begins a call of a service method on a model.
+   *
+   * @param service the service
+   * @param method  the name of the method
+   * @param model   the model given to the method
+   * @return the operation, to end once the method returns
+   */
+  static ServiceOperation begin(Object service, String method, Object model) {
+    return new ServiceOperation(service, method, model);
+  }
+
+  /**
+   * Records the failure of the call.
+   *
+   * @param failure the failure thrown by the method
+   * @return the failure, to throw
+   */
+  <E extends Throwable> E failed(E failure) {
+    this.failure = failure;
+    return failure;
+  }
+
+  /**
+   * Ends the call, once the method returned or threw its failure.
+   */
+  void end() {
+    ServiceMetrics.record(service, method, startNanos, failure != null);
+    FlightEvents.commitOperation(event, service, method, model, failure);
+  }
+}
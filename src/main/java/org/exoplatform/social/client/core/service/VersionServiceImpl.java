@@ -16,7 +16,6 @@
  */
 package org.exoplatform.social.client.core.service;
 
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 
@@ -67,7 +66,7 @@ public class VersionServiceImpl implements VersionService {
       String content = getContent(response);
       handleError(response);
       Map versionMap = SocialJSONDecodingSupport.parser(content);
-      List supportVersion = (LinkedList) versionMap.get(SUPPORTED_FIELD);
+      List supportVersion = (List) versionMap.get(SUPPORTED_FIELD);
       return (String[]) supportVersion.toArray(new String[0]);
     } catch (Exception pex) {
       throw new ServiceException(VersionServiceImpl.class, "Failed to getSupported versions", pex);
@@ -0,0 +1,174 @@
+/*
+ * Copyright (C) 2003-2011 eXo Platform SAS.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.exoplatform.social.client.core.util;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.exoplatform.social.client.api.service.AsyncCallback;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The {@link Future} of an asynchronous call, completed once by the transport and notifying an optional
+ * {@link AsyncCallback}. Cancelling it also cancels the underlying future it depends on, if any.
+ *
+ * @param <T> the type of the result
+ */
+public class ServiceFuture<T> implements Future<T> {
+
+  private static final Logger LOG = LoggerFactory.getLogger(ServiceFuture.class);
+
+  private final AsyncCallback<T> callback;
+
+  private final CountDownLatch latch = new CountDownLatch(1);
+
+  private final AtomicBoolean done = new AtomicBoolean();
+
+  private volatile T result;
+
+  private volatile Exception failure;
+
+  private volatile boolean cancelled;
+
+  private volatile Future<?> underlying;
+
+  /**
+   * Constructor.
+   *
+   * @param callback the callback to notify, can be null
+   */
+  public ServiceFuture(AsyncCallback<T> callback) {
+    this.callback = callback;
+  }
+
+  /**
+   * Sets the future this one depends on, cancelled along with this one.
+   *
+   * @param underlying the underlying future
+   */
+  public void setUnderlying(Future<?> underlying) {
+    this.underlying = underlying;
+    if (cancelled) {
+      underlying.cancel(true);
+    }
+  }
+
+  /**
+   * Completes this future with a result.
+   *
+   * @param value the result
+   * @return false if this future was already done
+   */
+  public boolean completed(T value) {
+    if (!done.compareAndSet(false, true)) {
+      return false;
+    }
+    result = value;
+    latch.countDown();
+    if (callback != null) {
+      try {
+        callback.completed(value);
+      } catch (RuntimeException e) {
+        LOG.warn("Callback failed on completion.", e);
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Completes this future with a failure.
+   *
+   * @param ex the failure
+   * @return false if this future was already done
+   */
+  public boolean failed(Exception ex) {
+    if (!done.compareAndSet(false, true)) {
+      return false;
+    }
+    failure = ex;
+    latch.countDown();
+    if (callback != null) {
+      try {
+        callback.failed(ex);
+      } catch (RuntimeException e) {
+        LOG.warn("Callback failed on failure.", e);
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public boolean cancel(boolean mayInterruptIfRunning) {
+    if (!done.compareAndSet(false, true)) {
+      return false;
+    }
+    cancelled = true;
+    latch.countDown();
+    Future<?> future = underlying;
+    if (future != null) {
+      future.cancel(mayInterruptIfRunning);
+    }
+    if (callback != null) {
+      try {
+        callback.cancelled();
+      } catch (RuntimeException e) {
+        LOG.warn("Callback failed on cancellation.", e);
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public boolean isCancelled() {
+    return cancelled;
+  }
+
+  @Override
+  public boolean isDone() {
+    return done.get();
+  }
+
+  @Override
+  public T get() throws InterruptedException, ExecutionException {
+    latch.await();
+    return getResult();
+  }
+
+  @Override
+  public T get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+    if (!latch.await(timeout, unit)) {
+      throw new TimeoutException();
+    }
+    return getResult();
+  }
+
+  private T getResult() throws ExecutionException {
+    if (cancelled) {
+      throw new CancellationException();
+    }
+    if (failure != null) {
+      throw new ExecutionException(failure);
+    }
+    return result;
+  }
+}
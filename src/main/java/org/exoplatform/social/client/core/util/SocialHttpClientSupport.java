@@ -22,20 +22,36 @@ import java.io.StringWriter;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.http.Header;
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpHost;
+import org.apache.http.HttpRequest;
 import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
 import org.apache.http.ParseException;
+import org.apache.http.auth.AuthScope;
+import org.apache.http.auth.UsernamePasswordCredentials;
 import org.apache.http.client.ClientProtocolException;
+import org.apache.http.client.CredentialsProvider;
 import org.apache.http.client.methods.HttpDelete;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.client.protocol.ClientContext;
 import org.apache.http.entity.BufferedHttpEntity;
-import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.impl.auth.BasicScheme;
+import org.apache.http.impl.client.BasicCredentialsProvider;
 import org.apache.http.message.BasicHeader;
+import org.apache.http.message.BasicHttpEntityEnclosingRequest;
+import org.apache.http.message.BasicHttpRequest;
 import org.apache.http.params.HttpParams;
+import org.apache.http.protocol.BasicHttpContext;
+import org.apache.http.protocol.HTTP;
+import org.apache.http.protocol.HttpContext;
 import org.apache.http.util.EntityUtils;
 import org.exoplatform.social.client.api.SocialClientContext;
 import org.exoplatform.social.client.api.SocialClientLibException;
@@ -46,8 +62,21 @@ import org.exoplatform.social.client.api.model.Model;
 import org.exoplatform.social.client.api.net.SocialHttpClient;
 import org.exoplatform.social.client.api.net.SocialHttpClient.POLICY;
 import org.exoplatform.social.client.api.net.SocialHttpClientException;
+import org.exoplatform.social.client.api.net.SocialTransport;
+import org.exoplatform.social.client.api.service.AsyncCallback;
 import org.exoplatform.social.client.api.service.ServiceException;
+import org.exoplatform.social.client.core.net.AuthSession;
+import org.exoplatform.social.client.core.net.CircuitBreakerOpenException;
+import org.exoplatform.social.client.core.net.ConcurrencyLimitExceededException;
+import org.exoplatform.social.client.core.net.EndpointPool;
+import org.exoplatform.social.client.core.net.EndpointPool.Endpoint;
+import org.exoplatform.social.client.core.net.ExchangeObserver;
+import org.exoplatform.social.client.core.net.ModelEntity;
+import org.exoplatform.social.client.core.net.RetryPolicy;
+import org.exoplatform.social.client.core.net.SocialAsyncHttpClient;
 import org.exoplatform.social.client.core.net.SocialHttpClientImpl;
+import org.exoplatform.social.client.core.net.TransferStats;
+import org.exoplatform.social.client.core.net.WireLogger;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -56,6 +85,43 @@ import org.slf4j.LoggerFactory;
  */
 public class SocialHttpClientSupport {
    private static final Logger LOGGER = LoggerFactory.getLogger(SocialHttpClientSupport.class);
+
+  /**
+   * The transfer stats of the last request executed by the current thread.
+   */
+  private static final ThreadLocal<TransferStats> LAST_TRANSFER_STATS = new ThreadLocal<TransferStats>();
+
+  /**
+   * The context attribute of the auth session whose cookies are sent without credentials.
+   */
+  private static final String REUSED_AUTH_SESSION = "social.auth.session.reused";
+
+  private static final AtomicLong HANDLED_COUNT = new AtomicLong();
+
+  private static final AtomicLong NOT_FOUND_COUNT = new AtomicLong();
+
+  private static final AtomicLong ACCESS_DENIED_COUNT = new AtomicLong();
+
+  private static final AtomicLong UNAUTHENTICATED_COUNT = new AtomicLong();
+
+  private static final AtomicLong OTHER_ERROR_COUNT = new AtomicLong();
+
+  /**
+   * The default transport, over the shared pooled client and the shared non-blocking client.
+   */
+  public static final SocialTransport HTTP_TRANSPORT = new SocialTransport() {
+    @Override
+    public HttpResponse execute(HttpUriRequest request, POLICY authPolicy) throws SocialHttpClientException {
+      return executeHttp(request, authPolicy);
+    }
+
+    @Override
+    public Future<HttpResponse> executeAsync(HttpRequest request, POLICY authPolicy,
+                                             AsyncCallback<HttpResponse> callback) throws SocialHttpClientException {
+      return executeHttpAsync(request, authPolicy, callback);
+    }
+  };
+
   /**
    * Invokes the social rest service via Get method
    * @param targetURL 
@@ -66,38 +132,8 @@ public class SocialHttpClientSupport {
    * @throws ClientProtocolException
    */
   public static HttpResponse executeGet(String targetURL, POLICY authPolicy, HttpParams params) throws SocialHttpClientException {
-    SocialHttpClient httpClient = SocialHttpClientImpl.newInstance();
-    if (POLICY.BASIC_AUTH == authPolicy) {
-      try {
-        httpClient.setBasicAuthenticateToRequest();
-      } catch (SocialClientLibException e) {
-        throw new SocialHttpClientException(e.getMessage(), e);
-      }
-    }
-
     HttpGet httpGet = new HttpGet(targetURL);
-    Header header = new BasicHeader("Content-Type", "application/json");
-    httpGet.setHeader(header);
-    HttpHost targetHost = new HttpHost(SocialClientContext.getHost(), SocialClientContext.getPort(), SocialClientContext.getProtocol());
-    //Get method with the HttpParams
-    if (params != null) {
-      httpGet.setParams(params);
-    }
-    
-    try {
-      HttpResponse response = httpClient.execute(targetHost, httpGet);
-      //handleError(response);
-      //Debugging in the devlopment mode
-      if (SocialClientContext.isDeveloping()) {
-        dumpHttpResponsetHeader(response);
-        dumpContent(response);
-      }
-      return response;
-    } catch (ClientProtocolException cpex) {
-      throw new SocialHttpClientException(cpex.toString(), cpex);
-    } catch (IOException ioex) {
-      throw new SocialHttpClientException(ioex.toString(), ioex);
-    }
+    return execute(httpGet, authPolicy, params);
   }
 
   /**
@@ -122,47 +158,13 @@ public class SocialHttpClientSupport {
    * @throws ClientProtocolException
    */
   public static HttpResponse executePost(String targetURL, POLICY authPolicy, HttpParams params, Model model) throws SocialHttpClientException {
-    HttpHost targetHost = new HttpHost(SocialClientContext.getHost(), SocialClientContext.getPort(), SocialClientContext.getProtocol()); 
-    SocialHttpClient httpClient = SocialHttpClientImpl.newInstance();
-
-    if (POLICY.BASIC_AUTH == authPolicy) {
-      try {
-        httpClient.setBasicAuthenticateToRequest();
-      } catch (SocialClientLibException e) {
-        throw new SocialHttpClientException(e.getMessage(), e);
-      }
-    }
-
     HttpPost httpPost = new HttpPost(targetURL);
-    Header header = new BasicHeader("Content-Type", "application/json");
-    httpPost.setHeader(header);
-    //Post method with the HttpParams
-    if (params != null) {
-      httpPost.setParams(params);
-    }
-    try {
-
-      //Provides when uses post so does not have any data.
-      byte[] postData = convertModelToByteArray(model);
-      if (postData != null) {
-        ByteArrayEntity entity = new ByteArrayEntity(convertModelToByteArray(model));
-        httpPost.setEntity(entity);
-      }
-      HttpResponse response = httpClient.execute(targetHost, httpPost);
-      
-      //handleError(response);
-      //Debugging in the devlopment mode
-      if (SocialClientContext.isDeveloping()) {
-        dumpHttpResponsetHeader(response);
-        dumpContent(response);
-      }
-      return response;  
-    } catch (ClientProtocolException cpex) {
-      throw new SocialHttpClientException(cpex.toString(), cpex);
-    } catch (IOException ioex) {
-      throw new SocialHttpClientException(ioex.toString(), ioex);
+    //Provides when uses post so does not have any data.
+    if (model != null) {
+      //The model is written to the connection when the request is sent.
+      httpPost.setEntity(new ModelEntity(model));
     }
-
+    return execute(httpPost, authPolicy, params);
   }
   
   /**
@@ -214,41 +216,337 @@ public class SocialHttpClientSupport {
    * @throws ClientProtocolException 
    */
   public static HttpResponse executeDelete(String targetURL, POLICY authPolicy, HttpParams params) throws SocialHttpClientException {
-    HttpHost targetHost = new HttpHost(SocialClientContext.getHost(), SocialClientContext.getPort(), SocialClientContext.getProtocol()); 
-    SocialHttpClient httpClient = SocialHttpClientImpl.newInstance();
-
-    if (POLICY.BASIC_AUTH == authPolicy) {
-      try {
-        httpClient.setBasicAuthenticateToRequest();
-      } catch (SocialClientLibException e) {
-        new SocialHttpClientException(e.getMessage(), e);
-      }
-    }
-    
     HttpDelete httpDelete = new HttpDelete(targetURL);
+    return execute(httpDelete, authPolicy, params);
+  }
+  
+  /**
+   * Executes the request through the transport of {@link SocialClientContext#getTransport()},
+   * or {@link #HTTP_TRANSPORT} when none is set.
+   *
+   * @param request the request to execute
+   * @param authPolicy POLICY.NO_AUTH/POLICY.BASIC_AUTH
+   * @param params HttpParams for Request, can be null
+   * @return the response with its content still streamed from the connection
+   * @throws SocialHttpClientException
+   */
+  private static HttpResponse execute(HttpUriRequest request, POLICY authPolicy, HttpParams params) throws SocialHttpClientException {
     Header header = new BasicHeader("Content-Type", "application/json");
-    httpDelete.setHeader(header);
-    //Delete method with the HttpParams
+    request.setHeader(header);
+    //Request with the HttpParams
     if (params != null) {
-      httpDelete.setParams(params);
+      request.setParams(params);
     }
+    ExchangeObserver observer = ExchangeObserver.start(request);
+    HttpResponse response;
+    try {
+      response = getTransport().execute(request, authPolicy);
+    } catch (SocialHttpClientException shcex) {
+      observer.failed(shcex);
+      throw shcex;
+    } finally {
+      observer.sent();
+    }
+    observer.responded(response);
+    return response;
+  }
+
+  private static SocialTransport getTransport() {
+    SocialTransport transport = SocialClientContext.getTransport();
+    return transport != null ? transport : HTTP_TRANSPORT;
+  }
+
+  /**
+   * Executes the request through the shared pooled client.
+   * The response content is not read: the pooled connection is released once the caller reads
+   * the content to its end, through {@link #getContent(HttpResponse)} or the streaming decoders of
+   * {@link SocialJSONDecodingSupport}, or calls {@link #handleError(HttpResponse)} on an error response.
+   * Transient failures are retried and the requests to an unavailable host fail fast, see {@link RetryPolicy}.
+   * The request goes to an endpoint selected by the {@link EndpointPool}.
+   *
+   * @param request the request to execute
+   * @param authPolicy POLICY.NO_AUTH/POLICY.BASIC_AUTH
+   * @return the response with its content still streamed from the connection
+   * @throws SocialHttpClientException
+   */
+  private static HttpResponse executeHttp(HttpUriRequest request, POLICY authPolicy) throws SocialHttpClientException {
+    SocialHttpClient httpClient = SocialHttpClientImpl.getInstance();
+    Endpoint endpoint = EndpointPool.select(getStickyKey(authPolicy));
+    HttpHost targetHost = endpoint.getHost();
+    HttpContext context = createHttpContext(authPolicy, targetHost);
+    LAST_TRANSFER_STATS.set(TransferStats.getStats(context));
+    endpoint.start();
+    long start = System.nanoTime();
+    boolean failed = true;
     try {
-      HttpResponse response = httpClient.execute(targetHost, httpDelete);
-      //handleError(response);
-      //Debugging in the devlopment mode
-      if (SocialClientContext.isDeveloping()) {
-        dumpHttpResponsetHeader(response);
-        dumpContent(response);
+      HttpResponse response = RetryPolicy.execute(httpClient, targetHost, request, context);
+      AuthSession session = (AuthSession) context.getAttribute(REUSED_AUTH_SESSION);
+      if (session != null && response.getStatusLine().getStatusCode() == HttpStatus.SC_UNAUTHORIZED) {
+        //the server session expired, authenticates again with Basic credentials
+        discardContent(response);
+        session.expire();
+        context = createHttpContext(authPolicy, targetHost);
+        LAST_TRANSFER_STATS.set(TransferStats.getStats(context));
+        response = RetryPolicy.execute(httpClient, targetHost, request, context);
       }
+      failed = RetryPolicy.isRetryable(response);
       return response;
+    } catch (SocialHttpClientException shcex) {
+      //the deadline of the caller is exceeded, the endpoint did not fail
+      failed = false;
+      request.abort();
+      throw shcex;
     } catch (ClientProtocolException cpex) {
+      request.abort();
       throw new SocialHttpClientException(cpex.toString(), cpex);
+    } catch (ConcurrencyLimitExceededException clex) {
+      failed = false;
+      request.abort();
+      throw new SocialHttpClientException(clex.toString(), clex);
+    } catch (CircuitBreakerOpenException cboex) {
+      //failed fast on the client side, the endpoint was not requested
+      failed = false;
+      request.abort();
+      throw new SocialHttpClientException(cboex.toString(), cboex);
     } catch (IOException ioex) {
+      request.abort();
       throw new SocialHttpClientException(ioex.toString(), ioex);
+    } finally {
+      endpoint.finish(System.nanoTime() - start, failed);
     }
-   
   }
-  
+
+  /**
+   * Gets the key keeping the authenticated requests of a user on the same endpoint.
+   *
+   * @param authPolicy POLICY.NO_AUTH/POLICY.BASIC_AUTH
+   * @return the user name, null when the request is not authenticated
+   */
+  private static String getStickyKey(POLICY authPolicy) {
+    return POLICY.BASIC_AUTH == authPolicy ? SocialClientContext.getUsername() : null;
+  }
+
+  /**
+   * Invokes the social rest service via Get method without blocking the caller thread.
+   *
+   * @param targetURL
+   * @param authPolicy POLICY.NO_AUTH/POLICY.BASIC_AUTH
+   * @param callback the callback notified on a callback thread with the buffered response
+   * @return the future of the response
+   * @throws SocialHttpClientException
+   */
+  public static Future<HttpResponse> executeGetAsync(String targetURL, POLICY authPolicy,
+                                                     AsyncCallback<HttpResponse> callback) throws SocialHttpClientException {
+    return executeAsync(new BasicHttpRequest("GET", targetURL), authPolicy, callback);
+  }
+
+  /**
+   * Invokes the social rest service via Post method without blocking the caller thread.
+   *
+   * @param targetURL
+   * @param authPolicy POLICY.NO_AUTH/POLICY.BASIC_AUTH
+   * @param model the model to post, can be null
+   * @param callback the callback notified on a callback thread with the buffered response
+   * @return the future of the response
+   * @throws SocialHttpClientException
+   */
+  public static Future<HttpResponse> executePostAsync(String targetURL, POLICY authPolicy, Model model,
+                                                      AsyncCallback<HttpResponse> callback) throws SocialHttpClientException {
+    BasicHttpEntityEnclosingRequest request = new BasicHttpEntityEnclosingRequest("POST", targetURL);
+    if (model != null) {
+      request.setEntity(new ModelEntity(model));
+    }
+    return executeAsync(request, authPolicy, callback);
+  }
+
+  /**
+   * Executes the request through the transport of {@link SocialClientContext#getTransport()},
+   * or {@link #HTTP_TRANSPORT} when none is set, without blocking the caller thread.
+   *
+   * @param request the request to execute
+   * @param authPolicy POLICY.NO_AUTH/POLICY.BASIC_AUTH
+   * @param callback the callback notified on a callback thread, can be null
+   * @return the future of the response
+   * @throws SocialHttpClientException
+   */
+  private static Future<HttpResponse> executeAsync(HttpRequest request, POLICY authPolicy,
+                                                   AsyncCallback<HttpResponse> callback) throws SocialHttpClientException {
+    request.setHeader(new BasicHeader("Content-Type", "application/json"));
+    ExchangeObserver observer = ExchangeObserver.start(request);
+    try {
+      return getTransport().executeAsync(request, authPolicy, new ObservingCallback(observer, callback));
+    } catch (SocialHttpClientException shcex) {
+      observer.failed(shcex);
+      throw shcex;
+    } finally {
+      observer.sent();
+      observer.detach();
+    }
+  }
+
+  /**
+   * Notifies the observer of the exchange before the callback, which decodes the response.
+   */
+  private static class ObservingCallback implements AsyncCallback<HttpResponse> {
+
+    private final ExchangeObserver observer;
+
+    private final AsyncCallback<HttpResponse> callback;
+
+    private ObservingCallback(ExchangeObserver observer, AsyncCallback<HttpResponse> callback) {
+      this.observer = observer;
+      this.callback = callback;
+    }
+
+    @Override
+    public void completed(HttpResponse response) {
+      observer.responded(response);
+      if (callback != null) {
+        callback.completed(response);
+      }
+    }
+
+    @Override
+    public void failed(Exception ex) {
+      observer.failed(ex);
+      if (callback != null) {
+        callback.failed(ex);
+      }
+    }
+
+    @Override
+    public void cancelled() {
+      observer.failed(new CancellationException());
+      if (callback != null) {
+        callback.cancelled();
+      }
+    }
+  }
+
+  /**
+   * Executes the request through the shared non-blocking transport.
+   *
+   * @param request the request to execute
+   * @param authPolicy POLICY.NO_AUTH/POLICY.BASIC_AUTH
+   * @param callback the callback notified on a callback thread, can be null
+   * @return the future of the response
+   * @throws SocialHttpClientException
+   */
+  private static Future<HttpResponse> executeHttpAsync(HttpRequest request, POLICY authPolicy,
+                                                       AsyncCallback<HttpResponse> callback) throws SocialHttpClientException {
+    Endpoint endpoint = EndpointPool.select(getStickyKey(authPolicy));
+    if (POLICY.BASIC_AUTH == authPolicy) {
+      if (SocialClientContext.getUsername() == null || SocialClientContext.getPassword() == null) {
+        //fast check from client
+        SocialClientLibException e = new SocialClientLibException("401 Unauthorized", new UnAuthenticatedException());
+        throw new SocialHttpClientException(e.getMessage(), e);
+      }
+      //always preemptive: there is no challenge handling on the non-blocking transport
+      request.addHeader(BasicScheme.authenticate(new UsernamePasswordCredentials(SocialClientContext.getUsername(),
+                                                                                 SocialClientContext.getPassword()),
+                                                 HTTP.DEFAULT_PROTOCOL_CHARSET, false));
+    }
+    SocialAsyncHttpClient httpClient;
+    try {
+      httpClient = SocialAsyncHttpClient.getInstance();
+    } catch (IOException ioex) {
+      throw new SocialHttpClientException(ioex.toString(), ioex);
+    }
+    endpoint.start();
+    return httpClient.execute(endpoint.getHost(), request, new EndpointCallback(endpoint, callback));
+  }
+
+  /**
+   * Records the end of the request to its endpoint before the callback.
+   */
+  private static class EndpointCallback implements AsyncCallback<HttpResponse> {
+
+    private final Endpoint endpoint;
+
+    private final AsyncCallback<HttpResponse> callback;
+
+    private final long start = System.nanoTime();
+
+    private EndpointCallback(Endpoint endpoint, AsyncCallback<HttpResponse> callback) {
+      this.endpoint = endpoint;
+      this.callback = callback;
+    }
+
+    @Override
+    public void completed(HttpResponse response) {
+      endpoint.finish(System.nanoTime() - start, RetryPolicy.isRetryable(response));
+      if (callback != null) {
+        callback.completed(response);
+      }
+    }
+
+    @Override
+    public void failed(Exception ex) {
+      //only the I/O failures are the endpoint's, not the shut down client nor the unsupported scheme
+      endpoint.finish(System.nanoTime() - start, ex instanceof IOException);
+      if (callback != null) {
+        callback.failed(ex);
+      }
+    }
+
+    @Override
+    public void cancelled() {
+      endpoint.finish(System.nanoTime() - start, false);
+      if (callback != null) {
+        callback.cancelled();
+      }
+    }
+  }
+
+  /**
+   * Gets the counters of the bytes sent and received by the last request executed by the current thread,
+   * before and after compression. The response counters grow as the content is read.
+   *
+   * @return the transfer stats, null when the thread did not execute any request
+   * @see TransferStats#getTotals()
+   */
+  public static TransferStats getLastTransferStats() {
+    return LAST_TRANSFER_STATS.get();
+  }
+
+  /**
+   * Creates the execution context of a request. The credentials are given per request
+   * so that the shared client never sends them on a POLICY.NO_AUTH request.
+   * With {@link SocialClientContext#isAuthSession()}, the credentials are left out while the
+   * {@link AuthSession} of the user holds the cookies of an authenticated server session.
+   *
+   * @param authPolicy POLICY.NO_AUTH/POLICY.BASIC_AUTH
+   * @param targetHost the target host
+   * @return the execution context
+   * @throws SocialHttpClientException when the credentials are required but not set.
+   */
+  private static HttpContext createHttpContext(POLICY authPolicy, HttpHost targetHost) throws SocialHttpClientException {
+    HttpContext context = new BasicHttpContext();
+    if (POLICY.BASIC_AUTH == authPolicy) {
+      if (SocialClientContext.getUsername() == null || SocialClientContext.getPassword() == null) {
+        //fast check from client
+        SocialClientLibException e = new SocialClientLibException("401 Unauthorized", new UnAuthenticatedException());
+        throw new SocialHttpClientException(e.getMessage(), e);
+      }
+      if (SocialClientContext.isAuthSession()) {
+        AuthSession session = AuthSession.forCredentials(targetHost, SocialClientContext.getUsername(),
+                                                         SocialClientContext.getPassword());
+        context.setAttribute(ClientContext.COOKIE_STORE, session.getCookieStore());
+        if (session.isEstablished()) {
+          session.recordReused();
+          context.setAttribute(REUSED_AUTH_SESSION, session);
+          return context;
+        }
+        session.recordAuthenticated();
+      }
+      CredentialsProvider credsProvider = new BasicCredentialsProvider();
+      credsProvider.setCredentials(new AuthScope(targetHost.getHostName(), targetHost.getPort()),
+                                   new UsernamePasswordCredentials(SocialClientContext.getUsername(),
+                                                                   SocialClientContext.getPassword()));
+      context.setAttribute(ClientContext.CREDS_PROVIDER, credsProvider);
+    }
+    return context;
+  }
   
   /**
    * Invokes the social rest service via Delete method with HttpParams is null.
@@ -321,19 +619,31 @@ public class SocialHttpClientSupport {
       throw new NullPointerException("HttpResponse argument is not NULL.");
     }
     HttpEntity entity = processContent(response);
+    if (entity == null) {
+      throw new SocialHttpClientException("Content of response is empty.");
+    }
     String content;
     try {
-      if (entity.getContentLength() != -1) {
-        content = EntityUtils.toString(entity);
-      } else {
-        throw new SocialHttpClientException("Content of response is empty.");
-      }
+      //the length is -1 for a chunked content, the buffered entity knows it anyway
+      content = EntityUtils.toString(entity, getContentCharset(entity));
     } catch (IOException ioex) {
       throw new SocialHttpClientException(ioex.toString(), ioex);
     }
     return content;
   }
 
+  /**
+   * Gets the charset of the entity content, UTF-8 when the content type does not tell it
+   * as it is the default encoding of JSON.
+   *
+   * @param entity the entity
+   * @return the charset name
+   */
+  public static String getContentCharset(HttpEntity entity) {
+    String charset = EntityUtils.getContentCharSet(entity);
+    return charset != null ? charset : HTTP.UTF_8;
+  }
+
   /**
    * Checks the entity and close InputStream
    *
@@ -370,30 +680,111 @@ public class SocialHttpClientSupport {
   
   /**
    * Handles the error code which contains in HttpResponse. 
+   * The content of an error response is discarded so that its connection goes back to the pool.
    * @param response HttpResponse
    * @throws SocialClientLibException 
    * @throws SocialHttpClientException
    */
   public static void handleError(HttpResponse response) throws SocialClientLibException {
     int statusCode = response.getStatusLine().getStatusCode();
+    HANDLED_COUNT.incrementAndGet();
 
     if (statusCode != 200) {
+      discardContent(response);
       if(statusCode == 404){
+        NOT_FOUND_COUNT.incrementAndGet();
         throw new SocialClientLibException(response.getStatusLine().toString(), new NotFoundException());
       } else if(statusCode == 403){
+        ACCESS_DENIED_COUNT.incrementAndGet();
         throw new SocialClientLibException(response.getStatusLine().toString(), new AccessDeniedException());
       } else if(statusCode == 401){
+        UNAUTHENTICATED_COUNT.incrementAndGet();
         throw new SocialClientLibException(response.getStatusLine().toString(), new UnAuthenticatedException());
       } else {
+        OTHER_ERROR_COUNT.incrementAndGet();
         throw new ServiceException(response.getStatusLine().toString());
       }
     }
   }
+
+  /**
+   * Gets the number of responses checked by {@link #handleError(HttpResponse)}.
+   *
+   * @return the number of responses
+   */
+  public static long getHandledCount() {
+    return HANDLED_COUNT.get();
+  }
+
+  /**
+   * Gets the number of 404 responses found by {@link #handleError(HttpResponse)}.
+   *
+   * @return the number of responses
+   */
+  public static long getNotFoundCount() {
+    return NOT_FOUND_COUNT.get();
+  }
+
+  /**
+   * Gets the number of 403 responses found by {@link #handleError(HttpResponse)}.
+   *
+   * @return the number of responses
+   */
+  public static long getAccessDeniedCount() {
+    return ACCESS_DENIED_COUNT.get();
+  }
+
+  /**
+   * Gets the number of 401 responses found by {@link #handleError(HttpResponse)}.
+   *
+   * @return the number of responses
+   */
+  public static long getUnauthenticatedCount() {
+    return UNAUTHENTICATED_COUNT.get();
+  }
+
+  /**
+   * Gets the number of other error responses found by {@link #handleError(HttpResponse)}.
+   *
+   * @return the number of responses
+   */
+  public static long getOtherErrorCount() {
+    return OTHER_ERROR_COUNT.get();
+  }
+
+  /**
+   * Resets the counts of {@link #handleError(HttpResponse)}.
+   */
+  public static void resetErrorCounts() {
+    HANDLED_COUNT.set(0);
+    NOT_FOUND_COUNT.set(0);
+    ACCESS_DENIED_COUNT.set(0);
+    UNAUTHENTICATED_COUNT.set(0);
+    OTHER_ERROR_COUNT.set(0);
+  }
   
+  /**
+   * Reads the rest of the response content, if not already read, and closes it.
+   *
+   * @param response the response
+   */
+  private static void discardContent(HttpResponse response) {
+    HttpEntity entity = response.getEntity();
+    if (entity != null) {
+      try {
+        entity.consumeContent();
+      } catch (IOException ioex) {
+        LOGGER.debug("Failed to discard the response content.", ioex);
+      }
+    }
+  }
+
   /**
    * Dump the HttpResponse's header which Rest Service to return.
    * @param response
+   * @deprecated the exchanges are logged by the {@link WireLogger}
    */
+  @Deprecated
   public static void dumpHttpResponsetHeader(HttpResponse response) {
     Header[] headers = response.getAllHeaders();
     LOGGER.debug("\n\n++++++++++HEADER OF RESPONSE+++++++++++++++++++++++\n\n");
@@ -407,7 +798,9 @@ public class SocialHttpClientSupport {
    * @param response Entity to dump
    * @throws ParseException
    * @throws IOException
+   * @deprecated the exchanges are logged by the {@link WireLogger}
    */
+  @Deprecated
   public static void dumpContent(HttpResponse response) throws SocialHttpClientException {
     String responseContent = SocialHttpClientSupport.getContent(response);
     if (responseContent.length() > 0) {
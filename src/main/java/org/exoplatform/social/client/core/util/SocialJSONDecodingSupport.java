@@ -17,20 +17,23 @@
 package org.exoplatform.social.client.core.util;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
 import java.util.ArrayList;
 import java.util.LinkedHashMap;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
-import org.apache.http.util.EntityUtils;
+import org.exoplatform.social.client.api.common.ElementHandler;
 import org.exoplatform.social.client.api.model.Model;
-import org.exoplatform.social.client.api.net.SocialHttpClientException;
-import org.json.simple.JSONArray;
-import org.json.simple.JSONValue;
+import org.exoplatform.social.client.core.jfr.FlightEvent;
+import org.exoplatform.social.client.core.jfr.FlightEvents;
+import org.exoplatform.social.client.core.model.ModelFactoryRegistry;
 import org.json.simple.parser.ContainerFactory;
-import org.json.simple.parser.JSONParser;
 import org.json.simple.parser.ParseException;
 
 /**
@@ -51,25 +54,16 @@ public class SocialJSONDecodingSupport {
    * 
    */
   public static <T extends Model> T parser(final Class<T> clazz, String jsonContent) throws ParseException {
-    JSONParser parser = new JSONParser();
-    ContainerFactory containerFactory = new ContainerFactory() {
-      public List<T> creatArrayContainer() {
-        return new LinkedList<T>();
-      }
-
-      public T createObjectContainer() {
-        try {
-          return clazz.newInstance();
-        } catch (InstantiationException e) {
-          return null;
-        } catch (IllegalAccessException e) {
-          return null;
-        }
-      }
-    };
-    return (T) parser.parse(jsonContent, containerFactory);
+    FlightEvent event = FlightEvents.beginDecode();
+    T result = null;
+    try {
+      result = (T) StreamingJSONDecoder.get().decode(jsonContent, getContainerFactory(clazz));
+      return result;
+    } finally {
+      FlightEvents.commitDecode(event, clazz, result);
+    }
   }
-  
+
   /**
    * Parse JSON text into java Model object from the input source.
    * and then it's base on the class type.
@@ -81,18 +75,7 @@ public class SocialJSONDecodingSupport {
    * @throws IOException Throw this exception if any
    */
   public static <T extends Model> T parser(final Class<T> clazz, HttpResponse response) throws IOException, ParseException {
-    //Read InputStream from HttpResponse to Buffered
-    HttpEntity entity = SocialHttpClientSupport.processContent(response);
-    //Check the content length
-    if (entity.getContentLength() != -1) {
-      //getting the HttpResponse content
-      String jsonContent = EntityUtils.toString(entity);
-      //close stream
-      SocialHttpClientSupport.consume(entity);
-      return parser(clazz, jsonContent);
-    } else {
-      return null;
-    }
+    return (T) parse(response, clazz);
   }
   
   /**
@@ -102,33 +85,29 @@ public class SocialJSONDecodingSupport {
    * @throws ParseException Throw this exception if any
    */
   public static Map parser(String jsonContent) throws ParseException {
-    JSONParser parser = new JSONParser();
-    ContainerFactory containerFactory = new ContainerFactory() {
-      public List creatArrayContainer() {
-        return new LinkedList();
-      }
-
-      public Map createObjectContainer() {
-          return new LinkedHashMap();
-      }
-    };
-    return (Map) parser.parse(jsonContent, containerFactory);
+    FlightEvent event = FlightEvents.beginDecode();
+    Map result = null;
+    try {
+      result = (Map) StreamingJSONDecoder.get().decode(jsonContent, MAP_CONTAINER_FACTORY);
+      return result;
+    } finally {
+      FlightEvents.commitDecode(event, null, result);
+    }
   }
 
   /**
    * HttpResponse text into java Map object from the input source.
+   * The content is parsed while it is read from the connection.
    *  
    * @param response HttpResponse to get the content.
    * @throws ParseException Throw this exception if any
    */
   public static Map parser(HttpResponse response) throws ParseException {
-    String jsonContent = null;
     try {
-      jsonContent = SocialHttpClientSupport.getContent(response);
-    } catch (SocialHttpClientException e) {
-      throw new ParseException(0);
+      return (Map) parse(response, null);
+    } catch (IOException e) {
+      throw new ParseException(ParseException.ERROR_UNEXPECTED_EXCEPTION, e);
     }
-    return parser(jsonContent);
   }
 
   /**
@@ -142,37 +121,238 @@ public class SocialJSONDecodingSupport {
    * @throws ParseException
    */
   public static <T extends Model > List<T> JSONArrayObjectParser(final Class<T> clazz, HttpResponse response) throws IOException, ParseException{
-    //Read InputStream from HttpResponse to Buffered
-    HttpEntity entity = SocialHttpClientSupport.processContent(response);
-    //Check the content length
-    if (entity.getContentLength() != -1) {
-      //getting the HttpResponse content
-      String jsonContent = EntityUtils.toString(entity);
-      //close stream
-      SocialHttpClientSupport.consume(entity);
-      return JSONArrayObjectParser(clazz, jsonContent);
-    } else {
-      return null;
+    return (List<T>) parse(response, clazz);
+  }
+
+  /**
+   * Parses the JSON array held by a field of the JSON object of the response,
+   * for example the "activities" of an activity stream, into a list of Model objects.
+   * The content is parsed while it is read from the connection.
+   *
+   * @param <T> Generic type must extend from Model.
+   * @param clazz Class type of the array elements.
+   * @param response HttpResponse which getting the JSONContent.
+   * @param fieldName the name of the field holding the array.
+   * @return the list, null when the response has no content or no such field
+   * @throws IOException Throw this exception if any
+   * @throws ParseException Throw this exception if any
+   */
+  public static <T extends Model> List<T> JSONArrayObjectParser(final Class<T> clazz, HttpResponse response,
+                                                                String fieldName) throws IOException, ParseException {
+    FlightEvent event = FlightEvents.beginDecode();
+    List<T> result = null;
+    try {
+      Object jsonObject = read(response, getContainerFactory(clazz));
+      if (jsonObject instanceof Model) {
+        result = (List<T>) ((Model) jsonObject).getFieldAsList(fieldName);
+      }
+      return result;
+    } finally {
+      FlightEvents.commitDecode(event, clazz, result);
     }
   }
-  
+
   /**
-   * 
+   * Parses the JSON array held by a field of the JSON object of the response, for example the
+   * "activities" of an activity stream, handing each element to the handler as soon as its closing
+   * brace is read from the connection. The elements are not kept, so the memory used is bounded by the
+   * size of one element rather than by the size of the array.
+   *
+   * @param <T> Generic type must extend from Model.
+   * @param clazz Class type of the array elements.
+   * @param response HttpResponse which getting the JSONContent.
+   * @param fieldName the name of the field holding the array.
+   * @param handler the handler of the elements, called on the current thread.
+   * @return the number of elements handled
+   * @throws IOException Throw this exception if any
+   * @throws ParseException Throw this exception if any
+   */
+  public static <T extends Model> int JSONArrayObjectParser(final Class<T> clazz, HttpResponse response,
+                                                            String fieldName, final ElementHandler<? super T> handler)
+      throws IOException, ParseException {
+    FlightEvent event = FlightEvents.beginDecode();
+    final int[] count = new int[1];
+    try {
+      read(response, getContainerFactory(clazz), fieldName, new ElementHandler<Object>() {
+        public void handle(Object element) {
+          if (clazz.isInstance(element)) {
+            count[0]++;
+            handler.handle(clazz.cast(element));
+          }
+        }
+      });
+      return count[0];
+    } finally {
+      FlightEvents.commitDecode(event, clazz, count[0]);
+    }
+  }
+
+  /**
+   * Parses a JSON array into a list of Model objects, in one pass: the elements are decoded into
+   * Model objects as the array is read.
+   *
    * @author Ly Minh Phuong - http://phuonglm.net
-   * @param <T>
-   * @param clazz
-   * @param jsonArrayContent
-   * @return
+   * @param <T> Generic type must extend from Model.
+   * @param clazz Class type of the array elements.
+   * @param jsonArrayContent the JSON array.
+   * @return the list, null when the content is the JSON null
+   * @throws IOException Throw this exception if any
+   * @throws ParseException Throw this exception if any
+   */
+  public static <T extends Model > List<T> JSONArrayObjectParser(final Class<T> clazz, String jsonArrayContent) throws IOException, ParseException{
+    FlightEvent event = FlightEvents.beginDecode();
+    List<T> result = null;
+    try {
+      result = (List<T>) StreamingJSONDecoder.get().decode(jsonArrayContent, getContainerFactory(clazz));
+      return result;
+    } finally {
+      FlightEvents.commitDecode(event, clazz, result);
+    }
+  }
+
+  /**
+   * Parses the JSON array held by a field of a JSON object, for example the "activities" of an
+   * activity stream, into a list of Model objects, in one pass.
+   *
+   * @param <T> Generic type must extend from Model.
+   * @param clazz Class type of the array elements.
+   * @param jsonContent the JSON object.
+   * @param fieldName the name of the field holding the array.
+   * @return the list, null when the object has no such field
+   * @throws ParseException Throw this exception if any
+   */
+  public static <T extends Model> List<T> JSONArrayObjectParser(final Class<T> clazz, String jsonContent,
+                                                                String fieldName) throws ParseException {
+    FlightEvent event = FlightEvents.beginDecode();
+    List<T> result = null;
+    try {
+      Object jsonObject = StreamingJSONDecoder.get().decode(jsonContent, getContainerFactory(clazz));
+      if (jsonObject instanceof Model) {
+        result = (List<T>) ((Model) jsonObject).getFieldAsList(fieldName);
+      }
+      return result;
+    } finally {
+      FlightEvents.commitDecode(event, clazz, result);
+    }
+  }
+
+  /**
+   * Parses the content of the response into models of the given class, or into maps, and emits its
+   * flight recorder event.
+   *
+   * @param response the response
+   * @param clazz the model class, null for maps
+   * @return the parsed value, null when the response has no content
    * @throws IOException
    * @throws ParseException
    */
-  public static <T extends Model > List<T> JSONArrayObjectParser(final Class<T> clazz, String jsonArrayContent) throws IOException, ParseException{
-    JSONArray jsonResultArray = (JSONArray)JSONValue.parse(jsonArrayContent);
-    List<T> result = new ArrayList<T>();
-    for (Object jsonObject : jsonResultArray) {
-      String jsonString = jsonObject.toString();
-      result.add(parser(clazz,jsonString));
+  private static Object parse(HttpResponse response, Class<? extends Model> clazz) throws IOException, ParseException {
+    FlightEvent event = FlightEvents.beginDecode();
+    Object result = null;
+    try {
+      result = read(response, clazz == null ? MAP_CONTAINER_FACTORY : getContainerFactory(clazz));
+      return result;
+    } finally {
+      FlightEvents.commitDecode(event, clazz, result);
+    }
+  }
+
+  /**
+   * Parses the content of the response straight from the entity stream, without buffering it,
+   * so that chunked contents are supported. The stream is closed once the last token is read,
+   * which gives the connection back to the pool.
+   *
+   * @param response the response
+   * @param containerFactory the factory of the JSON objects and arrays
+   * @return the parsed value, null when the response has no content
+   * @throws IOException
+   * @throws ParseException
+   */
+  private static Object read(HttpResponse response, ContainerFactory containerFactory) throws IOException, ParseException {
+    return read(response, containerFactory, null, null);
+  }
+
+  /**
+   * Parses the content of the response straight from the entity stream, handing the elements of the
+   * array held by a field of its top-level object to a handler.
+   *
+   * @param response the response
+   * @param containerFactory the factory of the JSON objects and arrays
+   * @param fieldName the name of the field holding the array
+   * @param handler the handler of the array elements, null to keep them in the parsed value
+   * @return the parsed value, null when the response has no content
+   * @throws IOException
+   * @throws ParseException
+   */
+  private static Object read(HttpResponse response, ContainerFactory containerFactory, String fieldName,
+                             ElementHandler<Object> handler) throws IOException, ParseException {
+    if (response == null) {
+      throw new NullPointerException("HttpResponse argument is not NULL.");
+    }
+    HttpEntity entity = response.getEntity();
+    if (entity == null) {
+      return null;
+    }
+    InputStream in = entity.getContent();
+    if (in == null) {
+      return null;
+    }
+    try {
+      Reader reader = new InputStreamReader(in, SocialHttpClientSupport.getContentCharset(entity));
+      if (handler == null) {
+        return StreamingJSONDecoder.get().decode(reader, containerFactory);
+      }
+      return StreamingJSONDecoder.get().decode(reader, containerFactory, fieldName, handler);
+    } finally {
+      in.close();
     }
-    return result;
   }
+
+  /**
+   * Gets the container factory which makes every JSON object an instance of the given model class,
+   * created once by class.
+   *
+   * @param clazz the model class
+   * @return the container factory
+   */
+  private static <T extends Model> ContainerFactory getContainerFactory(Class<T> clazz) {
+    ContainerFactory containerFactory = CONTAINER_FACTORIES.get(clazz);
+    if (containerFactory == null) {
+      containerFactory = createContainerFactory(clazz);
+      CONTAINER_FACTORIES.putIfAbsent(clazz, containerFactory);
+    }
+    return containerFactory;
+  }
+
+  /**
+   * Creates the container factory which makes every JSON object a model of the given interface or class,
+   * from its {@link ModelFactoryRegistry} factory.
+   *
+   * @param clazz the model class
+   * @return the container factory
+   */
+  private static <T extends Model> ContainerFactory createContainerFactory(final Class<T> clazz) {
+    return new ContainerFactory() {
+      public List<T> creatArrayContainer() {
+        return new ArrayList<T>();
+      }
+
+      public T createObjectContainer() {
+        return ModelFactoryRegistry.newInstance(clazz);
+      }
+    };
+  }
+
+  private static final ConcurrentMap<Class<?>, ContainerFactory> CONTAINER_FACTORIES =
+      new ConcurrentHashMap<Class<?>, ContainerFactory>();
+
+  private static final ContainerFactory MAP_CONTAINER_FACTORY = new ContainerFactory() {
+    public List creatArrayContainer() {
+      return new ArrayList();
+    }
+
+    public Map createObjectContainer() {
+      return new LinkedHashMap();
+    }
+  };
 }
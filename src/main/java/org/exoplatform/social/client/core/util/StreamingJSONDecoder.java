@@ -0,0 +1,625 @@
+/*
+ * Copyright (C) 2003-2011 eXo Platform SAS.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.exoplatform.social.client.core.util;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.List;
+import java.util.Map;
+
+import org.exoplatform.social.client.api.common.ElementHandler;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.ContainerFactory;
+import org.json.simple.parser.ParseException;
+import org.json.simple.parser.Yytoken;
+
+/**
+ * Decodes a JSON content in one pass, pulling its tokens from a reader as they are needed, into the
+ * objects and arrays of a {@link ContainerFactory}.
+ * <p>
+ * It accepts the same contents and gives the same values as the json-simple {@link
+ * org.json.simple.parser.JSONParser}: commas and colons are optional separators, an unknown escape
+ * sequence is kept as it is, integers are {@link Long}s and other numbers {@link Double}s, and a malformed
+ * content fails with the same {@link ParseException}. Its buffers are kept by each thread, see
+ * {@link #get()}, and the field names are shared between the decoded objects instead of being copied.
+ */
+public final class StreamingJSONDecoder {
+
+  private static final int BUFFER_SIZE = 4096;
+
+  /**
+   * The size above which the string buffer is not kept for the next decoding.
+   */
+  private static final int MAX_KEPT_STRING_SIZE = 16 * 1024;
+
+  private static final int KEY_CACHE_SIZE = 256;
+
+  private static final int MAX_CACHED_KEY_LENGTH = 32;
+
+  private static final ThreadLocal<StreamingJSONDecoder> DECODERS = new ThreadLocal<StreamingJSONDecoder>() {
+    @Override
+    protected StreamingJSONDecoder initialValue() {
+      return new StreamingJSONDecoder();
+    }
+  };
+
+  private static final ContainerFactory DEFAULT_CONTAINER_FACTORY = new ContainerFactory() {
+    public List creatArrayContainer() {
+      return new JSONArray();
+    }
+
+    public Map createObjectContainer() {
+      return new JSONObject();
+    }
+  };
+
+  private final char[] buffer = new char[BUFFER_SIZE];
+
+  private final String[] keyCache = new String[KEY_CACHE_SIZE];
+
+  private StringBuilder chars = new StringBuilder();
+
+  private Reader reader;
+
+  private ContainerFactory containerFactory;
+
+  private int position;
+
+  private int limit;
+
+  /**
+   * The number of chars read before the buffer.
+   */
+  private int consumed;
+
+  /**
+   * The position of the last token, counted from the start of the content.
+   */
+  private int tokenStart;
+
+  /**
+   * The value of the last {@link Yytoken#TYPE_VALUE} token.
+   */
+  private Object value;
+
+  private boolean decoding;
+
+  /**
+   * The field of the top-level object whose array elements are handed to {@link #elementHandler}.
+   */
+  private String streamedField;
+
+  private ElementHandler<Object> elementHandler;
+
+  /**
+   * Gets the decoder of the current thread. A decoding started while another one is running on the
+   * thread, from a container factory for example, gets a new decoder.
+   *
+   * @return the decoder
+   */
+  public static StreamingJSONDecoder get() {
+    StreamingJSONDecoder decoder = DECODERS.get();
+    return decoder.decoding ? new StreamingJSONDecoder() : decoder;
+  }
+
+  /**
+   * Decodes a JSON content.
+   *
+   * @param json             the content
+   * @param containerFactory creates the objects and arrays, null for {@link JSONObject}s and {@link JSONArray}s
+   * @return the decoded value
+   * @throws ParseException when the content is malformed
+   */
+  public Object decode(String json, ContainerFactory containerFactory) throws ParseException {
+    try {
+      if (json.length() <= buffer.length) {
+        json.getChars(0, json.length(), buffer, 0);
+        return decode(null, json.length(), containerFactory);
+      }
+      return decode(new StringReader(json), 0, containerFactory);
+    } catch (IOException e) {
+      throw new ParseException(ParseException.ERROR_UNEXPECTED_EXCEPTION, e);
+    }
+  }
+
+  /**
+   * Decodes a JSON content while it is read. The reader is not closed.
+   *
+   * @param reader           the content
+   * @param containerFactory creates the objects and arrays, null for {@link JSONObject}s and {@link JSONArray}s
+   * @return the decoded value
+   * @throws IOException    when the content cannot be read
+   * @throws ParseException when the content is malformed
+   */
+  public Object decode(Reader reader, ContainerFactory containerFactory) throws IOException, ParseException {
+    return decode(reader, 0, containerFactory);
+  }
+
+  /**
+   * Decodes a JSON object while it is read, handing each element of the array held by one of its fields
+   * to a handler as soon as the element is decoded. The handled elements are not kept: the field holds an
+   * empty array in the decoded object. The reader is not closed.
+   *
+   * @param reader           the content
+   * @param containerFactory creates the objects and arrays, null for {@link JSONObject}s and {@link JSONArray}s
+   * @param fieldName        the name of the field of the top-level object holding the array
+   * @param handler          the handler of the array elements
+   * @return the decoded value
+   * @throws IOException    when the content cannot be read
+   * @throws ParseException when the content is malformed
+   */
+  public Object decode(Reader reader, ContainerFactory containerFactory, String fieldName,
+                       ElementHandler<Object> handler) throws IOException, ParseException {
+    streamedField = fieldName;
+    elementHandler = handler;
+    return decode(reader, 0, containerFactory);
+  }
+
+  private Object decode(Reader newReader, int length, ContainerFactory newContainerFactory)
+      throws IOException, ParseException {
+    decoding = true;
+    reader = newReader;
+    containerFactory = newContainerFactory == null ? DEFAULT_CONTAINER_FACTORY : newContainerFactory;
+    position = 0;
+    limit = length;
+    consumed = 0;
+    try {
+      int token = nextToken(false);
+      Object result = token == Yytoken.TYPE_LEFT_BRACE ? readObject(streamedField) : readValue(token);
+      token = nextToken(false);
+      if (token != Yytoken.TYPE_EOF) {
+        throw unexpectedToken(token);
+      }
+      return result;
+    } finally {
+      reader = null;
+      containerFactory = null;
+      streamedField = null;
+      elementHandler = null;
+      value = null;
+      if (chars.capacity() > MAX_KEPT_STRING_SIZE) {
+        chars = new StringBuilder();
+      }
+      decoding = false;
+    }
+  }
+
+  private Object readValue(int token) throws IOException, ParseException {
+    switch (token) {
+      case Yytoken.TYPE_VALUE:
+        return value;
+      case Yytoken.TYPE_LEFT_BRACE:
+        return readObject(null);
+      case Yytoken.TYPE_LEFT_SQUARE:
+        return readArray();
+      default:
+        throw unexpectedToken(token);
+    }
+  }
+
+  /**
+   * Reads an object, after its opening brace.
+   *
+   * @param arrayField the field whose array elements are handed to {@link #elementHandler}, can be null
+   */
+  private Map readObject(String arrayField) throws IOException, ParseException {
+    Map object = containerFactory.createObjectContainer();
+    if (object == null) {
+      object = new JSONObject();
+    }
+    while (true) {
+      int token = nextToken(true);
+      if (token == Yytoken.TYPE_COMMA) {
+        continue;
+      }
+      if (token == Yytoken.TYPE_RIGHT_BRACE) {
+        return object;
+      }
+      if (token != Yytoken.TYPE_VALUE || !(value instanceof String)) {
+        throw unexpectedToken(token);
+      }
+      String key = (String) value;
+      do {
+        token = nextToken(false);
+      } while (token == Yytoken.TYPE_COLON);
+      if (token == Yytoken.TYPE_LEFT_SQUARE && key.equals(arrayField)) {
+        object.put(key, readStreamedArray());
+      } else {
+        object.put(key, readValue(token));
+      }
+    }
+  }
+
+  private List readArray() throws IOException, ParseException {
+    List array = containerFactory.creatArrayContainer();
+    if (array == null) {
+      array = new JSONArray();
+    }
+    while (true) {
+      int token = nextToken(false);
+      if (token == Yytoken.TYPE_COMMA) {
+        continue;
+      }
+      if (token == Yytoken.TYPE_RIGHT_SQUARE) {
+        return array;
+      }
+      array.add(readValue(token));
+    }
+  }
+
+  /**
+   * Reads an array, after its opening square bracket, handing each element to {@link #elementHandler}.
+   *
+   * @return an empty array
+   */
+  private List readStreamedArray() throws IOException, ParseException {
+    List array = containerFactory.creatArrayContainer();
+    if (array == null) {
+      array = new JSONArray();
+    }
+    while (true) {
+      int token = nextToken(false);
+      if (token == Yytoken.TYPE_COMMA) {
+        continue;
+      }
+      if (token == Yytoken.TYPE_RIGHT_SQUARE) {
+        return array;
+      }
+      elementHandler.handle(readValue(token));
+    }
+  }
+
+  /**
+   * Reads the next token.
+   *
+   * @param key true if the token is expected to be a field name
+   * @return the token type, the value of a {@link Yytoken#TYPE_VALUE} is in {@link #value}
+   */
+  private int nextToken(boolean key) throws IOException, ParseException {
+    int c;
+    do {
+      if (position == limit && !fill()) {
+        tokenStart = consumed + position;
+        return Yytoken.TYPE_EOF;
+      }
+      c = buffer[position++];
+    } while (c == ' ' || c == '\n' || c == '\r' || c == '\t');
+    tokenStart = consumed + position - 1;
+    switch (c) {
+      case '{':
+        return Yytoken.TYPE_LEFT_BRACE;
+      case '}':
+        return Yytoken.TYPE_RIGHT_BRACE;
+      case '[':
+        return Yytoken.TYPE_LEFT_SQUARE;
+      case ']':
+        return Yytoken.TYPE_RIGHT_SQUARE;
+      case ',':
+        return Yytoken.TYPE_COMMA;
+      case ':':
+        return Yytoken.TYPE_COLON;
+      case '"':
+        String string = readString(key);
+        //as json-simple: a string is at its closing quote, an unterminated string ends the content
+        tokenStart = consumed + position - (string == null ? 0 : 1);
+        if (string == null) {
+          return Yytoken.TYPE_EOF;
+        }
+        value = string;
+        return Yytoken.TYPE_VALUE;
+      case 't':
+        value = readLiteral("true", Boolean.TRUE);
+        return Yytoken.TYPE_VALUE;
+      case 'f':
+        value = readLiteral("false", Boolean.FALSE);
+        return Yytoken.TYPE_VALUE;
+      case 'n':
+        value = readLiteral("null", null);
+        return Yytoken.TYPE_VALUE;
+      default:
+        if (c == '-' || (c >= '0' && c <= '9')) {
+          value = readNumber(c);
+          return Yytoken.TYPE_VALUE;
+        }
+        throw unexpectedChar((char) c);
+    }
+  }
+
+  /**
+   * Reads a string, after its opening quote.
+   *
+   * @param key true if the string is expected to be a field name
+   * @return the string, null if the content ends before its closing quote
+   */
+  private String readString(boolean key) throws IOException {
+    //fast path: the string is in the buffer and has no escape sequence
+    for (int i = position; i < limit; i++) {
+      char c = buffer[i];
+      if (c == '"') {
+        int start = position;
+        position = i + 1;
+        return key ? toKey(start, i - start) : new String(buffer, start, i - start);
+      }
+      if (c == '\\') {
+        break;
+      }
+    }
+    StringBuilder string = chars;
+    string.setLength(0);
+    while (true) {
+      if (position == limit && !fill()) {
+        return null;
+      }
+      char c = buffer[position++];
+      if (c == '"') {
+        return string.toString();
+      }
+      if (c != '\\') {
+        string.append(c);
+        continue;
+      }
+      if (position == limit && !fill()) {
+        return null;
+      }
+      c = buffer[position];
+      switch (c) {
+        case '"':
+        case '\\':
+        case '/':
+          string.append(c);
+          position++;
+          break;
+        case 'b':
+          string.append('\b');
+          position++;
+          break;
+        case 'f':
+          string.append('\f');
+          position++;
+          break;
+        case 'n':
+          string.append('\n');
+          position++;
+          break;
+        case 'r':
+          string.append('\r');
+          position++;
+          break;
+        case 't':
+          string.append('\t');
+          position++;
+          break;
+        case 'u':
+          int unicode = readUnicodeEscape();
+          if (unicode >= 0) {
+            string.append((char) unicode);
+          } else {
+            //not an escape sequence, kept as it is
+            string.append('\\');
+          }
+          break;
+        default:
+          //not an escape sequence, kept as it is
+          string.append('\\');
+      }
+    }
+  }
+
+  /**
+   * Reads the 4 hexadecimal digits after <code>\\u</code>, the buffer being at the <code>u</code>.
+   *
+   * @return the char, -1 if they are not 4 hexadecimal digits, the buffer is then not moved
+   */
+  private int readUnicodeEscape() throws IOException {
+    if (limit - position < 5) {
+      compact();
+      while (limit - position < 5) {
+        if (!fillMore()) {
+          break;
+        }
+      }
+    }
+    if (limit - position < 5) {
+      return -1;
+    }
+    int unicode = 0;
+    for (int i = 1; i <= 4; i++) {
+      int digit = Character.digit(buffer[position + i], 16);
+      if (digit < 0) {
+        return -1;
+      }
+      unicode = (unicode << 4) | digit;
+    }
+    position += 5;
+    return unicode;
+  }
+
+  private Object readNumber(int first) throws IOException, ParseException {
+    StringBuilder number = chars;
+    number.setLength(0);
+    number.append((char) first);
+    boolean negative = first == '-';
+    long integer = negative ? 0 : first - '0';
+    int digits = negative ? 0 : 1;
+    while (peekDigit()) {
+      char c = buffer[position++];
+      number.append(c);
+      integer = integer * 10 + (c - '0');
+      digits++;
+    }
+    if (digits == 0) {
+      //a minus sign alone
+      throw unexpectedChar('-');
+    }
+    boolean decimal = false;
+    if (peek() == '.' && peekDigitAt(1)) {
+      decimal = true;
+      number.append(buffer[position++]);
+      while (peekDigit()) {
+        number.append(buffer[position++]);
+      }
+    }
+    int exponent = peek();
+    if (exponent == 'e' || exponent == 'E') {
+      int sign = peekAt(1);
+      int offset = sign == '+' || sign == '-' ? 2 : 1;
+      if (peekDigitAt(offset)) {
+        decimal = true;
+        for (int i = 0; i < offset; i++) {
+          number.append(buffer[position++]);
+        }
+        while (peekDigit()) {
+          number.append(buffer[position++]);
+        }
+      }
+    }
+    if (decimal) {
+      return Double.valueOf(number.toString());
+    }
+    if (digits > 18) {
+      //may overflow, fails as the json-simple parser does
+      return Long.valueOf(number.toString());
+    }
+    return Long.valueOf(negative ? -integer : integer);
+  }
+
+  private Object readLiteral(String literal, Object literalValue) throws IOException, ParseException {
+    for (int i = 1; i < literal.length(); i++) {
+      if (peekAt(i - 1) != literal.charAt(i)) {
+        throw unexpectedChar(literal.charAt(0));
+      }
+    }
+    position += literal.length() - 1;
+    return literalValue;
+  }
+
+  private boolean peekDigit() throws IOException {
+    return peekDigitAt(0);
+  }
+
+  private boolean peekDigitAt(int offset) throws IOException {
+    int c = peekAt(offset);
+    return c >= '0' && c <= '9';
+  }
+
+  private int peek() throws IOException {
+    return peekAt(0);
+  }
+
+  /**
+   * Gets a char after the current position without moving to it.
+   *
+   * @param offset the offset from the current position
+   * @return the char, -1 at the end of the content
+   */
+  private int peekAt(int offset) throws IOException {
+    if (position + offset >= limit) {
+      compact();
+      while (position + offset >= limit) {
+        if (!fillMore()) {
+          return -1;
+        }
+      }
+    }
+    return buffer[position + offset];
+  }
+
+  /**
+   * Gets a field name, the same instance for the same name.
+   */
+  private String toKey(int start, int length) {
+    if (length > MAX_CACHED_KEY_LENGTH) {
+      return new String(buffer, start, length);
+    }
+    int hash = 0;
+    for (int i = start; i < start + length; i++) {
+      hash = 31 * hash + buffer[i];
+    }
+    int slot = (hash ^ (hash >>> 16)) & (KEY_CACHE_SIZE - 1);
+    String cached = keyCache[slot];
+    if (cached != null && cached.length() == length) {
+      boolean same = true;
+      for (int i = 0; i < length; i++) {
+        if (cached.charAt(i) != buffer[start + i]) {
+          same = false;
+          break;
+        }
+      }
+      if (same) {
+        return cached;
+      }
+    }
+    String key = new String(buffer, start, length);
+    keyCache[slot] = key;
+    return key;
+  }
+
+  /**
+   * Reads the next chars into the empty buffer.
+   *
+   * @return false at the end of the content
+   */
+  private boolean fill() throws IOException {
+    if (reader == null) {
+      return false;
+    }
+    consumed += limit;
+    position = 0;
+    limit = 0;
+    return fillMore();
+  }
+
+  /**
+   * Moves the remaining chars to the start of the buffer, to read more after them.
+   */
+  private void compact() {
+    if (position > 0 && reader != null) {
+      System.arraycopy(buffer, position, buffer, 0, limit - position);
+      consumed += position;
+      limit -= position;
+      position = 0;
+    }
+  }
+
+  /**
+   * Reads more chars after the remaining ones.
+   *
+   * @return false at the end of the content or when the buffer is full
+   */
+  private boolean fillMore() throws IOException {
+    if (reader == null || limit == buffer.length) {
+      return false;
+    }
+    int read = reader.read(buffer, limit, buffer.length - limit);
+    if (read <= 0) {
+      return false;
+    }
+    limit += read;
+    return true;
+  }
+
+  private ParseException unexpectedChar(char c) {
+    return new ParseException(tokenStart, ParseException.ERROR_UNEXPECTED_CHAR, Character.valueOf(c));
+  }
+
+  private ParseException unexpectedToken(int token) {
+    Object tokenValue = token == Yytoken.TYPE_VALUE ? value : null;
+    return new ParseException(tokenStart, ParseException.ERROR_UNEXPECTED_TOKEN, new Yytoken(token, tokenValue));
+  }
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright (C) 2003-2011 eXo Platform SAS.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.exoplatform.social.client.core.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A JSON content decoded into models.
+ */
+@Name("org.exoplatform.social.client.JSONDecode")
+@Label("JSON Decode")
+@Category({"eXo Social Client", "JSON"})
+@Description("A JSON content decoded into models, including the reads of a response content")
+public class DecodeEvent extends jdk.jfr.Event implements FlightEvent {
+
+  @Label("Model Class")
+  Class<?> modelClass;
+
+  @Label("Element Count")
+  @Description("The number of elements of the decoded array, 1 for an object")
+  int elementCount;
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright (C) 2003-2011 eXo Platform SAS.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.exoplatform.social.client.core.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * A request to the rest services, from sending it to reading its response content to its end.
+ */
+@Name("org.exoplatform.social.client.HttpExchange")
+@Label("HTTP Exchange")
+@Category({"eXo Social Client", "HTTP"})
+@Description("A request to the social rest services, from sending it to reading its response content")
+@StackTrace(false)
+public class HttpExchangeEvent extends jdk.jfr.Event implements FlightEvent {
+
+  @Label("Method")
+  String method;
+
+  @Label("Endpoint Template")
+  @Description("The path relative to the rest api, its variable segments replaced by {id}")
+  String template;
+
+  @Label("Status")
+  int status;
+
+  @Label("Bytes Out")
+  @DataAmount
+  long bytesOut;
+
+  @Label("Bytes In")
+  @DataAmount
+  long bytesIn;
+
+  @Label("Trace Id")
+  String traceId;
+
+  @Label("Failure")
+  String failure;
+}
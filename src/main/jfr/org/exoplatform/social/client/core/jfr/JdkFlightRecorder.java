@@ -0,0 +1,110 @@
+/*
+ * Copyright (C) 2003-2011 eXo Platform SAS.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.exoplatform.social.client.core.jfr;
+
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+import org.exoplatform.social.client.api.SocialClientContext.Context;
+import org.exoplatform.social.client.core.net.RequestMetrics;
+
+/**
+ * Emits the events through <code>jdk.jfr</code>, loaded by {@link FlightEvents} when it is available.
+ */
+class JdkFlightRecorder implements FlightRecorder {
+
+  @Override
+  public FlightEvent beginExchange() {
+    HttpExchangeEvent event = new HttpExchangeEvent();
+    if (!event.isEnabled()) {
+      return null;
+    }
+    event.begin();
+    return event;
+  }
+
+  @Override
+  public void commitExchange(FlightEvent flightEvent, Context context, long bytesOut, long bytesIn) {
+    HttpExchangeEvent event = (HttpExchangeEvent) flightEvent;
+    event.end();
+    if (!event.shouldCommit()) {
+      return;
+    }
+    HttpRequest request = context.getRequest();
+    event.method = request.getRequestLine().getMethod();
+    event.template = RequestMetrics.getTemplate(request.getRequestLine().getUri());
+    event.bytesOut = bytesOut;
+    HttpResponse response = context.getResponse();
+    if (response != null) {
+      event.status = response.getStatusLine().getStatusCode();
+    }
+    event.bytesIn = bytesIn;
+    event.traceId = context.getTraceId();
+    if (context.getFailure() != null) {
+      event.failure = context.getFailure().toString();
+    }
+    event.commit();
+  }
+
+  @Override
+  public FlightEvent beginDecode() {
+    DecodeEvent event = new DecodeEvent();
+    if (!event.isEnabled()) {
+      return null;
+    }
+    event.begin();
+    return event;
+  }
+
+  @Override
+  public void commitDecode(FlightEvent flightEvent, Class<?> modelClass, int elementCount) {
+    DecodeEvent event = (DecodeEvent) flightEvent;
+    event.end();
+    if (!event.shouldCommit()) {
+      return;
+    }
+    event.modelClass = modelClass;
+    event.elementCount = elementCount;
+    event.commit();
+  }
+
+  @Override
+  public FlightEvent beginOperation() {
+    ServiceOperationEvent event = new ServiceOperationEvent();
+    if (!event.isEnabled()) {
+      return null;
+    }
+    event.begin();
+    return event;
+  }
+
+  @Override
+  public void commitOperation(FlightEvent flightEvent, Object service, String operation, Object model,
+                              Throwable failure) {
+    ServiceOperationEvent event = (ServiceOperationEvent) flightEvent;
+    event.end();
+    if (!event.shouldCommit()) {
+      return;
+    }
+    event.serviceClass = service.getClass();
+    event.operation = operation;
+    event.modelClass = model == null ? null : model.getClass();
+    if (failure != null) {
+      event.failure = failure.toString();
+    }
+    event.commit();
+  }
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright (C) 2003-2011 eXo Platform SAS.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.exoplatform.social.client.core.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A call of a service method, with the requests it sends and the decoding of their responses.
+ */
+@Name("org.exoplatform.social.client.ServiceOperation")
+@Label("Service Operation")
+@Category({"eXo Social Client", "Service"})
+@Description("A call of a service method, with the requests it sends and the decoding of their responses")
+public class ServiceOperationEvent extends jdk.jfr.Event implements FlightEvent {
+
+  @Label("Service Class")
+  Class<?> serviceClass;
+
+  @Label("Operation")
+  @Description("The name of the service method")
+  String operation;
+
+  @Label("Model Class")
+  Class<?> modelClass;
+
+  @Label("Failure")
+  String failure;
+}
@@ -16,17 +16,26 @@
  */
 package org.exoplatform.social.client.core;
 
+import java.io.IOException;
+
+import com.sun.net.httpserver.HttpExchange;
+import org.apache.http.HttpResponse;
 import org.exoplatform.social.client.api.ClientServiceFactory;
 import org.exoplatform.social.client.api.SocialClientContext;
 import org.exoplatform.social.client.api.SocialClientContext.SupportedVersion;
 import org.exoplatform.social.client.api.service.ActivityService;
+import org.exoplatform.social.client.api.net.SocialHttpClient.POLICY;
 import org.exoplatform.social.client.api.service.IdentityService;
+import org.exoplatform.social.client.core.net.EndpointPool;
+import org.exoplatform.social.client.core.net.MockSocialServer;
+import org.exoplatform.social.client.core.net.SocialHttpClientImpl;
 import org.exoplatform.social.client.core.service.ActivityServiceImplV1Alpha1;
 import org.exoplatform.social.client.core.service.ActivityServiceImplV1Alpha2;
 import org.exoplatform.social.client.core.service.ActivityServiceImplV1Alpha3;
 import org.exoplatform.social.client.core.service.IdentityServiceImplV1Alpha1;
 import org.exoplatform.social.client.core.service.IdentityServiceImplV1Alpha2;
 import org.exoplatform.social.client.core.service.IdentityServiceImplV1Alpha3;
+import org.exoplatform.social.client.core.util.SocialHttpClientSupport;
 import org.testng.annotations.Test;
 
 import static org.hamcrest.MatcherAssert.assertThat;
@@ -92,5 +101,46 @@ public class ClientServiceFactoryHelperTest {
                equalTo(true));
   }
 
+  @Test
+  public void shouldWarmUpVersionAndConnections() throws Exception {
+    MockSocialServer server = new MockSocialServer();
+    server.setResponder(new MockSocialServer.Responder() {
+      @Override
+      public void respond(HttpExchange exchange, byte[] requestBody) throws IOException {
+        if (exchange.getRequestURI().getPath().endsWith("/supported.json")) {
+          MockSocialServer.json(200, "{\"versions\":[\"v1-alpha1\",\"v1-alpha2\"]}").respond(exchange, requestBody);
+        } else {
+          MockSocialServer.json(200, "{\"version\":\"v1-alpha2\"}").respond(exchange, requestBody);
+        }
+      }
+    });
+    server.configureContext();
+    SocialClientContext.setRestVersion(SupportedVersion.V1_ALPHA3.toString());
+    SocialClientContext.setWarmUpConnections(3);
+    try {
+      String restVersion = ClientServiceFactoryHelper.warmUp();
+      assertThat(restVersion, equalTo(SupportedVersion.V1_ALPHA2.toString()));
+      assertThat(SocialClientContext.getRestVersion(), equalTo(restVersion));
+      assertThat(ClientServiceFactoryHelper.getClientServiceFactory().createActivityService()
+                 instanceof ActivityServiceImplV1Alpha2, equalTo(true));
+      assertThat(server.getRequestCount(), equalTo(4));
+      assertThat(server.getConnectionCount(), equalTo(3));
 
+      //served on a warm connection
+      HttpResponse response = SocialHttpClientSupport.executeGet("/rest-socialdemo/api/social/version/latest.json",
+                                                                 POLICY.NO_AUTH);
+      SocialHttpClientSupport.getContent(response);
+      assertThat(server.getConnectionCount(), equalTo(3));
+    } finally {
+      SocialHttpClientImpl.shutdownInstance();
+      EndpointPool.reset();
+      server.stop();
+      SocialClientContext.setWarmUpConnections(4);
+      SocialClientContext.setRestVersion(SupportedVersion.V1_ALPHA3.toString());
+      SocialClientContext.setHost(null);
+      SocialClientContext.setPort(0);
+      SocialClientContext.setPortalContainerName(null);
+      SocialClientContext.setRestContextName(null);
+    }
+  }
 }
@@ -0,0 +1,134 @@
+/*
+ * Copyright (C) 2003-2011 eXo Platform SAS.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.exoplatform.social.client.core.jmx;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.TabularData;
+
+import com.sun.net.httpserver.HttpExchange;
+import org.exoplatform.social.client.api.ClientServiceFactory;
+import org.exoplatform.social.client.api.SocialClientContext;
+import org.exoplatform.social.client.api.SocialClientLibException;
+import org.exoplatform.social.client.core.ClientServiceFactoryHelper;
+import org.exoplatform.social.client.core.net.MockSocialServer;
+import org.exoplatform.social.client.core.net.SocialHttpClientImpl;
+import org.exoplatform.social.client.core.service.ActivityServiceImplV1Alpha3;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+/**
+ * Unit Test for {@link SocialClientMBeans}, reading the MBeans from the platform MBean server.
+ */
+public class SocialClientMBeansTest {
+
+  private static final String ACTIVITY = "{\"id\":\"a1\",\"title\":\"Hello\",\"identityId\":\"i1\"}";
+
+  private MockSocialServer server;
+
+  private MBeanServer mbeanServer;
+
+  @BeforeMethod
+  public void setUp() throws Exception {
+    server = new MockSocialServer();
+    server.configureContext();
+    server.setResponder(new MockSocialServer.Responder() {
+      @Override
+      public void respond(HttpExchange exchange, byte[] requestBody) throws IOException {
+        boolean missing = exchange.getRequestURI().getPath().contains("missing");
+        MockSocialServer.json(missing ? 404 : 200, missing ? "{}" : ACTIVITY).respond(exchange, requestBody);
+      }
+    });
+    SocialClientContext.setUsername("demo");
+    SocialClientContext.setPassword("gtn");
+    SocialHttpClientImpl.shutdownInstance();
+    SocialClientMBeans.register();
+    mbeanServer = ManagementFactory.getPlatformMBeanServer();
+    mbeanServer.invoke(new ObjectName(SocialClientMBeans.REQUESTS), "resetMetrics", null, null);
+  }
+
+  @AfterMethod
+  public void tearDown() {
+    SocialHttpClientImpl.shutdownInstance();
+    SocialClientContext.setUsername(null);
+    SocialClientContext.setPassword(null);
+    server.stop();
+  }
+
+  @Test
+  public void shouldExposeTheRequestsAndThePool() throws Exception {
+    ActivityServiceImplV1Alpha3 service = new ActivityServiceImplV1Alpha3();
+    service.get("a1");
+    try {
+      service.get("missing");
+      fail("Expected a 404");
+    } catch (SocialClientLibException e) {
+      //expected
+    }
+
+    ObjectName requests = new ObjectName(SocialClientMBeans.REQUESTS);
+    assertEquals(mbeanServer.getAttribute(requests, "HandledCount"), 2L);
+    assertEquals(mbeanServer.getAttribute(requests, "NotFoundCount"), 1L);
+    assertEquals(mbeanServer.getAttribute(requests, "ErrorRate"), 0.5);
+    assertEquals(mbeanServer.getAttribute(requests, "InFlight"), 0L);
+    TabularData inFlight = (TabularData) mbeanServer.getAttribute(requests, "InFlightByService");
+    assertEquals(inFlight.get(new Object[] {"ActivityService"}).get("value"), 0L);
+
+    ObjectName pool = new ObjectName(SocialClientMBeans.CONNECTION_POOL);
+    assertEquals(mbeanServer.getAttribute(pool, "Leased"), 0);
+    assertEquals(mbeanServer.getAttribute(pool, "Available"), 1);
+    TabularData routes = (TabularData) mbeanServer.getAttribute(pool, "AvailableByRoute");
+    CompositeData route = routes.get(new Object[] {"http://127.0.0.1:" + server.getPort()});
+    assertNotNull(route, routes.toString());
+    assertEquals(route.get("value"), 1);
+
+    mbeanServer.invoke(pool, "drain", null, null);
+    assertEquals(mbeanServer.getAttribute(pool, "Available"), 0);
+    assertTrue(((TabularData) mbeanServer.getAttribute(pool, "AvailableByRoute")).isEmpty());
+  }
+
+  @Test
+  public void shouldExposeTheServices() throws Exception {
+    ClientServiceFactory factory = ClientServiceFactoryHelper.getClientServiceFactory();
+    ActivityServiceImplV1Alpha3 service = new ActivityServiceImplV1Alpha3();
+    service.start();
+    String name = "ActivityServiceImplV1Alpha3@" + Integer.toHexString(System.identityHashCode(service));
+
+    ObjectName services = new ObjectName(SocialClientMBeans.SERVICES);
+    assertEquals(mbeanServer.getAttribute(services, "RestVersion"), SocialClientContext.getRestVersion());
+    TabularData states = (TabularData) mbeanServer.getAttribute(services, "ServiceStates");
+    assertEquals(states.get(new Object[] {name}).get("value"), Boolean.TRUE);
+
+    service.stop();
+    states = (TabularData) mbeanServer.getAttribute(services, "ServiceStates");
+    assertEquals(states.get(new Object[] {name}).get("value"), Boolean.FALSE);
+
+    mbeanServer.invoke(services, "flushCaches", null, null);
+    assertNotSame(ClientServiceFactoryHelper.getClientServiceFactory(), factory);
+  }
+}
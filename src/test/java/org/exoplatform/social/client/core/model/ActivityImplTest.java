@@ -21,6 +21,8 @@ import java.util.List;
 import java.util.Map;
 
 import org.exoplatform.social.client.api.model.RestActivity;
+import org.exoplatform.social.client.api.model.RestActivityStream;
+import org.exoplatform.social.client.api.model.RestComment;
 import org.exoplatform.social.client.api.model.RestIdentity;
 import org.exoplatform.social.client.api.model.RestProfile;
 import org.exoplatform.social.client.core.util.SocialJSONDecodingSupport;
@@ -34,6 +36,8 @@ import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.core.IsNull.notNullValue;
 import static org.hamcrest.core.IsNull.nullValue;
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
 
 /**
  * Unit Test for {@link RestActivityImpl}.
@@ -276,6 +280,48 @@ public class ActivityImplTest {
     }
   }
 
+  @Test
+  public void shouldDecodeNestedModelsOnce() throws Exception {
+    String json = "{\"id\":\"a1\","
+                  + "\"posterIdentity\":{\"id\":\"i1\",\"profile\":{\"fullName\":\"Demo GTN\"}},"
+                  + "\"comments\":[{\"id\":\"c1\",\"text\":\"Hi\",\"posterIdentity\":{\"id\":\"i2\"}}],"
+                  + "\"likedByIdentities\":[{\"id\":\"i3\"}],"
+                  + "\"activityStream\":{\"type\":\"user\",\"prettyId\":\"demo\"}}";
+    RestActivityImpl activity = SocialJSONDecodingSupport.parser(RestActivityImpl.class, json);
+
+    RestIdentity posterIdentity = activity.getPosterIdentity();
+    assertEquals(posterIdentity.getClass(), RestIdentityImpl.class);
+    assertEquals(posterIdentity.getId(), "i1");
+    assertSame(activity.getPosterIdentity(), posterIdentity);
+    assertEquals(posterIdentity.getProfile().getFullName(), "Demo GTN");
+    assertSame(posterIdentity.getProfile(), posterIdentity.getProfile());
+
+    List<RestComment> comments = activity.getAvailableComments();
+    assertEquals(comments.get(0).getClass(), RestCommentImpl.class);
+    assertEquals(comments.get(0).getText(), "Hi");
+    assertSame(activity.getAvailableComments(), comments);
+    assertEquals(comments.get(0).getPosterIdentity().getId(), "i2");
+    assertSame(comments.get(0).getPosterIdentity(), comments.get(0).getPosterIdentity());
+
+    List<RestIdentity> likes = activity.getAvailableLikes();
+    assertEquals(likes.get(0).getClass(), RestIdentityImpl.class);
+    assertSame(activity.getAvailableLikes(), likes);
+
+    RestActivityStream activityStream = activity.getActivityStream();
+    assertEquals(activityStream.getPrettyId(), "demo");
+    assertSame(activity.getActivityStream(), activityStream);
+
+    //reading the models leaves the fields of the activity as they were decoded
+    assertEquals(JSONValue.parse(activity.toJSONString()), JSONValue.parse(json));
+    assertNotSame(activity.get("posterIdentity"), posterIdentity);
+    assertNotSame(activity.get("comments"), comments);
+
+    //a new value of the field makes a new model
+    JSONObject newPosterIdentity = new JSONObject();
+    newPosterIdentity.put("id", "i4");
+    activity.setField("posterIdentity", newPosterIdentity);
+    assertEquals(activity.getPosterIdentity().getId(), "i4");
+  }
 
   @Test
   public void shouldGetLikes() {
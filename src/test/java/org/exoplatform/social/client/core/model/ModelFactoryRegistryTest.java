@@ -0,0 +1,124 @@
+/*
+ * Copyright (C) 2003-2011 eXo Platform SAS.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.exoplatform.social.client.core.model;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.exoplatform.social.client.api.model.ModelFactory;
+import org.exoplatform.social.client.api.model.RestActivity;
+import org.exoplatform.social.client.api.model.RestComment;
+import org.exoplatform.social.client.core.util.SocialJSONDecodingSupport;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.fail;
+
+/**
+ * Unit Test for {@link ModelFactoryRegistry}.
+ */
+public class ModelFactoryRegistryTest {
+
+  private static final String ACTIVITY = "{\"id\":\"a1\",\"comments\":[{\"id\":\"c1\",\"text\":\"Hi\"}]}";
+
+  @AfterMethod
+  public void tearDown() {
+    ModelFactoryRegistry.reset();
+  }
+
+  @Test
+  public void shouldDecodeModelInterfaces() throws Exception {
+    RestActivity activity = SocialJSONDecodingSupport.parser(RestActivity.class, ACTIVITY);
+    assertEquals(activity.getClass(), RestActivityImpl.class);
+    assertEquals(activity.getId(), "a1");
+    assertEquals(ModelFactoryRegistry.newInstance(RestComment.class).getClass(), RestCommentImpl.class);
+  }
+
+  @Test
+  public void shouldDecodeRegisteredSubclasses() throws Exception {
+    final AtomicInteger created = new AtomicInteger();
+    ModelFactoryRegistry.register(MyActivity.class, new ModelFactory<MyActivity>() {
+      public MyActivity create() {
+        created.incrementAndGet();
+        return new MyActivity();
+      }
+    });
+    MyActivity activity = SocialJSONDecodingSupport.parser(MyActivity.class, ACTIVITY);
+    assertEquals(activity.getId(), "a1");
+    //the activity and its comment
+    assertEquals(created.get(), 2);
+
+    ModelFactoryRegistry.register(RestComment.class, new ModelFactory<MyComment>() {
+      public MyComment create() {
+        return new MyComment();
+      }
+    });
+    RestComment comment = SocialJSONDecodingSupport.parser(RestComment.class, "{\"id\":\"c1\"}");
+    assertEquals(comment.getClass(), MyComment.class);
+  }
+
+  @Test
+  public void shouldDecodeUnregisteredSubclasses() throws Exception {
+    List<UnregisteredActivity> activities =
+        SocialJSONDecodingSupport.JSONArrayObjectParser(UnregisteredActivity.class, "[{\"id\":\"a1\"},{\"id\":\"a2\"}]");
+    assertEquals(activities.get(1).getClass(), UnregisteredActivity.class);
+    assertEquals(activities.get(1).getId(), "a2");
+    assertSame(ModelFactoryRegistry.getFactory(UnregisteredActivity.class),
+               ModelFactoryRegistry.getFactory(UnregisteredActivity.class));
+  }
+
+  @Test
+  public void shouldRejectTypesWithoutFactory() {
+    ModelFactoryRegistry.reset();
+    try {
+      ModelFactoryRegistry.newInstance(AbstractActivity.class);
+      fail("an abstract class has no factory");
+    } catch (IllegalArgumentException e) {
+      assertEquals(e.getMessage(), "No model factory is registered for " + AbstractActivity.class.getName());
+    }
+    try {
+      SocialJSONDecodingSupport.parser(NoDefaultConstructorActivity.class, ACTIVITY);
+      fail("a class without a no-argument constructor has no factory");
+    } catch (IllegalArgumentException e) {
+      assertEquals(e.getCause().getClass(), NoSuchMethodException.class);
+    } catch (Exception e) {
+      fail("unexpected failure", e);
+    }
+  }
+
+  public static class MyActivity extends RestActivityImpl {
+  }
+
+  public static class MyComment extends RestCommentImpl {
+  }
+
+  private static class UnregisteredActivity extends RestActivityImpl {
+    private UnregisteredActivity() {
+    }
+  }
+
+  public abstract static class AbstractActivity extends RestActivityImpl {
+  }
+
+  public static class NoDefaultConstructorActivity extends RestActivityImpl {
+    public NoDefaultConstructorActivity(String id) {
+      setId(id);
+    }
+  }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright (C) 2003-2011 eXo Platform SAS.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.exoplatform.social.client.core.net;
+
+import org.apache.http.HttpResponse;
+import org.exoplatform.social.client.api.SocialClientContext;
+import org.exoplatform.social.client.api.net.SocialHttpClient.POLICY;
+import org.exoplatform.social.client.core.util.SocialHttpClientSupport;
+
+/**
+ * Compares authenticated requests sending Basic credentials every time with requests reusing the server
+ * session, against a local {@link MockSocialServer} where an authentication costs a few milliseconds.
+ * <p>
+ * Run with: java -cp target/classes:target/test-classes:&lt;dependencies&gt;
+ * org.exoplatform.social.client.core.net.AuthSessionBenchmark [requests] [authentication cost in ms]
+ */
+public class AuthSessionBenchmark {
+
+  private static final String PATH = "/rest-socialdemo/api/social/v1-alpha3/portal/identity/123.json";
+
+  public static void main(String[] args) throws Exception {
+    int requests = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+    long authenticationCost = args.length > 1 ? Long.parseLong(args[1]) : 5;
+    MockSocialServer server = new MockSocialServer();
+    MockSocialServer.SessionAuthenticator authenticator =
+        new MockSocialServer.SessionAuthenticator(authenticationCost, MockSocialServer.json(200, "{\"id\":\"123\"}"));
+    server.setResponder(authenticator);
+    server.configureContext();
+    SocialClientContext.setUsername("demo");
+    SocialClientContext.setPassword("gtn");
+    try {
+      //warm up the JIT and the server
+      run(requests / 2, false);
+      run(requests / 2, true);
+      for (boolean authSession : new boolean[] {false, true}) {
+        AuthSession.resetAll();
+        int authentications = authenticator.getAuthenticationCount();
+        long elapsed = run(requests, authSession);
+        System.out.println(String.format("%-14s %4d requests %8.3f ms/request %4d authentications",
+                                         authSession ? "AUTH_SESSION" : "BASIC_AUTH", requests,
+                                         elapsed / 1e6 / requests,
+                                         authenticator.getAuthenticationCount() - authentications));
+      }
+    } finally {
+      SocialClientContext.setAuthSession(false);
+      SocialHttpClientImpl.shutdownInstance();
+      server.stop();
+    }
+  }
+
+  private static long run(int requests, boolean authSession) throws Exception {
+    SocialClientContext.setAuthSession(authSession);
+    long start = System.nanoTime();
+    for (int i = 0; i < requests; i++) {
+      HttpResponse response = SocialHttpClientSupport.executeGet(PATH, POLICY.BASIC_AUTH);
+      SocialHttpClientSupport.getContent(response);
+    }
+    return System.nanoTime() - start;
+  }
+}
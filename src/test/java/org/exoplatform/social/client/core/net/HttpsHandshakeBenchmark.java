@@ -0,0 +1,99 @@
+/*
+ * Copyright (C) 2003-2011 eXo Platform SAS.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.exoplatform.social.client.core.net;
+
+import javax.net.ssl.SSLContext;
+
+import org.apache.http.HttpHost;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.util.EntityUtils;
+import org.exoplatform.social.client.api.SocialClientContext;
+import org.exoplatform.social.client.api.net.SocialHttpClient;
+
+/**
+ * Compares the cost of a https request paying a full TLS handshake, resuming a cached TLS session
+ * on a new connection, and reusing a kept-alive pooled connection, against a local {@link MockSocialServer}.
+ * <p>
+ * Run with: java -cp target/classes:target/test-classes:&lt;dependencies&gt;
+ * org.exoplatform.social.client.core.net.HttpsHandshakeBenchmark [requests]
+ */
+public class HttpsHandshakeBenchmark {
+
+  private static final String PATH = "/rest-socialdemo/api/social/version/latest.json";
+
+  public static void main(String[] args) throws Exception {
+    int requests = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+    MockSocialServer server = new MockSocialServer(true);
+    server.setResponder(MockSocialServer.json(200, "{\"version\":\"v1-alpha3\"}"));
+    HttpHost target = new HttpHost("127.0.0.1", server.getPort(), "https");
+    try {
+      //warm up the JIT and the server
+      run(target, requests / 2, Mode.KEPT_ALIVE);
+      run(target, requests / 2, Mode.FULL_HANDSHAKE);
+      for (Mode mode : Mode.values()) {
+        long elapsed = run(target, requests, mode);
+        System.out.println(String.format("%-16s %4d requests %8.3f ms/request", mode, requests,
+                                         elapsed / 1e6 / requests));
+      }
+    } finally {
+      SocialClientContext.setSSLContext(null);
+      server.stop();
+    }
+  }
+
+  private enum Mode {
+    /** A new connection and an empty session cache per request. */
+    FULL_HANDSHAKE,
+    /** A new connection per request, resuming the cached session. */
+    RESUMED_SESSION,
+    /** One pooled connection kept alive for all requests. */
+    KEPT_ALIVE
+  }
+
+  private static long run(HttpHost target, int requests, Mode mode) throws Exception {
+    SSLContext sharedContext = MockSocialServer.createClientSSLContext("TLS");
+    SocialClientContext.setSSLContext(sharedContext);
+    SocialHttpClient pooledClient = SocialHttpClientImpl.newInstance();
+    long start = System.nanoTime();
+    try {
+      for (int i = 0; i < requests; i++) {
+        if (mode == Mode.KEPT_ALIVE) {
+          execute(pooledClient, target);
+          continue;
+        }
+        if (mode == Mode.FULL_HANDSHAKE) {
+          SocialClientContext.setSSLContext(MockSocialServer.createClientSSLContext("TLS"));
+        }
+        SocialHttpClient client = SocialHttpClientImpl.newInstance();
+        try {
+          execute(client, target);
+        } finally {
+          client.shutdown();
+        }
+      }
+      return System.nanoTime() - start;
+    } finally {
+      pooledClient.shutdown();
+    }
+  }
+
+  private static void execute(SocialHttpClient client, HttpHost target) throws Exception {
+    HttpResponse response = client.execute(target, new HttpGet(PATH));
+    EntityUtils.toString(response.getEntity());
+  }
+}
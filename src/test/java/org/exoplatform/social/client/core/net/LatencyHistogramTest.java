@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2003-2011 eXo Platform SAS.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.exoplatform.social.client.core.net;
+
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Unit Test for {@link LatencyHistogram}.
+ */
+public class LatencyHistogramTest {
+
+  @Test
+  public void shouldCountSmallValuesExactly() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (int i = 1; i <= 100; i++) {
+      histogram.record(i);
+    }
+    LatencyHistogram.Snapshot snapshot = histogram.getSnapshot();
+    assertEquals(snapshot.getCount(), 100);
+    assertEquals(snapshot.getMin(), 1);
+    assertEquals(snapshot.getMax(), 100);
+    assertEquals(snapshot.getMean(), 50.5, 0.001);
+    assertEquals(snapshot.getPercentile(50), 50);
+    assertEquals(snapshot.getPercentile(99), 99);
+    assertEquals(snapshot.getPercentile(100), 100);
+  }
+
+  @Test
+  public void shouldKeepPercentilesWithinPrecision() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (long i = 1; i <= 100000; i++) {
+      histogram.record(i * 10);
+    }
+    LatencyHistogram.Snapshot snapshot = histogram.getSnapshot();
+    for (double percentile : new double[] {50, 90, 99, 99.9}) {
+      long exact = (long) (percentile * 1000) * 10;
+      long value = snapshot.getPercentile(percentile);
+      assertTrue(value >= exact && value <= exact * 1.016, percentile + ": " + value + " for " + exact);
+    }
+    assertEquals(snapshot.getMax(), 1000000);
+  }
+
+  @Test
+  public void shouldResetAndClampValues() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    histogram.record(Long.MAX_VALUE);
+    histogram.record(-1);
+    assertEquals(histogram.getSnapshot().getMin(), 0);
+    histogram.reset();
+    assertEquals(histogram.getSnapshot().getCount(), 0);
+    assertEquals(histogram.getSnapshot().getPercentile(99), 0);
+  }
+}
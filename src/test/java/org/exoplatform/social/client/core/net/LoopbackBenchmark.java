@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2003-2011 eXo Platform SAS.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.exoplatform.social.client.core.net;
+
+import org.exoplatform.social.client.api.SocialClientContext;
+import org.exoplatform.social.client.core.model.RestActivityImpl;
+import org.exoplatform.social.client.core.service.ActivityServiceImplV1Alpha3;
+import org.exoplatform.social.client.core.util.SocialJSONDecodingSupport;
+
+/**
+ * Splits the cost of an activity get into the JSON decoding alone, the decoding plus the service and
+ * response handling over a {@link LoopbackTransport}, and the full call over a local {@link MockSocialServer}.
+ * <p>
+ * Run with: java -cp target/classes:target/test-classes:&lt;dependencies&gt;
+ * org.exoplatform.social.client.core.net.LoopbackBenchmark [iterations]
+ */
+public class LoopbackBenchmark {
+
+  private static final String ACTIVITY = "{\"appId\":null,\"identityId\":\"f845f6ed7f000101003ed4d98a09beb3\","
+      + "\"totalNumberOfComments\":0,\"liked\":false,\"templateParams\":{},\"postedTime\":1309839511830,"
+      + "\"type\":\"DEFAULT_ACTIVITY\",\"posterIdentity\":null,\"activityStream\":null,"
+      + "\"id\":\"a1\",\"title\":\"hello\",\"priority\":null,"
+      + "\"createdAt\":\"Tue Jul 5 11:18:31 +0700 2011\",\"likedByIdentities\":null,\"titleId\":null,\"comments\":null}";
+
+  public static void main(String[] args) throws Exception {
+    int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+    MockSocialServer server = new MockSocialServer();
+    server.setResponder(MockSocialServer.json(200, ACTIVITY));
+    server.configureContext();
+    SocialClientContext.setUsername("demo");
+    SocialClientContext.setPassword("gtn");
+    LoopbackTransport loopback = new LoopbackTransport().register("/activity/a1\\.json$", ACTIVITY);
+    try {
+      for (int round = 0; round < 2; round++) {
+        //the first round warms up the JIT
+        boolean report = round == 1;
+        print(report, "DECODE", iterations, decode(iterations));
+        SocialClientContext.setTransport(loopback);
+        print(report, "LOOPBACK", iterations, get(iterations));
+        SocialClientContext.setTransport(null);
+        print(report, "HTTP", iterations / 10, get(iterations / 10));
+      }
+    } finally {
+      SocialClientContext.setTransport(null);
+      SocialHttpClientImpl.shutdownInstance();
+      server.stop();
+    }
+  }
+
+  private static long decode(int iterations) throws Exception {
+    long start = System.nanoTime();
+    for (int i = 0; i < iterations; i++) {
+      SocialJSONDecodingSupport.parser(RestActivityImpl.class, ACTIVITY);
+    }
+    return System.nanoTime() - start;
+  }
+
+  private static long get(int iterations) throws Exception {
+    ActivityServiceImplV1Alpha3 service = new ActivityServiceImplV1Alpha3();
+    long start = System.nanoTime();
+    for (int i = 0; i < iterations; i++) {
+      service.get("a1");
+    }
+    return System.nanoTime() - start;
+  }
+
+  private static void print(boolean report, String name, int iterations, long elapsed) {
+    if (report) {
+      System.out.println(String.format("%-9s %6d calls %9.2f us/call", name, iterations, elapsed / 1e3 / iterations));
+    }
+  }
+}
@@ -0,0 +1,131 @@
+/*
+ * Copyright (C) 2003-2011 eXo Platform SAS.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.exoplatform.social.client.core.net;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Vector;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+import org.exoplatform.social.client.api.SocialClientContext;
+import org.exoplatform.social.client.api.SocialClientContext.Context;
+import org.exoplatform.social.client.api.SocialClientLibException;
+import org.exoplatform.social.client.api.model.RestActivity;
+import org.exoplatform.social.client.api.model.RestIdentity;
+import org.exoplatform.social.client.api.net.RequestTracer;
+import org.exoplatform.social.client.core.service.ActivityServiceImplV1Alpha3;
+import org.exoplatform.social.client.core.service.AsyncActivityServiceImplV1Alpha3;
+import org.exoplatform.social.client.core.service.IdentityServiceImplV1Alpha3;
+import org.exoplatform.social.client.core.service.VersionServiceImpl;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+/**
+ * Unit Test for {@link LoopbackTransport}: the services run against it without any server.
+ */
+public class LoopbackTransportTest {
+
+  private static final String ACTIVITY = "{\"id\":\"a1\",\"title\":\"Hello\",\"identityId\":\"i1\"}";
+
+  private static final String IDENTITY = "{\"id\":\"i1\",\"providerId\":\"organization\",\"remoteId\":\"demo\","
+      + "\"profile\":{\"fullName\":\"Demo gtn\",\"avatarUrl\":null}}";
+
+  private LoopbackTransport transport;
+
+  @BeforeMethod
+  public void setUp() {
+    //no host: any request sent over http would fail
+    SocialClientContext.setHost(null);
+    SocialClientContext.setPort(0);
+    SocialClientContext.setUsername("demo");
+    SocialClientContext.setPassword("gtn");
+    transport = new LoopbackTransport()
+        .register("/activity/a1\\.json$", ACTIVITY)
+        .register("/identity/i1\\.json$", IDENTITY)
+        .register("/version/latest\\.json$", "{\"version\":\"v1-alpha3\"}");
+    SocialClientContext.setTransport(transport);
+  }
+
+  @AfterMethod
+  public void tearDown() {
+    SocialClientContext.setTransport(null);
+    SocialClientContext.setTracer(null);
+    SocialClientContext.setUsername(null);
+    SocialClientContext.setPassword(null);
+  }
+
+  @Test
+  public void shouldServeTheServicesInMemory() throws Exception {
+    RestActivity activity = new ActivityServiceImplV1Alpha3().get("a1");
+    assertEquals(activity.getTitle(), "Hello");
+    RestIdentity identity = new IdentityServiceImplV1Alpha3().get("i1");
+    assertEquals(identity.getRemoteId(), "demo");
+    assertEquals(new VersionServiceImpl().getLatest(), "v1-alpha3");
+    RestActivity asyncActivity = new AsyncActivityServiceImplV1Alpha3().get("a1", null).get(1, TimeUnit.SECONDS);
+    assertEquals(asyncActivity.getId(), "a1");
+    assertEquals(transport.getRequestCount(), 4);
+  }
+
+  @Test
+  public void shouldTimeTheDecodingOfTheServices() throws Exception {
+    final List<Context> traced = new Vector<Context>();
+    SocialClientContext.setTracer(new RequestTracer() {
+      @Override
+      public void traced(Context context) {
+        traced.add(context);
+      }
+    });
+    new ActivityServiceImplV1Alpha3().get("a1");
+    assertEquals(traced.size(), 1);
+    Context context = traced.get(0);
+    assertTrue(context.isCompleted());
+    assertTrue(context.getPhaseTime(Context.Phase.DECODE, TimeUnit.NANOSECONDS) > 0, context.toString());
+    assertEquals(context.getPhaseTime(Context.Phase.CONNECT, TimeUnit.NANOSECONDS), 0);
+  }
+
+  @Test
+  public void shouldAnswerUnknownPathsWithNotFound() throws Exception {
+    try {
+      new ActivityServiceImplV1Alpha3().get("unknown");
+      fail("Expected a 404");
+    } catch (SocialClientLibException e) {
+      //expected
+    }
+  }
+
+  @Test
+  public void shouldGenerateContentsPerRequest() throws Exception {
+    transport.register("/activity/[^/]+\\.json$", new LoopbackTransport.Handler() {
+      @Override
+      public HttpResponse handle(HttpRequest request) throws IOException {
+        String uri = request.getRequestLine().getUri();
+        String id = uri.substring(uri.lastIndexOf('/') + 1, uri.length() - ".json".length());
+        return LoopbackTransport.createResponse(200, "{\"id\":\"" + id + "\",\"title\":\"Generated\"}");
+      }
+    });
+    RestActivity activity = new ActivityServiceImplV1Alpha3().get("a2");
+    assertEquals(activity.getId(), "a2");
+    assertEquals(activity.getTitle(), "Generated");
+  }
+}
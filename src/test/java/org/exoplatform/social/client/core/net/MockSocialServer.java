@@ -0,0 +1,330 @@
+/*
+ * Copyright (C) 2003-2011 eXo Platform SAS.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.exoplatform.social.client.core.net;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.net.InetSocketAddress;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.TrustManagerFactory;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import com.sun.net.httpserver.HttpsConfigurator;
+import com.sun.net.httpserver.HttpsExchange;
+import com.sun.net.httpserver.HttpsServer;
+import org.exoplatform.social.client.api.SocialClientContext;
+
+/**
+ * A local stand-in for the Social rest server, used by unit tests to exercise the transport
+ * without a deployed server.
+ */
+public class MockSocialServer {
+
+  /**
+   * Answers the requests received by the mock server.
+   */
+  public interface Responder {
+    /**
+     * Handles a request.
+     *
+     * @param exchange    the exchange
+     * @param requestBody the raw request body
+     * @throws IOException
+     */
+    void respond(HttpExchange exchange, byte[] requestBody) throws IOException;
+  }
+
+  static {
+    //Without it, Nagle's algorithm adds ~40ms to every response written in more than one segment.
+    if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+      System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+  }
+
+  private static final String KEY_STORE = "mock-social-server.jks";
+
+  private static final char[] KEY_STORE_PASSWORD = "exoplatform".toCharArray();
+
+  private final HttpServer server;
+
+  private final boolean secure;
+
+  private final Set<String> sslSessionIds = Collections.synchronizedSet(new HashSet<String>());
+
+  private final AtomicInteger requestCount = new AtomicInteger();
+
+  private final Set<Integer> clientPorts = Collections.synchronizedSet(new HashSet<Integer>());
+
+  private volatile Responder responder = json(200, "{}");
+
+  /**
+   * Starts a server on a free local port.
+   *
+   * @throws IOException
+   */
+  public MockSocialServer() throws IOException {
+    this(false);
+  }
+
+  /**
+   * Starts a server on a free local port.
+   *
+   * @param secure true to serve https with a self-signed certificate for 127.0.0.1,
+   *               see {@link #createClientSSLContext(String)}
+   * @throws IOException
+   */
+  public MockSocialServer(boolean secure) throws IOException {
+    this.secure = secure;
+    InetSocketAddress address = new InetSocketAddress("127.0.0.1", 0);
+    if (secure) {
+      HttpsServer httpsServer = HttpsServer.create(address, 0);
+      httpsServer.setHttpsConfigurator(new HttpsConfigurator(createServerSSLContext()));
+      server = httpsServer;
+    } else {
+      server = HttpServer.create(address, 0);
+    }
+    server.setExecutor(Executors.newCachedThreadPool());
+    server.createContext("/", new HttpHandler() {
+      @Override
+      public void handle(HttpExchange exchange) throws IOException {
+        requestCount.incrementAndGet();
+        clientPorts.add(exchange.getRemoteAddress().getPort());
+        if (exchange instanceof HttpsExchange) {
+          sslSessionIds.add(new BigInteger(1, ((HttpsExchange) exchange).getSSLSession().getId()).toString(16));
+        }
+        byte[] body = readFully(exchange.getRequestBody());
+        try {
+          responder.respond(exchange, body);
+        } finally {
+          exchange.close();
+        }
+      }
+    });
+    server.start();
+  }
+
+  /**
+   * Points {@link SocialClientContext} to this server.
+   */
+  public void configureContext() {
+    SocialClientContext.setProtocol(secure ? "https" : "http");
+    SocialClientContext.setHost("127.0.0.1");
+    SocialClientContext.setPort(getPort());
+    SocialClientContext.setPortalContainerName("socialdemo");
+    SocialClientContext.setRestContextName("rest-socialdemo");
+  }
+
+  public int getPort() {
+    return server.getAddress().getPort();
+  }
+
+  public void setResponder(Responder responder) {
+    this.responder = responder;
+  }
+
+  /**
+   * Gets the number of requests received.
+   *
+   * @return the number of requests
+   */
+  public int getRequestCount() {
+    return requestCount.get();
+  }
+
+  /**
+   * Gets the number of distinct client connections seen, by client port.
+   *
+   * @return the number of connections
+   */
+  public int getConnectionCount() {
+    return clientPorts.size();
+  }
+
+  /**
+   * Gets the number of distinct TLS sessions seen, a resumed session is counted once.
+   *
+   * @return the number of TLS sessions
+   */
+  public int getSSLSessionCount() {
+    return sslSessionIds.size();
+  }
+
+  public void stop() {
+    server.stop(0);
+    ((java.util.concurrent.ExecutorService) server.getExecutor()).shutdownNow();
+  }
+
+  /**
+   * Creates a responder which always answers the same json content.
+   *
+   * @param status the status code
+   * @param json   the content
+   * @return the responder
+   */
+  public static Responder json(final int status, final String json) {
+    return new Responder() {
+      @Override
+      public void respond(HttpExchange exchange, byte[] requestBody) throws IOException {
+        byte[] content = json.getBytes("UTF-8");
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, content.length);
+        OutputStream out = exchange.getResponseBody();
+        out.write(content);
+        out.close();
+      }
+    };
+  }
+
+  /**
+   * Stands in for the portal authentication: a request with Basic credentials is authenticated,
+   * which costs some time like the organization service lookup of the portal, and gets a new session
+   * cookie. A request with a known session cookie is answered without authentication. Any other
+   * request gets a 401 challenge.
+   */
+  public static class SessionAuthenticator implements Responder {
+
+    private final long authenticationCost;
+
+    private final Responder responder;
+
+    private final Set<String> sessions = Collections.synchronizedSet(new HashSet<String>());
+
+    private final AtomicInteger authenticationCount = new AtomicInteger();
+
+    /**
+     * Constructor.
+     *
+     * @param authenticationCost the time an authentication takes, in milliseconds
+     * @param responder          answers the authenticated requests
+     */
+    public SessionAuthenticator(long authenticationCost, Responder responder) {
+      this.authenticationCost = authenticationCost;
+      this.responder = responder;
+    }
+
+    @Override
+    public void respond(HttpExchange exchange, byte[] requestBody) throws IOException {
+      String cookie = exchange.getRequestHeaders().getFirst("Cookie");
+      if (cookie != null) {
+        for (String pair : cookie.split(";")) {
+          pair = pair.trim();
+          if (pair.startsWith("JSESSIONID=") && sessions.contains(pair.substring("JSESSIONID=".length()))) {
+            responder.respond(exchange, requestBody);
+            return;
+          }
+        }
+      }
+      if (exchange.getRequestHeaders().getFirst("Authorization") != null) {
+        try {
+          Thread.sleep(authenticationCost);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        String session = Integer.toHexString(authenticationCount.incrementAndGet());
+        sessions.add(session);
+        exchange.getResponseHeaders().add("Set-Cookie", "JSESSIONID=" + session + "; Path=/");
+        responder.respond(exchange, requestBody);
+        return;
+      }
+      exchange.getResponseHeaders().set("WWW-Authenticate", "Basic realm=\"eXo REST services\"");
+      json(401, "{}").respond(exchange, requestBody);
+    }
+
+    /**
+     * Gets the number of Basic authentications made.
+     *
+     * @return the number of authentications
+     */
+    public int getAuthenticationCount() {
+      return authenticationCount.get();
+    }
+
+    /**
+     * Forgets all sessions, as after a restart of the server.
+     */
+    public void invalidateSessions() {
+      sessions.clear();
+    }
+  }
+
+  /**
+   * Creates an SSL context trusting the certificate of the secure mock servers.
+   *
+   * @param protocol the SSL protocol, for example TLS or TLSv1.2
+   * @return the SSL context
+   * @throws IOException
+   */
+  public static SSLContext createClientSSLContext(String protocol) throws IOException {
+    try {
+      TrustManagerFactory trustManagers = TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+      trustManagers.init(loadKeyStore());
+      SSLContext sslContext = SSLContext.getInstance(protocol);
+      sslContext.init(null, trustManagers.getTrustManagers(), null);
+      return sslContext;
+    } catch (GeneralSecurityException e) {
+      throw new IOException(e.toString());
+    }
+  }
+
+  private static SSLContext createServerSSLContext() throws IOException {
+    try {
+      KeyManagerFactory keyManagers = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+      keyManagers.init(loadKeyStore(), KEY_STORE_PASSWORD);
+      SSLContext sslContext = SSLContext.getInstance("TLS");
+      sslContext.init(keyManagers.getKeyManagers(), null, null);
+      return sslContext;
+    } catch (GeneralSecurityException e) {
+      throw new IOException(e.toString());
+    }
+  }
+
+  private static KeyStore loadKeyStore() throws IOException, GeneralSecurityException {
+    KeyStore keyStore = KeyStore.getInstance("JKS");
+    InputStream in = MockSocialServer.class.getResourceAsStream(KEY_STORE);
+    try {
+      keyStore.load(in, KEY_STORE_PASSWORD);
+    } finally {
+      in.close();
+    }
+    return keyStore;
+  }
+
+  public static byte[] readFully(InputStream in) throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    byte[] buffer = new byte[4096];
+    int read;
+    while ((read = in.read(buffer)) != -1) {
+      out.write(buffer, 0, read);
+    }
+    in.close();
+    return out.toByteArray();
+  }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2003-2011 eXo Platform SAS.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.exoplatform.social.client.core.net;
+
+import java.util.SortedMap;
+import java.util.concurrent.TimeUnit;
+
+import org.exoplatform.social.client.api.SocialClientContext;
+import org.exoplatform.social.client.api.SocialClientLibException;
+import org.exoplatform.social.client.core.model.RestActivityImpl;
+import org.exoplatform.social.client.core.service.ActivityServiceImplV1Alpha3;
+import org.exoplatform.social.client.core.service.AsyncActivityServiceImplV1Alpha3;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+/**
+ * Unit Test for {@link RequestMetrics}, over a {@link LoopbackTransport}.
+ */
+public class RequestMetricsTest {
+
+  private static final String ACTIVITY = "{\"id\":\"a1\",\"title\":\"Hello\",\"identityId\":\"i1\"}";
+
+  @BeforeMethod
+  public void setUp() {
+    SocialClientContext.setUsername("demo");
+    SocialClientContext.setPassword("gtn");
+    SocialClientContext.setTransport(new LoopbackTransport()
+        .register("/activity/a1\\.json$", ACTIVITY)
+        .register("/activity\\.json$", ACTIVITY));
+    RequestMetrics.resetAll();
+  }
+
+  @AfterMethod
+  public void tearDown() {
+    SocialClientContext.setRequestMetrics(true);
+    SocialClientContext.setTransport(null);
+    SocialClientContext.setUsername(null);
+    SocialClientContext.setPassword(null);
+    RequestMetrics.resetAll();
+  }
+
+  @Test
+  public void shouldTemplateThePaths() {
+    String base = "/rest-socialdemo/private/api/social/v1-alpha3/portal/";
+    assertEquals(RequestMetrics.getTemplate(base + "activity/f884d11a7f000101000230e5c0e8a602.json?limit=20"),
+                 "activity/{id}.json");
+    assertEquals(RequestMetrics.getTemplate(base + "activity_stream/feed.json?limit=20"), "activity_stream/feed.json");
+    assertEquals(RequestMetrics.getTemplate(base + "activity_stream/a1/feed/older/a2.json"),
+                 "activity_stream/{id}/feed/older/{id}.json");
+    assertEquals(RequestMetrics.getTemplate(base + "identity/organization/demo.json"), "identity/{id}/{id}.json");
+    assertEquals(RequestMetrics.getTemplate("/rest-socialdemo/api/social/version/latest.json"), "version/latest.json");
+    assertEquals(RequestMetrics.getTemplate("/rest/portal/social/identity/demo/id/show.json"),
+                 "identity/{id}/id/show.json");
+    assertEquals(RequestMetrics.getTemplate("/favicon.ico"), RequestMetrics.OTHER);
+  }
+
+  @Test
+  public void shouldRecordByTemplate() throws Exception {
+    ActivityServiceImplV1Alpha3 service = new ActivityServiceImplV1Alpha3();
+    service.get("a1");
+    new AsyncActivityServiceImplV1Alpha3().get("a1", null).get(1, TimeUnit.SECONDS);
+    try {
+      service.get("a2");
+      fail("Expected a 404");
+    } catch (SocialClientLibException e) {
+      //expected
+    }
+    RestActivityImpl activity = new RestActivityImpl();
+    activity.setTitle("Hello");
+    service.create(activity);
+
+    SortedMap<String, RequestMetrics.Snapshot> snapshots = RequestMetrics.getSnapshots();
+    RequestMetrics.Snapshot get = snapshots.get("activity/{id}.json");
+    assertEquals(get.getRequestCount(), 3);
+    assertEquals(get.getStatusCounts().get(200).longValue(), 2);
+    assertEquals(get.getStatusCounts().get(404).longValue(), 1);
+    assertEquals(get.getResponseTime().getCount(), 3);
+    assertEquals(get.getExchangeTime().getCount(), 3);
+    //the content of the error response is discarded unread
+    assertEquals(get.getBytesIn(), 2 * ACTIVITY.length());
+    assertTrue(get.getResponseTime().getPercentile(99.9) <= get.getResponseTime().getMax());
+
+    RequestMetrics.Snapshot create = snapshots.get("activity.json");
+    assertEquals(create.getRequestCount(), 1);
+    assertTrue(create.getBytesOut() > 0, create.toString());
+  }
+
+  @Test
+  public void shouldNotRecordWhenDisabled() throws Exception {
+    SocialClientContext.setRequestMetrics(false);
+    new ActivityServiceImplV1Alpha3().get("a1");
+    assertTrue(RequestMetrics.getSnapshots().isEmpty());
+  }
+}
@@ -0,0 +1,145 @@
+/*
+ * Copyright (C) 2003-2011 eXo Platform SAS.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.exoplatform.social.client.core.net;
+
+import java.util.List;
+import java.util.Vector;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.AppenderBase;
+import org.exoplatform.social.client.api.SocialClientContext;
+import org.exoplatform.social.client.core.service.ActivityServiceImplV1Alpha3;
+import org.exoplatform.social.client.core.service.AsyncActivityServiceImplV1Alpha3;
+import org.slf4j.LoggerFactory;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Unit Test for {@link WireLogger}, over a {@link LoopbackTransport}.
+ */
+public class WireLoggerTest {
+
+  private static final String ACTIVITY = "{\"id\":\"a1\",\"title\":\"Hello\",\"identityId\":\"i1\"}";
+
+  private final Logger wire = (Logger) LoggerFactory.getLogger("org.exoplatform.social.client.wire");
+
+  private final List<String> lines = new Vector<String>();
+
+  private boolean developing;
+
+  private volatile CountDownLatch writable = new CountDownLatch(0);
+
+  private final AppenderBase<ILoggingEvent> appender = new AppenderBase<ILoggingEvent>() {
+    @Override
+    protected void append(ILoggingEvent event) {
+      try {
+        writable.await();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      lines.add(event.getFormattedMessage());
+    }
+  };
+
+  @BeforeMethod
+  public void setUp() {
+    developing = SocialClientContext.isDeveloping();
+    SocialClientContext.setIsDeveloping(false);
+    SocialClientContext.setUsername("demo");
+    SocialClientContext.setPassword("gtn");
+    SocialClientContext.setTransport(new LoopbackTransport().register("/activity/a1\\.json$", ACTIVITY));
+    SocialClientContext.setWireLogging(true);
+    WireLogger.reset();
+    lines.clear();
+    appender.start();
+    wire.addAppender(appender);
+  }
+
+  @AfterMethod
+  public void tearDown() {
+    writable.countDown();
+    wire.detachAppender(appender);
+    SocialClientContext.setIsDeveloping(developing);
+    SocialClientContext.setWireLogging(false);
+    SocialClientContext.setWireLogSampleRate(100);
+    SocialClientContext.setWireLogPathPattern(null);
+    SocialClientContext.setWireLogMaxBodySize(1024);
+    SocialClientContext.setWireLogQueueSize(1000);
+    WireLogger.reset();
+    SocialClientContext.setTransport(null);
+    SocialClientContext.setUsername(null);
+    SocialClientContext.setPassword(null);
+  }
+
+  @Test
+  public void shouldLogSyncAndAsyncExchanges() throws Exception {
+    new ActivityServiceImplV1Alpha3().get("a1");
+    new AsyncActivityServiceImplV1Alpha3().get("a1", null).get(1, TimeUnit.SECONDS);
+    assertTrue(WireLogger.flush(1000));
+    assertEquals(lines.size(), 2);
+    for (String line : lines) {
+      assertTrue(line.startsWith("GET /"), line);
+      assertTrue(line.contains("/activity/a1.json"), line);
+      assertTrue(line.contains("> Content-Type: application/json"), line);
+      assertTrue(line.contains("< HTTP/1.1 200 OK"), line);
+      assertTrue(line.endsWith(ACTIVITY), line);
+    }
+  }
+
+  @Test
+  public void shouldSampleByRateAndPath() throws Exception {
+    SocialClientContext.setWireLogSampleRate(25);
+    for (int i = 0; i < 8; i++) {
+      new ActivityServiceImplV1Alpha3().get("a1");
+    }
+    SocialClientContext.setWireLogSampleRate(100);
+    SocialClientContext.setWireLogPathPattern("/identity/");
+    new ActivityServiceImplV1Alpha3().get("a1");
+    assertTrue(WireLogger.flush(1000));
+    assertEquals(lines.size(), 2);
+    assertEquals(WireLogger.getLoggedCount(), 2);
+  }
+
+  @Test
+  public void shouldCapTheLoggedContent() throws Exception {
+    SocialClientContext.setWireLogMaxBodySize(10);
+    new ActivityServiceImplV1Alpha3().get("a1");
+    assertTrue(WireLogger.flush(1000));
+    assertTrue(lines.get(0).endsWith("\n\n" + ACTIVITY.substring(0, 10) + "... (" + ACTIVITY.length() + " bytes)"),
+               lines.get(0));
+  }
+
+  @Test
+  public void shouldDropExchangesBeyondTheQueue() throws Exception {
+    SocialClientContext.setWireLogQueueSize(1);
+    writable = new CountDownLatch(1);
+    for (int i = 0; i < 5; i++) {
+      new ActivityServiceImplV1Alpha3().get("a1");
+    }
+    assertTrue(WireLogger.getDroppedCount() >= 3, "dropped " + WireLogger.getDroppedCount());
+    writable.countDown();
+    assertTrue(WireLogger.flush(1000));
+    assertEquals(WireLogger.getLoggedCount() + WireLogger.getDroppedCount(), 5);
+  }
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright (C) 2003-2011 eXo Platform SAS.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.exoplatform.social.client.core.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Vector;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import com.sun.net.httpserver.HttpExchange;
+import org.exoplatform.social.client.api.SocialClientContext;
+import org.exoplatform.social.client.api.common.ElementHandler;
+import org.exoplatform.social.client.api.model.RestActivity;
+import org.exoplatform.social.client.api.service.ServiceException;
+import org.exoplatform.social.client.core.model.RestActivityImpl;
+import org.exoplatform.social.client.core.model.RestIdentityImpl;
+import org.exoplatform.social.client.core.net.MockSocialServer;
+import org.exoplatform.social.client.core.net.SocialHttpClientImpl;
+import org.exoplatform.social.client.core.service.ActivitiesRealtimeListAccessV1Alpha3.ActivityType;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Unit Test for the streaming loads of {@link ActivitiesRealtimeListAccessV1Alpha3} against a
+ * {@link MockSocialServer}.
+ */
+public class ActivitiesRealtimeListAccessV1Alpha3Test {
+
+  private static final String PAGE = "{\"activities\":[{\"id\":\"a1\",\"title\":\"First\"},"
+      + "{\"id\":\"a2\",\"title\":\"Second\",\"likedByIdentities\":[{\"id\":\"i1\"}]},{\"id\":\"a3\"}]}";
+
+  private MockSocialServer server;
+
+  private final List<String> requestURIs = new Vector<String>();
+
+  @BeforeMethod
+  public void setUp() throws Exception {
+    server = new MockSocialServer();
+    server.configureContext();
+    SocialClientContext.setUsername("demo");
+    SocialClientContext.setPassword("gtn");
+    requestURIs.clear();
+  }
+
+  @AfterMethod
+  public void tearDown() throws Exception {
+    SocialHttpClientImpl.shutdownInstance();
+    server.stop();
+    SocialClientContext.setHost(null);
+    SocialClientContext.setPort(0);
+    SocialClientContext.setPortalContainerName(null);
+    SocialClientContext.setRestContextName(null);
+    SocialClientContext.setUsername(null);
+    SocialClientContext.setPassword(null);
+  }
+
+  @Test
+  public void shouldHandOutTheSameActivitiesAsTheListLoads() throws Exception {
+    server.setResponder(recording(MockSocialServer.json(200, PAGE)));
+    ActivitiesRealtimeListAccessV1Alpha3 listAccess = createListAccess();
+    List<RestActivity> expected = listAccess.loadAsList(0, 3);
+
+    RecordingHandler handler = new RecordingHandler();
+    assertEquals(listAccess.load(0, 3, handler), 3);
+    assertEquals(handler.activities, expected);
+    assertEquals(((RestActivityImpl) handler.activities.get(1)).getFieldAsList("likedByIdentities").size(), 1);
+
+    RestActivity base = new RestActivityImpl();
+    base.setId("a0");
+    assertEquals(listAccess.loadNewer(base, 3, new RecordingHandler()), 3);
+    assertTrue(requestURIs.get(2).contains("since_id=a0"), requestURIs.get(2));
+    assertEquals(listAccess.loadOlder(base, 3, new RecordingHandler()), 3);
+    assertTrue(requestURIs.get(3).contains("max_id=a0"), requestURIs.get(3));
+    assertTrue(requestURIs.get(3).contains("limit=3"), requestURIs.get(3));
+  }
+
+  @Test
+  public void shouldHandOutAnActivityBeforeTheEndOfThePage() throws Exception {
+    final CountDownLatch firstHandled = new CountDownLatch(1);
+    final boolean[] handledBeforeEnd = new boolean[1];
+    server.setResponder(new MockSocialServer.Responder() {
+      @Override
+      public void respond(HttpExchange exchange, byte[] requestBody) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, 0);
+        OutputStream out = exchange.getResponseBody();
+        out.write("{\"activities\":[{\"id\":\"a1\",\"title\":\"First\"},".getBytes("UTF-8"));
+        out.flush();
+        try {
+          handledBeforeEnd[0] = firstHandled.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        out.write("{\"id\":\"a2\"}]}".getBytes("UTF-8"));
+        out.close();
+      }
+    });
+    final List<String> ids = new ArrayList<String>();
+    int count = createListAccess().load(0, 2, new ElementHandler<RestActivity>() {
+      public void handle(RestActivity activity) {
+        ids.add(activity.getId());
+        firstHandled.countDown();
+      }
+    });
+    assertEquals(count, 2);
+    assertEquals(ids.toString(), "[a1, a2]");
+    assertTrue(handledBeforeEnd[0], "the first activity was only handed out with the end of the page");
+  }
+
+  @Test
+  public void shouldStopOnHandlerFailure() throws Exception {
+    server.setResponder(MockSocialServer.json(200, PAGE));
+    final List<RestActivity> handled = new ArrayList<RestActivity>();
+    try {
+      createListAccess().load(0, 3, new ElementHandler<RestActivity>() {
+        public void handle(RestActivity activity) {
+          handled.add(activity);
+          throw new IllegalStateException("stop");
+        }
+      });
+      assertFalse(true, "the handler failure was not propagated");
+    } catch (IllegalStateException e) {
+      assertEquals(handled.size(), 1);
+    }
+    //the connection is usable again
+    assertEquals(createListAccess().load(0, 3, new RecordingHandler()), 3);
+  }
+
+  @Test
+  public void shouldKeepTheCauseOfAnInvalidResponse() throws Exception {
+    server.setResponder(MockSocialServer.json(200, "{\"activities\":[{\"id\":"));
+    try {
+      createListAccess().loadAsList(0, 3);
+      assertFalse(true, "the invalid response was not reported");
+    } catch (ServiceException e) {
+      assertNotNull(e.getCause(), "the cause of the invalid response is lost");
+    }
+  }
+
+  private static ActivitiesRealtimeListAccessV1Alpha3 createListAccess() {
+    RestIdentityImpl identity = new RestIdentityImpl();
+    identity.setId("i1");
+    return new ActivitiesRealtimeListAccessV1Alpha3(identity, ActivityType.ACTIVITY_STREAM, null);
+  }
+
+  private MockSocialServer.Responder recording(final MockSocialServer.Responder responder) {
+    return new MockSocialServer.Responder() {
+      @Override
+      public void respond(HttpExchange exchange, byte[] requestBody) throws IOException {
+        requestURIs.add(exchange.getRequestURI().toString());
+        responder.respond(exchange, requestBody);
+      }
+    };
+  }
+
+  private static final class RecordingHandler implements ElementHandler<RestActivity> {
+
+    private final List<RestActivity> activities = new ArrayList<RestActivity>();
+
+    public void handle(RestActivity activity) {
+      activities.add(activity);
+    }
+  }
+}
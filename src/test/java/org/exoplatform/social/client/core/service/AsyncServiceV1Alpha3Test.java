@@ -0,0 +1,257 @@
+/*
+ * Copyright (C) 2003-2011 eXo Platform SAS.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.exoplatform.social.client.core.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Vector;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import com.sun.net.httpserver.HttpExchange;
+import org.exoplatform.social.client.api.SocialClientContext;
+import org.exoplatform.social.client.api.SocialClientLibException;
+import org.exoplatform.social.client.api.auth.NotFoundException;
+import org.exoplatform.social.client.api.model.RestActivity;
+import org.exoplatform.social.client.api.model.RestIdentity;
+import org.exoplatform.social.client.api.model.RestLike;
+import org.exoplatform.social.client.api.service.AsyncCallback;
+import org.exoplatform.social.client.core.model.RestActivityImpl;
+import org.exoplatform.social.client.core.model.RestIdentityImpl;
+import org.exoplatform.social.client.core.net.MockSocialServer;
+import org.exoplatform.social.client.core.net.SocialAsyncHttpClient;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+/**
+ * Unit Test for {@link AsyncActivityServiceImplV1Alpha3} and {@link AsyncIdentityServiceImplV1Alpha3}
+ * against a {@link MockSocialServer}.
+ */
+public class AsyncServiceV1Alpha3Test {
+
+  private static final String ACTIVITY = "{\"id\":\"a1\",\"title\":\"Hello\",\"identityId\":\"i1\"}";
+
+  private MockSocialServer server;
+
+  private final List<String> requestURIs = new Vector<String>();
+
+  @BeforeMethod
+  public void setUp() throws Exception {
+    server = new MockSocialServer();
+    server.configureContext();
+    SocialClientContext.setUsername("demo");
+    SocialClientContext.setPassword("gtn");
+    requestURIs.clear();
+  }
+
+  @AfterMethod
+  public void tearDown() throws Exception {
+    SocialAsyncHttpClient.shutdownInstance();
+    server.stop();
+    SocialClientContext.setHost(null);
+    SocialClientContext.setPort(0);
+    SocialClientContext.setPortalContainerName(null);
+    SocialClientContext.setRestContextName(null);
+    SocialClientContext.setUsername(null);
+    SocialClientContext.setPassword(null);
+  }
+
+  @Test
+  public void shouldGetActivityWithoutBlocking() throws Exception {
+    server.setResponder(recording(MockSocialServer.json(200, ACTIVITY)));
+    RecordingCallback<RestActivity> callback = new RecordingCallback<RestActivity>();
+    Future<RestActivity> future = new AsyncActivityServiceImplV1Alpha3().get("a1", callback);
+    RestActivity activity = future.get(10, TimeUnit.SECONDS);
+    assertEquals(activity.getId(), "a1");
+    assertEquals(activity.getTitle(), "Hello");
+    assertTrue(callback.await());
+    assertEquals(callback.result, activity);
+    assertTrue(requestURIs.get(0).endsWith("/activity/a1.json"), requestURIs.get(0));
+  }
+
+  @Test
+  public void shouldNotifyTheCallbacksOffTheIoThreads() throws Exception {
+    server.setResponder(MockSocialServer.json(200, ACTIVITY));
+    final List<String> threads = new Vector<String>();
+    final CountDownLatch done = new CountDownLatch(1);
+    new AsyncActivityServiceImplV1Alpha3().get("a1", new AsyncCallback<RestActivity>() {
+      @Override
+      public void completed(RestActivity result) {
+        threads.add(Thread.currentThread().getName());
+        done.countDown();
+      }
+
+      @Override
+      public void failed(Exception ex) {
+        done.countDown();
+      }
+
+      @Override
+      public void cancelled() {
+        done.countDown();
+      }
+    });
+    assertTrue(done.await(10, TimeUnit.SECONDS));
+    assertEquals(threads.size(), 1);
+    assertTrue(threads.get(0).startsWith("social-client-callback-"), threads.get(0));
+  }
+
+  @Test
+  public void shouldDecodeGzipResponses() throws Exception {
+    server.setResponder(new MockSocialServer.Responder() {
+      @Override
+      public void respond(HttpExchange exchange, byte[] requestBody) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        GZIPOutputStream gzip = new GZIPOutputStream(buffer);
+        gzip.write(ACTIVITY.getBytes("UTF-8"));
+        gzip.close();
+        exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+        exchange.sendResponseHeaders(200, buffer.size());
+        OutputStream out = exchange.getResponseBody();
+        buffer.writeTo(out);
+        out.close();
+      }
+    });
+    RestActivity activity = new AsyncActivityServiceImplV1Alpha3().get("a1", null).get(10, TimeUnit.SECONDS);
+    assertEquals(activity.getTitle(), "Hello");
+  }
+
+  @Test
+  public void shouldDriveManyCallsOverFewConnections() throws Exception {
+    SocialClientContext.setMaxConnectionsPerRoute(2);
+    try {
+      server.setResponder(MockSocialServer.json(200, ACTIVITY));
+      AsyncActivityServiceImplV1Alpha3 service = new AsyncActivityServiceImplV1Alpha3();
+      List<Future<RestActivity>> futures = new Vector<Future<RestActivity>>();
+      for (int i = 0; i < 100; i++) {
+        futures.add(service.get("a" + i, null));
+      }
+      for (Future<RestActivity> future : futures) {
+        assertEquals(future.get(10, TimeUnit.SECONDS).getId(), "a1");
+      }
+      assertEquals(server.getRequestCount(), 100);
+      assertTrue(server.getConnectionCount() <= 2, "connections: " + server.getConnectionCount());
+    } finally {
+      SocialClientContext.setMaxConnectionsPerRoute(20);
+    }
+  }
+
+  @Test
+  public void shouldFailOnErrorResponse() throws Exception {
+    server.setResponder(MockSocialServer.json(404, "{}"));
+    RecordingCallback<RestIdentity> callback = new RecordingCallback<RestIdentity>();
+    Future<RestIdentity> future = new AsyncIdentityServiceImplV1Alpha3().get("i1", callback);
+    try {
+      future.get(10, TimeUnit.SECONDS);
+      fail("Expecting ExecutionException");
+    } catch (ExecutionException e) {
+      assertTrue(e.getCause() instanceof SocialClientLibException);
+      assertTrue(e.getCause().getCause() instanceof NotFoundException);
+    }
+    assertTrue(callback.await());
+    assertTrue(callback.failure instanceof SocialClientLibException);
+  }
+
+  @Test
+  public void shouldCreateActivity() throws Exception {
+    final List<String> bodies = new Vector<String>();
+    server.setResponder(new MockSocialServer.Responder() {
+      @Override
+      public void respond(HttpExchange exchange, byte[] requestBody) throws IOException {
+        bodies.add(new String(requestBody, "UTF-8"));
+        MockSocialServer.json(200, ACTIVITY).respond(exchange, requestBody);
+      }
+    });
+    RestActivity activity = new RestActivityImpl();
+    activity.setTitle("Hello");
+    RestActivity created = new AsyncActivityServiceImplV1Alpha3().create(activity, null).get(10, TimeUnit.SECONDS);
+    assertEquals(created.getId(), "a1");
+    assertEquals(bodies.get(0), activity.toJSONString());
+  }
+
+  @Test
+  public void shouldLikeActivity() throws Exception {
+    server.setResponder(recording(MockSocialServer.json(200, "{\"liked\":true}")));
+    RestActivity activity = new RestActivityImpl();
+    activity.setId("a1");
+    RestLike like = new AsyncActivityServiceImplV1Alpha3().like(activity, null).get(10, TimeUnit.SECONDS);
+    assertEquals(like.getActivityId(), "a1");
+    assertTrue(requestURIs.get(0).endsWith("/activity/a1/like.json"), requestURIs.get(0));
+  }
+
+  @Test
+  public void shouldLoadActivityStreamPages() throws Exception {
+    server.setResponder(recording(MockSocialServer.json(200, "{\"activities\":[" + ACTIVITY + "," + ACTIVITY + "]}")));
+    RestIdentity identity = new RestIdentityImpl();
+    identity.setId("i1");
+    RestActivity base = new RestActivityImpl();
+    base.setId("a0");
+    ActivitiesRealtimeListAccessV1Alpha3 listAccess =
+        (ActivitiesRealtimeListAccessV1Alpha3) new AsyncActivityServiceImplV1Alpha3().getActivityStream(identity, null);
+    List<RestActivity> activities = listAccess.loadNewerAsList(base, 5, null).get(10, TimeUnit.SECONDS);
+    assertEquals(activities.size(), 2);
+    assertEquals(activities.get(0).getId(), "a1");
+    assertTrue(requestURIs.get(0).endsWith("/activity_stream/i1.json?limit=5&since_id=a0"), requestURIs.get(0));
+  }
+
+  private MockSocialServer.Responder recording(final MockSocialServer.Responder responder) {
+    return new MockSocialServer.Responder() {
+      @Override
+      public void respond(HttpExchange exchange, byte[] requestBody) throws IOException {
+        requestURIs.add(exchange.getRequestURI().toString());
+        responder.respond(exchange, requestBody);
+      }
+    };
+  }
+
+  private static class RecordingCallback<T> implements AsyncCallback<T> {
+    private final CountDownLatch latch = new CountDownLatch(1);
+    private volatile T result;
+    private volatile Exception failure;
+
+    @Override
+    public void completed(T result) {
+      this.result = result;
+      latch.countDown();
+    }
+
+    @Override
+    public void failed(Exception ex) {
+      this.failure = ex;
+      latch.countDown();
+    }
+
+    @Override
+    public void cancelled() {
+      latch.countDown();
+    }
+
+    boolean await() throws InterruptedException {
+      return latch.await(10, TimeUnit.SECONDS);
+    }
+  }
+}
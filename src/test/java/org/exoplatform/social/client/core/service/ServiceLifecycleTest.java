@@ -16,6 +16,7 @@
  */
 package org.exoplatform.social.client.core.service;
 
+import org.exoplatform.social.client.api.SocialClientContext;
 import org.exoplatform.social.client.api.event.Lifecycle;
 import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
@@ -42,6 +43,7 @@ public class ServiceLifecycleTest extends AbstractLifecycleTest {
   
   @AfterMethod
   public void tearDown() throws Exception {
+    SocialClientContext.setJmx(true);
     super.tearDown();
   }
   
@@ -70,6 +72,25 @@ public class ServiceLifecycleTest extends AbstractLifecycleTest {
     assertFalse(mockService.started);
   }
   
+  @Test
+  public void registerStartedServiceOnlyWhenJmxIsEnabled() throws Exception {
+    assertFalse(ServiceBase.getServices().contains(mockService));
+    mockService.start();
+    assertTrue(ServiceBase.getServices().contains(mockService));
+    mockService.stop();
+    mockService.start();
+    int count = 0;
+    for (ServiceBase<?, ?> service : ServiceBase.getServices()) {
+      count += service == mockService ? 1 : 0;
+    }
+    assertEquals(count, 1);
+
+    SocialClientContext.setJmx(false);
+    MockService other = new MockService();
+    other.start();
+    assertFalse(ServiceBase.getServices().contains(other));
+  }
+
   @Test
   public void checkCRUDLifecycleListenerToService() throws Exception {
     assertEquals(1, mockService.findCRUDLifecycleListeners().length);
@@ -0,0 +1,116 @@
+/*
+ * Copyright (C) 2003-2011 eXo Platform SAS.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.exoplatform.social.client.core.service;
+
+import java.io.IOException;
+import java.util.SortedMap;
+
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+import org.exoplatform.social.client.api.SocialClientContext;
+import org.exoplatform.social.client.api.SocialClientLibException;
+import org.exoplatform.social.client.core.net.LoopbackTransport;
+import org.exoplatform.social.client.core.net.RequestMetrics;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+/**
+ * Unit Test for {@link ServiceMetrics}, over a {@link LoopbackTransport}.
+ */
+public class ServiceMetricsTest {
+
+  private static final String ACTIVITY = "{\"id\":\"a1\",\"title\":\"Hello\",\"identityId\":\"i1\"}";
+
+  private static final String IDENTITY = "{\"id\":\"i1\",\"providerId\":\"organization\",\"remoteId\":\"demo\"}";
+
+  @BeforeMethod
+  public void setUp() {
+    SocialClientContext.setUsername("demo");
+    SocialClientContext.setPassword("gtn");
+    SocialClientContext.setTransport(new LoopbackTransport()
+        .register("/activity/a1\\.json$", new LoopbackTransport.Handler() {
+          @Override
+          public HttpResponse handle(HttpRequest request) throws IOException {
+            try {
+              Thread.sleep(20);
+            } catch (InterruptedException e) {
+              Thread.currentThread().interrupt();
+            }
+            return LoopbackTransport.createResponse(200, ACTIVITY);
+          }
+        })
+        .register("/identity/organization/demo\\.json$", IDENTITY));
+    ServiceMetrics.resetAll();
+    RequestMetrics.resetAll();
+  }
+
+  @AfterMethod
+  public void tearDown() {
+    SocialClientContext.setRequestMetrics(true);
+    SocialClientContext.setTransport(null);
+    SocialClientContext.setUsername(null);
+    SocialClientContext.setPassword(null);
+    ServiceMetrics.resetAll();
+    RequestMetrics.resetAll();
+  }
+
+  @Test
+  public void shouldRecordByServiceMethod() throws Exception {
+    ActivityServiceImplV1Alpha3 service = new ActivityServiceImplV1Alpha3();
+    service.get("a1");
+    try {
+      service.get("a2");
+      fail("Expected a 404");
+    } catch (SocialClientLibException e) {
+      //expected
+    }
+
+    ServiceMetrics.Snapshot get = ServiceMetrics.getSnapshots().get("ActivityServiceImplV1Alpha3.get");
+    assertEquals(get.getService(), "ActivityServiceImplV1Alpha3");
+    assertEquals(get.getMethod(), "get");
+    assertEquals(get.getCallCount(), 2);
+    assertEquals(get.getFailureCount(), 1);
+    //the call time covers the request, the decoding and the model
+    assertTrue(get.getCallTime().getMax() >= 20000, get.toString());
+    assertTrue(get.getCallTime().getMax() >= RequestMetrics.getSnapshots().get("activity/{id}.json")
+                                                            .getExchangeTime().getMax(), get.toString());
+  }
+
+  @Test
+  public void shouldRecordTheEnclosingAndTheEnclosedMethods() throws Exception {
+    assertEquals(new IdentityServiceImplV1Alpha3().getIdentityId("organization", "demo"), "i1");
+
+    SortedMap<String, ServiceMetrics.Snapshot> snapshots = ServiceMetrics.getSnapshots();
+    ServiceMetrics.Snapshot getIdentityId = snapshots.get("IdentityServiceImplV1Alpha3.getIdentityId");
+    ServiceMetrics.Snapshot getIdentity = snapshots.get("IdentityServiceImplV1Alpha3.getIdentity");
+    assertEquals(getIdentityId.getCallCount(), 1);
+    assertEquals(getIdentity.getCallCount(), 1);
+    assertTrue(getIdentityId.getCallTime().getMax() >= getIdentity.getCallTime().getMax(), getIdentityId.toString());
+  }
+
+  @Test
+  public void shouldNotRecordWhenDisabled() throws Exception {
+    SocialClientContext.setRequestMetrics(false);
+    new ActivityServiceImplV1Alpha3().get("a1");
+    assertTrue(ServiceMetrics.getSnapshots().isEmpty());
+  }
+}
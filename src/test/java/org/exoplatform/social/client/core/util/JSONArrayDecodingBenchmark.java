@@ -0,0 +1,100 @@
+/*
+ * Copyright (C) 2003-2011 eXo Platform SAS.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.exoplatform.social.client.core.util;
+
+import org.exoplatform.social.client.api.model.Model;
+import org.exoplatform.social.client.core.model.RestActivityImpl;
+import org.exoplatform.social.client.core.model.RestCommentImpl;
+import org.exoplatform.social.client.core.model.RestIdentityImpl;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONValue;
+import org.json.simple.parser.ContainerFactory;
+import org.json.simple.parser.JSONParser;
+
+/**
+ * Compares the decoding of JSON arrays of models as
+ * {@link SocialJSONDecodingSupport#JSONArrayObjectParser(Class, String)} did it before, parsing the array,
+ * serializing each element and parsing it again, and in one pass: time and allocated bytes per array,
+ * for arrays of 50, 200 and 1000 comments, liking identities and activities.
+ * <p>
+ * Run with: java -cp target/classes:target/test-classes:&lt;dependencies&gt;
+ * org.exoplatform.social.client.core.util.JSONArrayDecodingBenchmark [elements decoded by run]
+ */
+public class JSONArrayDecodingBenchmark {
+
+  private static final String COMMENT = "{\"id\":\"c1\",\"identityId\":\"f845f6ed7f000101003ed4d98a09beb3\","
+      + "\"text\":\"caf\\u00e9 with \\\"friends\\\"\",\"postedTime\":1309839511900,"
+      + "\"createdAt\":\"Tue Jul 5 11:18:32 +0700 2011\"}";
+
+  private static final int[] SIZES = {50, 200, 1000};
+
+  public static void main(String[] args) throws Exception {
+    int elements = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+    for (int round = 0; round < 2; round++) {
+      //the first round warms up the JIT
+      boolean report = round == 1;
+      for (int size : SIZES) {
+        run(report, "COMMENTS", RestCommentImpl.class, COMMENT, size, elements / size);
+        run(report, "LIKES", RestIdentityImpl.class, JSONDecodingBenchmark.IDENTITY, size, elements / size);
+        run(report, "ACTIVITIES", RestActivityImpl.class, JSONDecodingBenchmark.ACTIVITY, size, elements / size / 5);
+      }
+    }
+  }
+
+  private static void run(boolean report, String name, Class<? extends Model> clazz, String element, int size,
+                          int iterations) throws Exception {
+    StringBuilder array = new StringBuilder("[");
+    for (int i = 0; i < size; i++) {
+      array.append(i == 0 ? "" : ",").append(element);
+    }
+    String json = array.append(']').toString();
+
+    long bytes = JSONDecodingBenchmark.allocatedBytes();
+    long start = System.nanoTime();
+    for (int i = 0; i < iterations; i++) {
+      parseTwice(clazz, json);
+    }
+    print(report, name + "(" + size + ") twice", iterations, System.nanoTime() - start,
+          JSONDecodingBenchmark.allocatedBytes() - bytes);
+
+    bytes = JSONDecodingBenchmark.allocatedBytes();
+    start = System.nanoTime();
+    for (int i = 0; i < iterations; i++) {
+      SocialJSONDecodingSupport.JSONArrayObjectParser(clazz, json);
+    }
+    print(report, name + "(" + size + ") one pass", iterations, System.nanoTime() - start,
+          JSONDecodingBenchmark.allocatedBytes() - bytes);
+  }
+
+  /**
+   * The decoding of {@link SocialJSONDecodingSupport#JSONArrayObjectParser(Class, String)} before the
+   * {@link StreamingJSONDecoder}.
+   */
+  private static void parseTwice(Class<? extends Model> clazz, String json) throws Exception {
+    ContainerFactory containerFactory = JSONDecodingBenchmark.createContainerFactory(clazz);
+    for (Object element : (JSONArray) JSONValue.parse(json)) {
+      new JSONParser().parse(element.toString(), containerFactory);
+    }
+  }
+
+  private static void print(boolean report, String name, int iterations, long elapsed, long allocated) {
+    if (report) {
+      System.out.println(String.format("%-26s %5d arrays %10.1f us/array %10d bytes/array", name, iterations,
+                                       elapsed / 1e3 / iterations, allocated / iterations));
+    }
+  }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2003-2011 eXo Platform SAS.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.exoplatform.social.client.core.util;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.exoplatform.social.client.api.model.Model;
+import org.exoplatform.social.client.core.model.RestActivityImpl;
+import org.exoplatform.social.client.core.model.RestIdentityImpl;
+import org.json.simple.parser.ContainerFactory;
+import org.json.simple.parser.JSONParser;
+
+/**
+ * Compares the decoding of models by the json-simple {@link JSONParser}, as
+ * {@link SocialJSONDecodingSupport} did it before, and by the {@link StreamingJSONDecoder}: time and
+ * allocated bytes per decoding, for an identity, an activity and a page of 20 activities.
+ * <p>
+ * Run with: java -cp target/classes:target/test-classes:&lt;dependencies&gt;
+ * org.exoplatform.social.client.core.util.JSONDecodingBenchmark [iterations]
+ */
+public class JSONDecodingBenchmark {
+
+  static final String IDENTITY = "{\"id\":\"f845f6ed7f000101003ed4d98a09beb3\",\"providerId\":\"organization\","
+      + "\"remoteId\":\"demo\",\"profile\":{\"fullName\":\"Demo GTN\",\"avatarUrl\":"
+      + "\"http://localhost:8080/profile/u/demo/avatar.jpg?u=12345\"}}";
+
+  static final String ACTIVITY = "{\"appId\":null,\"identityId\":\"f845f6ed7f000101003ed4d98a09beb3\","
+      + "\"totalNumberOfComments\":2,\"liked\":false,\"templateParams\":{},\"postedTime\":1309839511830,"
+      + "\"type\":\"DEFAULT_ACTIVITY\",\"posterIdentity\":" + IDENTITY + ",\"activityStream\":{\"type\":\"user\","
+      + "\"prettyId\":\"demo\",\"fullName\":\"Demo GTN\",\"title\":\"Activity Stream of Demo GTN\"},"
+      + "\"id\":\"f884d11a7f000101000230e5c0e8a602\",\"title\":\"hello \\\"world\\\"\",\"priority\":0.5,"
+      + "\"createdAt\":\"Tue Jul 5 11:18:31 +0700 2011\",\"likedByIdentities\":[" + IDENTITY + "],\"titleId\":null,"
+      + "\"comments\":[{\"id\":\"c1\",\"identityId\":\"f845f6ed7f000101003ed4d98a09beb3\",\"text\":\"nice\","
+      + "\"postedTime\":1309839511900,\"createdAt\":\"Tue Jul 5 11:18:32 +0700 2011\"},{\"id\":\"c2\","
+      + "\"identityId\":\"f845f6ed7f000101003ed4d98a09beb3\",\"text\":\"caf\\u00e9\",\"postedTime\":1309839512000,"
+      + "\"createdAt\":\"Tue Jul 5 11:18:33 +0700 2011\"}]}";
+
+  private static final String ACTIVITY_PAGE;
+
+  static {
+    StringBuilder page = new StringBuilder("{\"activities\":[");
+    for (int i = 0; i < 20; i++) {
+      page.append(i == 0 ? "" : ",").append(ACTIVITY);
+    }
+    ACTIVITY_PAGE = page.append("]}").toString();
+  }
+
+  public static void main(String[] args) throws Exception {
+    int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 50000;
+    for (int round = 0; round < 2; round++) {
+      //the first round warms up the JIT
+      boolean report = round == 1;
+      run(report, "IDENTITY", RestIdentityImpl.class, IDENTITY, iterations);
+      run(report, "ACTIVITY", RestActivityImpl.class, ACTIVITY, iterations);
+      run(report, "PAGE(20)", RestActivityImpl.class, ACTIVITY_PAGE, iterations / 20);
+    }
+  }
+
+  private static void run(boolean report, String name, Class<? extends Model> clazz, String json, int iterations)
+      throws Exception {
+    long bytes = allocatedBytes();
+    long start = System.nanoTime();
+    for (int i = 0; i < iterations; i++) {
+      new JSONParser().parse(json, createContainerFactory(clazz));
+    }
+    print(report, name + " json-simple", iterations, System.nanoTime() - start, allocatedBytes() - bytes);
+
+    bytes = allocatedBytes();
+    start = System.nanoTime();
+    for (int i = 0; i < iterations; i++) {
+      SocialJSONDecodingSupport.parser(clazz, json);
+    }
+    print(report, name + " streaming", iterations, System.nanoTime() - start, allocatedBytes() - bytes);
+  }
+
+  /**
+   * The container factory of {@link SocialJSONDecodingSupport} before the {@link StreamingJSONDecoder}.
+   */
+  static ContainerFactory createContainerFactory(final Class<? extends Model> clazz) {
+    return new ContainerFactory() {
+      public List creatArrayContainer() {
+        return new LinkedList();
+      }
+
+      public Model createObjectContainer() {
+        try {
+          return clazz.newInstance();
+        } catch (InstantiationException e) {
+          return null;
+        } catch (IllegalAccessException e) {
+          return null;
+        }
+      }
+    };
+  }
+
+  static long allocatedBytes() {
+    java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    if (threads instanceof com.sun.management.ThreadMXBean) {
+      return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+    return 0;
+  }
+
+  private static void print(boolean report, String name, int iterations, long elapsed, long allocated) {
+    if (report) {
+      System.out.println(String.format("%-21s %6d calls %9.2f us/call %9d bytes/call", name, iterations,
+                                       elapsed / 1e3 / iterations, allocated / iterations));
+    }
+  }
+}
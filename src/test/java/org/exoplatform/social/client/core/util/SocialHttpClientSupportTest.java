@@ -0,0 +1,1222 @@
+/*
+ * Copyright (C) 2003-2011 eXo Platform SAS.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.exoplatform.social.client.core.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Vector;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import javax.net.ssl.SSLException;
+
+import com.sun.net.httpserver.HttpExchange;
+import org.apache.http.HttpHost;
+import org.apache.http.HttpResponse;
+import org.apache.http.params.BasicHttpParams;
+import org.apache.http.params.HttpParams;
+import org.exoplatform.social.client.api.SocialClientContext;
+import org.exoplatform.social.client.api.SocialClientContext.Context;
+import org.exoplatform.social.client.api.SocialClientContext.Context.Phase;
+import org.exoplatform.social.client.api.SocialClientLibException;
+import org.exoplatform.social.client.api.auth.NotFoundException;
+import org.exoplatform.social.client.api.model.RestActivity;
+import org.exoplatform.social.client.api.model.RestIdentity;
+import org.exoplatform.social.client.api.net.Deadline;
+import org.exoplatform.social.client.api.net.DeadlineExceededException;
+import org.exoplatform.social.client.api.net.RequestTracer;
+import org.exoplatform.social.client.api.net.SocialHttpClient;
+import org.exoplatform.social.client.api.net.SocialHttpClient.POLICY;
+import org.exoplatform.social.client.api.net.SocialHttpClientException;
+import org.exoplatform.social.client.api.service.AsyncCallback;
+import org.exoplatform.social.client.api.service.ServiceException;
+import org.exoplatform.social.client.core.model.RestActivityImpl;
+import org.exoplatform.social.client.core.model.RestIdentityImpl;
+import org.exoplatform.social.client.core.net.AuthSession;
+import org.exoplatform.social.client.core.net.CircuitBreaker;
+import org.exoplatform.social.client.core.net.CircuitBreakerOpenException;
+import org.exoplatform.social.client.core.net.ConcurrencyLimitExceededException;
+import org.exoplatform.social.client.core.net.ConcurrencyLimiter;
+import org.exoplatform.social.client.core.net.EndpointPool;
+import org.exoplatform.social.client.core.net.HedgePolicy;
+import org.exoplatform.social.client.core.net.MockSocialServer;
+import org.exoplatform.social.client.core.net.RetryPolicy;
+import org.exoplatform.social.client.core.net.SocialHttpClientImpl;
+import org.exoplatform.social.client.core.net.TransferStats;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+/**
+ * Unit Test for {@link SocialHttpClientSupport} against a {@link MockSocialServer}.
+ */
+public class SocialHttpClientSupportTest {
+
+  private MockSocialServer server;
+
+  private boolean developing;
+
+  private final AtomicBoolean slowNext = new AtomicBoolean();
+
+  @BeforeMethod
+  public void setUp() throws Exception {
+    developing = SocialClientContext.isDeveloping();
+    SocialClientContext.setIsDeveloping(false);
+    SocialClientContext.setRetryBackoff(1);
+    SocialClientContext.setMaxRetryBackoff(5);
+    CircuitBreaker.resetAll();
+    ConcurrencyLimiter.resetAll();
+    server = new MockSocialServer();
+    server.configureContext();
+  }
+
+  @AfterMethod
+  public void tearDown() throws Exception {
+    SocialHttpClientImpl.shutdownInstance();
+    server.stop();
+    SocialClientContext.setHost(null);
+    SocialClientContext.setPort(0);
+    SocialClientContext.setPortalContainerName(null);
+    SocialClientContext.setRestContextName(null);
+    SocialClientContext.setUsername(null);
+    SocialClientContext.setPassword(null);
+    SocialClientContext.setIsDeveloping(developing);
+    SocialClientContext.setProtocol("http");
+    SocialClientContext.setSSLContext(null);
+    SocialClientContext.setMaxRetries(2);
+    SocialClientContext.setRetryBackoff(100);
+    SocialClientContext.setMaxRetryBackoff(2 * 1000);
+    SocialClientContext.setCircuitBreakerFailureThreshold(5);
+    SocialClientContext.setCircuitBreakerOpenTime(10 * 1000);
+    SocialClientContext.setCircuitBreakerHalfOpenTimeout(30 * 1000);
+    CircuitBreaker.resetAll();
+    SocialClientContext.setHedging(false);
+    SocialClientContext.setHedgeLatencyPercentile(95);
+    SocialClientContext.setHedgeBudget(10);
+    SocialClientContext.setMaxHedgeThreads(40);
+    HedgePolicy.reset();
+    SocialClientContext.setConcurrencyLimiting(false);
+    SocialClientContext.setInitialConcurrencyLimit(20);
+    SocialClientContext.setConcurrencyQueueTimeout(100);
+    ConcurrencyLimiter.resetAll();
+    SocialClientContext.setAuthSession(false);
+    AuthSession.resetAll();
+    SocialClientContext.setEndpoints(null);
+    SocialClientContext.setLoadBalancing(SocialClientContext.LoadBalancing.LEAST_OUTSTANDING);
+    SocialClientContext.setStickySessions(false);
+    SocialClientContext.setHealthCheckInterval(10 * 1000);
+    EndpointPool.reset();
+    SocialClientContext.setTracer(null);
+  }
+
+  @Test
+  public void shouldReuseConnectionsAcrossRequests() throws Exception {
+    server.setResponder(MockSocialServer.json(200, "{\"version\":\"v1-alpha3\"}"));
+    for (int i = 0; i < 10; i++) {
+      HttpResponse response = SocialHttpClientSupport.executeGet("/rest-socialdemo/api/social/version/latest.json",
+                                                                 POLICY.NO_AUTH);
+      assertEquals(response.getStatusLine().getStatusCode(), 200);
+      assertEquals(SocialHttpClientSupport.getContent(response), "{\"version\":\"v1-alpha3\"}");
+    }
+    assertEquals(server.getRequestCount(), 10);
+    assertEquals(server.getConnectionCount(), 1);
+  }
+
+  @Test
+  public void shouldReleaseConnectionsOnErrorResponses() throws Exception {
+    SocialClientContext.setMaxConnectionsPerRoute(1);
+    try {
+      server.setResponder(MockSocialServer.json(404, "{}"));
+      for (int i = 0; i < 5; i++) {
+        HttpResponse response = SocialHttpClientSupport.executeGet("/rest-socialdemo/not-found.json", POLICY.NO_AUTH);
+        assertEquals(response.getStatusLine().getStatusCode(), 404);
+        try {
+          SocialHttpClientSupport.handleError(response);
+          fail("Expected a SocialClientLibException");
+        } catch (SocialClientLibException e) {
+          assertTrue(e.getCause() instanceof NotFoundException);
+        }
+      }
+      assertEquals(server.getRequestCount(), 5);
+    } finally {
+      SocialClientContext.setMaxConnectionsPerRoute(20);
+    }
+  }
+
+  @Test
+  public void shouldNotWaitForeverForAPooledConnection() throws Exception {
+    SocialHttpClientImpl.shutdownInstance();
+    SocialClientContext.setMaxConnectionsPerRoute(1);
+    SocialClientContext.setConnectionLeaseTimeout(200);
+    SocialClientContext.setMaxRetries(0);
+    try {
+      //the content of the first response is not read: its connection is never released
+      SocialHttpClientSupport.executeGet("/rest-socialdemo/foo.json", POLICY.NO_AUTH);
+      long start = System.currentTimeMillis();
+      try {
+        SocialHttpClientSupport.executeGet("/rest-socialdemo/foo.json", POLICY.NO_AUTH);
+        fail("Expected a SocialHttpClientException");
+      } catch (SocialHttpClientException e) {
+        long elapsed = System.currentTimeMillis() - start;
+        assertTrue(elapsed >= 150 && elapsed < 2000, "took " + elapsed + "ms");
+      }
+    } finally {
+      SocialClientContext.setMaxConnectionsPerRoute(20);
+      SocialClientContext.setConnectionLeaseTimeout(10 * 1000);
+    }
+  }
+
+  @Test
+  public void shouldSendCredentialsOnlyWhenRequired() throws Exception {
+    final List<String> authorizations = new Vector<String>();
+    server.setResponder(new MockSocialServer.Responder() {
+      @Override
+      public void respond(HttpExchange exchange, byte[] requestBody) throws IOException {
+        authorizations.add(String.valueOf(exchange.getRequestHeaders().getFirst("Authorization")));
+        MockSocialServer.json(200, "{}").respond(exchange, requestBody);
+      }
+    });
+    SocialClientContext.setUsername("demo");
+    SocialClientContext.setPassword("gtn");
+    SocialHttpClientSupport.executeGet("/rest-socialdemo/private/foo.json", POLICY.BASIC_AUTH);
+    //the shared client never keeps the credentials of a caller
+    SocialHttpClientImpl.getInstance().setBasicAuthenticateToRequest();
+    SocialHttpClientSupport.executeGet("/rest-socialdemo/foo.json", POLICY.NO_AUTH);
+    assertEquals(authorizations.size(), 2);
+    assertEquals(authorizations.get(0), "Basic ZGVtbzpndG4=");
+    assertEquals(authorizations.get(1), "null");
+  }
+
+  @Test
+  public void shouldReuseTheServerSessionAndFallBackToBasicOn401() throws Exception {
+    final List<String> authorizations = new Vector<String>();
+    final MockSocialServer.SessionAuthenticator authenticator =
+        new MockSocialServer.SessionAuthenticator(0, MockSocialServer.json(200, "{}"));
+    server.setResponder(new MockSocialServer.Responder() {
+      @Override
+      public void respond(HttpExchange exchange, byte[] requestBody) throws IOException {
+        authorizations.add(String.valueOf(exchange.getRequestHeaders().getFirst("Authorization")));
+        authenticator.respond(exchange, requestBody);
+      }
+    });
+    SocialClientContext.setAuthSession(true);
+    SocialClientContext.setUsername("demo");
+    SocialClientContext.setPassword("gtn");
+    for (int i = 0; i < 3; i++) {
+      HttpResponse response = SocialHttpClientSupport.executeGet("/rest-socialdemo/private/foo.json", POLICY.BASIC_AUTH);
+      assertEquals(SocialHttpClientSupport.getContent(response), "{}");
+    }
+    assertEquals(authorizations, Arrays.asList("Basic ZGVtbzpndG4=", "null", "null"));
+    assertEquals(authenticator.getAuthenticationCount(), 1);
+
+    //the session cookie is not sent by the requests without authentication
+    HttpResponse response = SocialHttpClientSupport.executeGet("/rest-socialdemo/foo.json", POLICY.NO_AUTH);
+    assertEquals(response.getStatusLine().getStatusCode(), 401);
+    SocialHttpClientSupport.getContent(response);
+
+    authenticator.invalidateSessions();
+    response = SocialHttpClientSupport.executeGet("/rest-socialdemo/private/foo.json", POLICY.BASIC_AUTH);
+    assertEquals(SocialHttpClientSupport.getContent(response), "{}");
+    assertEquals(authenticator.getAuthenticationCount(), 2);
+    assertEquals(authorizations.subList(4, 6), Arrays.asList("null", "Basic ZGVtbzpndG4="));
+
+    AuthSession session = AuthSession.forCredentials(new HttpHost("127.0.0.1", server.getPort(), "http"), "demo", "gtn");
+    assertEquals(session.getAuthenticatedCount(), 2);
+    assertEquals(session.getReusedCount(), 3);
+    assertEquals(session.getExpiredCount(), 1);
+    assertNotSame(AuthSession.forCredentials(session.getHost(), "demo", "other"), session);
+  }
+
+  @Test
+  public void shouldDecodeGzipResponses() throws Exception {
+    final String json = "{\"activities\":\"" + repeat("like ", 200) + "\"}";
+    final List<String> acceptEncodings = new Vector<String>();
+    server.setResponder(new MockSocialServer.Responder() {
+      @Override
+      public void respond(HttpExchange exchange, byte[] requestBody) throws IOException {
+        acceptEncodings.add(exchange.getRequestHeaders().getFirst("Accept-Encoding"));
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        GZIPOutputStream gzip = new GZIPOutputStream(buffer);
+        gzip.write(json.getBytes("UTF-8"));
+        gzip.close();
+        sendEncoded(exchange, "gzip", buffer.toByteArray());
+      }
+    });
+    HttpResponse response = SocialHttpClientSupport.executeGet("/rest-socialdemo/foo.json", POLICY.NO_AUTH);
+    assertEquals(SocialHttpClientSupport.getContent(response), json);
+    assertEquals(acceptEncodings.get(0), "gzip,deflate");
+    TransferStats stats = SocialHttpClientSupport.getLastTransferStats();
+    assertEquals(stats.getResponseBytes(), json.length());
+    assertTrue(stats.getResponseWireBytes() < json.length() / 4, stats.toString());
+    assertEquals(stats.getSavedBytes(), stats.getResponseBytes() - stats.getResponseWireBytes());
+  }
+
+  @Test
+  public void shouldDecodeDeflateResponses() throws Exception {
+    final String json = "{\"comments\":\"" + repeat("comment ", 100) + "\"}";
+    server.setResponder(new MockSocialServer.Responder() {
+      @Override
+      public void respond(HttpExchange exchange, byte[] requestBody) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        DeflaterOutputStream deflate = new DeflaterOutputStream(buffer);
+        deflate.write(json.getBytes("UTF-8"));
+        deflate.close();
+        sendEncoded(exchange, "deflate", buffer.toByteArray());
+      }
+    });
+    HttpResponse response = SocialHttpClientSupport.executeGet("/rest-socialdemo/foo.json", POLICY.NO_AUTH);
+    assertEquals(SocialHttpClientSupport.getContent(response), json);
+  }
+
+  @Test
+  public void shouldCompressLargeRequestContentsWhenEnabled() throws Exception {
+    final List<String> contentEncodings = new Vector<String>();
+    final List<byte[]> bodies = new Vector<byte[]>();
+    server.setResponder(new MockSocialServer.Responder() {
+      @Override
+      public void respond(HttpExchange exchange, byte[] requestBody) throws IOException {
+        contentEncodings.add(String.valueOf(exchange.getRequestHeaders().getFirst("Content-Encoding")));
+        bodies.add(requestBody);
+        MockSocialServer.json(200, "{}").respond(exchange, requestBody);
+      }
+    });
+    RestActivity small = new RestActivityImpl();
+    small.setTitle("Hello");
+    RestActivity large = new RestActivityImpl();
+    large.setTitle(repeat("Hello ", 100));
+
+    SocialHttpClientSupport.executePost("/rest-socialdemo/activity.json", POLICY.NO_AUTH, large);
+    SocialClientContext.setRequestCompression(true);
+    try {
+      SocialHttpClientSupport.executePost("/rest-socialdemo/activity.json", POLICY.NO_AUTH, small);
+      SocialHttpClientSupport.executePost("/rest-socialdemo/activity.json", POLICY.NO_AUTH, large);
+    } finally {
+      SocialClientContext.setRequestCompression(false);
+    }
+    assertEquals(contentEncodings, Arrays.asList("null", "null", "gzip"));
+    String expected = new String(SocialHttpClientSupport.convertModelToByteArray(large), "UTF-8");
+    assertEquals(new String(bodies.get(0), "UTF-8"), expected);
+    GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(bodies.get(2)));
+    assertEquals(new String(MockSocialServer.readFully(gzip), "UTF-8"), expected);
+    TransferStats stats = SocialHttpClientSupport.getLastTransferStats();
+    assertEquals(stats.getRequestBytes(), expected.length());
+    assertEquals(stats.getRequestWireBytes(), bodies.get(2).length);
+  }
+
+  @Test
+  public void shouldStreamModelContentChunked() throws Exception {
+    final List<String> transferEncodings = new Vector<String>();
+    final List<byte[]> bodies = new Vector<byte[]>();
+    server.setResponder(new MockSocialServer.Responder() {
+      @Override
+      public void respond(HttpExchange exchange, byte[] requestBody) throws IOException {
+        transferEncodings.add(String.valueOf(exchange.getRequestHeaders().getFirst("Transfer-Encoding")));
+        bodies.add(requestBody);
+        MockSocialServer.json(200, "{}").respond(exchange, requestBody);
+      }
+    });
+    RestActivity activity = new RestActivityImpl();
+    activity.setTitle("H\u00e9llo " + repeat("\u4e16\u754c ", 5000));
+    SocialHttpClientSupport.executePost("/rest-socialdemo/activity.json", POLICY.NO_AUTH, activity);
+    assertEquals(transferEncodings.get(0), "chunked");
+    assertEquals(new String(bodies.get(0), "UTF-8"), activity.toJSONString());
+    TransferStats stats = SocialHttpClientSupport.getLastTransferStats();
+    assertEquals(stats.getRequestBytes(), bodies.get(0).length);
+  }
+
+  @Test
+  public void shouldDecodeChunkedResponsesWhileStreaming() throws Exception {
+    final String title = "H\u00e9llo " + repeat("\u4e16\u754c ", 2000);
+    server.setResponder(new MockSocialServer.Responder() {
+      @Override
+      public void respond(HttpExchange exchange, byte[] requestBody) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, 0);
+        OutputStream out = exchange.getResponseBody();
+        out.write("{\"activities\":[".getBytes("UTF-8"));
+        for (int i = 0; i < 3; i++) {
+          out.write(((i > 0 ? "," : "") + "{\"id\":\"a" + i + "\",\"title\":\"" + title + "\"}").getBytes("UTF-8"));
+          out.flush();
+        }
+        out.write("]}".getBytes("UTF-8"));
+        out.close();
+      }
+    });
+    SocialClientContext.setMaxConnectionsPerRoute(1);
+    try {
+      for (int i = 0; i < 5; i++) {
+        HttpResponse response = SocialHttpClientSupport.executeGet("/rest-socialdemo/stream.json", POLICY.NO_AUTH);
+        assertEquals(response.getFirstHeader("Transfer-Encoding").getValue(), "chunked");
+        List<RestActivityImpl> activities = SocialJSONDecodingSupport.JSONArrayObjectParser(RestActivityImpl.class,
+                                                                                           response, "activities");
+        assertEquals(activities.size(), 3);
+        assertEquals(activities.get(2).getId(), "a2");
+        assertEquals(activities.get(2).getTitle(), title);
+      }
+      HttpResponse response = SocialHttpClientSupport.executeGet("/rest-socialdemo/stream.json", POLICY.NO_AUTH);
+      assertTrue(SocialHttpClientSupport.getContent(response).endsWith(title + "\"}]}"));
+    } finally {
+      SocialClientContext.setMaxConnectionsPerRoute(20);
+    }
+    assertEquals(server.getConnectionCount(), 1);
+  }
+
+  @Test
+  public void shouldReleaseConnectionsWhenStreamedGzipParseEnds() throws Exception {
+    final String json = "{\"id\":\"i1\",\"providerId\":\"" + repeat("organization", 100) + "\"}";
+    server.setResponder(new MockSocialServer.Responder() {
+      @Override
+      public void respond(HttpExchange exchange, byte[] requestBody) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        GZIPOutputStream gzip = new GZIPOutputStream(buffer);
+        gzip.write(json.getBytes("UTF-8"));
+        gzip.close();
+        sendEncoded(exchange, "gzip", buffer.toByteArray());
+      }
+    });
+    SocialClientContext.setMaxConnectionsPerRoute(1);
+    try {
+      for (int i = 0; i < 5; i++) {
+        HttpResponse response = SocialHttpClientSupport.executeGet("/rest-socialdemo/identity.json", POLICY.NO_AUTH);
+        RestIdentity identity = SocialJSONDecodingSupport.parser(RestIdentityImpl.class, response);
+        assertEquals(identity.getId(), "i1");
+      }
+    } finally {
+      SocialClientContext.setMaxConnectionsPerRoute(20);
+    }
+    assertEquals(server.getConnectionCount(), 1);
+  }
+
+  @Test
+  public void shouldKeepHttpsConnectionsAliveAndResumeTlsSessions() throws Exception {
+    MockSocialServer secureServer = new MockSocialServer(true);
+    try {
+      secureServer.configureContext();
+      //TLS 1.2 so that the server sees the resumed session under the same id
+      SocialClientContext.setSSLContext(MockSocialServer.createClientSSLContext("TLSv1.2"));
+      for (int i = 0; i < 5; i++) {
+        HttpResponse response = SocialHttpClientSupport.executeGet("/rest-socialdemo/foo.json", POLICY.NO_AUTH);
+        assertEquals(SocialHttpClientSupport.getContent(response), "{}");
+      }
+      assertEquals(secureServer.getConnectionCount(), 1);
+      //a new pool opens a new connection, which resumes the cached session
+      SocialHttpClientImpl.shutdownInstance();
+      HttpResponse response = SocialHttpClientSupport.executeGet("/rest-socialdemo/foo.json", POLICY.NO_AUTH);
+      assertEquals(SocialHttpClientSupport.getContent(response), "{}");
+      assertEquals(secureServer.getConnectionCount(), 2);
+      assertEquals(secureServer.getSSLSessionCount(), 1);
+    } finally {
+      secureServer.stop();
+    }
+  }
+
+  @Test
+  public void shouldVerifyHttpsHostName() throws Exception {
+    MockSocialServer secureServer = new MockSocialServer(true);
+    try {
+      secureServer.configureContext();
+      SocialClientContext.setHost("localhost");
+      SocialClientContext.setSSLContext(MockSocialServer.createClientSSLContext("TLS"));
+      try {
+        SocialHttpClientSupport.executeGet("/rest-socialdemo/foo.json", POLICY.NO_AUTH);
+        fail("Expected a SocialHttpClientException");
+      } catch (SocialHttpClientException e) {
+        assertTrue(e.getCause() instanceof SSLException, String.valueOf(e.getCause()));
+      }
+    } finally {
+      secureServer.stop();
+    }
+  }
+
+  @Test
+  public void shouldRetryGetsOnTransientErrors() throws Exception {
+    final AtomicInteger calls = new AtomicInteger();
+    server.setResponder(new MockSocialServer.Responder() {
+      @Override
+      public void respond(HttpExchange exchange, byte[] requestBody) throws IOException {
+        int status = calls.incrementAndGet() <= 2 ? 503 : 200;
+        MockSocialServer.json(status, "{}").respond(exchange, requestBody);
+      }
+    });
+    long retries = RetryPolicy.getRetryCount();
+    long recovered = RetryPolicy.getRecoveredCount();
+    HttpResponse response = SocialHttpClientSupport.executeGet("/rest-socialdemo/foo.json", POLICY.NO_AUTH);
+    assertEquals(response.getStatusLine().getStatusCode(), 200);
+    assertEquals(SocialHttpClientSupport.getContent(response), "{}");
+    assertEquals(server.getRequestCount(), 3);
+    assertEquals(RetryPolicy.getRetryCount() - retries, 2);
+    assertEquals(RetryPolicy.getRecoveredCount() - recovered, 1);
+    assertEquals(server.getConnectionCount(), 1);
+  }
+
+  @Test
+  public void shouldRetryPostsOnlyWhenOptedIn() throws Exception {
+    server.setResponder(MockSocialServer.json(503, "{}"));
+    RestActivity activity = new RestActivityImpl();
+    activity.setTitle("Hello");
+    HttpResponse response = SocialHttpClientSupport.executePost("/rest-socialdemo/activity.json", POLICY.NO_AUTH, activity);
+    assertEquals(response.getStatusLine().getStatusCode(), 503);
+    SocialHttpClientSupport.getContent(response);
+    assertEquals(server.getRequestCount(), 1);
+
+    long exhausted = RetryPolicy.getExhaustedCount();
+    HttpParams params = new BasicHttpParams();
+    RetryPolicy.setRetryable(params, true);
+    response = SocialHttpClientSupport.executePost("/rest-socialdemo/activity.json", POLICY.NO_AUTH, params, activity);
+    assertEquals(response.getStatusLine().getStatusCode(), 503);
+    try {
+      SocialHttpClientSupport.handleError(response);
+      fail("Expected a ServiceException");
+    } catch (ServiceException e) {
+      assertTrue(e.getMessage().contains("503"), e.getMessage());
+    }
+    assertEquals(server.getRequestCount(), 4);
+    assertEquals(RetryPolicy.getExhaustedCount() - exhausted, 1);
+  }
+
+  @Test
+  public void shouldRetryConnectFailures() throws Exception {
+    server.stop();
+    long retries = RetryPolicy.getRetryCount();
+    try {
+      SocialHttpClientSupport.executeGet("/rest-socialdemo/foo.json", POLICY.NO_AUTH);
+      fail("Expected a SocialHttpClientException");
+    } catch (SocialHttpClientException e) {
+      assertTrue(e.getCause() instanceof IOException);
+    }
+    assertEquals(RetryPolicy.getRetryCount() - retries, 2);
+  }
+
+  @Test
+  public void shouldFailFastWhileCircuitIsOpen() throws Exception {
+    SocialClientContext.setMaxRetries(0);
+    SocialClientContext.setCircuitBreakerFailureThreshold(3);
+    SocialClientContext.setCircuitBreakerOpenTime(200);
+    server.setResponder(MockSocialServer.json(502, "{}"));
+    for (int i = 0; i < 3; i++) {
+      HttpResponse response = SocialHttpClientSupport.executeGet("/rest-socialdemo/foo.json", POLICY.NO_AUTH);
+      assertEquals(response.getStatusLine().getStatusCode(), 502);
+      SocialHttpClientSupport.getContent(response);
+    }
+    CircuitBreaker breaker = CircuitBreaker.forHost(new HttpHost("127.0.0.1", server.getPort(), "http"));
+    assertEquals(breaker.getState(), CircuitBreaker.State.OPEN);
+    try {
+      SocialHttpClientSupport.executeGet("/rest-socialdemo/foo.json", POLICY.NO_AUTH);
+      fail("Expected a SocialHttpClientException");
+    } catch (SocialHttpClientException e) {
+      assertTrue(e.getCause() instanceof CircuitBreakerOpenException);
+    }
+    assertEquals(server.getRequestCount(), 3);
+    assertEquals(breaker.getRejectedCount(), 1);
+
+    //the trial request after the open time closes the circuit
+    server.setResponder(MockSocialServer.json(200, "{}"));
+    Thread.sleep(250);
+    HttpResponse response = SocialHttpClientSupport.executeGet("/rest-socialdemo/foo.json", POLICY.NO_AUTH);
+    assertEquals(SocialHttpClientSupport.getContent(response), "{}");
+    assertEquals(breaker.getState(), CircuitBreaker.State.CLOSED);
+    assertEquals(breaker.getOpenCount(), 1);
+    assertTrue(CircuitBreaker.getBreakers().containsValue(breaker));
+  }
+
+  @Test
+  public void shouldNotEjectAnEndpointForTheFastFailuresOfItsCircuit() throws Exception {
+    SocialClientContext.setMaxRetries(0);
+    SocialClientContext.setCircuitBreakerFailureThreshold(1);
+    server.setResponder(MockSocialServer.json(502, "{}"));
+    SocialHttpClientSupport.getContent(SocialHttpClientSupport.executeGet("/rest-socialdemo/foo.json", POLICY.NO_AUTH));
+    for (int i = 0; i < 5; i++) {
+      try {
+        SocialHttpClientSupport.executeGet("/rest-socialdemo/foo.json", POLICY.NO_AUTH);
+        fail("Expected a SocialHttpClientException");
+      } catch (SocialHttpClientException e) {
+        assertTrue(e.getCause() instanceof CircuitBreakerOpenException);
+      }
+    }
+    assertEquals(server.getRequestCount(), 1);
+    assertTrue(EndpointPool.getEndpoints().get(0).isHealthy());
+  }
+
+  @Test
+  public void shouldCountOnlyTheFailuresOfTheHostAgainstTheCircuit() throws Exception {
+    SocialClientContext.setMaxRetries(0);
+    SocialClientContext.setCircuitBreakerFailureThreshold(1);
+    SocialClientContext.setCircuitBreakerOpenTime(50);
+    server.setResponder(MockSocialServer.json(502, "{}"));
+    SocialHttpClientSupport.getContent(SocialHttpClientSupport.executeGet("/rest-socialdemo/foo.json", POLICY.NO_AUTH));
+    CircuitBreaker breaker = CircuitBreaker.forHost(new HttpHost("127.0.0.1", server.getPort(), "http"));
+    assertEquals(breaker.getState(), CircuitBreaker.State.OPEN);
+
+    //a trial cut off by the deadline is not a failure of the host, the circuit is ready for a new trial
+    server.setResponder(slowOnce(2000));
+    slowNext.set(true);
+    Thread.sleep(80);
+    Deadline deadline = Deadline.start(50, TimeUnit.MILLISECONDS);
+    try {
+      SocialHttpClientSupport.executeGet("/rest-socialdemo/foo.json", POLICY.NO_AUTH);
+      fail("Expected a DeadlineExceededException");
+    } catch (DeadlineExceededException e) {
+      assertEquals(breaker.getState(), CircuitBreaker.State.OPEN);
+      assertEquals(breaker.getOpenCount(), 1);
+    } finally {
+      deadline.end();
+    }
+    HttpResponse response = SocialHttpClientSupport.executeGet("/rest-socialdemo/foo.json", POLICY.NO_AUTH);
+    assertEquals(SocialHttpClientSupport.getContent(response), "{}");
+    assertEquals(breaker.getState(), CircuitBreaker.State.CLOSED);
+
+    //nor is an error which is not retried, as a TLS error, whether the request is a trial or not
+    final ServerSocket plainServer = new ServerSocket(0, 10, InetAddress.getByName("127.0.0.1"));
+    Thread answerer = new Thread() {
+      @Override
+      public void run() {
+        try {
+          while (true) {
+            Socket socket = plainServer.accept();
+            socket.getOutputStream().write("HTTP/1.1 400 Bad Request\r\n\r\n".getBytes("US-ASCII"));
+            socket.close();
+          }
+        } catch (IOException e) {
+          //closed
+        }
+      }
+    };
+    answerer.start();
+    try {
+      SocialClientContext.setProtocol("https");
+      SocialClientContext.setPort(plainServer.getLocalPort());
+      CircuitBreaker secureBreaker = CircuitBreaker.forHost(new HttpHost("127.0.0.1", plainServer.getLocalPort(), "https"));
+      for (int i = 0; i < 2; i++) {
+        try {
+          SocialHttpClientSupport.executeGet("/rest-socialdemo/foo.json", POLICY.NO_AUTH);
+          fail("Expected a SocialHttpClientException");
+        } catch (SocialHttpClientException e) {
+          assertTrue(e.getCause() instanceof SSLException, String.valueOf(e.getCause()));
+        }
+        assertEquals(secureBreaker.getState(), CircuitBreaker.State.CLOSED);
+        assertEquals(secureBreaker.getConsecutiveFailures(), 0);
+      }
+      secureBreaker.recordFailure();
+      Thread.sleep(80);
+      for (int i = 0; i < 2; i++) {
+        try {
+          SocialHttpClientSupport.executeGet("/rest-socialdemo/foo.json", POLICY.NO_AUTH);
+          fail("Expected a SocialHttpClientException");
+        } catch (SocialHttpClientException e) {
+          assertTrue(e.getCause() instanceof SSLException, String.valueOf(e.getCause()));
+        }
+        assertEquals(secureBreaker.getState(), CircuitBreaker.State.OPEN);
+      }
+      assertEquals(secureBreaker.getOpenCount(), 1);
+    } finally {
+      plainServer.close();
+    }
+  }
+
+  @Test
+  public void shouldReopenTheCircuitWhenTheTrialTakesTooLong() throws Exception {
+    SocialClientContext.setCircuitBreakerFailureThreshold(1);
+    SocialClientContext.setCircuitBreakerOpenTime(20);
+    SocialClientContext.setCircuitBreakerHalfOpenTimeout(50);
+    CircuitBreaker breaker = CircuitBreaker.forHost(new HttpHost("127.0.0.1", server.getPort(), "http"));
+    breaker.recordFailure();
+    Thread.sleep(30);
+    assertTrue(breaker.allowRequest());
+    assertEquals(breaker.getState(), CircuitBreaker.State.HALF_OPEN);
+    assertTrue(!breaker.allowRequest());
+    //the outcome of the trial is never recorded
+    Thread.sleep(60);
+    assertTrue(!breaker.allowRequest());
+    assertEquals(breaker.getState(), CircuitBreaker.State.OPEN);
+    Thread.sleep(30);
+    assertTrue(breaker.allowRequest());
+  }
+
+  @Test
+  public void shouldHedgeSlowGets() throws Exception {
+    //far above the jitter of the client, so that only the slow request is hedged
+    server.setResponder(slowOnce(1000, 20));
+    SocialClientContext.setHedging(true);
+    SocialClientContext.setHedgeBudget(100);
+    for (int i = 0; i < 30; i++) {
+      HttpResponse response = SocialHttpClientSupport.executeGet("/rest-socialdemo/foo.json", POLICY.NO_AUTH);
+      assertEquals(SocialHttpClientSupport.getContent(response), "{}");
+    }
+    HttpHost host = new HttpHost("127.0.0.1", server.getPort(), "http");
+    assertTrue(HedgePolicy.getLatencyPercentile(host, 95) >= 0);
+    long wins = HedgePolicy.getHedgeWinCount();
+    int requests = server.getRequestCount();
+
+    slowNext.set(true);
+    long start = System.currentTimeMillis();
+    HttpResponse response = SocialHttpClientSupport.executeGet("/rest-socialdemo/foo.json", POLICY.NO_AUTH);
+    assertEquals(SocialHttpClientSupport.getContent(response), "{}");
+    long elapsed = System.currentTimeMillis() - start;
+    assertTrue(elapsed < 800, "took " + elapsed + "ms");
+    assertTrue(HedgePolicy.getHedgeWinCount() > wins);
+    assertTrue(server.getRequestCount() >= requests + 2);
+  }
+
+  @Test
+  public void shouldRecordTheLatencyOfTheRequestsBeatenByTheirHedge() throws Exception {
+    long delay = 50;
+    server.setResponder(slowOnce(2000, delay));
+    SocialClientContext.setHedging(true);
+    SocialClientContext.setHedgeBudget(100);
+    for (int i = 0; i < 20; i++) {
+      HttpResponse response = SocialHttpClientSupport.executeGet("/rest-socialdemo/foo.json", POLICY.NO_AUTH);
+      assertEquals(SocialHttpClientSupport.getContent(response), "{}");
+    }
+    HttpHost host = new HttpHost("127.0.0.1", server.getPort(), "http");
+    long hedgeDelay = HedgePolicy.getLatencyPercentile(host, 95);
+    long wins = HedgePolicy.getHedgeWinCount();
+
+    slowNext.set(true);
+    HttpResponse response = SocialHttpClientSupport.executeGet("/rest-socialdemo/foo.json", POLICY.NO_AUTH);
+    assertEquals(SocialHttpClientSupport.getContent(response), "{}");
+    assertTrue(HedgePolicy.getHedgeWinCount() > wins);
+    //the beaten request is recorded once aborted: it took the hedge delay and the hedge latency at least
+    long deadline = System.currentTimeMillis() + 1000;
+    while (HedgePolicy.getLatencyPercentile(host, 100) < hedgeDelay + delay && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    assertTrue(HedgePolicy.getLatencyPercentile(host, 100) >= hedgeDelay + delay,
+               HedgePolicy.getLatencyPercentile(host, 100) + "ms");
+  }
+
+  @Test
+  public void shouldNotHedgeWhenAllTheHedgeThreadsAreBusy() throws Exception {
+    final AtomicInteger delay = new AtomicInteger(0);
+    server.setResponder(new MockSocialServer.Responder() {
+      @Override
+      public void respond(HttpExchange exchange, byte[] requestBody) throws IOException {
+        try {
+          Thread.sleep(delay.get());
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        MockSocialServer.json(200, "{}").respond(exchange, requestBody);
+      }
+    });
+    SocialClientContext.setHedging(true);
+    SocialClientContext.setMaxHedgeThreads(2);
+    for (int i = 0; i < 20; i++) {
+      HttpResponse response = SocialHttpClientSupport.executeGet("/rest-socialdemo/foo.json", POLICY.NO_AUTH);
+      assertEquals(SocialHttpClientSupport.getContent(response), "{}");
+    }
+    delay.set(200);
+    final List<Exception> failures = new Vector<Exception>();
+    Thread[] threads = new Thread[4];
+    for (int i = 0; i < threads.length; i++) {
+      threads[i] = new Thread() {
+        @Override
+        public void run() {
+          try {
+            HttpResponse response = SocialHttpClientSupport.executeGet("/rest-socialdemo/foo.json", POLICY.NO_AUTH);
+            SocialHttpClientSupport.getContent(response);
+          } catch (Exception e) {
+            failures.add(e);
+          }
+        }
+      };
+      threads[i].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertTrue(failures.isEmpty(), failures.toString());
+    assertTrue(HedgePolicy.getSaturatedCount() > 0);
+  }
+
+  @Test
+  public void shouldNotRecordTheLatenciesWhenNotHedging() throws Exception {
+    for (int i = 0; i < 30; i++) {
+      HttpResponse response = SocialHttpClientSupport.executeGet("/rest-socialdemo/foo.json", POLICY.NO_AUTH);
+      assertEquals(SocialHttpClientSupport.getContent(response), "{}");
+    }
+    HttpHost host = new HttpHost("127.0.0.1", server.getPort(), "http");
+    assertEquals(HedgePolicy.getLatencyPercentile(host, 95), -1);
+  }
+
+  @Test
+  public void shouldNotHedgeBeyondBudget() throws Exception {
+    server.setResponder(slowOnce(300));
+    SocialClientContext.setHedging(true);
+    SocialClientContext.setHedgeBudget(0);
+    for (int i = 0; i < 30; i++) {
+      HttpResponse response = SocialHttpClientSupport.executeGet("/rest-socialdemo/foo.json", POLICY.NO_AUTH);
+      assertEquals(SocialHttpClientSupport.getContent(response), "{}");
+    }
+    long hedges = HedgePolicy.getHedgeCount();
+    long exceeded = HedgePolicy.getBudgetExceededCount();
+    slowNext.set(true);
+    long start = System.currentTimeMillis();
+    HttpResponse response = SocialHttpClientSupport.executeGet("/rest-socialdemo/foo.json", POLICY.NO_AUTH);
+    assertEquals(SocialHttpClientSupport.getContent(response), "{}");
+    assertTrue(System.currentTimeMillis() - start >= 300);
+    assertEquals(HedgePolicy.getHedgeCount(), hedges);
+    assertTrue(HedgePolicy.getBudgetExceededCount() > exceeded);
+    assertEquals(server.getRequestCount(), 31);
+  }
+
+  @Test
+  public void shouldFailSlowCallsAtTheDeadline() throws Exception {
+    server.setResponder(slowOnce(2000));
+    slowNext.set(true);
+    long start = System.currentTimeMillis();
+    Deadline deadline = Deadline.start(300, TimeUnit.MILLISECONDS);
+    try {
+      SocialHttpClientSupport.executeGet("/rest-socialdemo/foo.json", POLICY.NO_AUTH);
+      fail("Expected a DeadlineExceededException");
+    } catch (DeadlineExceededException e) {
+      long elapsed = System.currentTimeMillis() - start;
+      assertTrue(elapsed < 1000, "took " + elapsed + "ms");
+    } finally {
+      deadline.end();
+    }
+    assertEquals(Deadline.current(), null);
+    HttpResponse response = SocialHttpClientSupport.executeGet("/rest-socialdemo/foo.json", POLICY.NO_AUTH);
+    assertEquals(SocialHttpClientSupport.getContent(response), "{}");
+  }
+
+  @Test
+  public void shouldAbortTricklingContentAtTheDeadline() throws Exception {
+    server.setResponder(new MockSocialServer.Responder() {
+      @Override
+      public void respond(HttpExchange exchange, byte[] requestBody) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, 0);
+        OutputStream out = exchange.getResponseBody();
+        try {
+          for (int i = 0; i < 20; i++) {
+            out.write(' ');
+            out.flush();
+            Thread.sleep(100);
+          }
+          out.write("{}".getBytes("UTF-8"));
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        } finally {
+          out.close();
+        }
+      }
+    });
+    long start = System.currentTimeMillis();
+    Deadline deadline = Deadline.start(400, TimeUnit.MILLISECONDS);
+    try {
+      HttpResponse response = SocialHttpClientSupport.executeGet("/rest-socialdemo/foo.json", POLICY.NO_AUTH);
+      SocialHttpClientSupport.getContent(response);
+      fail("Expected an IOException");
+    } catch (IOException e) {
+      long elapsed = System.currentTimeMillis() - start;
+      assertTrue(elapsed < 1500, "took " + elapsed + "ms");
+    } finally {
+      deadline.end();
+    }
+  }
+
+  @Test
+  public void shouldUnregisterTheCompletedAttemptsFromTheDeadline() throws Exception {
+    Deadline deadline = Deadline.start(10, TimeUnit.SECONDS);
+    try {
+      for (int i = 0; i < 10; i++) {
+        HttpResponse response = SocialHttpClientSupport.executeGet("/rest-socialdemo/foo.json", POLICY.NO_AUTH);
+        //registered until its content is read
+        assertEquals(deadline.getInFlight(), 1);
+        assertEquals(SocialHttpClientSupport.getContent(response), "{}");
+        assertEquals(deadline.getInFlight(), 0);
+      }
+      //the retried attempts too
+      server.setResponder(MockSocialServer.json(503, "{}"));
+      SocialHttpClientSupport.getContent(SocialHttpClientSupport.executeGet("/rest-socialdemo/foo.json",
+                                                                            POLICY.NO_AUTH));
+      assertTrue(server.getRequestCount() > 11);
+      assertEquals(deadline.getInFlight(), 0);
+    } finally {
+      deadline.end();
+    }
+  }
+
+  @Test
+  public void shouldUnregisterTheHedgesFromTheDeadline() throws Exception {
+    server.setResponder(slowOnce(1000, 20));
+    SocialClientContext.setHedging(true);
+    SocialClientContext.setHedgeBudget(100);
+    Deadline deadline = Deadline.start(10, TimeUnit.SECONDS);
+    try {
+      for (int i = 0; i < 21; i++) {
+        if (i == 20) {
+          slowNext.set(true);
+        }
+        HttpResponse response = SocialHttpClientSupport.executeGet("/rest-socialdemo/foo.json", POLICY.NO_AUTH);
+        assertEquals(SocialHttpClientSupport.getContent(response), "{}");
+        assertEquals(deadline.getInFlight(), 0);
+      }
+      assertTrue(HedgePolicy.getHedgeWinCount() > 0);
+    } finally {
+      deadline.end();
+    }
+  }
+
+  @Test
+  public void shouldNotExtendOuterDeadlines() throws Exception {
+    Deadline outer = Deadline.start(200, TimeUnit.MILLISECONDS);
+    try {
+      Deadline inner = Deadline.start(10, TimeUnit.SECONDS);
+      assertSame(Deadline.current(), inner);
+      assertTrue(inner.getRemaining(TimeUnit.MILLISECONDS) <= 200);
+      inner.end();
+      assertSame(Deadline.current(), outer);
+    } finally {
+      outer.end();
+    }
+    assertEquals(Deadline.current(), null);
+  }
+
+  @Test
+  public void shouldRejectRequestsBeyondTheConcurrencyLimit() throws Exception {
+    SocialClientContext.setConcurrencyLimiting(true);
+    SocialClientContext.setInitialConcurrencyLimit(2);
+    SocialClientContext.setConcurrencyQueueTimeout(0);
+    final AtomicInteger concurrent = new AtomicInteger();
+    final AtomicInteger maxConcurrent = new AtomicInteger();
+    server.setResponder(new MockSocialServer.Responder() {
+      @Override
+      public void respond(HttpExchange exchange, byte[] requestBody) throws IOException {
+        int current = concurrent.incrementAndGet();
+        synchronized (maxConcurrent) {
+          maxConcurrent.set(Math.max(maxConcurrent.get(), current));
+        }
+        try {
+          Thread.sleep(300);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        concurrent.decrementAndGet();
+        MockSocialServer.json(200, "{}").respond(exchange, requestBody);
+      }
+    });
+    final AtomicInteger rejected = new AtomicInteger();
+    final List<Exception> failures = new Vector<Exception>();
+    Thread[] threads = new Thread[5];
+    for (int i = 0; i < threads.length; i++) {
+      threads[i] = new Thread() {
+        @Override
+        public void run() {
+          try {
+            HttpResponse response = SocialHttpClientSupport.executeGet("/rest-socialdemo/foo.json", POLICY.NO_AUTH);
+            SocialHttpClientSupport.getContent(response);
+          } catch (Exception e) {
+            if (e.getCause() instanceof ConcurrencyLimitExceededException) {
+              rejected.incrementAndGet();
+            } else {
+              failures.add(e);
+            }
+          }
+        }
+      };
+      threads[i].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertTrue(failures.isEmpty(), failures.toString());
+    ConcurrencyLimiter limiter = ConcurrencyLimiter.forHost(new HttpHost("127.0.0.1", server.getPort(), "http"));
+    assertTrue(maxConcurrent.get() <= 2, "max concurrent " + maxConcurrent.get());
+    assertEquals(server.getRequestCount() + rejected.get(), 5);
+    assertTrue(rejected.get() >= 1);
+    assertEquals(limiter.getRejectedCount(), rejected.get());
+    assertEquals(limiter.getInFlight(), 0);
+  }
+
+  @Test
+  public void shouldShrinkTheConcurrencyLimitOnlyWhenTheHostIsOverloaded() throws Exception {
+    SocialClientContext.setConcurrencyLimiting(true);
+    SocialClientContext.setMaxRetries(0);
+    ConcurrencyLimiter limiter = ConcurrencyLimiter.forHost(new HttpHost("127.0.0.1", server.getPort(), "http"));
+    server.setResponder(MockSocialServer.json(502, "{}"));
+    SocialHttpClientSupport.getContent(SocialHttpClientSupport.executeGet("/rest-socialdemo/foo.json", POLICY.NO_AUTH));
+    assertEquals(limiter.getDecreaseCount(), 0);
+
+    //an attempt aborted by its deadline is not an overload
+    server.setResponder(slowOnce(2000));
+    slowNext.set(true);
+    Deadline deadline = Deadline.start(50, TimeUnit.MILLISECONDS);
+    try {
+      SocialHttpClientSupport.executeGet("/rest-socialdemo/foo.json", POLICY.NO_AUTH);
+      fail("Expected a DeadlineExceededException");
+    } catch (DeadlineExceededException e) {
+      assertEquals(limiter.getDecreaseCount(), 0);
+    } finally {
+      deadline.end();
+    }
+
+    server.setResponder(MockSocialServer.json(503, "{}"));
+    SocialHttpClientSupport.getContent(SocialHttpClientSupport.executeGet("/rest-socialdemo/foo.json", POLICY.NO_AUTH));
+    assertEquals(limiter.getDecreaseCount(), 1);
+    assertEquals(limiter.getInFlight(), 0);
+  }
+
+  @Test
+  public void shouldAdaptTheConcurrencyLimitToLatencies() throws Exception {
+    SocialClientContext.setInitialConcurrencyLimit(10);
+    ConcurrencyLimiter limiter = ConcurrencyLimiter.forHost(new HttpHost("limited.example.org"));
+    long fast = TimeUnit.MILLISECONDS.toNanos(2);
+    //the limit grows while it is used and the latencies stay low
+    for (int i = 0; i < 100; i++) {
+      for (int j = 0; j < 10; j++) {
+        assertTrue(limiter.acquire(0));
+      }
+      for (int j = 0; j < 10; j++) {
+        limiter.release(fast, false);
+      }
+    }
+    int grown = limiter.getLimit();
+    assertTrue(grown > 10, "limit " + grown);
+
+    //and shrinks once per round trip when they rise
+    for (int j = 0; j < 5; j++) {
+      assertTrue(limiter.acquire(0));
+    }
+    for (int j = 0; j < 5; j++) {
+      limiter.release(TimeUnit.MILLISECONDS.toNanos(50), false);
+    }
+    assertEquals(limiter.getDecreaseCount(), 1);
+    assertTrue(limiter.getLimit() < grown);
+    Thread.sleep(60);
+    assertTrue(limiter.acquire(0));
+    limiter.release(TimeUnit.MILLISECONDS.toNanos(1), true);
+    assertEquals(limiter.getDecreaseCount(), 2);
+    assertEquals(limiter.getInFlight(), 0);
+  }
+
+  @Test
+  public void shouldBalanceRequestsAcrossEndpoints() throws Exception {
+    MockSocialServer other = new MockSocialServer();
+    try {
+      SocialClientContext.setEndpoints(Arrays.asList(new HttpHost("127.0.0.1", server.getPort(), "http"),
+                                                     new HttpHost("127.0.0.1", other.getPort(), "http")));
+      SocialClientContext.setHealthCheckInterval(0);
+      for (int i = 0; i < 40; i++) {
+        HttpResponse response = SocialHttpClientSupport.executeGet("/rest-socialdemo/foo.json", POLICY.NO_AUTH);
+        assertEquals(SocialHttpClientSupport.getContent(response), "{}");
+      }
+      assertTrue(server.getRequestCount() > 0 && other.getRequestCount() > 0,
+                 server.getRequestCount() + "/" + other.getRequestCount());
+
+      //the failing endpoint is ejected, then admitted again once its health probe succeeds
+      other.setResponder(MockSocialServer.json(503, "{}"));
+      SocialClientContext.setMaxRetries(0);
+      for (int i = 0; i < 10; i++) {
+        HttpResponse response = SocialHttpClientSupport.executeGet("/rest-socialdemo/foo.json", POLICY.NO_AUTH);
+        SocialHttpClientSupport.getContent(response);
+      }
+      EndpointPool.Endpoint ejected = EndpointPool.getEndpoints().get(1);
+      assertEquals(ejected.isHealthy(), false);
+      assertEquals(ejected.getEjectedCount(), 1);
+      int requests = other.getRequestCount();
+      for (int i = 0; i < 10; i++) {
+        HttpResponse response = SocialHttpClientSupport.executeGet("/rest-socialdemo/foo.json", POLICY.NO_AUTH);
+        assertEquals(SocialHttpClientSupport.getContent(response), "{}");
+      }
+      assertEquals(other.getRequestCount(), requests);
+      other.setResponder(MockSocialServer.json(200, "{}"));
+      EndpointPool.probe();
+      assertEquals(ejected.isHealthy(), true);
+      assertEquals(other.getRequestCount(), requests + 1);
+    } finally {
+      other.stop();
+    }
+  }
+
+  @Test
+  public void shouldRecordTheAsyncRequestsOnTheirEndpoint() throws Exception {
+    SocialClientContext.setEndpoints(Arrays.asList(new HttpHost("127.0.0.1", server.getPort(), "http")));
+    SocialClientContext.setHealthCheckInterval(0);
+    EndpointPool.Endpoint endpoint = EndpointPool.getEndpoints().get(0);
+    //the callback is notified once the endpoint recorded the request
+    final CountDownLatch notified = new CountDownLatch(3);
+    AsyncCallback<HttpResponse> callback = new AsyncCallback<HttpResponse>() {
+      @Override
+      public void completed(HttpResponse result) {
+        notified.countDown();
+      }
+
+      @Override
+      public void failed(Exception ex) {
+        notified.countDown();
+      }
+
+      @Override
+      public void cancelled() {
+        notified.countDown();
+      }
+    };
+    SocialHttpClientSupport.executeGetAsync("/rest-socialdemo/foo.json", POLICY.NO_AUTH, callback)
+                           .get(5, TimeUnit.SECONDS);
+    server.setResponder(MockSocialServer.json(503, "{}"));
+    for (int i = 0; i < 2; i++) {
+      SocialHttpClientSupport.executeGetAsync("/rest-socialdemo/foo.json", POLICY.NO_AUTH, callback)
+                             .get(5, TimeUnit.SECONDS);
+    }
+    assertTrue(notified.await(5, TimeUnit.SECONDS));
+    assertEquals(endpoint.getRequestCount(), 3);
+    assertEquals(endpoint.getOutstanding(), 0);
+    //ejected after the default 2 consecutive failures
+    assertEquals(endpoint.isHealthy(), false);
+  }
+
+  @Test
+  public void shouldKeepTheRequestsOfAUserOnOneEndpoint() throws Exception {
+    MockSocialServer other = new MockSocialServer();
+    try {
+      SocialClientContext.setEndpoints(Arrays.asList(new HttpHost("127.0.0.1", server.getPort(), "http"),
+                                                     new HttpHost("127.0.0.1", other.getPort(), "http")));
+      SocialClientContext.setHealthCheckInterval(0);
+      SocialClientContext.setStickySessions(true);
+      SocialClientContext.setLoadBalancing(SocialClientContext.LoadBalancing.EWMA_LATENCY);
+      SocialClientContext.setUsername("demo");
+      SocialClientContext.setPassword("gtn");
+      for (int i = 0; i < 20; i++) {
+        HttpResponse response = SocialHttpClientSupport.executeGet("/rest-socialdemo/foo.json", POLICY.BASIC_AUTH);
+        assertEquals(SocialHttpClientSupport.getContent(response), "{}");
+      }
+      assertTrue(server.getRequestCount() == 0 || other.getRequestCount() == 0,
+                 server.getRequestCount() + "/" + other.getRequestCount());
+      for (EndpointPool.Endpoint endpoint : EndpointPool.getEndpoints()) {
+        assertEquals(endpoint.getOutstanding(), 0);
+      }
+    } finally {
+      other.stop();
+    }
+  }
+
+  @Test
+  public void shouldTimeThePhasesAndPropagateTheTraceId() throws Exception {
+    final List<String> traceIds = new Vector<String>();
+    server.setResponder(new MockSocialServer.Responder() {
+      @Override
+      public void respond(HttpExchange exchange, byte[] requestBody) throws IOException {
+        traceIds.add(exchange.getRequestHeaders().getFirst("X-Request-Id"));
+        slowOnce(50).respond(exchange, requestBody);
+      }
+    });
+    final List<Context> traced = new Vector<Context>();
+    SocialClientContext.setTracer(new RequestTracer() {
+      @Override
+      public void traced(Context context) {
+        traced.add(context);
+      }
+    });
+    SocialClientContext.setCurrentContext(null);
+    slowNext.set(true);
+    HttpResponse response = SocialHttpClientSupport.executeGet("/rest/slow.json", POLICY.NO_AUTH);
+    Context context = SocialClientContext.getCurrentContext();
+    assertSame(context.getResponse(), response);
+    assertTrue(traced.isEmpty(), "traced before the content is read");
+    SocialHttpClientSupport.getContent(response);
+    assertEquals(traced.size(), 1);
+    assertSame(traced.get(0), context);
+    assertTrue(context.isCompleted());
+    assertNull(SocialClientContext.getCurrentContext(), "the thread keeps the completed request");
+    assertEquals(traceIds.get(0), context.getTraceId());
+    assertTrue(context.getPhaseTime(Phase.CONNECT, TimeUnit.NANOSECONDS) > 0, context.toString());
+    assertTrue(context.getPhaseTime(Phase.SEND, TimeUnit.NANOSECONDS) > 0, context.toString());
+    assertTrue(context.getPhaseTime(Phase.SERVER, TimeUnit.MILLISECONDS) >= 45, context.toString());
+    assertTrue(context.getTotalTime(TimeUnit.NANOSECONDS) >= context.getResponseTime(TimeUnit.NANOSECONDS));
+
+    //a kept-alive connection, and the trace id of the caller
+    SocialClientContext.setTraceId("caller-trace");
+    try {
+      SocialHttpClientSupport.getContent(SocialHttpClientSupport.executeGet("/rest/fast.json", POLICY.NO_AUTH));
+    } finally {
+      SocialClientContext.setTraceId(null);
+    }
+    Context second = traced.get(1);
+    assertEquals(second.getTraceId(), "caller-trace");
+    assertEquals(traceIds.get(1), "caller-trace");
+    assertEquals(second.getPhaseTime(Phase.CONNECT, TimeUnit.NANOSECONDS), 0);
+  }
+
+  @Test
+  public void shouldShareOneClientUntilShutdown() {
+    SocialHttpClient first = SocialHttpClientImpl.getInstance();
+    assertSame(SocialHttpClientImpl.getInstance(), first);
+    SocialHttpClientImpl.shutdownInstance();
+    assertNotSame(SocialHttpClientImpl.getInstance(), first);
+  }
+
+  /**
+   * Answers {} to all requests, after a delay for the first request received once slowNext is set.
+   */
+  private MockSocialServer.Responder slowOnce(long delay) {
+    return slowOnce(delay, 0);
+  }
+
+  private MockSocialServer.Responder slowOnce(final long delay, final long otherDelay) {
+    return new MockSocialServer.Responder() {
+      @Override
+      public void respond(HttpExchange exchange, byte[] requestBody) throws IOException {
+        long sleep = slowNext.getAndSet(false) ? delay : otherDelay;
+        if (sleep > 0) {
+          try {
+            Thread.sleep(sleep);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+        }
+        MockSocialServer.json(200, "{}").respond(exchange, requestBody);
+      }
+    };
+  }
+
+  private static void sendEncoded(HttpExchange exchange, String encoding, byte[] content) throws IOException {
+    exchange.getResponseHeaders().set("Content-Type", "application/json");
+    exchange.getResponseHeaders().set("Content-Encoding", encoding);
+    exchange.sendResponseHeaders(200, content.length);
+    OutputStream out = exchange.getResponseBody();
+    out.write(content);
+    out.close();
+  }
+
+  private static String repeat(String s, int times) {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < times; i++) {
+      sb.append(s);
+    }
+    return sb.toString();
+  }
+}
@@ -16,9 +16,11 @@
  */
 package org.exoplatform.social.client.core.util;
 
+import java.util.List;
 import java.util.Map;
 
 import org.exoplatform.social.client.core.model.RestActivityImpl;
+import org.exoplatform.social.client.core.model.RestCommentImpl;
 import org.json.simple.JSONArray;
 import org.json.simple.JSONObject;
 import org.json.simple.JSONValue;
@@ -91,4 +93,24 @@ public class SocialJSONDecodingSupportTest {
     RestActivityImpl model3 = SocialJSONDecodingSupport.JSONArrayObjectParser(RestActivityImpl.class, jsonArray.toJSONString()).get(0);
     assertEquals(model3.getIdentityId(), "f845f6ed7f000101003ed4d98a09beb3");
   }
+
+  @Test
+  public void testJsonArrayParserInOnePass() throws Exception {
+    String jsonComments = "[{\"id\":\"c1\",\"text\":\"nice\",\"postedTime\":1309839511900,\"likes\":[{\"id\":\"i1\"}]},"
+                        + "{\"id\":\"c2\",\"text\":\"caf\\u00e9\",\"postedTime\":1309839512000,\"likes\":[]}]";
+    List<RestCommentImpl> comments = SocialJSONDecodingSupport.JSONArrayObjectParser(RestCommentImpl.class, jsonComments);
+    //as parsing each element of the array again
+    JSONArray jsonArray = (JSONArray) JSONValue.parse(jsonComments);
+    assertEquals(comments.size(), jsonArray.size());
+    for (int i = 0; i < comments.size(); i++) {
+      RestCommentImpl expected = SocialJSONDecodingSupport.parser(RestCommentImpl.class, jsonArray.get(i).toString());
+      assertEquals(comments.get(i), expected);
+      assertEquals(((List) comments.get(i).getField("likes")).size(), ((List) expected.getField("likes")).size());
+    }
+    assertEquals(((List) comments.get(0).getField("likes")).get(0).getClass(), RestCommentImpl.class);
+
+    List<RestCommentImpl> fieldComments =
+        SocialJSONDecodingSupport.JSONArrayObjectParser(RestCommentImpl.class, "{\"comments\":" + jsonComments + "}", "comments");
+    assertEquals(fieldComments, comments);
+  }
 }
@@ -0,0 +1,234 @@
+/*
+ * Copyright (C) 2003-2011 eXo Platform SAS.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.exoplatform.social.client.core.util;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.exoplatform.social.client.api.common.ElementHandler;
+import org.exoplatform.social.client.core.model.RestActivityImpl;
+import org.exoplatform.social.client.core.model.RestIdentityImpl;
+import org.json.simple.parser.JSONParser;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Unit Test for {@link StreamingJSONDecoder}, against the json-simple {@link JSONParser}.
+ */
+public class StreamingJSONDecoderTest {
+
+  private static final String[] CONTENTS = {
+      "{\"a\" 1}", "{\"a\"::1,,}", "[1 2,,3]", "[,1]", "{,\"a\":1}", "\f[1]", "[1]x", "", " ", "[\"a\nb\"]",
+      "[\"\\x\"]", "[\"\\u12\"]", "[\"\\u00E9\\/\"]", "[01]", "[-0]", "[-01]", "[1.5e3,1E2,-2.0,1.5E+3,1.5e-3]",
+      "[99999999999999999999]", "[-9223372036854775808]", "[1.0e400]", "[tru]", "[true false null]",
+      "[truefalse]", "{\"a\":1}{", "{1:2}", "[1,]", "{\"a\":}", "-", "[.5]", "[1.]", "[+1]", "[1e]", "[1e5]",
+      "{\"a\"}", "{\"a\":1:2}", "[1:2]", "[1 -2]", "[1-2]", "[\"a\"\"b\"]", "{\"a\":1,\"a\":2}",
+      "[\"a\\\"b\\\\c\\bd\\f\\n\\r\\t\"]", "[\"\\'\"]", "[\"abc", "{\"a\":1", "{\"a\":[", "\"x\"", "12", "nul",
+      "[\"\\", "[\"\\u", "{\"a\":1}\"", "{\"a\":1}\"x\"", "[1]]", "\"", "{\"a\":[1,{\"b\":{\"c\":[]}}]}",
+  };
+
+  private static final String[] FRAGMENTS = {
+      "{", "}", "[", "]", ",", ":", " ", "\n", "\"a\"", "\"id\"", "\"k\\\"\"", "\"\\u00e9\"", "\"\\x\"", "\"",
+      "1", "-2", "3.5", "1e3", "0", "true", "false", "null", "x", "\\", "tru", ".",
+  };
+
+  private static final String[] VALUES = {
+      "\"a\"", "\"id\"", "\"k\\\"\"", "\"\\u00e9\"", "\"\\x\"", "\"\"", "1", "-2", "3.5", "1e3", "0",
+      "true", "false", "null",
+  };
+
+  @Test
+  public void shouldDecodeAsJSONSimple() throws Exception {
+    for (String content : CONTENTS) {
+      assertSameDecoding(content);
+    }
+  }
+
+  @Test
+  public void shouldDecodeRandomContentsAsJSONSimple() throws Exception {
+    Random random = new Random(42);
+    for (int i = 0; i < 20000; i++) {
+      StringBuilder content = new StringBuilder();
+      appendValue(random, 0, content);
+      //some contents are made malformed or lenient
+      if (random.nextInt(3) == 0) {
+        int at = random.nextInt(content.length() + 1);
+        if (random.nextBoolean() && at < content.length()) {
+          content.deleteCharAt(at);
+        } else {
+          content.insert(at, FRAGMENTS[random.nextInt(FRAGMENTS.length)]);
+        }
+      }
+      assertSameDecoding(content.toString());
+    }
+  }
+
+  private static void appendValue(Random random, int depth, StringBuilder content) {
+    int kind = random.nextInt(depth < 4 ? 4 : 2);
+    if (kind == 0 || kind == 1) {
+      content.append(VALUES[random.nextInt(VALUES.length)]);
+    } else if (kind == 2) {
+      content.append('{');
+      int fields = random.nextInt(4);
+      for (int i = 0; i < fields; i++) {
+        content.append(VALUES[random.nextInt(6)]).append(':');
+        appendValue(random, depth + 1, content);
+        content.append(i < fields - 1 ? "," : "");
+      }
+      content.append('}');
+    } else {
+      content.append('[');
+      int elements = random.nextInt(4);
+      for (int i = 0; i < elements; i++) {
+        appendValue(random, depth + 1, content);
+        content.append(i < elements - 1 ? ", " : "");
+      }
+      content.append(']');
+    }
+  }
+
+  @Test
+  public void shouldDecodeContentsLongerThanTheBuffer() throws Exception {
+    StringBuilder content = new StringBuilder("{\"activities\":[");
+    for (int i = 0; i < 500; i++) {
+      content.append("{\"id\":\"a").append(i).append("\",\"title\":\"caf\\u00e9 \\\"").append(i)
+             .append("\\\"\",\"postedTime\":").append(1309839511830L + i).append(",\"priority\":0.").append(i)
+             .append(",\"liked\":").append(i % 2 == 0).append(",\"comments\":[]},");
+    }
+    content.append("]}");
+    assertTrue(content.length() > 4096 * 4);
+    assertSameDecoding(content.toString());
+  }
+
+  @Test
+  public void shouldDecodeModels() throws Exception {
+    String json = "{\"id\":\"a1\",\"title\":\"Hello\",\"likedByIdentities\":[{\"id\":\"i1\"}],\"comments\":[]}";
+    RestActivityImpl activity = SocialJSONDecodingSupport.parser(RestActivityImpl.class, json);
+    assertEquals(activity, new JSONParser().parse(json));
+    assertEquals(activity.getField("likedByIdentities").getClass(), ArrayList.class);
+    assertEquals(((List) activity.getField("likedByIdentities")).get(0).getClass(), RestActivityImpl.class);
+
+    RestIdentityImpl first = SocialJSONDecodingSupport.parser(RestIdentityImpl.class, "{\"id\":\"i1\"}");
+    RestIdentityImpl second = SocialJSONDecodingSupport.parser(RestIdentityImpl.class, "{\"id\":\"i2\"}");
+    //the field names are shared
+    assertSame(first.keySet().iterator().next(), second.keySet().iterator().next());
+  }
+
+  @Test
+  public void shouldHandOutTheElementsOfAField() throws Exception {
+    String json = "{\"total\":2,\"activities\":[{\"id\":\"a1\",\"activities\":[1]},{\"id\":\"a2\"}],\"more\":true}";
+    final List<Object> elements = new ArrayList<Object>();
+    Map object = (Map) StreamingJSONDecoder.get().decode(new TricklingReader(json), null, "activities",
+                                                         new ElementHandler<Object>() {
+      public void handle(Object element) {
+        elements.add(element);
+      }
+    });
+    List expected = (List) ((Map) new JSONParser().parse(json)).get("activities");
+    assertEquals(elements, expected);
+    //only the field of the top-level object is handed out, and its elements are not kept
+    assertEquals(((Map) elements.get(0)).get("activities"), Arrays.asList(1L));
+    assertEquals(object.get("activities"), new ArrayList());
+    assertEquals(object.get("total"), 2L);
+    assertEquals(object.get("more"), Boolean.TRUE);
+    //the next decoding keeps its elements
+    assertEquals(describe(decode(json, null)), decodeWithJSONSimple(json));
+  }
+
+  private static void assertSameDecoding(String content) throws Exception {
+    String expected = decodeWithJSONSimple(content);
+    assertEquals(describe(decode(content, null)), expected, content);
+    assertEquals(describe(decode(null, new TricklingReader(content))), expected, content);
+  }
+
+  private static String decodeWithJSONSimple(String content) {
+    try {
+      return describe(new JSONParser().parse(content));
+    } catch (Exception e) {
+      return e.toString();
+    }
+  }
+
+  private static Object decode(String content, Reader reader) {
+    try {
+      if (reader != null) {
+        return StreamingJSONDecoder.get().decode(reader, null);
+      }
+      return StreamingJSONDecoder.get().decode(content, null);
+    } catch (Exception e) {
+      return e;
+    }
+  }
+
+  /**
+   * Describes a decoded value with the types of its leaves.
+   */
+  private static String describe(Object value) {
+    if (value instanceof Exception) {
+      return value.toString();
+    }
+    if (value instanceof Map) {
+      StringBuilder description = new StringBuilder("{");
+      for (Object entry : ((Map) value).entrySet()) {
+        Map.Entry field = (Map.Entry) entry;
+        description.append(field.getKey()).append('=').append(describe(field.getValue())).append(',');
+      }
+      return description.append('}').toString();
+    }
+    if (value instanceof List) {
+      StringBuilder description = new StringBuilder("[");
+      for (Object element : (List) value) {
+        description.append(describe(element)).append(',');
+      }
+      return description.append(']').toString();
+    }
+    return value == null ? "null" : value.getClass().getSimpleName() + ':' + value;
+  }
+
+  /**
+   * Gives the content a few chars at a time, so that the tokens are split between the reads.
+   */
+  private static final class TricklingReader extends Reader {
+
+    private final Reader content;
+
+    private final Random random = new Random(7);
+
+    private TricklingReader(String content) {
+      this.content = new StringReader(content);
+    }
+
+    @Override
+    public int read(char[] buffer, int offset, int length) throws IOException {
+      return content.read(buffer, offset, Math.min(length, 1 + random.nextInt(3)));
+    }
+
+    @Override
+    public void close() throws IOException {
+      content.close();
+    }
+  }
+}
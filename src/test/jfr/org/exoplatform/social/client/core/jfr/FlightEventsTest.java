@@ -0,0 +1,127 @@
+/*
+ * Copyright (C) 2003-2011 eXo Platform SAS.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.exoplatform.social.client.core.jfr;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.exoplatform.social.client.api.SocialClientContext;
+import org.exoplatform.social.client.api.model.RestActivity;
+import org.exoplatform.social.client.api.service.ActivityService;
+import org.exoplatform.social.client.core.model.RestActivityImpl;
+import org.exoplatform.social.client.core.net.LoopbackTransport;
+import org.exoplatform.social.client.core.service.ActivityServiceImplV1Alpha3;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Unit Test for {@link FlightEvents}, over a {@link LoopbackTransport}.
+ */
+public class FlightEventsTest {
+
+  private static final String ACTIVITY = "{\"id\":\"a1\",\"title\":\"Hello\",\"identityId\":\"i1\"}";
+
+  @BeforeMethod
+  public void setUp() {
+    SocialClientContext.setUsername("demo");
+    SocialClientContext.setPassword("gtn");
+    SocialClientContext.setTransport(new LoopbackTransport()
+        .register("/activity/a1\\.json$", ACTIVITY)
+        .register("/activity\\.json$", ACTIVITY)
+        .register("/activity/destroy/a1\\.json$", ACTIVITY));
+  }
+
+  @AfterMethod
+  public void tearDown() {
+    SocialClientContext.setTransport(null);
+    SocialClientContext.setUsername(null);
+    SocialClientContext.setPassword(null);
+  }
+
+  @Test
+  public void shouldEmitTheEventsWhenRecording() throws Exception {
+    ActivityService<RestActivity> service = new ActivityServiceImplV1Alpha3();
+    Recording recording = new Recording();
+    recording.enable(HttpExchangeEvent.class).withoutThreshold();
+    recording.enable(DecodeEvent.class).withoutThreshold();
+    recording.enable(ServiceOperationEvent.class).withoutThreshold();
+    recording.start();
+    RestActivity activity = service.get("a1");
+    RestActivityImpl newActivity = new RestActivityImpl();
+    newActivity.setTitle("Hello");
+    service.create(newActivity);
+    service.delete(activity);
+    recording.stop();
+
+    File file = File.createTempFile("social-client", ".jfr");
+    try {
+      recording.dump(file.toPath());
+      List<RecordedEvent> exchanges = new ArrayList<RecordedEvent>();
+      List<RecordedEvent> decodes = new ArrayList<RecordedEvent>();
+      List<RecordedEvent> operations = new ArrayList<RecordedEvent>();
+      for (RecordedEvent event : RecordingFile.readAllEvents(file.toPath())) {
+        String name = event.getEventType().getName();
+        if (name.equals("org.exoplatform.social.client.HttpExchange")) {
+          exchanges.add(event);
+        } else if (name.equals("org.exoplatform.social.client.JSONDecode")) {
+          decodes.add(event);
+        } else if (name.equals("org.exoplatform.social.client.ServiceOperation")) {
+          operations.add(event);
+        }
+      }
+      assertEquals(exchanges.size(), 3);
+      RecordedEvent get = exchanges.get(0);
+      assertEquals(get.getString("method"), "GET");
+      assertEquals(get.getString("template"), "activity/{id}.json");
+      assertEquals(get.getInt("status"), 200);
+      assertEquals(get.getLong("bytesIn"), ACTIVITY.length());
+      assertTrue(get.getString("traceId") != null);
+      assertEquals(exchanges.get(1).getString("method"), "POST");
+      assertTrue(exchanges.get(1).getLong("bytesOut") > 0);
+
+      assertEquals(decodes.size(), 3);
+      assertEquals(decodes.get(0).getClass("modelClass").getName(), RestActivityImpl.class.getName());
+      assertEquals(decodes.get(0).getInt("elementCount"), 1);
+
+      assertEquals(operations.size(), 3);
+      assertEquals(operations.get(0).getString("operation"), "get");
+      assertEquals(operations.get(0).getClass("serviceClass").getName(), ActivityServiceImplV1Alpha3.class.getName());
+      assertEquals(operations.get(1).getString("operation"), "create");
+      assertEquals(operations.get(1).getClass("modelClass").getName(), RestActivityImpl.class.getName());
+      assertEquals(operations.get(2).getString("operation"), "delete");
+      assertTrue(operations.get(2).getDuration().compareTo(exchanges.get(2).getDuration()) >= 0);
+    } finally {
+      recording.close();
+      file.delete();
+    }
+  }
+
+  @Test
+  public void shouldNotCreateEventsWhenNotRecording() {
+    assertEquals(FlightEvents.beginExchange(), null);
+    assertEquals(FlightEvents.beginDecode(), null);
+    assertEquals(FlightEvents.beginOperation(), null);
+  }
+}